@@ -0,0 +1,103 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+
+/**
+ * Throughput of {@link AsyncAppender} with 1 to 8 producing threads and an
+ * attached appender that does nothing, so that the queue hand-off is what
+ * is measured. Producers block when the queue is full.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class AsyncAppenderBenchmark {
+
+  @Param({ "256", "8192" })
+  public int queueSize;
+
+  @Param({ "false", "true" })
+  public boolean ringBuffer;
+
+  private LoggerContext context;
+  private AsyncAppender appender;
+  private LoggingEvent event;
+
+  @Setup
+  public void setUp() {
+    context = Events.newContext();
+    NOPAppender<ILoggingEvent> nop = new NOPAppender<ILoggingEvent>();
+    nop.setContext(context);
+    nop.start();
+    appender = new AsyncAppender();
+    appender.setContext(context);
+    appender.setQueueSize(queueSize);
+    appender.setRingBuffer(ringBuffer);
+    // measure the hand-off, not the discarding of events
+    appender.setDiscardingThreshold(0);
+    appender.addAppender(nop);
+    appender.start();
+    event = Events.newEvent(context);
+  }
+
+  @TearDown
+  public void tearDown() {
+    appender.stop();
+    context.stop();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void producers1() {
+    appender.doAppend(event);
+  }
+
+  @Benchmark
+  @Threads(2)
+  public void producers2() {
+    appender.doAppend(event);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void producers4() {
+    appender.doAppend(event);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void producers8() {
+    appender.doAppend(event);
+  }
+}
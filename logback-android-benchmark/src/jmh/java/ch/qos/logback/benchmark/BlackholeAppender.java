@@ -0,0 +1,40 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * An appender that formats the message of each event and hands it to a JMH
+ * {@link Blackhole}, so that neither the formatting nor the call is optimized
+ * away. It must only be called from the benchmark thread owning the blackhole.
+ */
+class BlackholeAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+  private final Blackhole blackhole;
+
+  BlackholeAppender(Blackhole blackhole) {
+    this.blackhole = blackhole;
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    blackhole.consume(event.getFormattedMessage());
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+/**
+ * Builds the events and contexts shared by the benchmarks.
+ */
+final class Events {
+
+  static final String LOGGER_NAME = "ch.qos.logback.benchmark.SomeComponent";
+
+  private Events() {
+  }
+
+  static LoggerContext newContext() {
+    LoggerContext context = new LoggerContext();
+    context.setName("benchmark");
+    return context;
+  }
+
+  /**
+   * Returns a typical event: a message with two arguments, no exception.
+   */
+  static LoggingEvent newEvent(LoggerContext context) {
+    Logger logger = context.getLogger(LOGGER_NAME);
+    LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO,
+        "Processed request {} in {} ms", null, new Object[] { "GET /index.html", 42 });
+    event.setThreadName("main");
+    return event;
+  }
+}
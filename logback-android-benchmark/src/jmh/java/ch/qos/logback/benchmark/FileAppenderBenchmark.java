@@ -0,0 +1,130 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileBackend;
+import ch.qos.logback.core.util.FileSize;
+
+/**
+ * Write throughput of {@link FileAppender} and {@link RollingFileAppender},
+ * for each file backend, with and without flushing after every event. A
+ * fresh file is used for each iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class FileAppenderBenchmark {
+
+  static final String PATTERN = "%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+  @Param({ "false", "true" })
+  public boolean rolling;
+
+  @Param({ "STREAM", "CHANNEL", "MAPPED" })
+  public FileBackend backend;
+
+  @Param({ "true", "false" })
+  public boolean immediateFlush;
+
+  private File directory;
+  private LoggerContext context;
+  private FileAppender<ILoggingEvent> appender;
+  private LoggingEvent event;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("logback-benchmark").toFile();
+    context = Events.newContext();
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(context);
+    encoder.setPattern(PATTERN);
+    encoder.start();
+
+    String file = new File(directory, "benchmark.log").getPath();
+    if (rolling) {
+      RollingFileAppender<ILoggingEvent> rfa = new RollingFileAppender<ILoggingEvent>();
+      rfa.setContext(context);
+      SizeAndTimeBasedRollingPolicy<ILoggingEvent> policy = new SizeAndTimeBasedRollingPolicy<ILoggingEvent>();
+      policy.setContext(context);
+      policy.setParent(rfa);
+      policy.setFileNamePattern(new File(directory, "benchmark-%d{yyyy-MM-dd}.%i.log").getPath());
+      policy.setMaxFileSize(FileSize.valueOf("10MB"));
+      policy.setMaxHistory(2);
+      policy.setTotalSizeCap(FileSize.valueOf("100MB"));
+      policy.start();
+      rfa.setRollingPolicy(policy);
+      appender = rfa;
+    } else {
+      appender = new FileAppender<ILoggingEvent>();
+      appender.setContext(context);
+      appender.setAppend(false);
+    }
+    appender.setFile(file);
+    appender.setBackend(backend);
+    appender.setImmediateFlush(immediateFlush);
+    appender.setEncoder(encoder);
+    appender.start();
+    if (!appender.isStarted()) {
+      throw new IllegalStateException("appender failed to start");
+    }
+    event = Events.newEvent(context);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    appender.stop();
+    context.stop();
+    delete(directory);
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  @Benchmark
+  public void append() {
+    appender.doAppend(event);
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+/**
+ * Cost of a logging call, from the level check to an appender that formats
+ * the message. The logger is enabled for INFO, so that DEBUG calls measure
+ * the disabled path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LoggerBenchmark {
+
+  private LoggerContext context;
+  private Logger logger;
+  private LoggingEvent event;
+
+  // fields rather than constants, so that the arguments are not folded
+  private String arg1 = "GET /index.html";
+  private Integer arg2 = 42;
+  private Object[] args = { "GET", "/index.html", 200, 1024L, 42 };
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    context = Events.newContext();
+    BlackholeAppender appender = new BlackholeAppender(blackhole);
+    appender.setContext(context);
+    appender.start();
+    Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+    root.setLevel(Level.INFO);
+    root.addAppender(appender);
+    logger = context.getLogger(Events.LOGGER_NAME);
+    event = Events.newEvent(context);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.stop();
+  }
+
+  @Benchmark
+  public boolean isDebugEnabled() {
+    return logger.isDebugEnabled();
+  }
+
+  @Benchmark
+  public void debugDisabled() {
+    logger.debug("Processed request {} in {} ms", arg1, arg2);
+  }
+
+  @Benchmark
+  public void debugDisabledVarargs() {
+    logger.debug("{} {} -> {} ({} bytes, {} ms)", args);
+  }
+
+  /**
+   * Dispatch of a ready-made event from a logger five levels below root to
+   * the appender attached to root.
+   */
+  @Benchmark
+  public void callAppenders() {
+    logger.callAppenders(event);
+  }
+
+  @Benchmark
+  public void info0() {
+    logger.info("Processed request");
+  }
+
+  @Benchmark
+  public void info1() {
+    logger.info("Processed request {}", arg1);
+  }
+
+  @Benchmark
+  public void info2() {
+    logger.info("Processed request {} in {} ms", arg1, arg2);
+  }
+
+  @Benchmark
+  public void infoVarargs() {
+    logger.info("{} {} -> {} ({} bytes, {} ms)", args);
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Cost of {@link LoggerContext#getLogger(String)}, both when creating
+ * thousands of loggers in a fresh context and when looking up loggers which
+ * already exist. Names are either flat (one logger per tag, directly under
+ * root), spread over a hundred packages, or nested a few levels deep.
+ */
+@State(Scope.Thread)
+public class LoggerContextBenchmark {
+
+  public enum NameShape {
+    FLAT, PACKAGES, DEEP
+  }
+
+  @Param({ "10000", "50000" })
+  public int count;
+
+  @Param({ "FLAT", "PACKAGES", "DEEP" })
+  public NameShape shape;
+
+  private String[] names;
+  private LoggerContext context;
+
+  @Setup(Level.Trial)
+  public void setUpNames() {
+    names = new String[count];
+    for (int i = 0; i < count; i++) {
+      switch (shape) {
+        case FLAT:
+          names[i] = "tag" + i;
+          break;
+        case PACKAGES:
+          names[i] = "com.example.module" + (i % 100) + ".Component" + i;
+          break;
+        default:
+          names[i] = "com.example.a" + (i % 10) + ".b" + (i % 100) + ".c" + (i % 1000)
+              + ".Component" + i;
+          break;
+      }
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpContext() {
+    context = Events.newContext();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDownContext() {
+    context.stop();
+  }
+
+  /**
+   * Creates every logger in an empty context.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void createLoggers(Blackhole blackhole) {
+    for (String name : names) {
+      blackhole.consume(context.getLogger(name));
+    }
+  }
+
+  /**
+   * Looks up a logger which already exists.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Logger lookupExisting(Populated populated) {
+    return populated.next();
+  }
+
+  @State(Scope.Thread)
+  public static class Populated {
+
+    private LoggerContext context;
+    private String[] names;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp(LoggerContextBenchmark benchmark) {
+      context = Events.newContext();
+      names = benchmark.names;
+      for (String name : names) {
+        context.getLogger(name);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      context.stop();
+    }
+
+    Logger next() {
+      if (++index == names.length) {
+        index = 0;
+      }
+      return context.getLogger(names[index]);
+    }
+  }
+}
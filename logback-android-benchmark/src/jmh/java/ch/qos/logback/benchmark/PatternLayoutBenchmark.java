@@ -0,0 +1,67 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+/**
+ * Cost of {@link PatternLayout#doLayout} for common patterns. The same event
+ * is laid out repeatedly, so date formatting benefits from its per-second
+ * cache as it would under a burst of events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PatternLayoutBenchmark {
+
+  @Param({
+      "%msg%n",
+      "%-5level %logger{36} - %msg%n",
+      "%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n",
+      "%date{ISO8601} %level [%thread] %logger %mdc - %msg%n%ex" })
+  public String pattern;
+
+  private PatternLayout layout;
+  private LoggingEvent event;
+
+  @Setup
+  public void setUp() {
+    LoggerContext context = Events.newContext();
+    layout = new PatternLayout();
+    layout.setContext(context);
+    layout.setPattern(pattern);
+    layout.start();
+    event = Events.newEvent(context);
+  }
+
+  @Benchmark
+  public String doLayout() {
+    return layout.doLayout(event);
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.benchmark;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ch.qos.logback.classic.net.BinaryLoggingEventWriter;
+import ch.qos.logback.classic.net.LoggingEventPreSerializationTransformer;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.net.AutoFlushingObjectWriter;
+import ch.qos.logback.core.net.ObjectWriter;
+import ch.qos.logback.core.net.WireFormat;
+import ch.qos.logback.core.spi.PreSerializationTransformer;
+
+/**
+ * Cost of encoding an event the way {@code SocketAppender} does, in each wire
+ * format, into a stream that discards its input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+  @Param({ "SERIALIZED", "BINARY" })
+  public WireFormat wireFormat;
+
+  private final PreSerializationTransformer<ILoggingEvent> pst =
+      new LoggingEventPreSerializationTransformer();
+  private ObjectWriter writer;
+  private LoggingEvent event;
+
+  @Setup
+  public void setUp() throws IOException {
+    OutputStream sink = new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+      }
+    };
+    if (wireFormat == WireFormat.BINARY) {
+      writer = new BinaryLoggingEventWriter(sink);
+    } else {
+      writer = new AutoFlushingObjectWriter(new ObjectOutputStream(sink),
+          CoreConstants.OOS_RESET_FREQUENCY);
+    }
+    event = Events.newEvent(Events.newContext());
+    event.prepareForDeferredProcessing();
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    if (wireFormat == WireFormat.BINARY) {
+      writer.write(event);
+    } else {
+      writer.write(pst.transform(event));
+    }
+  }
+}
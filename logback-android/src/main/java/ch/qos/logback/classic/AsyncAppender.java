@@ -16,6 +16,7 @@
 package ch.qos.logback.classic;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ReusableLoggingEvent;
 import ch.qos.logback.core.AsyncAppenderBase;
 
 /**
@@ -42,6 +43,15 @@ public class AsyncAppender extends AsyncAppenderBase<ILoggingEvent> {
     return level.toInt() <= Level.INFO_INT;
   }
 
+  /**
+   * Events are processed by the worker thread after this method returns, so
+   * reusable events are replaced by a copy.
+   */
+  @Override
+  protected void append(ILoggingEvent eventObject) {
+    super.append(ReusableLoggingEvent.toRetainable(eventObject));
+  }
+
   protected void preprocess(ILoggingEvent eventObject) {
     eventObject.prepareForDeferredProcessing();
     if(includeCallerData)
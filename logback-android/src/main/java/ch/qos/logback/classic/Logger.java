@@ -17,6 +17,7 @@ package ch.qos.logback.classic;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ReusableLoggingEvent;
 import ch.qos.logback.classic.util.LoggerNameUtil;
 import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.CoreConstants;
@@ -32,8 +33,9 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
 
 public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
     AppenderAttachable<ILoggingEvent>, Serializable {
@@ -66,9 +68,10 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
   transient private Logger parent;
 
   /**
-   * The children of this logger. A logger may have zero or more children.
+   * The children of this logger, keyed by their full name. A logger may have
+   * zero or more children. Guarded by 'this' (Logger).
    */
-  transient private List<Logger> childrenList;
+  transient private Map<String, Logger> childrenMap;
 
   /**
    * It is assumed that once the 'aai' variable is set to a non-null value, it
@@ -101,6 +104,15 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
    */
   transient private boolean additive = true;
 
+  /**
+   * The appenders of this logger and of its ancestors, up to and including the
+   * first non-additive one, flattened so that an event is dispatched with a
+   * single array loop. The array is rebuilt on first use after the appender
+   * generation of the context moves on, that is after an appender or
+   * additivity change anywhere in the hierarchy.
+   */
+  transient private volatile EffectiveAppenders effectiveAppenders;
+
   final transient LoggerContext loggerContext;
 
   Logger(String name, Logger parent, LoggerContext loggerContext) {
@@ -130,22 +142,21 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
     return parent == null;
   }
 
+  /**
+   * Get the child of this logger with the given full name.
+   *
+   * <p>
+   * IMPORTANT: Calls to this method must be within a synchronized block on this
+   * logger.
+   *
+   * @param childName the full name of the child logger
+   * @return the child logger, or <code>null</code> if there is none
+   */
   Logger getChildByName(final String childName) {
-    if (childrenList == null) {
-      return null;
-    } else {
-      int len = this.childrenList.size();
-      for (int i = 0; i < len; i++) {
-        final Logger childLogger_i = (Logger) childrenList.get(i);
-        final String childName_i = childLogger_i.getName();
-
-        if (childName.equals(childName_i)) {
-          return childLogger_i;
-        }
-      }
-      // no child found
+    if (childrenMap == null) {
       return null;
     }
+    return childrenMap.get(childName);
   }
 
   public synchronized void setLevel(Level newLevel) {
@@ -166,10 +177,8 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
       effectiveLevelInt = newLevel.levelInt;
     }
 
-    if (childrenList != null) {
-      int len = childrenList.size();
-      for (int i = 0; i < len; i++) {
-        Logger child = (Logger) childrenList.get(i);
+    if (childrenMap != null) {
+      for (Logger child : childrenMap.values()) {
         // tell child to handle parent levelInt change
         child.handleParentLevelChange(effectiveLevelInt);
       }
@@ -191,10 +200,8 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
       effectiveLevelInt = newParentLevelInt;
 
       // propagate the parent levelInt change to this logger's children
-      if (childrenList != null) {
-        int len = childrenList.size();
-        for (int i = 0; i < len; i++) {
-          Logger child = (Logger) childrenList.get(i);
+      if (childrenMap != null) {
+        for (Logger child : childrenMap.values()) {
           child.handleParentLevelChange(newParentLevelInt);
         }
       }
@@ -209,6 +216,7 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
   public void detachAndStopAllAppenders() {
     if (aai != null) {
       aai.detachAndStopAllAppenders();
+      loggerContext.appendersChanged();
     }
   }
 
@@ -216,7 +224,9 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
     if (aai == null) {
       return false;
     }
-    return aai.detachAppender(name);
+    boolean result = aai.detachAppender(name);
+    loggerContext.appendersChanged();
+    return result;
   }
 
   // this method MUST be synchronized. See comments on 'aai' field for further
@@ -226,6 +236,7 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
       aai = new AppenderAttachableImpl<ILoggingEvent>();
     }
     aai.addAppender(newAppender);
+    loggerContext.appendersChanged();
   }
 
   public boolean isAttached(Appender<ILoggingEvent> appender) {
@@ -257,25 +268,50 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
    *          The event to log
    */
   public void callAppenders(ILoggingEvent event) {
-    int writes = 0;
-    for (Logger l = this; l != null; l = l.parent) {
-      writes += l.appendLoopOnAppenders(event);
-      if (!l.additive) {
-        break;
-      }
+    loggerContext.getMetricsRegistry().recordEvent(name, event.getLevel().levelStr);
+    final Appender<ILoggingEvent>[] appenders = getEffectiveAppenders();
+    final int len = appenders.length;
+    for (int i = 0; i < len; i++) {
+      appenders[i].doAppend(event);
     }
     // No appenders in hierarchy
-    if (writes == 0) {
+    if (len == 0) {
       loggerContext.noAppenderDefinedWarning(this);
     }
   }
 
-  private int appendLoopOnAppenders(ILoggingEvent event) {
-    if (aai != null) {
-      return aai.appendLoopOnAppenders(event);
-    } else {
-      return 0;
+  /**
+   * Get the appenders an event logged by this logger is sent to, rebuilding
+   * the cached array if the appenders or the additivity of any logger changed
+   * since it was built.
+   */
+  private Appender<ILoggingEvent>[] getEffectiveAppenders() {
+    // read the generation before walking the hierarchy, so that a change made
+    // during the walk is picked up by the next event
+    final int generation = loggerContext.getAppenderGeneration();
+    EffectiveAppenders cached = effectiveAppenders;
+    if (cached == null || cached.generation != generation) {
+      cached = new EffectiveAppenders(collectEffectiveAppenders(), generation);
+      effectiveAppenders = cached;
     }
+    return cached.appenders;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Appender<ILoggingEvent>[] collectEffectiveAppenders() {
+    List<Appender<ILoggingEvent>> appenderList = new ArrayList<Appender<ILoggingEvent>>();
+    for (Logger l = this; l != null; l = l.parent) {
+      if (l.aai != null) {
+        Iterator<Appender<ILoggingEvent>> it = l.aai.iteratorForAppenders();
+        while (it.hasNext()) {
+          appenderList.add(it.next());
+        }
+      }
+      if (!l.additive) {
+        break;
+      }
+    }
+    return appenderList.toArray(new Appender[appenderList.size()]);
   }
 
   /**
@@ -285,7 +321,9 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
     if (aai == null) {
       return false;
     }
-    return aai.detachAppender(appender);
+    boolean result = aai.detachAppender(appender);
+    loggerContext.appendersChanged();
+    return result;
   }
 
 
@@ -312,8 +350,8 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
           + " passed as parameter, may not include [" + CoreConstants.DOT + "]");
     }
 
-    if (childrenList == null) {
-      childrenList = new CopyOnWriteArrayList<Logger>();
+    if (childrenMap == null) {
+      childrenMap = new LinkedHashMap<String, Logger>();
     }
     Logger childLogger;
     if (this.isRootLogger()) {
@@ -322,7 +360,7 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
       childLogger = new Logger(name + CoreConstants.DOT + lastPart, this,
           this.loggerContext);
     }
-    childrenList.add(childLogger);
+    childrenMap.put(childLogger.name, childLogger);
     childLogger.effectiveLevelInt = this.effectiveLevelInt;
     return childLogger;
   }
@@ -340,10 +378,15 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
     detachAndStopAllAppenders();
     localLevelReset();
     additive = true;
-    if (childrenList == null) {
-      return;
+    loggerContext.appendersChanged();
+    Logger[] children;
+    synchronized (this) {
+      if (childrenMap == null) {
+        return;
+      }
+      children = childrenMap.values().toArray(new Logger[childrenMap.size()]);
     }
-    for (Logger childLogger : new CopyOnWriteArrayList<Logger>(childrenList)) {
+    for (Logger childLogger : children) {
       childLogger.recursiveReset();
     }
   }
@@ -357,12 +400,12 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
           + (this.name.length() + 1));
     }
 
-    if (childrenList == null) {
-      childrenList = new CopyOnWriteArrayList<Logger>();
+    if (childrenMap == null) {
+      childrenMap = new LinkedHashMap<String, Logger>();
     }
     Logger childLogger;
     childLogger = new Logger(childName, this, this.loggerContext);
-    childrenList.add(childLogger);
+    childrenMap.put(childName, childLogger);
     childLogger.effectiveLevelInt = this.effectiveLevelInt;
     return childLogger;
   }
@@ -407,6 +450,14 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
       return;
     }
 
+    if (loggerContext.isGarbageFreeEnabled()) {
+      ReusableLoggingEvent le = ReusableLoggingEvent.acquire();
+      if (le != null) {
+        appendReusableLoggingEvent(le, localFQCN, marker, level, msg,
+            le.argumentArrayOf(param), t);
+        return;
+      }
+    }
     buildLoggingEventAndAppend(localFQCN, marker, level, msg,
         new Object[] { param }, t);
   }
@@ -426,6 +477,14 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
       return;
     }
 
+    if (loggerContext.isGarbageFreeEnabled()) {
+      ReusableLoggingEvent le = ReusableLoggingEvent.acquire();
+      if (le != null) {
+        appendReusableLoggingEvent(le, localFQCN, marker, level, msg,
+            le.argumentArrayOf(param1, param2), t);
+        return;
+      }
+    }
     buildLoggingEventAndAppend(localFQCN, marker, level, msg, new Object[] {
         param1, param2 }, t);
   }
@@ -433,11 +492,34 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
   private void buildLoggingEventAndAppend(final String localFQCN,
       final Marker marker, final Level level, final String msg,
       final Object[] params, final Throwable t) {
+    if (loggerContext.isGarbageFreeEnabled()) {
+      ReusableLoggingEvent le = ReusableLoggingEvent.acquire();
+      if (le != null) {
+        appendReusableLoggingEvent(le, localFQCN, marker, level, msg, params, t);
+        return;
+      }
+    }
     LoggingEvent le = new LoggingEvent(localFQCN, this, level, msg, t, params);
     le.setMarker(marker);
     callAppenders(le);
   }
 
+  /**
+   * Garbage-free counterpart of buildLoggingEventAndAppend: populates the
+   * calling thread's reusable event instead of allocating a new one, and
+   * releases it once the appenders are done with it.
+   */
+  private void appendReusableLoggingEvent(final ReusableLoggingEvent le,
+      final String localFQCN, final Marker marker, final Level level,
+      final String msg, final Object[] params, final Throwable t) {
+    try {
+      le.populate(localFQCN, this, level, msg, t, params, marker);
+      callAppenders(le);
+    } finally {
+      le.release();
+    }
+  }
+
   public void trace(String msg) {
     filterAndLog_0_Or3Plus(FQCN, null, Level.TRACE, msg, null, null);
   }
@@ -747,6 +829,7 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
 
   public void setAdditive(boolean additive) {
     this.additive = additive;
+    loggerContext.appendersChanged();
   }
 
   public String toString() {
@@ -805,4 +888,18 @@ public final class Logger implements org.slf4j.Logger, LocationAwareLogger,
   protected Object readResolve() throws ObjectStreamException {
     return LoggerFactory.getLogger(getName());
   }
+
+  /**
+   * An immutable snapshot of the effective appenders of a logger, tagged with
+   * the appender generation of the context it was taken at.
+   */
+  private static final class EffectiveAppenders {
+    final Appender<ILoggingEvent>[] appenders;
+    final int generation;
+
+    EffectiveAppenders(Appender<ILoggingEvent>[] appenders, int generation) {
+      this.appenders = appenders;
+      this.generation = generation;
+    }
+  }
 }
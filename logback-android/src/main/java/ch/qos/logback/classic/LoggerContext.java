@@ -18,6 +18,7 @@ package ch.qos.logback.classic;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ch.qos.logback.classic.util.LoggerNameUtil;
 import org.slf4j.ILoggerFactory;
@@ -52,9 +53,13 @@ public class LoggerContext extends ContextBase implements ILoggerFactory,
   /** Default setting of packaging data in stack traces */
   public static final boolean DEFAULT_PACKAGING_DATA = false;
 
+  /** Default setting of the garbage-free mode */
+  public static final boolean DEFAULT_GARBAGE_FREE = false;
+
   final Logger root;
   private int size;
   private int noAppenderWarning = 0;
+  private final AtomicInteger appenderGeneration = new AtomicInteger();
   final private List<LoggerContextListener> loggerContextListenerList = new ArrayList<LoggerContextListener>();
 
   private Map<String, Logger> loggerCache;
@@ -62,6 +67,7 @@ public class LoggerContext extends ContextBase implements ILoggerFactory,
   private LoggerContextVO loggerContextRemoteView;
   private final TurboFilterList turboFilterList = new TurboFilterList();
   private boolean packagingDataEnabled = DEFAULT_PACKAGING_DATA;
+  private boolean garbageFreeEnabled = DEFAULT_GARBAGE_FREE;
 
   private int maxCallerDataDepth = ClassicConstants.DEFAULT_MAX_CALLEDER_DATA_DEPTH;
 
@@ -122,28 +128,38 @@ public class LoggerContext extends ContextBase implements ILoggerFactory,
       throw new IllegalArgumentException("name argument cannot be null");
     }
 
+    // check if the desired logger exists, if it does, return it
+    // without further ado and without taking any lock.
+    Logger childLogger = loggerCache.get(name);
+    if (childLogger != null) {
+      return childLogger;
+    }
+
     // if we are asking for the root logger, then let us return it without
     // wasting time
     if (Logger.ROOT_LOGGER_NAME.equalsIgnoreCase(name)) {
       return root;
     }
 
+    // start from the deepest ancestor which already exists, so that only the
+    // missing loggers in between need to be created
     int i = 0;
     Logger logger = root;
-
-    // check if the desired logger exists, if it does, return it
-    // without further ado.
-    Logger childLogger = (Logger) loggerCache.get(name);
-    // if we have the child, then let us return it without wasting time
-    if (childLogger != null) {
-      return childLogger;
+    int h = LoggerNameUtil.getLastSeparatorIndexOf(name, name.length() - 1);
+    while (h != -1) {
+      Logger ancestor = loggerCache.get(name.substring(0, h));
+      if (ancestor != null && ancestor != root) {
+        logger = ancestor;
+        i = h + 1;
+        break;
+      }
+      h = LoggerNameUtil.getLastSeparatorIndexOf(name, h - 1);
     }
 
-    // if the desired logger does not exist, them create all the loggers
-    // in between as well (if they don't already exist)
+    // create all the loggers in between as well (if they don't already exist)
     String childName;
     while (true) {
-      int h = LoggerNameUtil.getSeparatorIndexOf(name, i);
+      h = LoggerNameUtil.getSeparatorIndexOf(name, i);
       if (h == -1) {
         childName = name;
       } else {
@@ -184,6 +200,19 @@ public class LoggerContext extends ContextBase implements ILoggerFactory,
     return (Logger) loggerCache.get(name);
   }
 
+  /**
+   * Signal that the appenders or the additivity of a logger changed, so that
+   * loggers rebuild their cached effective appenders. Must be called after the
+   * change has been made.
+   */
+  void appendersChanged() {
+    appenderGeneration.incrementAndGet();
+  }
+
+  int getAppenderGeneration() {
+    return appenderGeneration.get();
+  }
+
   final void noAppenderDefinedWarning(final Logger logger) {
     if (noAppenderWarning++ == 0) {
       getStatusManager().add(
@@ -211,6 +240,22 @@ public class LoggerContext extends ContextBase implements ILoggerFactory,
     return packagingDataEnabled;
   }
 
+  /**
+   * Enables or disables the garbage-free mode. When enabled, loggers of this
+   * context log through a per-thread {@link ch.qos.logback.classic.spi.ReusableLoggingEvent ReusableLoggingEvent}
+   * instead of allocating a new event, and an argument array, for each call.
+   * Such events are only valid until the appenders return.
+   *
+   * @param garbageFreeEnabled true to enable the garbage-free mode
+   */
+  public void setGarbageFreeEnabled(boolean garbageFreeEnabled) {
+    this.garbageFreeEnabled = garbageFreeEnabled;
+  }
+
+  public boolean isGarbageFreeEnabled() {
+    return garbageFreeEnabled;
+  }
+
   /**
    * This method clears all internal properties, except internal status messages,
    * closes all appenders, removes any turboFilters, fires an OnReset event,
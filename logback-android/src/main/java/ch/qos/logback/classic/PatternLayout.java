@@ -21,6 +21,7 @@ import java.util.Map;
 import ch.qos.logback.classic.pattern.*;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.StringBuilderLayout;
 import ch.qos.logback.core.pattern.PatternLayoutBase;
 import ch.qos.logback.core.pattern.parser.Parser;
 
@@ -35,7 +36,7 @@ import ch.qos.logback.core.pattern.parser.Parser;
  *
  */
 
-public class PatternLayout extends PatternLayoutBase<ILoggingEvent> {
+public class PatternLayout extends PatternLayoutBase<ILoggingEvent> implements StringBuilderLayout<ILoggingEvent> {
 
   public static final Map<String, String> defaultConverterMap = new HashMap<String, String>();
 
@@ -126,4 +127,16 @@ public class PatternLayout extends PatternLayoutBase<ILoggingEvent> {
     }
     return writeLoopOnConverters(event);
   }
+
+  /**
+   * Appends the same text as {@link #doLayout(ILoggingEvent)} to the given
+   * builder. Subclasses overriding {@link #doLayout(ILoggingEvent)} should
+   * override this method as well.
+   */
+  public void doLayout(ILoggingEvent event, StringBuilder buf) {
+    if (!isStarted()) {
+      return;
+    }
+    writeLoopOnConverters(event, buf);
+  }
 }
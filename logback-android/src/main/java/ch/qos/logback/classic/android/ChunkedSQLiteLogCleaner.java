@@ -0,0 +1,211 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.android;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import ch.qos.logback.classic.db.SQLBuilder;
+import ch.qos.logback.classic.db.names.DBNameResolver;
+import ch.qos.logback.classic.db.names.TableName;
+import ch.qos.logback.core.util.Duration;
+
+/**
+ * The default {@link SQLiteLogCleaner}. Removes the oldest events, along
+ * with their properties and exception lines, in transactions of at most
+ * <code>chunkSize</code> events so that appenders are never locked out of
+ * the database for long. Each call deletes at most
+ * <code>maxChunks</code> chunks; whatever is left is handled by the next
+ * call.
+ */
+class ChunkedSQLiteLogCleaner implements SQLiteLogCleaner {
+
+  private static final TableName[] CHILD_TABLES = {
+      TableName.LOGGING_EVENT_PROPERTY, TableName.LOGGING_EVENT_EXCEPTION
+  };
+
+  private final DBNameResolver dbNameResolver;
+  private final Clock clock;
+  private final int chunkSize;
+  private final int maxChunks;
+
+  ChunkedSQLiteLogCleaner(DBNameResolver dbNameResolver, Clock clock, int chunkSize, int maxChunks) {
+    this.dbNameResolver = dbNameResolver;
+    this.clock = clock;
+    this.chunkSize = chunkSize;
+    this.maxChunks = maxChunks;
+  }
+
+  public void performLogCleanup(SQLiteDatabase db, Duration expiry) {
+    deleteExpired(db, clock.currentTimeMillis() - expiry.getMilliseconds());
+  }
+
+  /**
+   * Deletes events logged at or before the given time.
+   *
+   * @param db the log database
+   * @param expiryMs timestamp (ms) of the newest event to delete
+   * @return the number of events deleted
+   */
+  int deleteExpired(SQLiteDatabase db, long expiryMs) {
+    SQLiteStatement[] stmts = compile(db, true);
+    try {
+      int deleted = 0;
+      for (int chunk = 0; chunk < maxChunks; chunk++) {
+        for (SQLiteStatement stmt : stmts) {
+          stmt.bindLong(1, expiryMs);
+          stmt.bindLong(2, chunkSize);
+        }
+        int count = deleteChunk(db, stmts);
+        deleted += count;
+        if (count < chunkSize) {
+          break;
+        }
+      }
+      return deleted;
+    } finally {
+      close(stmts);
+    }
+  }
+
+  /**
+   * Deletes the oldest events until at most <code>maxRowCount</code> are
+   * left.
+   *
+   * @param db the log database
+   * @param maxRowCount the number of events to keep
+   * @return the number of events deleted
+   */
+  int trimToRowCount(SQLiteDatabase db, long maxRowCount) {
+    SQLiteStatement[] stmts = compile(db, false);
+    try {
+      int deleted = 0;
+      for (int chunk = 0; chunk < maxChunks; chunk++) {
+        long excess = DatabaseUtils.queryNumEntries(db, dbNameResolver.getTableName(TableName.LOGGING_EVENT)) - maxRowCount;
+        if (excess <= 0) {
+          break;
+        }
+        for (SQLiteStatement stmt : stmts) {
+          stmt.bindLong(1, Math.min(excess, chunkSize));
+        }
+        deleted += deleteChunk(db, stmts);
+      }
+      return deleted;
+    } finally {
+      close(stmts);
+    }
+  }
+
+  /**
+   * Deletes the oldest events until the pages in use take at most
+   * <code>maxBytes</code>. Freed pages are reused by new events, but the
+   * file itself only shrinks when vacuumed.
+   *
+   * @param db the log database
+   * @param maxBytes the number of bytes the used pages may take
+   * @return the number of events deleted
+   */
+  int trimToSize(SQLiteDatabase db, long maxBytes) {
+    SQLiteStatement[] stmts = compile(db, false);
+    try {
+      int deleted = 0;
+      for (int chunk = 0; chunk < maxChunks && usedBytes(db) > maxBytes; chunk++) {
+        for (SQLiteStatement stmt : stmts) {
+          stmt.bindLong(1, chunkSize);
+        }
+        int count = deleteChunk(db, stmts);
+        deleted += count;
+        if (count == 0) {
+          break;
+        }
+      }
+      return deleted;
+    } finally {
+      close(stmts);
+    }
+  }
+
+  /**
+   * Deletes properties and exception lines left behind by events deleted
+   * without them, e.g. by earlier versions of this cleaner.
+   *
+   * @param db the log database
+   * @return the number of rows deleted
+   */
+  int deleteOrphans(SQLiteDatabase db) {
+    int deleted = 0;
+    for (TableName table : CHILD_TABLES) {
+      SQLiteStatement stmt = db.compileStatement(SQLBuilder.buildDeleteOrphansChunkSQL(dbNameResolver, table));
+      try {
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+          stmt.bindLong(1, chunkSize);
+          int count = stmt.executeUpdateDelete();
+          deleted += count;
+          if (count < chunkSize) {
+            break;
+          }
+        }
+      } finally {
+        stmt.close();
+      }
+    }
+    return deleted;
+  }
+
+  static long usedBytes(SQLiteDatabase db) {
+    long pageCount = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+    long freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+    return (pageCount - freePages) * db.getPageSize();
+  }
+
+  /**
+   * Compiles the statements deleting a chunk of events, child tables
+   * first since their statements select the events to delete.
+   */
+  private SQLiteStatement[] compile(SQLiteDatabase db, boolean expired) {
+    SQLiteStatement[] stmts = new SQLiteStatement[CHILD_TABLES.length + 1];
+    for (int i = 0; i < stmts.length; i++) {
+      TableName table = i < CHILD_TABLES.length ? CHILD_TABLES[i] : TableName.LOGGING_EVENT;
+      String sql = expired
+          ? SQLBuilder.buildDeleteExpiredLogsChunkSQL(dbNameResolver, table)
+          : SQLBuilder.buildDeleteOldestLogsChunkSQL(dbNameResolver, table);
+      stmts[i] = db.compileStatement(sql);
+    }
+    return stmts;
+  }
+
+  private static int deleteChunk(SQLiteDatabase db, SQLiteStatement[] stmts) {
+    int deleted = 0;
+    db.beginTransaction();
+    try {
+      for (SQLiteStatement stmt : stmts) {
+        deleted = stmt.executeUpdateDelete();
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    // the last statement deletes the events themselves
+    return deleted;
+  }
+
+  private static void close(SQLiteStatement[] stmts) {
+    for (SQLiteStatement stmt : stmts) {
+      stmt.close();
+    }
+  }
+}
@@ -17,29 +17,69 @@ package ch.qos.logback.classic.android;
 
 import java.io.File;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteStatement;
 import ch.qos.logback.classic.db.SQLBuilder;
+import ch.qos.logback.classic.db.names.ColumnName;
 import ch.qos.logback.classic.db.names.DBNameResolver;
 import ch.qos.logback.classic.db.names.DefaultDBNameResolver;
+import ch.qos.logback.classic.db.names.TableName;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ReusableLoggingEvent;
 import ch.qos.logback.classic.spi.StackTraceElementProxy;
 import ch.qos.logback.classic.spi.ThrowableProxyUtil;
 import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import ch.qos.logback.core.android.AndroidContextUtil;
 import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
 
 /**
  * SQLiteAppender is a logback appender optimized for Android SQLite. It requires no JDBC
  * as it uses the built-in Android SQLite API.
  *
+ * <p>With <code>backgroundWriter</code> set, events are queued (up to
+ * <code>writerQueueSize</code> of them) and written by a dedicated thread in
+ * transactions of up to <code>maxBatchSize</code> events. When
+ * <code>maxFlushDelay</code> is set, the writer waits up to that long after
+ * the first event of a batch for the batch to fill up before committing;
+ * otherwise it commits whatever is queued right away. Logging threads block
+ * while the queue is full, and write their events themselves once the writer
+ * thread has stopped. If an event of a batch cannot be written, the batch is
+ * rolled back and its events are written one transaction each.</p>
+ *
+ * <p>The database can be tuned with <code>writeAheadLogging</code>,
+ * <code>synchronous</code> and <code>pageSize</code>. With
+ * <code>createIndexes</code> set, the event table is indexed on its
+ * timestamp, level and logger name columns. With
+ * <code>incrementalVacuum</code> set, pages freed by the log cleanup are
+ * returned to the file system after each cleanup. Page size and
+ * incremental vacuuming only apply to databases created by the appender.</p>
+ *
+ * <p>Logs older than <code>maxHistory</code>, the oldest events beyond
+ * <code>maxRowCount</code>, and the oldest events making the database exceed
+ * <code>totalSizeCap</code> are removed by a task running every
+ * <code>cleanupInterval</code> on the context's scheduled executor. It
+ * deletes events with their properties and exception lines, in
+ * transactions of <code>cleanupChunkSize</code> events. A custom
+ * {@link SQLiteLogCleaner} is only invoked at startup and whenever
+ * <code>maxHistory</code> has elapsed since its last run. Stopping the
+ * appender waits for a cleanup in progress to finish.</p>
+ *
  * @author Anthony Trinh
  * @since 1.0.11
  */
@@ -54,8 +94,76 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
   private Duration maxHistory;
   private long lastCleanupTime = 0;
   private SQLiteLogCleaner logCleaner;
+  private ChunkedSQLiteLogCleaner chunkedCleaner;
+  private long maxRowCount = 0;
+  private FileSize totalSizeCap;
+  private Duration cleanupInterval;
+  private int cleanupChunkSize = DEFAULT_CLEANUP_CHUNK_SIZE;
+  private ScheduledFuture<?> cleanupFuture;
+
+  /**
+   * The default number of events deleted per cleanup transaction.
+   */
+  public static final int DEFAULT_CLEANUP_CHUNK_SIZE = 1000;
+
+  static final long DEFAULT_CLEANUP_INTERVAL_MS = 60 * 1000;
+
+  /**
+   * Maximum number of chunks deleted per cleanup criterion and run, so
+   * that a backlog does not hog the shared scheduled executor.
+   */
+  private static final int MAX_CLEANUP_CHUNKS = 50;
   private Clock clock = new SystemClock();
 
+  /**
+   * The default number of events that may wait for the writer thread.
+   */
+  public static final int DEFAULT_WRITER_QUEUE_SIZE = 256;
+
+  /**
+   * The default maximum number of events written in one transaction.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 128;
+
+  private static final long WRITER_JOIN_MILLIS = 1000;
+
+  /**
+   * How long a logging thread waits for room in the writer queue before
+   * checking whether the writer thread is still running.
+   */
+  private static final long WRITER_OFFER_MILLIS = 100;
+
+  /**
+   * Value of the <code>auto_vacuum</code> pragma for incremental vacuuming.
+   */
+  private static final long AUTO_VACUUM_INCREMENTAL = 2;
+
+  private boolean backgroundWriter = false;
+  private int writerQueueSize = DEFAULT_WRITER_QUEUE_SIZE;
+  private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private Duration maxFlushDelay;
+  private boolean writeAheadLogging = false;
+  private SynchronousMode synchronous;
+  private int pageSize = 0;
+  private boolean createIndexes = false;
+  private boolean incrementalVacuum = false;
+  private BlockingQueue<ILoggingEvent> writerQueue;
+  private volatile Writer writer;
+
+  /**
+   * Guards the database and the precompiled statements below, which live
+   * as long as the appender is started.
+   */
+  private final Object dbLock = new Object();
+  private SQLiteStatement insertStatement;
+  private SQLiteStatement insertPropertiesStatement;
+  private SQLiteStatement insertExceptionStatement;
+
+  /**
+   * Held while the cleanup runs, so that the database is not closed under it.
+   */
+  private final Object cleanupLock = new Object();
+
   void setClock(Clock clock) {
     this.clock = clock;
   }
@@ -97,6 +205,191 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
     this.maxHistory = Duration.valueOf(maxHistory);
   }
 
+  public long getMaxRowCount() {
+    return maxRowCount;
+  }
+
+  /**
+   * Sets the maximum number of events to keep. The oldest events beyond
+   * this count are removed by the periodic cleanup; 0 disables the cap.
+   *
+   * @param maxRowCount the number of events to keep
+   */
+  public void setMaxRowCount(long maxRowCount) {
+    this.maxRowCount = maxRowCount;
+  }
+
+  public FileSize getTotalSizeCap() {
+    return totalSizeCap;
+  }
+
+  /**
+   * Sets the maximum size of the pages holding logs. The oldest events are
+   * removed by the periodic cleanup until the used pages fit. The file
+   * only shrinks accordingly with <code>incrementalVacuum</code> set.
+   *
+   * @param totalSizeCap the maximum size of the logs
+   */
+  public void setTotalSizeCap(FileSize totalSizeCap) {
+    this.totalSizeCap = totalSizeCap;
+  }
+
+  public Duration getCleanupInterval() {
+    return cleanupInterval;
+  }
+
+  /**
+   * Sets how often the cleanup task checks <code>maxHistory</code>,
+   * <code>maxRowCount</code> and <code>totalSizeCap</code>. Defaults to
+   * one minute.
+   *
+   * @param cleanupInterval the period of the cleanup task
+   */
+  public void setCleanupInterval(Duration cleanupInterval) {
+    this.cleanupInterval = cleanupInterval;
+  }
+
+  public int getCleanupChunkSize() {
+    return cleanupChunkSize;
+  }
+
+  /**
+   * Sets how many events the cleanup deletes per transaction.
+   *
+   * @param cleanupChunkSize the number of events per cleanup transaction
+   */
+  public void setCleanupChunkSize(int cleanupChunkSize) {
+    this.cleanupChunkSize = cleanupChunkSize;
+  }
+
+  public boolean isBackgroundWriter() {
+    return backgroundWriter;
+  }
+
+  /**
+   * Enables the writer thread. Logging threads then only queue events,
+   * which are written in multi-event transactions.
+   *
+   * @param backgroundWriter whether to write from a dedicated thread
+   */
+  public void setBackgroundWriter(boolean backgroundWriter) {
+    this.backgroundWriter = backgroundWriter;
+  }
+
+  public int getWriterQueueSize() {
+    return writerQueueSize;
+  }
+
+  /**
+   * Sets how many events may wait for the writer thread before logging
+   * threads block.
+   *
+   * @param writerQueueSize the capacity of the writer queue
+   */
+  public void setWriterQueueSize(int writerQueueSize) {
+    this.writerQueueSize = writerQueueSize;
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Sets the maximum number of events the writer thread commits in one
+   * transaction.
+   *
+   * @param maxBatchSize the maximum number of events per transaction
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public Duration getMaxFlushDelay() {
+    return maxFlushDelay;
+  }
+
+  /**
+   * Sets how long the writer thread may hold queued events back while
+   * waiting for a batch to fill up.
+   *
+   * @param maxFlushDelay the maximum delay before a commit
+   */
+  public void setMaxFlushDelay(Duration maxFlushDelay) {
+    this.maxFlushDelay = maxFlushDelay;
+  }
+
+  public boolean isWriteAheadLogging() {
+    return writeAheadLogging;
+  }
+
+  /**
+   * Enables write-ahead logging, which lets readers and the writer proceed
+   * concurrently and makes commits cheaper.
+   *
+   * @param writeAheadLogging whether to enable write-ahead logging
+   */
+  public void setWriteAheadLogging(boolean writeAheadLogging) {
+    this.writeAheadLogging = writeAheadLogging;
+  }
+
+  public SynchronousMode getSynchronous() {
+    return synchronous;
+  }
+
+  /**
+   * Sets the <code>synchronous</code> pragma of the database. The SQLite
+   * default is kept when not set.
+   *
+   * @param synchronous the synchronous mode
+   */
+  public void setSynchronous(SynchronousMode synchronous) {
+    this.synchronous = synchronous;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets the page size, in bytes, of a newly created database. Must be a
+   * power of two between 512 and 65536; 0 keeps the SQLite default.
+   *
+   * @param pageSize the page size in bytes
+   */
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  public boolean isCreateIndexes() {
+    return createIndexes;
+  }
+
+  /**
+   * Creates indexes on the timestamp, level and logger name columns of the
+   * event table, if missing. Creating them on a large existing table can
+   * take a while at startup.
+   *
+   * @param createIndexes whether to create the indexes
+   */
+  public void setCreateIndexes(boolean createIndexes) {
+    this.createIndexes = createIndexes;
+  }
+
+  public boolean isIncrementalVacuum() {
+    return incrementalVacuum;
+  }
+
+  /**
+   * Enables incremental vacuuming, so the database file shrinks after
+   * expired logs are removed. Only takes effect on databases created with
+   * this option set.
+   *
+   * @param incrementalVacuum whether to vacuum after each log cleanup
+   */
+  public void setIncrementalVacuum(boolean incrementalVacuum) {
+    this.incrementalVacuum = incrementalVacuum;
+  }
+
   /**
    * @return the absolute path to the SQLite database
      */
@@ -136,6 +429,19 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
   public void start() {
     this.started = false;
 
+    if (backgroundWriter && (writerQueueSize < 1 || maxBatchSize < 1)) {
+      addError("\"WriterQueueSize\" and \"MaxBatchSize\" must be positive for the appender named [" + name + "]");
+      return;
+    }
+    if (cleanupChunkSize < 1 || (cleanupInterval != null && cleanupInterval.getMilliseconds() <= 0)) {
+      addError("\"CleanupChunkSize\" and \"CleanupInterval\" must be positive for the appender named [" + name + "]");
+      return;
+    }
+    if (pageSize != 0 && (pageSize < 512 || pageSize > 65536 || Integer.bitCount(pageSize) != 1)) {
+      addError("\"PageSize\" must be a power of two between 512 and 65536 for the appender named [" + name + "]");
+      return;
+    }
+
     File dbfile = getDatabaseFile(this.filename);
     if (dbfile == null) {
       addError("Cannot determine database filename");
@@ -162,14 +468,54 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
       insertSQL = SQLBuilder.buildInsertSQL(dbNameResolver);
 
       try {
+        if ((pageSize > 0 || incrementalVacuum) && isNewDatabase()) {
+          // page size and auto-vacuum only change when the file is rebuilt,
+          // which is cheap before any event was written
+          if (pageSize > 0) {
+            this.db.execSQL("PRAGMA page_size = " + pageSize);
+          }
+          if (incrementalVacuum) {
+            this.db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+          }
+          this.db.execSQL("VACUUM");
+        }
+
         this.db.execSQL(SQLBuilder.buildCreateLoggingEventTableSQL(dbNameResolver));
         this.db.execSQL(SQLBuilder.buildCreatePropertyTableSQL(dbNameResolver));
         this.db.execSQL(SQLBuilder.buildCreateExceptionTableSQL(dbNameResolver));
 
-        clearExpiredLogs(this.db);
+        if (createIndexes) {
+          this.db.execSQL(SQLBuilder.buildCreateIndexSQL(dbNameResolver, TableName.LOGGING_EVENT, ColumnName.TIMESTMP));
+          this.db.execSQL(SQLBuilder.buildCreateIndexSQL(dbNameResolver, TableName.LOGGING_EVENT, ColumnName.LEVEL_STRING));
+          this.db.execSQL(SQLBuilder.buildCreateIndexSQL(dbNameResolver, TableName.LOGGING_EVENT, ColumnName.LOGGER_NAME));
+        }
+        if (incrementalVacuum && DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) != AUTO_VACUUM_INCREMENTAL) {
+          addWarn("Database [" + dbfile + "] was created without incremental vacuum, which stays disabled");
+          incrementalVacuum = false;
+        }
+        if (writeAheadLogging && !this.db.enableWriteAheadLogging()) {
+          addWarn("Cannot enable write-ahead logging for [" + dbfile + "]");
+        }
+        if (synchronous != null) {
+          this.db.execSQL("PRAGMA synchronous = " + synchronous);
+        }
+
+        chunkedCleaner = new ChunkedSQLiteLogCleaner(dbNameResolver, clock, cleanupChunkSize, MAX_CLEANUP_CHUNKS);
+
+        insertStatement = db.compileStatement(insertSQL);
+        insertPropertiesStatement = db.compileStatement(insertPropertiesSQL);
+        insertExceptionStatement = db.compileStatement(insertExceptionSQL);
+
+        if (backgroundWriter) {
+          startWriter();
+        }
 
         super.start();
 
+        if (maxHistory != null || maxRowCount > 0 || totalSizeCap != null) {
+          scheduleCleanupTask();
+        }
+
         this.started = true;
       } catch (SQLiteException e) {
         addError("Cannot create database tables", e);
@@ -177,14 +523,77 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
     }
   }
 
+  private boolean isNewDatabase() {
+    String eventTable = dbNameResolver.getTableName(TableName.LOGGING_EVENT);
+    return DatabaseUtils.longForQuery(db,
+        "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+        new String[] { eventTable }) == 0;
+  }
+
   /**
-   * Removes expired logs from the database
-   * @param db
+   * Removes expired logs from the database, then enforces the row count and
+   * size caps. Runs on the context's scheduled executor; the cleaners delete
+   * in chunks, each in a transaction of its own, so appends interleave.
    */
-  private void clearExpiredLogs(SQLiteDatabase db) {
-    if (lastCheckExpired(this.maxHistory, this.lastCleanupTime)) {
-      this.lastCleanupTime = this.clock.currentTimeMillis();
-      this.getLogCleaner().performLogCleanup(db, this.maxHistory);
+  void clearExpiredLogs() {
+    synchronized (cleanupLock) {
+      if (!isStarted()) {
+        return;
+      }
+      try {
+        int deleted = 0;
+        if (this.logCleaner != null) {
+          if (lastCheckExpired(this.maxHistory, this.lastCleanupTime)) {
+            this.lastCleanupTime = this.clock.currentTimeMillis();
+            this.logCleaner.performLogCleanup(db, this.maxHistory);
+            // the cleaner does not report how many rows it deleted
+            deleted++;
+          }
+        } else if (this.maxHistory != null && this.maxHistory.getMilliseconds() > 0) {
+          // each run deletes a bounded number of chunks, so a backlog is
+          // worked off over the following runs
+          deleted += chunkedCleaner.deleteExpired(db, this.clock.currentTimeMillis() - this.maxHistory.getMilliseconds());
+        }
+        if (maxRowCount > 0) {
+          deleted += chunkedCleaner.trimToRowCount(db, maxRowCount);
+        }
+        if (totalSizeCap != null) {
+          deleted += chunkedCleaner.trimToSize(db, totalSizeCap.getSize());
+        }
+        deleted += chunkedCleaner.deleteOrphans(db);
+        if (incrementalVacuum && deleted > 0) {
+          vacuum(db);
+        }
+      } catch (RuntimeException e) {
+        // keep the scheduled task alive
+        addError("Cannot remove expired logs", e);
+      }
+    }
+  }
+
+  private void scheduleCleanupTask() {
+    long period = cleanupInterval != null ? cleanupInterval.getMilliseconds() : DEFAULT_CLEANUP_INTERVAL_MS;
+    cleanupFuture = getContext().getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+      public void run() {
+        clearExpiredLogs();
+      }
+    }, 0, period, TimeUnit.MILLISECONDS);
+    getContext().addScheduledFuture(cleanupFuture);
+  }
+
+  /**
+   * Returns the pages freed by the log cleanup to the file system.
+   * The pragma does its work as its result is stepped through, hence the
+   * query.
+   */
+  private static void vacuum(SQLiteDatabase db) {
+    Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum", null);
+    try {
+      while (cursor.moveToNext()) {
+        // nothing to read
+      }
+    } finally {
+      cursor.close();
     }
   }
 
@@ -209,21 +618,21 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
    */
   public SQLiteLogCleaner getLogCleaner() {
     if (this.logCleaner == null) {
-      final Clock thisClock = this.clock;
-      this.logCleaner = new SQLiteLogCleaner() {
-        public void performLogCleanup(SQLiteDatabase db, Duration expiry) {
-          final long expiryMs = thisClock.currentTimeMillis() - expiry.getMilliseconds();
-          final String deleteExpiredLogsSQL = SQLBuilder.buildDeleteExpiredLogsSQL(dbNameResolver, expiryMs);
-          db.execSQL(deleteExpiredLogsSQL);
-        }
-      };
+      if (this.chunkedCleaner == null) {
+        this.chunkedCleaner = new ChunkedSQLiteLogCleaner(
+            dbNameResolver != null ? dbNameResolver : new DefaultDBNameResolver(),
+            clock, cleanupChunkSize, MAX_CLEANUP_CHUNKS);
+      }
+      return this.chunkedCleaner;
     }
     return this.logCleaner;
   }
 
   /**
-   * Sets the {@code SQLiteLogCleaner}, invoked when {@code maxHistory} is exceeded
-   * at startup and in between logging events
+   * Sets the {@code SQLiteLogCleaner}, invoked from the context's scheduled
+   * executor at startup and whenever {@code maxHistory} has elapsed since
+   * the last cleanup. Without one, expired logs are deleted in chunks on
+   * every cleanup run.
    * @param logCleaner
    */
   public void setLogCleaner(SQLiteLogCleaner logCleaner) {
@@ -245,8 +654,59 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
    */
   @Override
   public void stop() {
-    this.db.close();
-    this.lastCleanupTime = 0;
+    super.stop();
+    if (cleanupFuture != null) {
+      cleanupFuture.cancel(false);
+      cleanupFuture = null;
+    }
+    // wait for a cleanup in progress, later runs see the appender stopped
+    synchronized (cleanupLock) {
+      this.lastCleanupTime = 0;
+    }
+    stopWriter();
+    synchronized (dbLock) {
+      // events queued while the writer thread was exiting
+      drainWriterQueue();
+      closeStatements();
+      this.db.close();
+    }
+  }
+
+  private void closeStatements() {
+    if (insertStatement != null) {
+      insertStatement.close();
+      insertPropertiesStatement.close();
+      insertExceptionStatement.close();
+      insertStatement = null;
+      insertPropertiesStatement = null;
+      insertExceptionStatement = null;
+    }
+  }
+
+  private void startWriter() {
+    writerQueue = new ArrayBlockingQueue<ILoggingEvent>(writerQueueSize);
+    writer = new Writer();
+    writer.setDaemon(true);
+    writer.setName("SQLiteAppender-Writer-" + getName());
+    writer.start();
+  }
+
+  private void stopWriter() {
+    Writer w = writer;
+    if (w == null) {
+      return;
+    }
+    w.running = false;
+    w.interrupt();
+    try {
+      w.join(WRITER_JOIN_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (w.isAlive()) {
+      addWarn("Writer thread of appender named [" + name + "] did not terminate in time.");
+    }
+    writer = null;
   }
 
   /*
@@ -256,28 +716,166 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
   @Override
   public void append(ILoggingEvent eventObject) {
     if (isStarted()) {
+      if (writer != null) {
+        handOver(eventObject);
+        return;
+      }
+      synchronized (dbLock) {
+        appendSingle(eventObject);
+      }
+    }
+  }
+
+  /**
+   * Writes an event in its own transaction. Must be called while holding
+   * {@link #dbLock}.
+   *
+   * @param event the event to write
+   */
+  private void appendSingle(ILoggingEvent event) {
+    if (insertStatement == null) {
+      addWarn("Dropped event of appender named [" + name + "] appended after it was stopped.");
+      return;
+    }
+    try {
+      db.beginTransaction();
+      try {
+        if (insertEvent(event)) {
+          db.setTransactionSuccessful();
+        }
+      } finally {
+        db.endTransaction();
+      }
+    } catch (Throwable e) {
+      addError("Cannot append event", e);
+    }
+  }
+
+  /**
+   * Queues an event for the writer thread, or writes it from the calling
+   * thread if the writer thread has stopped in the meantime.
+   *
+   * @param event the event to write
+   */
+  private void handOver(ILoggingEvent event) {
+    ILoggingEvent retained = ReusableLoggingEvent.toRetainable(event);
+    retained.prepareForDeferredProcessing();
+    retained.getCallerData();
+    boolean queued = enqueue(retained);
+    Writer w = writer;
+    if (queued && w != null && w.running) {
+      return;
+    }
+    // the writer thread is gone: write out whatever it left in the queue,
+    // and the event if it could not be queued
+    synchronized (dbLock) {
+      drainWriterQueue();
+      if (!queued) {
+        appendSingle(retained);
+      }
+    }
+  }
+
+  /**
+   * Queues an event for the writer thread, waiting while the queue is full
+   * for as long as the writer thread runs.
+   *
+   * @param event the event to queue
+   * @return false if the event was not queued because the writer thread stopped
+   */
+  private boolean enqueue(ILoggingEvent event) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        Writer w = writer;
+        if (w == null || !w.running) {
+          return false;
+        }
+        try {
+          if (writerQueue.offer(event, WRITER_OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+            return true;
+          }
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Writes out all queued events. Must be called while holding
+   * {@link #dbLock}.
+   */
+  private void drainWriterQueue() {
+    if (writerQueue == null) {
+      return;
+    }
+    List<ILoggingEvent> batch = new ArrayList<ILoggingEvent>(maxBatchSize);
+    while (writerQueue.drainTo(batch, maxBatchSize) > 0) {
+      appendBatch(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Writes events in a single transaction. If an event cannot be fully
+   * written, the transaction is rolled back so that it leaves no partial
+   * rows behind, and the events are written one transaction each instead.
+   *
+   * @param events the events to write
+   */
+  private void appendBatch(List<ILoggingEvent> events) {
+    synchronized (dbLock) {
+      if (insertStatement == null) {
+        addWarn("Dropped " + events.size() + " event(s) of appender named [" + name + "] queued after it was stopped.");
+        return;
+      }
       try {
-        clearExpiredLogs(db);
-        SQLiteStatement stmt = db.compileStatement(insertSQL);
+        boolean committed = false;
+        db.beginTransaction();
         try {
-          db.beginTransaction();
-          long eventId = subAppend(eventObject, stmt);
-          if (eventId != -1) {
-            secondarySubAppend(eventObject, eventId);
-            db.setTransactionSuccessful();
+          for (ILoggingEvent event : events) {
+            insertEvent(event);
           }
+          db.setTransactionSuccessful();
+          committed = true;
+        } catch (SQLiteException e) {
+          addWarn("Failed to insert batch of loggingEvents, inserting them one by one", e);
         } finally {
-          if (db.inTransaction()) {
-            db.endTransaction();
+          db.endTransaction();
+        }
+        if (!committed) {
+          for (ILoggingEvent event : events) {
+            appendSingle(event);
           }
-          stmt.close();
         }
       } catch (Throwable e) {
-        addError("Cannot append event", e);
+        addError("Cannot append events", e);
       }
     }
   }
 
+  /**
+   * Inserts an event with its properties and exception, within the current
+   * transaction. Must be called while holding {@link #dbLock}.
+   *
+   * @param event the event to insert
+   * @return true if the event was inserted
+   * @throws SQLException
+   */
+  private boolean insertEvent(ILoggingEvent event) throws SQLException {
+    long eventId = subAppend(event, insertStatement);
+    if (eventId == -1) {
+      return false;
+    }
+    secondarySubAppend(event, eventId);
+    return true;
+  }
+
   /**
    * Inserts the main details of a log event into the database
    *
@@ -288,6 +886,7 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
    */
   private long subAppend(ILoggingEvent event, SQLiteStatement insertStatement) throws SQLException {
 
+    insertStatement.clearBindings();
     bindLoggingEvent(insertStatement, event);
     bindLoggingEventArguments(insertStatement, event.getArgumentArray());
 
@@ -458,16 +1057,12 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
    */
   private void insertProperties(Map<String, String> mergedMap, long eventId) throws SQLException {
     if (mergedMap.size() > 0) {
-      SQLiteStatement stmt = db.compileStatement(insertPropertiesSQL);
-      try {
-        for (Entry<String,String> entry : mergedMap.entrySet()) {
-          stmt.bindLong(1, eventId);
-          stmt.bindString(2, entry.getKey());
-          stmt.bindString(3, entry.getValue());
-          stmt.executeInsert();
-        }
-      } finally {
-        stmt.close();
+      SQLiteStatement stmt = insertPropertiesStatement;
+      for (Entry<String,String> entry : mergedMap.entrySet()) {
+        stmt.bindLong(1, eventId);
+        stmt.bindString(2, entry.getKey());
+        stmt.bindString(3, entry.getValue());
+        stmt.executeInsert();
       }
     }
   }
@@ -514,38 +1109,73 @@ public class SQLiteAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
 
   private void insertThrowable(IThrowableProxy tp, long eventId) throws SQLException {
 
-    SQLiteStatement stmt = db.compileStatement(insertExceptionSQL);
-    try {
-      short baseIndex = 0;
-      while (tp != null) {
-        StringBuilder buf = new StringBuilder();
-        ThrowableProxyUtil.subjoinFirstLine(buf, tp);
-        insertException(stmt, buf.toString(), baseIndex++, eventId);
-
-        int commonFrames = tp.getCommonFrames();
-        StackTraceElementProxy[] stepArray = tp.getStackTraceElementProxyArray();
-
-        for (int i = 0; i < stepArray.length - commonFrames; i++) {
-          StringBuilder sb = new StringBuilder();
-          sb.append(CoreConstants.TAB);
-          ThrowableProxyUtil.subjoinSTEP(sb, stepArray[i]);
-          insertException(stmt, sb.toString(), baseIndex++, eventId);
-        }
+    SQLiteStatement stmt = insertExceptionStatement;
+    short baseIndex = 0;
+    while (tp != null) {
+      StringBuilder buf = new StringBuilder();
+      ThrowableProxyUtil.subjoinFirstLine(buf, tp);
+      insertException(stmt, buf.toString(), baseIndex++, eventId);
 
-        if (commonFrames > 0) {
-          StringBuilder sb = new StringBuilder();
-          sb.append(CoreConstants.TAB)
-            .append("... ")
-            .append(commonFrames)
-            .append(" common frames omitted");
+      int commonFrames = tp.getCommonFrames();
+      StackTraceElementProxy[] stepArray = tp.getStackTraceElementProxyArray();
 
-          insertException(stmt, sb.toString(), baseIndex++, eventId);
-        }
+      for (int i = 0; i < stepArray.length - commonFrames; i++) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(CoreConstants.TAB);
+        ThrowableProxyUtil.subjoinSTEP(sb, stepArray[i]);
+        insertException(stmt, sb.toString(), baseIndex++, eventId);
+      }
+
+      if (commonFrames > 0) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(CoreConstants.TAB)
+          .append("... ")
+          .append(commonFrames)
+          .append(" common frames omitted");
 
-        tp = tp.getCause();
+        insertException(stmt, sb.toString(), baseIndex++, eventId);
+      }
+
+      tp = tp.getCause();
+    }
+  }
+
+  /**
+   * Takes events off the queue and writes them in batches until
+   * interrupted, then writes whatever is left.
+   */
+  class Writer extends Thread {
+    volatile boolean running = true;
+
+    public void run() {
+      final long maxDelayNanos = maxFlushDelay != null
+          ? TimeUnit.MILLISECONDS.toNanos(maxFlushDelay.getMilliseconds()) : 0;
+      final List<ILoggingEvent> batch = new ArrayList<ILoggingEvent>(maxBatchSize);
+      while (running) {
+        try {
+          batch.add(writerQueue.take());
+          writerQueue.drainTo(batch, maxBatchSize - batch.size());
+          final long deadline = System.nanoTime() + maxDelayNanos;
+          while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            ILoggingEvent event = remaining > 0 ? writerQueue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (event == null) {
+              break;
+            }
+            batch.add(event);
+            writerQueue.drainTo(batch, maxBatchSize - batch.size());
+          }
+        } catch (InterruptedException e) {
+          running = false;
+        }
+        if (!batch.isEmpty()) {
+          appendBatch(batch);
+          batch.clear();
+        }
+      }
+      synchronized (dbLock) {
+        drainWriterQueue();
       }
-    } finally {
-      stmt.close();
     }
   }
 }
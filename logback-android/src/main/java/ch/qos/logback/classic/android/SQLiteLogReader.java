@@ -0,0 +1,624 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.db.names.ColumnName;
+import ch.qos.logback.classic.db.names.DBNameResolver;
+import ch.qos.logback.classic.db.names.DefaultDBNameResolver;
+import ch.qos.logback.classic.db.names.TableName;
+import ch.qos.logback.classic.spi.CallerData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import ch.qos.logback.core.CoreConstants;
+
+/**
+ * Reads back the events written by {@link SQLiteAppender}. Events are
+ * fetched in pages of <code>pageSize</code> rows, keyed on the event ID, so
+ * that arbitrarily large logs are read with constant memory and no cursor
+ * is held open between pages.
+ *
+ * <p>Events come back with their MDC and context properties (merged into
+ * the MDC property map, as they are stored), caller data and exception
+ * lines. Messages are the formatted messages; arguments are not restored.
+ * </p>
+ *
+ * <pre>
+ * SQLiteLogReader reader = new SQLiteLogReader(db);
+ * for (ILoggingEvent event : reader.read(new SQLiteLogReader.Query()
+ *     .minLevel(Level.WARN).loggerPrefix("com.example"))) {
+ *   ...
+ * }
+ * </pre>
+ */
+public class SQLiteLogReader {
+
+  /**
+   * The default number of events fetched per query.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 200;
+
+  /**
+   * The most event IDs bound in one query, below the limit of 999 host
+   * parameters of older SQLite versions.
+   */
+  private static final int MAX_IDS_PER_QUERY = 500;
+
+  private static final short PROPERTIES_EXIST = 0x01;
+  private static final short EXCEPTION_EXISTS = 0x02;
+  private static final String AT = "at ";
+  private static final String COMMON_FRAMES_PREFIX = CoreConstants.TAB + "... ";
+
+  private final SQLiteDatabase db;
+  private final DBNameResolver dbNameResolver;
+  private final LoggerContextVO loggerContextVO;
+  private int pageSize = DEFAULT_PAGE_SIZE;
+
+  private final String eventColumns;
+  private final String eventTable;
+  private final String eventIdColumn;
+
+  /**
+   * @param db the log database, which the caller keeps open while reading
+   */
+  public SQLiteLogReader(SQLiteDatabase db) {
+    this(db, new DefaultDBNameResolver());
+  }
+
+  /**
+   * @param db the log database, which the caller keeps open while reading
+   * @param dbNameResolver the resolver the appender was configured with
+   */
+  public SQLiteLogReader(SQLiteDatabase db, DBNameResolver dbNameResolver) {
+    this.db = db;
+    this.dbNameResolver = dbNameResolver;
+    this.loggerContextVO = new LoggerContextVO(CoreConstants.DEFAULT_CONTEXT_NAME,
+        Collections.<String, String>emptyMap(), 0);
+    this.eventTable = dbNameResolver.getTableName(TableName.LOGGING_EVENT);
+    this.eventIdColumn = dbNameResolver.getColumnName(ColumnName.EVENT_ID);
+    this.eventColumns = columns(ColumnName.EVENT_ID, ColumnName.TIMESTMP, ColumnName.FORMATTED_MESSAGE,
+        ColumnName.LOGGER_NAME, ColumnName.LEVEL_STRING, ColumnName.THREAD_NAME, ColumnName.REFERENCE_FLAG,
+        ColumnName.CALLER_FILENAME, ColumnName.CALLER_CLASS, ColumnName.CALLER_METHOD, ColumnName.CALLER_LINE);
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets how many events are fetched per query.
+   *
+   * @param pageSize the number of events per page
+   */
+  public void setPageSize(int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Reads the events matching a query. Each iteration runs the query
+   * afresh, page by page.
+   *
+   * @param query the criteria the events must match
+   * @return the matching events, in the order of the query
+   */
+  public Iterable<ILoggingEvent> read(final Query query) {
+    return new Iterable<ILoggingEvent>() {
+      public Iterator<ILoggingEvent> iterator() {
+        return new PagingIterator(query);
+      }
+    };
+  }
+
+  /**
+   * Criteria on the events to read. All criteria are optional; events
+   * match when they satisfy all given ones.
+   */
+  public static class Query {
+    private Long from;
+    private Long to;
+    private Level minLevel;
+    private String loggerPrefix;
+    private String messageSubstring;
+    private boolean newestFirst;
+
+    /**
+     * @param timestamp earliest timestamp (ms), inclusive
+     * @return this query
+     */
+    public Query from(long timestamp) {
+      this.from = timestamp;
+      return this;
+    }
+
+    /**
+     * @param timestamp latest timestamp (ms), exclusive
+     * @return this query
+     */
+    public Query to(long timestamp) {
+      this.to = timestamp;
+      return this;
+    }
+
+    /**
+     * @param level the lowest level to read
+     * @return this query
+     */
+    public Query minLevel(Level level) {
+      this.minLevel = level;
+      return this;
+    }
+
+    /**
+     * @param prefix the prefix of the logger names to read, e.g. a package
+     * @return this query
+     */
+    public Query loggerPrefix(String prefix) {
+      this.loggerPrefix = prefix;
+      return this;
+    }
+
+    /**
+     * @param substring text the formatted message must contain, case
+     *                  sensitive
+     * @return this query
+     */
+    public Query messageContains(String substring) {
+      this.messageSubstring = substring;
+      return this;
+    }
+
+    /**
+     * Reads the most recent events first.
+     *
+     * @return this query
+     */
+    public Query newestFirst() {
+      this.newestFirst = true;
+      return this;
+    }
+  }
+
+  private class PagingIterator implements Iterator<ILoggingEvent> {
+    private final Query query;
+    private final String sql;
+    private final List<String> baseArgs = new ArrayList<String>();
+    private List<ILoggingEvent> page = Collections.emptyList();
+    private int index = 0;
+    private long lastEventId;
+    private boolean exhausted = false;
+
+    PagingIterator(Query query) {
+      this.query = query;
+      this.lastEventId = query.newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE;
+      this.sql = buildSelectSQL(query, baseArgs);
+    }
+
+    public boolean hasNext() {
+      if (index < page.size()) {
+        return true;
+      }
+      if (exhausted) {
+        return false;
+      }
+      fetchPage();
+      return index < page.size();
+    }
+
+    public ILoggingEvent next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.get(index++);
+    }
+
+    private void fetchPage() {
+      List<String> args = new ArrayList<String>(baseArgs);
+      args.add(Long.toString(lastEventId));
+      args.add(Integer.toString(pageSize));
+
+      List<StoredLoggingEvent> events = new ArrayList<StoredLoggingEvent>(pageSize);
+      Cursor cursor = db.rawQuery(sql, args.toArray(new String[args.size()]));
+      try {
+        while (cursor.moveToNext()) {
+          events.add(toEvent(cursor));
+        }
+      } finally {
+        cursor.close();
+      }
+
+      exhausted = events.size() < pageSize;
+      index = 0;
+      page = new ArrayList<ILoggingEvent>(events);
+      if (!events.isEmpty()) {
+        lastEventId = events.get(events.size() - 1).eventId;
+        attachDetails(events);
+      }
+    }
+  }
+
+  private String buildSelectSQL(Query query, List<String> args) {
+    StringBuilder sql = new StringBuilder("SELECT ").append(eventColumns)
+        .append(" FROM ").append(eventTable).append(" WHERE ");
+    String timestamp = dbNameResolver.getColumnName(ColumnName.TIMESTMP);
+    if (query.from != null) {
+      sql.append(timestamp).append(" >= ? AND ");
+      args.add(Long.toString(query.from));
+    }
+    if (query.to != null) {
+      sql.append(timestamp).append(" < ? AND ");
+      args.add(Long.toString(query.to));
+    }
+    if (query.minLevel != null) {
+      sql.append(dbNameResolver.getColumnName(ColumnName.LEVEL_STRING)).append(" IN (");
+      boolean first = true;
+      for (Level level : new Level[] { Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR }) {
+        if (level.isGreaterOrEqual(query.minLevel)) {
+          sql.append(first ? "?" : ", ?");
+          args.add(level.levelStr);
+          first = false;
+        }
+      }
+      sql.append(") AND ");
+    }
+    if (query.loggerPrefix != null && query.loggerPrefix.length() > 0) {
+      // a range rather than LIKE, so that an index on the column is usable
+      String loggerName = dbNameResolver.getColumnName(ColumnName.LOGGER_NAME);
+      sql.append(loggerName).append(" >= ? AND ").append(loggerName).append(" < ? AND ");
+      args.add(query.loggerPrefix);
+      args.add(query.loggerPrefix + Character.MAX_VALUE);
+    }
+    if (query.messageSubstring != null && query.messageSubstring.length() > 0) {
+      // GLOB rather than instr(), which older SQLite versions lack
+      sql.append(dbNameResolver.getColumnName(ColumnName.FORMATTED_MESSAGE)).append(" GLOB ? AND ");
+      args.add('*' + escapeGlob(query.messageSubstring) + '*');
+    }
+    sql.append(eventIdColumn).append(query.newestFirst ? " < ?" : " > ?")
+        .append(" ORDER BY ").append(eventIdColumn).append(query.newestFirst ? " DESC" : " ASC")
+        .append(" LIMIT ?");
+    return sql.toString();
+  }
+
+  private static String escapeGlob(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 8);
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '*' || c == '?' || c == '[') {
+        sb.append('[').append(c).append(']');
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private StoredLoggingEvent toEvent(Cursor cursor) {
+    StoredLoggingEvent event = new StoredLoggingEvent(cursor.getLong(0), cursor.getShort(6));
+    event.setTimeStamp(cursor.getLong(1));
+    event.setMessage(cursor.getString(2));
+    event.setLoggerName(cursor.getString(3));
+    event.setLevel(Level.toLevel(cursor.getString(4)));
+    if (!cursor.isNull(5)) {
+      event.setThreadName(cursor.getString(5));
+    }
+    event.setLoggerContextRemoteView(loggerContextVO);
+    event.setCallerData(toCallerData(cursor));
+    return event;
+  }
+
+  private static StackTraceElement[] toCallerData(Cursor cursor) {
+    if (cursor.isNull(8) || cursor.isNull(9)) {
+      return CallerData.EMPTY_CALLER_DATA_ARRAY;
+    }
+    int line = -1;
+    if (!cursor.isNull(10)) {
+      try {
+        line = Integer.parseInt(cursor.getString(10).trim());
+      } catch (NumberFormatException e) {
+        // unknown line
+      }
+    }
+    return new StackTraceElement[] {
+        new StackTraceElement(cursor.getString(8), cursor.getString(9), cursor.getString(7), line)
+    };
+  }
+
+  /**
+   * Loads properties and exception lines for a page of events, querying
+   * each table for the IDs of the page's events that have such details.
+   */
+  private void attachDetails(List<StoredLoggingEvent> events) {
+    Map<Long, StoredLoggingEvent> byId = new HashMap<Long, StoredLoggingEvent>();
+    List<Long> propertyIds = new ArrayList<Long>();
+    List<Long> exceptionIds = new ArrayList<Long>();
+    for (StoredLoggingEvent event : events) {
+      byId.put(event.eventId, event);
+      if ((event.referenceFlag & PROPERTIES_EXIST) != 0) {
+        propertyIds.add(event.eventId);
+      }
+      if ((event.referenceFlag & EXCEPTION_EXISTS) != 0) {
+        exceptionIds.add(event.eventId);
+      }
+    }
+
+    Map<Long, Map<String, String>> properties = new HashMap<Long, Map<String, String>>();
+    for (int from = 0; from < propertyIds.size(); from += MAX_IDS_PER_QUERY) {
+      List<Long> ids = propertyIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, propertyIds.size()));
+      Cursor cursor = queryDetails(TableName.LOGGING_EVENT_PROPERTY, ids,
+          ColumnName.MAPPED_KEY, ColumnName.MAPPED_VALUE);
+      try {
+        while (cursor.moveToNext()) {
+          long eventId = cursor.getLong(0);
+          Map<String, String> map = properties.get(eventId);
+          if (map == null) {
+            map = new HashMap<String, String>();
+            properties.put(eventId, map);
+          }
+          map.put(cursor.getString(1), cursor.getString(2));
+        }
+      } finally {
+        cursor.close();
+      }
+    }
+    for (StoredLoggingEvent event : events) {
+      Map<String, String> map = properties.get(event.eventId);
+      event.setMDCPropertyMap(map != null ? map : Collections.<String, String>emptyMap());
+    }
+
+    for (int from = 0; from < exceptionIds.size(); from += MAX_IDS_PER_QUERY) {
+      List<Long> ids = exceptionIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, exceptionIds.size()));
+      Cursor cursor = queryDetails(TableName.LOGGING_EVENT_EXCEPTION, ids,
+          ColumnName.I, ColumnName.TRACE_LINE);
+      try {
+        long currentId = Long.MIN_VALUE;
+        List<String> lines = new ArrayList<String>();
+        while (cursor.moveToNext()) {
+          long eventId = cursor.getLong(0);
+          if (eventId != currentId) {
+            attachThrowable(byId.get(currentId), lines);
+            currentId = eventId;
+            lines.clear();
+          }
+          lines.add(cursor.getString(2));
+        }
+        attachThrowable(byId.get(currentId), lines);
+      } finally {
+        cursor.close();
+      }
+    }
+  }
+
+  private Cursor queryDetails(TableName table, List<Long> eventIds, ColumnName... columns) {
+    StringBuilder sql = new StringBuilder("SELECT ").append(eventIdColumn);
+    for (ColumnName column : columns) {
+      sql.append(", ").append(dbNameResolver.getColumnName(column));
+    }
+    sql.append(" FROM ").append(dbNameResolver.getTableName(table))
+        .append(" WHERE ").append(eventIdColumn).append(" IN (");
+    String[] args = new String[eventIds.size()];
+    for (int i = 0; i < args.length; i++) {
+      sql.append(i == 0 ? "?" : ", ?");
+      args[i] = Long.toString(eventIds.get(i));
+    }
+    sql.append(") ORDER BY ").append(eventIdColumn).append(", ").append(dbNameResolver.getColumnName(columns[0]));
+    return db.rawQuery(sql.toString(), args);
+  }
+
+  private static void attachThrowable(StoredLoggingEvent event, List<String> lines) {
+    if (event != null && !lines.isEmpty()) {
+      event.throwableProxy = parseThrowable(lines);
+    }
+  }
+
+  /**
+   * Rebuilds a throwable proxy from the lines written by the appender: a
+   * first line per throwable in the cause chain, followed by its stack
+   * frames and the count of frames in common with the enclosing throwable.
+   * Only the frames which are not in common are stored; the others are the
+   * last frames of the enclosing throwable and are copied from there, so
+   * that the frames of each proxy are complete as for a live throwable.
+   */
+  static IThrowableProxy parseThrowable(List<String> lines) {
+    StoredThrowableProxy root = null;
+    StoredThrowableProxy enclosing = null;
+    StoredThrowableProxy current = null;
+    List<StackTraceElementProxy> frames = new ArrayList<StackTraceElementProxy>();
+    for (String line : lines) {
+      if (line.length() > 0 && line.charAt(0) == CoreConstants.TAB) {
+        if (current == null) {
+          continue;
+        }
+        if (line.startsWith(COMMON_FRAMES_PREFIX)) {
+          current.commonFrames = parseCommonFrames(line);
+        } else {
+          frames.add(new StackTraceElementProxy(parseFrame(line.substring(1))));
+        }
+        continue;
+      }
+      StoredThrowableProxy proxy = parseFirstLine(line);
+      if (current == null) {
+        root = proxy;
+      } else {
+        current.setFrames(frames, enclosing);
+        current.cause = proxy;
+      }
+      frames.clear();
+      enclosing = current;
+      current = proxy;
+    }
+    if (current != null) {
+      current.setFrames(frames, enclosing);
+    }
+    return root;
+  }
+
+  private static StoredThrowableProxy parseFirstLine(String line) {
+    if (line.startsWith(CoreConstants.CAUSED_BY)) {
+      line = line.substring(CoreConstants.CAUSED_BY.length());
+    }
+    int sep = line.indexOf(": ");
+    if (sep < 0) {
+      return new StoredThrowableProxy(line, null);
+    }
+    String message = line.substring(sep + 2);
+    return new StoredThrowableProxy(line.substring(0, sep), "null".equals(message) ? null : message);
+  }
+
+  private static int parseCommonFrames(String line) {
+    int start = COMMON_FRAMES_PREFIX.length();
+    int end = line.indexOf(' ', start);
+    try {
+      return Integer.parseInt(end < 0 ? line.substring(start) : line.substring(start, end));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Parses a frame as printed by {@link StackTraceElement#toString()},
+   * e.g. <code>at com.example.Foo.bar(Foo.java:12)</code>.
+   */
+  static StackTraceElement parseFrame(String frame) {
+    String s = frame.startsWith(AT) ? frame.substring(AT.length()) : frame;
+    int open = s.indexOf('(');
+    int close = s.lastIndexOf(')');
+    String qualifiedMethod = open < 0 ? s : s.substring(0, open);
+    int dot = qualifiedMethod.lastIndexOf('.');
+    String className = dot < 0 ? "" : qualifiedMethod.substring(0, dot);
+    String methodName = qualifiedMethod.substring(dot + 1);
+
+    String fileName = null;
+    int line = -1;
+    if (open >= 0 && close > open) {
+      String location = s.substring(open + 1, close);
+      if ("Native Method".equals(location)) {
+        line = -2;
+      } else if (!"Unknown Source".equals(location)) {
+        int colon = location.lastIndexOf(':');
+        fileName = location;
+        if (colon >= 0) {
+          try {
+            line = Integer.parseInt(location.substring(colon + 1));
+            fileName = location.substring(0, colon);
+          } catch (NumberFormatException e) {
+            // the colon is part of the file name
+          }
+        }
+      }
+    }
+    return new StackTraceElement(className, methodName, fileName, line);
+  }
+
+  /**
+   * An event read back from the database, carrying its stored throwable.
+   */
+  private static class StoredLoggingEvent extends LoggingEvent {
+    final long eventId;
+    final short referenceFlag;
+    IThrowableProxy throwableProxy;
+
+    StoredLoggingEvent(long eventId, short referenceFlag) {
+      this.eventId = eventId;
+      this.referenceFlag = referenceFlag;
+    }
+
+    @Override
+    public IThrowableProxy getThrowableProxy() {
+      return throwableProxy;
+    }
+  }
+
+  private static class StoredThrowableProxy implements IThrowableProxy {
+    private static final StackTraceElementProxy[] NO_FRAMES = new StackTraceElementProxy[0];
+    private static final IThrowableProxy[] NO_SUPPRESSED = new IThrowableProxy[0];
+
+    private final String className;
+    private final String message;
+    private StackTraceElementProxy[] frames = NO_FRAMES;
+    private int commonFrames;
+    private IThrowableProxy cause;
+
+    StoredThrowableProxy(String className, String message) {
+      this.className = className;
+      this.message = message;
+    }
+
+    /**
+     * Sets the stored frames, followed by the frames in common with the
+     * enclosing throwable.
+     */
+    void setFrames(List<StackTraceElementProxy> frames, StoredThrowableProxy enclosing) {
+      int stored = frames.size();
+      int common = enclosing != null ? Math.min(commonFrames, enclosing.frames.length) : 0;
+      this.frames = frames.toArray(new StackTraceElementProxy[stored + common]);
+      if (common > 0) {
+        System.arraycopy(enclosing.frames, enclosing.frames.length - common, this.frames, stored, common);
+      }
+      this.commonFrames = common;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    public StackTraceElementProxy[] getStackTraceElementProxyArray() {
+      return frames;
+    }
+
+    public int getCommonFrames() {
+      return commonFrames;
+    }
+
+    public IThrowableProxy getCause() {
+      return cause;
+    }
+
+    public IThrowableProxy[] getSuppressed() {
+      return NO_SUPPRESSED;
+    }
+  }
+
+  private String columns(ColumnName... columns) {
+    StringBuilder sb = new StringBuilder();
+    for (ColumnName column : columns) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(dbNameResolver.getColumnName(column));
+    }
+    return sb.toString();
+  }
+}
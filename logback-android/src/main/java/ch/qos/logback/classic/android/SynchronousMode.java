@@ -0,0 +1,29 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.android;
+
+/**
+ * Values of the SQLite <code>synchronous</code> pragma, which trades
+ * durability for write speed. In write-ahead-logging mode,
+ * {@link #NORMAL} keeps the database consistent and only risks losing the
+ * most recent transactions on power loss.
+ */
+public enum SynchronousMode {
+  OFF,
+  NORMAL,
+  FULL,
+  EXTRA
+}
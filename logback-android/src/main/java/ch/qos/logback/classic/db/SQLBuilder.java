@@ -122,6 +122,15 @@ public class SQLBuilder {
     return sqlBuilder.toString();
   }
 
+  public static String buildCreateIndexSQL(DBNameResolver dbNameResolver, TableName table, ColumnName column) {
+    String tableName = dbNameResolver.getTableName(table);
+    String columnName = dbNameResolver.getColumnName(column);
+    StringBuilder sqlBuilder = new StringBuilder("CREATE INDEX IF NOT EXISTS ")
+        .append(tableName).append('_').append(columnName).append("_idx")
+        .append(" ON ").append(tableName).append(" (").append(columnName).append(")");
+    return sqlBuilder.toString();
+  }
+
   public static String buildDeleteExpiredLogsSQL(DBNameResolver dbNameResolver, long expiryMs) {
     StringBuilder sqlBuilder = new StringBuilder("DELETE FROM ")
             .append(dbNameResolver.getTableName(TableName.LOGGING_EVENT))
@@ -130,4 +139,41 @@ public class SQLBuilder {
             .append(";");
     return sqlBuilder.toString();
   }
+
+  public static String buildDeleteExpiredLogsChunkSQL(DBNameResolver dbNameResolver, TableName table) {
+    StringBuilder sqlBuilder = new StringBuilder("DELETE FROM ")
+        .append(dbNameResolver.getTableName(table))
+        .append(" WHERE ").append(dbNameResolver.getColumnName(ColumnName.EVENT_ID))
+        .append(" IN (SELECT ").append(dbNameResolver.getColumnName(ColumnName.EVENT_ID))
+        .append(" FROM ").append(dbNameResolver.getTableName(TableName.LOGGING_EVENT))
+        .append(" WHERE ").append(dbNameResolver.getColumnName(ColumnName.TIMESTMP)).append(" <= ?")
+        .append(" ORDER BY ").append(dbNameResolver.getColumnName(ColumnName.EVENT_ID))
+        .append(" LIMIT ?)");
+    return sqlBuilder.toString();
+  }
+
+  public static String buildDeleteOldestLogsChunkSQL(DBNameResolver dbNameResolver, TableName table) {
+    StringBuilder sqlBuilder = new StringBuilder("DELETE FROM ")
+        .append(dbNameResolver.getTableName(table))
+        .append(" WHERE ").append(dbNameResolver.getColumnName(ColumnName.EVENT_ID))
+        .append(" IN (SELECT ").append(dbNameResolver.getColumnName(ColumnName.EVENT_ID))
+        .append(" FROM ").append(dbNameResolver.getTableName(TableName.LOGGING_EVENT))
+        .append(" ORDER BY ").append(dbNameResolver.getColumnName(ColumnName.EVENT_ID))
+        .append(" LIMIT ?)");
+    return sqlBuilder.toString();
+  }
+
+  public static String buildDeleteOrphansChunkSQL(DBNameResolver dbNameResolver, TableName childTable) {
+    String childTableName = dbNameResolver.getTableName(childTable);
+    String eventId = dbNameResolver.getColumnName(ColumnName.EVENT_ID);
+    StringBuilder sqlBuilder = new StringBuilder("DELETE FROM ")
+        .append(childTableName)
+        .append(" WHERE rowid IN (SELECT rowid FROM ").append(childTableName)
+        .append(" WHERE ").append(eventId)
+        .append(" < IFNULL((SELECT MIN(").append(eventId).append(") FROM ")
+        .append(dbNameResolver.getTableName(TableName.LOGGING_EVENT)).append("), ")
+        .append(Long.MAX_VALUE).append(")")
+        .append(" LIMIT ?)");
+    return sqlBuilder.toString();
+  }
 }
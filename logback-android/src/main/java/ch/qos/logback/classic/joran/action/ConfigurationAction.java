@@ -30,6 +30,7 @@ import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.turbo.ReconfigureOnChangeFilter;
 import ch.qos.logback.core.joran.action.Action;
 import ch.qos.logback.core.joran.spi.InterpretationContext;
+import ch.qos.logback.core.metrics.MetricsRegistry;
 import ch.qos.logback.core.util.ContextUtil;
 import ch.qos.logback.core.util.Duration;
 import ch.qos.logback.core.util.OptionHelper;
@@ -38,6 +39,9 @@ import ch.qos.logback.core.util.StatusListenerConfigHelper;
 public class ConfigurationAction extends Action {
   static final String INTERNAL_DEBUG_ATTR = "debug";
   static final String PACKAGING_DATA_ATTR = "packagingData";
+  static final String GARBAGE_FREE_ATTR = "garbageFree";
+  static final String METRICS_ATTR = "metrics";
+  static final String METRICS_DUMP_PERIOD_ATTR = "metricsDumpPeriod";
   static final String SCAN_ATTR = "scan";
   static final String SCAN_PERIOD_ATTR = "scanPeriod";
   static final String DEBUG_SYSTEM_PROPERTY_KEY = "logback.debug";
@@ -73,6 +77,47 @@ public class ConfigurationAction extends Action {
             ic.subst(attributes.getValue(PACKAGING_DATA_ATTR)),
             LoggerContext.DEFAULT_PACKAGING_DATA);
     lc.setPackagingDataEnabled(packagingData);
+
+    boolean garbageFree = OptionHelper.toBoolean(
+            ic.subst(attributes.getValue(GARBAGE_FREE_ATTR)),
+            LoggerContext.DEFAULT_GARBAGE_FREE);
+    lc.setGarbageFreeEnabled(garbageFree);
+
+    processMetricsAttrib(ic, attributes);
+  }
+
+  void processMetricsAttrib(InterpretationContext ic, Attributes attributes) {
+    MetricsRegistry registry = ((LoggerContext) context).getMetricsRegistry();
+    boolean metrics = OptionHelper.toBoolean(ic.subst(attributes.getValue(METRICS_ATTR)), false);
+    registry.setEnabled(metrics);
+    if (!metrics) {
+      return;
+    }
+    addInfo("Collecting appender and logger metrics");
+
+    String dumpPeriodAttrib = ic.subst(attributes.getValue(METRICS_DUMP_PERIOD_ATTR));
+    if (OptionHelper.isEmpty(dumpPeriodAttrib)) {
+      return;
+    }
+    Duration dumpPeriod = null;
+    Exception ex = null;
+    try {
+      dumpPeriod = Duration.valueOf(dumpPeriodAttrib);
+    } catch (IllegalArgumentException e) {
+      ex = e;
+    } catch (IllegalStateException e) {
+      ex = e;
+    }
+    if (ex != null) {
+      addWarn("Failed to parse '" + METRICS_DUMP_PERIOD_ATTR + "' attribute [" + dumpPeriodAttrib + "]", ex);
+      return;
+    }
+    if (dumpPeriod.getMilliseconds() <= 0) {
+      addWarn("'" + METRICS_DUMP_PERIOD_ATTR + "' must be positive, metrics will not be dumped");
+      return;
+    }
+    addInfo("Dumping metrics to the status manager every " + dumpPeriod);
+    registry.startStatusDump(dumpPeriod);
   }
 
   String getSystemProperty(String name) {
@@ -0,0 +1,446 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+import org.slf4j.helpers.MessageFormatter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ClassPackagingData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import ch.qos.logback.core.net.ObjectReader;
+
+/**
+ * Reads {@link ILoggingEvent}s written by a {@link BinaryLoggingEventWriter}.
+ * Every length and count read from the stream is checked against the
+ * bytes of the current record, so that a malformed or hostile stream fails
+ * with a {@link StreamCorruptedException} instead of exhausting memory.
+ */
+public class BinaryLoggingEventReader implements ObjectReader {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final IThrowableProxy[] NO_SUPPRESSED = new IThrowableProxy[0];
+
+  private final DataInputStream in;
+  private final List<String> dictionary = new ArrayList<String>();
+  private byte[] buf = new byte[512];
+  private int pos;
+  private int limit;
+  private long lastTimeStamp;
+  private LoggerContextVO lastContext;
+
+  /**
+   * Creates a reader and validates the stream header.
+   *
+   * @param in the stream to read from, which should be buffered
+   * @throws IOException if the header is missing or not supported
+   */
+  public BinaryLoggingEventReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(in);
+    byte[] header = new byte[BinaryWire.HEADER.length];
+    this.in.readFully(header);
+    for (int i = 0; i < header.length; i++) {
+      if (header[i] != BinaryWire.HEADER[i]) {
+        throw new StreamCorruptedException("Unsupported binary logging event stream header");
+      }
+    }
+  }
+
+  /**
+   * Reads the next event.
+   *
+   * @return the event, an {@link ILoggingEvent}
+   * @throws EOFException if the stream ends before the next event
+   * @throws IOException if the event cannot be read
+   */
+  @Override
+  public Object read() throws IOException {
+    int length = readRecordLength();
+    if (length > buf.length) {
+      buf = new byte[Math.max(length, buf.length * 2)];
+    }
+    in.readFully(buf, 0, length);
+    pos = 0;
+    limit = length;
+    ILoggingEvent event = decode();
+    if (pos != limit) {
+      throw new StreamCorruptedException("Trailing bytes in record");
+    }
+    return event;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private int readRecordLength() throws IOException {
+    int length = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      length |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (length < 0 || length > BinaryWire.MAX_RECORD_SIZE) {
+          throw new StreamCorruptedException("Record length " + length + " out of bounds");
+        }
+        return length;
+      }
+    }
+    throw new StreamCorruptedException("Malformed record length");
+  }
+
+  private ILoggingEvent decode() throws IOException {
+    DecodedEvent event = new DecodedEvent();
+    int flags = readInt();
+    lastTimeStamp += readSignedVarint();
+    event.timeStamp = lastTimeStamp;
+    event.level = BinaryWire.level(readInt());
+    if (event.level == null) {
+      throw new StreamCorruptedException("Unknown level");
+    }
+    event.loggerName = readDictionaryString();
+    event.threadName = readDictionaryString();
+    event.message = readString();
+
+    if ((flags & BinaryWire.FLAG_ARGUMENTS) != 0) {
+      Object[] args = new Object[readCount()];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = readString();
+      }
+      event.argumentArray = args;
+    }
+    if ((flags & BinaryWire.FLAG_CONTEXT) != 0) {
+      String name = readDictionaryString();
+      long birthTime = readSignedVarint();
+      lastContext = new LoggerContextVO(name, readMap(), birthTime);
+    }
+    event.loggerContextVO = (flags & BinaryWire.FLAG_NO_CONTEXT) != 0 ? null : lastContext;
+    if ((flags & BinaryWire.FLAG_MDC) != 0) {
+      event.mdcPropertyMap = readMap();
+    }
+    if (event.mdcPropertyMap == null) {
+      event.mdcPropertyMap = Collections.emptyMap();
+    }
+    if ((flags & BinaryWire.FLAG_MARKER) != 0) {
+      event.marker = readMarker(0);
+    }
+    if ((flags & BinaryWire.FLAG_CALLER_DATA) != 0) {
+      StackTraceElement[] callerData = new StackTraceElement[readCount()];
+      for (int i = 0; i < callerData.length; i++) {
+        callerData[i] = readStackTraceElement();
+      }
+      event.callerData = callerData;
+    }
+    if ((flags & BinaryWire.FLAG_THROWABLE) != 0) {
+      event.throwableProxy = readThrowable(0);
+    }
+    return event;
+  }
+
+  private Map<String, String> readMap() throws IOException {
+    int size = readInt();
+    if (size == 0) {
+      return null;
+    }
+    size = checkCount(size - 1);
+    Map<String, String> map = new HashMap<String, String>(size * 4 / 3 + 1);
+    for (int i = 0; i < size; i++) {
+      String key = readDictionaryString();
+      map.put(key, readString());
+    }
+    return map;
+  }
+
+  private Marker readMarker(int depth) throws IOException {
+    checkDepth(depth);
+    String name = readDictionaryString();
+    if (name == null) {
+      throw new StreamCorruptedException("Null marker name");
+    }
+    Marker marker = MarkerFactory.getDetachedMarker(name);
+    int references = readCount();
+    for (int i = 0; i < references; i++) {
+      marker.add(readMarker(depth + 1));
+    }
+    return marker;
+  }
+
+  private IThrowableProxy readThrowable(int depth) throws IOException {
+    checkDepth(depth);
+    DecodedThrowableProxy tp = new DecodedThrowableProxy();
+    tp.className = readDictionaryString();
+    tp.message = readString();
+    tp.commonFrames = readInt();
+    StackTraceElementProxy[] steps = new StackTraceElementProxy[readCount()];
+    for (int i = 0; i < steps.length; i++) {
+      steps[i] = new StackTraceElementProxy(readStackTraceElement());
+      int packaging = readInt();
+      if (packaging != 0) {
+        String codeLocation = readDictionaryString();
+        String version = readDictionaryString();
+        steps[i].setClassPackagingData(new ClassPackagingData(codeLocation, version, packaging == 1));
+      }
+    }
+    tp.steps = steps;
+    if (readInt() != 0) {
+      tp.cause = readThrowable(depth + 1);
+    }
+    int suppressed = readInt();
+    if (suppressed != 0) {
+      tp.suppressed = new IThrowableProxy[checkCount(suppressed - 1)];
+      for (int i = 0; i < tp.suppressed.length; i++) {
+        tp.suppressed[i] = readThrowable(depth + 1);
+      }
+    } else {
+      tp.suppressed = NO_SUPPRESSED;
+    }
+    return tp;
+  }
+
+  private StackTraceElement readStackTraceElement() throws IOException {
+    String className = readDictionaryString();
+    String methodName = readDictionaryString();
+    String fileName = readDictionaryString();
+    int lineNumber = (int) readSignedVarint();
+    if (className == null || methodName == null) {
+      throw new StreamCorruptedException("Incomplete stack trace element");
+    }
+    return new StackTraceElement(className, methodName, fileName, lineNumber);
+  }
+
+  private String readDictionaryString() throws IOException {
+    int tag = readInt();
+    switch (tag) {
+      case BinaryWire.DICT_NULL:
+        return null;
+      case BinaryWire.DICT_INLINE:
+        return readString();
+      case BinaryWire.DICT_ADD:
+        String s = readString();
+        if (s == null || dictionary.size() >= BinaryWire.MAX_DICTIONARY_SIZE
+            || s.length() > BinaryWire.MAX_DICTIONARY_STRING_LENGTH) {
+          throw new StreamCorruptedException("Invalid dictionary entry");
+        }
+        dictionary.add(s);
+        return s;
+      default:
+        int index = tag - BinaryWire.DICT_REF;
+        if (index >= dictionary.size()) {
+          throw new StreamCorruptedException("Unknown dictionary entry " + index);
+        }
+        return dictionary.get(index);
+    }
+  }
+
+  private String readString() throws IOException {
+    int length = readInt();
+    if (length == 0) {
+      return null;
+    }
+    length--;
+    if (length > limit - pos) {
+      throw new StreamCorruptedException("String length " + length + " out of bounds");
+    }
+    String s = new String(buf, pos, length, UTF_8);
+    pos += length;
+    return s;
+  }
+
+  /**
+   * Reads an element count, which cannot exceed the bytes left in the
+   * record since every element takes at least one byte.
+   */
+  private int readCount() throws IOException {
+    return checkCount(readInt());
+  }
+
+  private int checkCount(int count) throws IOException {
+    if (count > limit - pos) {
+      throw new StreamCorruptedException("Count " + count + " out of bounds");
+    }
+    return count;
+  }
+
+  private void checkDepth(int depth) throws IOException {
+    if (depth > BinaryWire.MAX_NESTING) {
+      throw new StreamCorruptedException("Nesting too deep");
+    }
+  }
+
+  private int readInt() throws IOException {
+    long value = readVarint();
+    if (value > Integer.MAX_VALUE) {
+      throw new StreamCorruptedException("Value " + value + " out of bounds");
+    }
+    return (int) value;
+  }
+
+  private long readSignedVarint() throws IOException {
+    long value = readVarint();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private long readVarint() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (pos >= limit) {
+        throw new StreamCorruptedException("Truncated record");
+      }
+      byte b = buf[pos++];
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("Malformed varint");
+  }
+
+  private static class DecodedEvent implements ILoggingEvent {
+    String threadName;
+    String loggerName;
+    LoggerContextVO loggerContextVO;
+    Level level;
+    String message;
+    String formattedMessage;
+    Object[] argumentArray;
+    IThrowableProxy throwableProxy;
+    StackTraceElement[] callerData;
+    Marker marker;
+    Map<String, String> mdcPropertyMap;
+    long timeStamp;
+
+    public String getThreadName() {
+      return threadName;
+    }
+
+    public Level getLevel() {
+      return level;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public Object[] getArgumentArray() {
+      return argumentArray;
+    }
+
+    public String getFormattedMessage() {
+      if (formattedMessage == null) {
+        formattedMessage = argumentArray != null
+            ? MessageFormatter.arrayFormat(message, argumentArray).getMessage()
+            : message;
+      }
+      return formattedMessage;
+    }
+
+    public String getLoggerName() {
+      return loggerName;
+    }
+
+    public LoggerContextVO getLoggerContextVO() {
+      return loggerContextVO;
+    }
+
+    public IThrowableProxy getThrowableProxy() {
+      return throwableProxy;
+    }
+
+    public StackTraceElement[] getCallerData() {
+      return callerData;
+    }
+
+    public boolean hasCallerData() {
+      return callerData != null;
+    }
+
+    public Marker getMarker() {
+      return marker;
+    }
+
+    public Map<String, String> getMDCPropertyMap() {
+      return mdcPropertyMap;
+    }
+
+    /**
+     * @deprecated Replaced by {@link #getMDCPropertyMap()}
+     */
+    @Deprecated
+    @Override
+    public Map<String, String> getMdc() {
+      return mdcPropertyMap;
+    }
+
+    public long getTimeStamp() {
+      return timeStamp;
+    }
+
+    public void prepareForDeferredProcessing() {
+    }
+  }
+
+  private static class DecodedThrowableProxy implements IThrowableProxy {
+    String className;
+    String message;
+    int commonFrames;
+    StackTraceElementProxy[] steps;
+    IThrowableProxy cause;
+    IThrowableProxy[] suppressed;
+
+    public String getMessage() {
+      return message;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    public StackTraceElementProxy[] getStackTraceElementProxyArray() {
+      return steps;
+    }
+
+    public int getCommonFrames() {
+      return commonFrames;
+    }
+
+    public IThrowableProxy getCause() {
+      return cause;
+    }
+
+    public IThrowableProxy[] getSuppressed() {
+      return suppressed;
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.spi.ClassPackagingData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import ch.qos.logback.core.net.ObjectWriter;
+
+/**
+ * Writes {@link ILoggingEvent}s in the compact binary format described in
+ * {@link BinaryWire}, flushing the output after each event. The writer
+ * keeps per-stream state and must be used by one thread at a time.
+ */
+public class BinaryLoggingEventWriter implements ObjectWriter {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final OutputStream out;
+  private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+  private byte[] buf = new byte[512];
+  private int count;
+  private final byte[] lengthBuf = new byte[5];
+  private long lastTimeStamp;
+  private LoggerContextVO lastContext;
+
+  /**
+   * Creates a writer and writes the stream header.
+   *
+   * @param out the stream to write to, which should be buffered
+   * @throws IOException if the header cannot be written
+   */
+  public BinaryLoggingEventWriter(OutputStream out) throws IOException {
+    this.out = out;
+    out.write(BinaryWire.HEADER);
+  }
+
+  @Override
+  public void write(Object object) throws IOException {
+    writeEvent(object);
+    out.flush();
+  }
+
+  /**
+   * Writes an event without flushing the output.
+   *
+   * @param object the event, an {@link ILoggingEvent}
+   * @throws IOException if the event cannot be written
+   */
+  void writeEvent(Object object) throws IOException {
+    if (!(object instanceof ILoggingEvent)) {
+      throw new IOException("Cannot encode " + (object == null ? null : object.getClass()));
+    }
+    count = 0;
+    encode((ILoggingEvent) object);
+    int n = 0;
+    int length = count;
+    while ((length & ~0x7F) != 0) {
+      lengthBuf[n++] = (byte) ((length & 0x7F) | 0x80);
+      length >>>= 7;
+    }
+    lengthBuf[n++] = (byte) length;
+    out.write(lengthBuf, 0, n);
+    out.write(buf, 0, count);
+  }
+
+  private void encode(ILoggingEvent event) {
+    Object[] args = event.getArgumentArray();
+    LoggerContextVO context = event.getLoggerContextVO();
+    boolean contextChanged = context != null && context != lastContext && !sameContext(context, lastContext);
+    Map<String, String> mdc = event.getMDCPropertyMap();
+    Marker marker = event.getMarker();
+    StackTraceElement[] callerData = event.hasCallerData() ? event.getCallerData() : null;
+    IThrowableProxy tp = event.getThrowableProxy();
+
+    int flags = 0;
+    if (args != null) {
+      flags |= BinaryWire.FLAG_ARGUMENTS;
+    }
+    if (contextChanged) {
+      flags |= BinaryWire.FLAG_CONTEXT;
+    } else if (context == null) {
+      flags |= BinaryWire.FLAG_NO_CONTEXT;
+    }
+    if (mdc != null && !mdc.isEmpty()) {
+      flags |= BinaryWire.FLAG_MDC;
+    }
+    if (marker != null) {
+      flags |= BinaryWire.FLAG_MARKER;
+    }
+    if (callerData != null) {
+      flags |= BinaryWire.FLAG_CALLER_DATA;
+    }
+    if (tp != null) {
+      flags |= BinaryWire.FLAG_THROWABLE;
+    }
+
+    writeVarint(flags);
+    writeSignedVarint(event.getTimeStamp() - lastTimeStamp);
+    lastTimeStamp = event.getTimeStamp();
+    writeVarint(BinaryWire.levelCode(event.getLevel()));
+    writeDictionaryString(event.getLoggerName());
+    writeDictionaryString(event.getThreadName());
+    writeString(event.getMessage());
+
+    if (args != null) {
+      writeVarint(args.length);
+      for (Object arg : args) {
+        writeString(arg == null ? null : arg.toString());
+      }
+    }
+    if (contextChanged) {
+      writeDictionaryString(context.getName());
+      writeSignedVarint(context.getBirthTime());
+      writeMap(context.getPropertyMap());
+      lastContext = context;
+    }
+    if ((flags & BinaryWire.FLAG_MDC) != 0) {
+      writeMap(mdc);
+    }
+    if (marker != null) {
+      writeMarker(marker, 0);
+    }
+    if (callerData != null) {
+      writeVarint(callerData.length);
+      for (StackTraceElement ste : callerData) {
+        writeStackTraceElement(ste);
+      }
+    }
+    if (tp != null) {
+      writeThrowable(tp, 0);
+    }
+  }
+
+  private static boolean sameContext(LoggerContextVO a, LoggerContextVO b) {
+    if (b == null) {
+      return false;
+    }
+    return a.getBirthTime() == b.getBirthTime()
+        && (a.getName() == null ? b.getName() == null : a.getName().equals(b.getName()))
+        && (a.getPropertyMap() == null ? b.getPropertyMap() == null : a.getPropertyMap().equals(b.getPropertyMap()));
+  }
+
+  private void writeMap(Map<String, String> map) {
+    if (map == null) {
+      writeVarint(0);
+      return;
+    }
+    writeVarint(map.size() + 1);
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      writeDictionaryString(entry.getKey());
+      writeString(entry.getValue());
+    }
+  }
+
+  private void writeMarker(Marker marker, int depth) {
+    writeDictionaryString(marker.getName());
+    if (depth >= BinaryWire.MAX_NESTING || !marker.hasReferences()) {
+      writeVarint(0);
+      return;
+    }
+    int references = 0;
+    for (Iterator<Marker> it = marker.iterator(); it.hasNext(); it.next()) {
+      references++;
+    }
+    writeVarint(references);
+    for (Iterator<Marker> it = marker.iterator(); it.hasNext(); ) {
+      writeMarker(it.next(), depth + 1);
+    }
+  }
+
+  private void writeThrowable(IThrowableProxy tp, int depth) {
+    writeDictionaryString(tp.getClassName());
+    writeString(tp.getMessage());
+    writeVarint(tp.getCommonFrames());
+    StackTraceElementProxy[] steps = tp.getStackTraceElementProxyArray();
+    writeVarint(steps == null ? 0 : steps.length);
+    if (steps != null) {
+      for (StackTraceElementProxy step : steps) {
+        writeStackTraceElement(step.getStackTraceElement());
+        ClassPackagingData cpd = step.getClassPackagingData();
+        if (cpd == null) {
+          writeVarint(0);
+        } else {
+          writeVarint(cpd.isExact() ? 1 : 2);
+          writeDictionaryString(cpd.getCodeLocation());
+          writeDictionaryString(cpd.getVersion());
+        }
+      }
+    }
+    boolean nested = depth < BinaryWire.MAX_NESTING;
+    IThrowableProxy cause = nested ? tp.getCause() : null;
+    writeVarint(cause == null ? 0 : 1);
+    if (cause != null) {
+      writeThrowable(cause, depth + 1);
+    }
+    IThrowableProxy[] suppressed = nested ? tp.getSuppressed() : null;
+    writeVarint(suppressed == null ? 0 : suppressed.length + 1);
+    if (suppressed != null) {
+      for (IThrowableProxy s : suppressed) {
+        writeThrowable(s, depth + 1);
+      }
+    }
+  }
+
+  private void writeStackTraceElement(StackTraceElement ste) {
+    writeDictionaryString(ste.getClassName());
+    writeDictionaryString(ste.getMethodName());
+    writeDictionaryString(ste.getFileName());
+    writeSignedVarint(ste.getLineNumber());
+  }
+
+  private void writeDictionaryString(String s) {
+    if (s == null) {
+      writeVarint(BinaryWire.DICT_NULL);
+      return;
+    }
+    Integer index = dictionary.get(s);
+    if (index != null) {
+      writeVarint(BinaryWire.DICT_REF + index);
+    } else if (dictionary.size() < BinaryWire.MAX_DICTIONARY_SIZE
+        && s.length() <= BinaryWire.MAX_DICTIONARY_STRING_LENGTH) {
+      dictionary.put(s, dictionary.size());
+      writeVarint(BinaryWire.DICT_ADD);
+      writeString(s);
+    } else {
+      writeVarint(BinaryWire.DICT_INLINE);
+      writeString(s);
+    }
+  }
+
+  private void writeString(String s) {
+    if (s == null) {
+      writeVarint(0);
+      return;
+    }
+    byte[] bytes = s.getBytes(UTF_8);
+    writeVarint(bytes.length + 1L);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buf, count, bytes.length);
+    count += bytes.length;
+  }
+
+  private void writeSignedVarint(long value) {
+    writeVarint((value << 1) ^ (value >> 63));
+  }
+
+  private void writeVarint(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buf[count++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buf[count++] = (byte) value;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (count + extra > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Constants of the binary wire format written by
+ * {@link BinaryLoggingEventWriter} and read by
+ * {@link BinaryLoggingEventReader}.
+ *
+ * <p>A stream starts with {@link #HEADER}, followed by records. Each record
+ * is a varint length followed by that many bytes encoding one event.
+ * Integers are unsigned LEB128 varints, zigzag-encoded when signed, and
+ * timestamps are sent as the difference to the previous event's. Strings
+ * are UTF-8, prefixed by their length plus one, 0 standing for null.</p>
+ *
+ * <p>Names that recur (loggers, threads, classes, ...) go through a
+ * per-stream dictionary of at most {@link #MAX_DICTIONARY_SIZE} entries,
+ * which both sides build identically as records are written and read. A
+ * dictionary string is a varint tag: {@link #DICT_NULL},
+ * {@link #DICT_INLINE} or {@link #DICT_ADD} followed by a string, or
+ * {@link #DICT_REF} plus an entry index.</p>
+ */
+final class BinaryWire {
+
+  /**
+   * Stream header: "LBW" and the format version. Java serialization
+   * streams start with 0xACED, so receivers can tell the formats apart.
+   */
+  static final byte[] HEADER = { 'L', 'B', 'W', 1 };
+
+  static final int MAX_DICTIONARY_SIZE = 4096;
+  static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+  static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+  static final int MAX_NESTING = 64;
+
+  static final int DICT_NULL = 0;
+  static final int DICT_INLINE = 1;
+  static final int DICT_ADD = 2;
+  static final int DICT_REF = 3;
+
+  static final int FLAG_ARGUMENTS = 1;
+  static final int FLAG_CONTEXT = 1 << 1;
+  static final int FLAG_MDC = 1 << 2;
+  static final int FLAG_MARKER = 1 << 3;
+  static final int FLAG_CALLER_DATA = 1 << 4;
+  static final int FLAG_THROWABLE = 1 << 5;
+  // the event has no context, as opposed to the same context as the previous one
+  static final int FLAG_NO_CONTEXT = 1 << 6;
+
+  private static final Level[] LEVELS = {
+      Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR, Level.OFF, Level.ALL
+  };
+
+  private BinaryWire() {
+  }
+
+  static int levelCode(Level level) {
+    for (int i = 0; i < LEVELS.length; i++) {
+      if (LEVELS[i].levelInt == level.levelInt) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown level " + level);
+  }
+
+  static Level level(int code) {
+    return code >= 0 && code < LEVELS.length ? LEVELS[code] : null;
+  }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.net.FramedInputStream;
+import ch.qos.logback.core.net.FramedOutputStream;
+import ch.qos.logback.core.net.ObjectReader;
+
+/**
+ * Decodes logging events from a stream received in arbitrary chunks, as
+ * read from a non-blocking channel. Bytes are buffered until a complete
+ * frame (see {@link FramedOutputStream}) or binary record is available, so
+ * that decoding never blocks.
+ * <p>
+ * Framed streams in either wire format and unframed streams in the
+ * {@link ch.qos.logback.core.net.WireFormat#BINARY binary} format are
+ * supported. Unframed serialized streams have no record boundaries and are
+ * rejected.
+ * <p>
+ * A frame or record is buffered whole before it is decoded, so the bytes
+ * buffered per connection are bounded by the largest frame or record
+ * accepted. Buffers grown for a large frame shrink back once it has been
+ * decoded.
+ */
+public class LoggingEventDecoder {
+
+  /**
+   * Default size of the largest frame, or record of an unframed stream,
+   * accepted (1 MB).
+   */
+  public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+  private static final int HEADER_LENGTH = FramedOutputStream.HEADER.length;
+  private static final int UNKNOWN = 0;
+  private static final int FRAMED = 1;
+  private static final int BINARY = 2;
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+
+  private final int maxFrameSize;
+  private final ChunkInputStream chunks = new ChunkInputStream();
+  private byte[] pending = new byte[INITIAL_BUFFER_SIZE];
+  private int pendingLength;
+  private int format = UNKNOWN;
+  private InputStream eventInput;
+  private ObjectReader reader;
+
+  /**
+   * Creates a decoder accepting frames and records of up to
+   * {@value #DEFAULT_MAX_FRAME_SIZE} bytes.
+   */
+  public LoggingEventDecoder() {
+    this(DEFAULT_MAX_FRAME_SIZE);
+  }
+
+  /**
+   * Creates a decoder.
+   *
+   * @param maxFrameSize the size of the largest frame, or record of an
+   * unframed stream, accepted; larger ones are rejected as corrupt
+   */
+  public LoggingEventDecoder(int maxFrameSize) {
+    if (maxFrameSize <= 0 || maxFrameSize > FramedInputStream.MAX_FRAME_SIZE) {
+      throw new IllegalArgumentException("maxFrameSize out of bounds: " + maxFrameSize);
+    }
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  /**
+   * Adds received bytes, consuming all the remaining bytes of the buffer.
+   *
+   * @param buffer the bytes received
+   * @throws IOException if the bytes are not a supported event stream
+   */
+  public void feed(ByteBuffer buffer) throws IOException {
+    int length = buffer.remaining();
+    if (pendingLength + length > pending.length) {
+      pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+    }
+    buffer.get(pending, pendingLength, length);
+    pendingLength += length;
+
+    int offset = 0;
+    int unit;
+    while ((unit = completeUnitLength(offset)) > 0) {
+      chunks.append(pending, offset, unit);
+      offset += unit;
+    }
+    pendingLength -= offset;
+    if (pending.length > INITIAL_BUFFER_SIZE && pendingLength <= INITIAL_BUFFER_SIZE) {
+      // a large frame has been passed on, give its buffer back
+      byte[] shrunk = new byte[INITIAL_BUFFER_SIZE];
+      System.arraycopy(pending, offset, shrunk, 0, pendingLength);
+      pending = shrunk;
+    } else {
+      System.arraycopy(pending, offset, pending, 0, pendingLength);
+    }
+  }
+
+  /**
+   * Decodes the next event from the bytes received so far.
+   *
+   * @return the event, or {@code null} if no complete event is available
+   * @throws IOException if the stream is malformed
+   * @throws ClassNotFoundException if a serialized class is not allowed
+   */
+  public ILoggingEvent next() throws IOException, ClassNotFoundException {
+    if (format == UNKNOWN) {
+      return null;
+    }
+    if (eventInput == null) {
+      eventInput = format == FRAMED
+          ? new BufferedInputStream(new FramedInputStream(chunks))
+          : new BufferedInputStream(chunks);
+    }
+    if (eventInput.available() == 0) {
+      chunks.shrink();
+      return null;
+    }
+    if (reader == null) {
+      reader = format == FRAMED
+          ? new LoggingEventReaderFactory().newReader(eventInput)
+          : new BinaryLoggingEventReader(eventInput);
+      if (eventInput.available() == 0) {
+        chunks.shrink();
+        return null;
+      }
+    }
+    return (ILoggingEvent) reader.read();
+  }
+
+  /**
+   * Returns the length of the complete header, frame or record starting at
+   * the given offset of the pending bytes, or 0 if it is incomplete.
+   */
+  private int completeUnitLength(int offset) throws IOException {
+    int available = pendingLength - offset;
+    switch (format) {
+      case UNKNOWN:
+        if (available < HEADER_LENGTH) {
+          return 0;
+        }
+        if (hasPrefix(offset, FramedOutputStream.HEADER)) {
+          format = FRAMED;
+        } else if (hasPrefix(offset, BinaryWire.HEADER)) {
+          format = BINARY;
+        } else {
+          throw new StreamCorruptedException("Unframed serialized event streams are not supported, "
+              + "enable batching or the binary wire format on the sender");
+        }
+        return HEADER_LENGTH;
+      case FRAMED:
+        if (available < 5) {
+          return 0;
+        }
+        int headerLength = pending[offset] == 0 ? 5 : 9;
+        long frameLength = readInt(offset + 1);
+        if (frameLength < 0 || frameLength > maxFrameSize) {
+          throw new StreamCorruptedException("Frame length " + frameLength + " out of bounds");
+        }
+        return available >= headerLength + frameLength ? headerLength + (int) frameLength : 0;
+      default:
+        long recordLength = 0;
+        for (int i = 0; i < 5; i++) {
+          if (i >= available) {
+            return 0;
+          }
+          int b = pending[offset + i];
+          recordLength |= (long) (b & 0x7F) << (7 * i);
+          if ((b & 0x80) == 0) {
+            if (recordLength > maxFrameSize || recordLength > BinaryWire.MAX_RECORD_SIZE) {
+              throw new StreamCorruptedException("Record length " + recordLength + " out of bounds");
+            }
+            return available >= i + 1 + recordLength ? i + 1 + (int) recordLength : 0;
+          }
+        }
+        throw new StreamCorruptedException("Malformed record length");
+    }
+  }
+
+  private boolean hasPrefix(int offset, byte[] prefix) {
+    for (int i = 0; i < prefix.length; i++) {
+      if (pending[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int readInt(int offset) {
+    return ((pending[offset] & 0xFF) << 24) | ((pending[offset + 1] & 0xFF) << 16)
+        | ((pending[offset + 2] & 0xFF) << 8) | (pending[offset + 3] & 0xFF);
+  }
+
+  /**
+   * The complete frames or records received so far. Reading past them
+   * means an event was split across frames, which senders never do.
+   */
+  private static class ChunkInputStream extends InputStream {
+    private byte[] buf = new byte[INITIAL_BUFFER_SIZE];
+    private int pos;
+    private int count;
+
+    void append(byte[] b, int off, int len) {
+      if (pos > 0 && count + len > buf.length) {
+        System.arraycopy(buf, pos, buf, 0, count - pos);
+        count -= pos;
+        pos = 0;
+      }
+      if (count + len > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + len));
+      }
+      System.arraycopy(b, off, buf, count, len);
+      count += len;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (pos == count) {
+        throw new StreamCorruptedException("Incomplete event");
+      }
+      return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (pos == count) {
+        throw new StreamCorruptedException("Incomplete event");
+      }
+      int n = Math.min(len, count - pos);
+      System.arraycopy(buf, pos, b, off, n);
+      pos += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return count - pos;
+    }
+
+    /**
+     * Gives back the buffer grown for a large frame once it has been read.
+     */
+    void shrink() {
+      if (pos == count && buf.length > INITIAL_BUFFER_SIZE) {
+        buf = new byte[INITIAL_BUFFER_SIZE];
+        pos = 0;
+        count = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import ch.qos.logback.classic.net.server.HardenedLoggingEventInputStream;
+import ch.qos.logback.core.net.FramedInputStream;
+import ch.qos.logback.core.net.FramedOutputStream;
+import ch.qos.logback.core.net.ObjectReader;
+
+/**
+ * Creates {@link ObjectReader}s for the logging event streams sent by
+ * {@link SocketAppender} and its relatives. The wire format is detected
+ * from the first bytes of the stream, so receivers accept both serialized
+ * and {@link ch.qos.logback.core.net.WireFormat#BINARY binary} senders,
+ * with or without batching into {@link FramedInputStream frames}.
+ */
+public class LoggingEventReaderFactory {
+
+  /**
+   * Creates a reader for the given stream.
+   *
+   * @param inputStream the stream to read from
+   * @return a reader for the stream's wire format
+   * @throws EOFException if the stream ends before its header
+   * @throws IOException if the stream header cannot be read
+   */
+  public ObjectReader newReader(InputStream inputStream) throws IOException {
+    InputStream in = buffered(inputStream);
+    byte[] prefix = new byte[FramedOutputStream.HEADER.length];
+    int length = peek(in, prefix);
+    if (FramedInputStream.isFramed(prefix, length)) {
+      in = new BufferedInputStream(new FramedInputStream(in));
+      length = peek(in, prefix);
+    }
+    if (length == 0) {
+      throw new EOFException();
+    }
+    if (prefix[0] == BinaryWire.HEADER[0]) {
+      return new BinaryLoggingEventReader(in);
+    }
+    return new SerializedReader(new HardenedLoggingEventInputStream(in));
+  }
+
+  private static InputStream buffered(InputStream inputStream) {
+    return inputStream instanceof BufferedInputStream
+        ? inputStream : new BufferedInputStream(inputStream);
+  }
+
+  /**
+   * Reads the first bytes of a stream without consuming them.
+   */
+  private static int peek(InputStream in, byte[] prefix) throws IOException {
+    in.mark(prefix.length);
+    int length = 0;
+    try {
+      while (length < prefix.length) {
+        int n = in.read(prefix, length, prefix.length - length);
+        if (n < 0) {
+          break;
+        }
+        length += n;
+      }
+    } finally {
+      in.reset();
+    }
+    return length;
+  }
+
+  private static class SerializedReader implements ObjectReader {
+    private final HardenedLoggingEventInputStream ois;
+
+    SerializedReader(HardenedLoggingEventInputStream ois) {
+      this.ois = ois;
+    }
+
+    public Object read() throws IOException, ClassNotFoundException {
+      return ois.readObject();
+    }
+
+    public void close() throws IOException {
+      ois.close();
+    }
+  }
+}
@@ -19,6 +19,7 @@ import ch.qos.logback.classic.ClassicConstants;
 import ch.qos.logback.classic.PatternLayout;
 import ch.qos.logback.classic.boolex.OnErrorEvaluator;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ReusableLoggingEvent;
 import ch.qos.logback.core.Layout;
 import ch.qos.logback.core.boolex.EventEvaluator;
 import ch.qos.logback.core.helpers.CyclicBuffer;
@@ -76,6 +77,7 @@ public class SMTPAppender extends SMTPAppenderBase<ILoggingEvent> {
    * a cyclic buffer.
    */
   protected void subAppend(CyclicBuffer<ILoggingEvent> cb, ILoggingEvent event) {
+    event = ReusableLoggingEvent.toRetainable(event);
     if(includeCallerData) {
       event.getCallerData();
     }
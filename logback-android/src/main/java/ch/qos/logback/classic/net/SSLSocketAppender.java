@@ -15,8 +15,17 @@
  */
 package ch.qos.logback.classic.net;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+
+import ch.qos.logback.classic.net.server.HardenedLoggingEventInputStream;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ReusableLoggingEvent;
 import ch.qos.logback.core.net.AbstractSSLSocketAppender;
+import ch.qos.logback.core.net.ObjectWriter;
 import ch.qos.logback.core.spi.PreSerializationTransformer;
 
 /**
@@ -37,6 +46,15 @@ public class SSLSocketAppender extends AbstractSSLSocketAppender<ILoggingEvent>
   public SSLSocketAppender() {
   }
 
+  /**
+   * Events are dispatched by another thread after this method returns, so
+   * reusable events are replaced by a copy.
+   */
+  @Override
+  protected void append(ILoggingEvent event) {
+    super.append(ReusableLoggingEvent.toRetainable(event));
+  }
+
   @Override
   protected void postProcessEvent(ILoggingEvent event) {
     if (includeCallerData) {
@@ -52,4 +70,14 @@ public class SSLSocketAppender extends AbstractSSLSocketAppender<ILoggingEvent>
     return pst;
   }
 
+  @Override
+  protected ObjectWriter newBinaryObjectWriter(OutputStream outputStream) throws IOException {
+    return new BinaryLoggingEventWriter(new BufferedOutputStream(outputStream));
+  }
+
+  @Override
+  protected ObjectInputStream newSpillInputStream(InputStream inputStream) throws IOException {
+    return new HardenedLoggingEventInputStream(inputStream);
+  }
+
 }
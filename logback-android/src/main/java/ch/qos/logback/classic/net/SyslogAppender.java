@@ -30,6 +30,8 @@ import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.Layout;
 import ch.qos.logback.core.net.SyslogAppenderBase;
 import ch.qos.logback.core.net.SyslogOutputStream;
+import ch.qos.logback.core.net.SyslogTransport;
+import ch.qos.logback.core.net.TcpSyslogOutputStream;
 
 /**
  * This appender can be used to send messages to a remote syslog daemon. <p> For
@@ -60,6 +62,9 @@ public class SyslogAppender extends SyslogAppenderBase<ILoggingEvent> {
 
   @Override
   public SyslogOutputStream createOutputStream() throws SocketException, UnknownHostException {
+    if (getTransport() == SyslogTransport.TCP) {
+      return new TcpSyslogOutputStream(getSyslogHost(), getPort(), (int) getBatchSize().getSize());
+    }
     return new SyslogOutputStream(getSyslogHost(), getPort());
   }
 
@@ -18,6 +18,7 @@ package ch.qos.logback.classic.net.server;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.helpers.BasicMarker;
@@ -38,6 +39,8 @@ public class HardenedLoggingEventInputStream extends HardenedObjectInputStream {
 
     static final String ARRAY_PREFIX = "[L";
 
+    private static final List<String> WHITELIST = Collections.unmodifiableList(getWhilelist());
+
     static public List<String> getWhilelist() {
         List<String> whitelist = new ArrayList<String>();
         whitelist.add(LoggingEventVO.class.getName());
@@ -61,7 +64,7 @@ public class HardenedLoggingEventInputStream extends HardenedObjectInputStream {
     }
 
     public HardenedLoggingEventInputStream(InputStream is) throws IOException {
-        super(is, getWhilelist());
+        super(is, WHITELIST);
     }
 
     public HardenedLoggingEventInputStream(InputStream is, List<String> additionalAuthorizedClasses) throws IOException {
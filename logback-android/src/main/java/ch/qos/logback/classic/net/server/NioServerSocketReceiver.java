@@ -0,0 +1,128 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net.server;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+import ch.qos.logback.classic.net.LoggingEventDecoder;
+import ch.qos.logback.core.net.FramedInputStream;
+import ch.qos.logback.core.util.CloseUtil;
+import ch.qos.logback.core.util.FileSize;
+
+/**
+ * A {@link ServerSocketReceiver} that multiplexes its client connections
+ * on a few selector threads instead of dedicating a blocking thread to
+ * each client, for servers receiving events from many remote appenders.
+ * <p>
+ * Events are decoded incrementally as bytes arrive, which requires the
+ * senders to use batching or the binary wire format (see
+ * {@link ch.qos.logback.classic.net.LoggingEventDecoder}). Decoded events
+ * are logged on the selector thread of their connection, so a slow
+ * appender holds back the reads of that thread and TCP flow control slows
+ * down its senders rather than events piling up in memory. The bytes
+ * buffered per connection are bounded by <code>maxFrameSize</code>.
+ */
+public class NioServerSocketReceiver extends ServerSocketReceiver {
+
+  /**
+   * Default number of selector threads.
+   */
+  public static final int DEFAULT_SELECTOR_COUNT = 2;
+
+  private int selectorCount = DEFAULT_SELECTOR_COUNT;
+  private FileSize maxFrameSize = new FileSize(LoggingEventDecoder.DEFAULT_MAX_FRAME_SIZE);
+
+  private SelectorServerRunner runner;
+
+  @Override
+  protected boolean shouldStart() {
+    if (selectorCount < 1) {
+      addError("Selector count must be greater than zero");
+      return false;
+    }
+    if (maxFrameSize == null || maxFrameSize.getSize() <= 0
+        || maxFrameSize.getSize() > FramedInputStream.MAX_FRAME_SIZE) {
+      addError("Max frame size must be greater than zero and at most "
+          + new FileSize(FramedInputStream.MAX_FRAME_SIZE));
+      return false;
+    }
+    ServerSocketChannel serverChannel = null;
+    try {
+      serverChannel = ServerSocketChannel.open();
+      InetSocketAddress address = getInetAddress() == null
+          ? new InetSocketAddress(getPort())
+          : new InetSocketAddress(getInetAddress(), getPort());
+      serverChannel.bind(address, getBacklog());
+      runner = new SelectorServerRunner(serverChannel, selectorCount, (int) maxFrameSize.getSize());
+      runner.setContext(getContext());
+      return true;
+    }
+    catch (Exception ex) {
+      addError("server startup error: " + ex, ex);
+      CloseUtil.closeQuietly(serverChannel);
+      return false;
+    }
+  }
+
+  @Override
+  protected Runnable getRunnableTask() {
+    return runner;
+  }
+
+  @Override
+  protected void onStop() {
+    if (runner == null) return;
+    runner.stop();
+  }
+
+  /**
+   * Gets the number of selector threads.
+   * @return number of selector threads
+   */
+  public int getSelectorCount() {
+    return selectorCount;
+  }
+
+  /**
+   * Sets the number of selector threads, which each serve a share of the
+   * client connections. The default is {@value #DEFAULT_SELECTOR_COUNT}.
+   * @param selectorCount the number of selector threads
+   */
+  public void setSelectorCount(int selectorCount) {
+    this.selectorCount = selectorCount;
+  }
+
+  /**
+   * Gets the size of the largest frame accepted from a client.
+   * @return the maximum frame size
+   */
+  public FileSize getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
+  /**
+   * Sets the size of the largest frame, or record of an unframed binary
+   * stream, accepted from a client. A frame is buffered whole before it is
+   * decoded, so this bounds the memory used per connection; clients
+   * sending larger frames are disconnected. The default is 1 MB.
+   * @param maxFrameSize the maximum frame size
+   */
+  public void setMaxFrameSize(FileSize maxFrameSize) {
+    this.maxFrameSize = maxFrameSize;
+  }
+
+}
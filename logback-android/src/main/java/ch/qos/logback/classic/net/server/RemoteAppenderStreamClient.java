@@ -22,13 +22,14 @@ import java.net.Socket;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.net.LoggingEventReaderFactory;
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.net.HardenedObjectInputStream;
+import ch.qos.logback.core.net.ObjectReader;
 import ch.qos.logback.core.util.CloseUtil;
 
 /**
- * A {@link RemoteAppenderClient} that reads serialized {@link ILoggingEvent}
- * objects from an {@link InputStream}.
+ * A {@link RemoteAppenderClient} that reads serialized or binary encoded
+ * {@link ILoggingEvent} objects from an {@link InputStream}.
  *
  * @author Carl Harris
  */
@@ -87,12 +88,12 @@ class RemoteAppenderStreamClient implements RemoteAppenderClient {
    */
   public void run() {
     logger.info(this + ": connected");
-    HardenedObjectInputStream ois = null;
+    ObjectReader reader = null;
     try {
-      ois = createObjectInputStream();
+      reader = createObjectReader();
       while (true) {
         // read an event from the wire
-        ILoggingEvent event = (ILoggingEvent) ois.readObject();
+        ILoggingEvent event = (ILoggingEvent) reader.read();
         // get a logger from the hierarchy. The name of the logger is taken to
         // be the name contained in the event.
         Logger remoteLogger = lc.getLogger(event.getLoggerName());
@@ -117,19 +118,20 @@ class RemoteAppenderStreamClient implements RemoteAppenderClient {
       logger.error(this + ": " + ex);
     }
     finally {
-      if (ois != null) {
-        CloseUtil.closeQuietly(ois);
+      if (reader != null) {
+        CloseUtil.closeQuietly(reader);
       }
       close();
       logger.info(this + ": connection closed");
     }
   }
 
-  private HardenedObjectInputStream createObjectInputStream() throws IOException {
+  private ObjectReader createObjectReader() throws IOException {
+    LoggingEventReaderFactory factory = new LoggingEventReaderFactory();
     if (inputStream != null) {
-      return new HardenedLoggingEventInputStream(inputStream);
+      return factory.newReader(inputStream);
     }
-    return new HardenedLoggingEventInputStream(socket.getInputStream());
+    return factory.newReader(socket.getInputStream());
   }
 
   /**
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.net.LoggingEventDecoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.spi.ContextAwareBase;
+import ch.qos.logback.core.util.CloseUtil;
+
+/**
+ * Accepts client connections on a server channel and reads logging events
+ * from them on a fixed number of selector loops. The first loop runs on the
+ * thread calling {@link #run()} and also accepts connections, which are
+ * handed out to the loops in turn; the other loops run on daemon threads.
+ */
+class SelectorServerRunner extends ContextAwareBase implements Runnable {
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final ServerSocketChannel serverChannel;
+  private final SelectorLoop[] loops;
+  private final int maxFrameSize;
+  private volatile boolean running;
+  private int nextLoop;
+
+  SelectorServerRunner(ServerSocketChannel serverChannel, int selectorCount, int maxFrameSize) throws IOException {
+    this.serverChannel = serverChannel;
+    this.maxFrameSize = maxFrameSize;
+    this.loops = new SelectorLoop[selectorCount];
+    try {
+      for (int i = 0; i < selectorCount; i++) {
+        loops[i] = new SelectorLoop(Selector.open());
+      }
+    } catch (IOException e) {
+      for (SelectorLoop loop : loops) {
+        if (loop != null) {
+          CloseUtil.closeQuietly(loop.selector);
+        }
+      }
+      throw e;
+    }
+  }
+
+  public void run() {
+    running = true;
+    try {
+      serverChannel.configureBlocking(false);
+      serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException ex) {
+      addError("listener: " + ex);
+      stop();
+      return;
+    }
+    addInfo("listening on " + serverChannel.socket());
+    for (int i = 1; i < loops.length; i++) {
+      Thread thread = new Thread(loops[i], "NioServerSocketReceiver-Selector-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    loops[0].run();
+    addInfo("shutting down");
+  }
+
+  /**
+   * Stops accepting connections and closes the selectors and the client
+   * connections.
+   */
+  void stop() {
+    running = false;
+    CloseUtil.closeQuietly(serverChannel);
+    for (SelectorLoop loop : loops) {
+      loop.selector.wakeup();
+    }
+  }
+
+  private void accept() {
+    SocketChannel channel;
+    try {
+      while ((channel = serverChannel.accept()) != null) {
+        channel.configureBlocking(false);
+        SelectorLoop loop = loops[nextLoop];
+        nextLoop = (nextLoop + 1) % loops.length;
+        loop.pending.add(channel);
+        loop.selector.wakeup();
+      }
+    } catch (IOException ex) {
+      if (running) {
+        addError("listener: " + ex);
+      }
+    }
+  }
+
+  private void deliver(ILoggingEvent event) {
+    LoggerContext lc = (LoggerContext) getContext();
+    Logger remoteLogger = lc.getLogger(event.getLoggerName());
+    if (remoteLogger.isEnabledFor(event.getLevel())) {
+      remoteLogger.callAppenders(event);
+    }
+  }
+
+  private class SelectorLoop implements Runnable {
+
+    final Selector selector;
+    final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<SocketChannel>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    SelectorLoop(Selector selector) {
+      this.selector = selector;
+    }
+
+    public void run() {
+      try {
+        while (running) {
+          selector.select();
+          registerPending();
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+            } else if (key.isReadable()) {
+              read(key);
+            }
+          }
+        }
+      } catch (ClosedSelectorException ex) {
+        assert true;  // ok... we'll shut down
+      } catch (IOException ex) {
+        addError("selector: " + ex);
+      } finally {
+        close();
+      }
+    }
+
+    private void registerPending() {
+      SocketChannel channel;
+      while ((channel = pending.poll()) != null) {
+        try {
+          channel.register(selector, SelectionKey.OP_READ, new LoggingEventDecoder(maxFrameSize));
+        } catch (IOException ex) {
+          addInfo(channel.socket() + ": " + ex);
+          CloseUtil.closeQuietly(channel);
+        }
+      }
+    }
+
+    private void read(SelectionKey key) {
+      SocketChannel channel = (SocketChannel) key.channel();
+      LoggingEventDecoder decoder = (LoggingEventDecoder) key.attachment();
+      try {
+        buffer.clear();
+        int n = channel.read(buffer);
+        if (n < 0) {
+          closeKey(key);
+          return;
+        }
+        buffer.flip();
+        decoder.feed(buffer);
+        ILoggingEvent event;
+        while ((event = decoder.next()) != null) {
+          deliver(event);
+        }
+      } catch (IOException ex) {
+        addInfo(channel.socket() + ": " + ex);
+        closeKey(key);
+      } catch (ClassNotFoundException ex) {
+        addError(channel.socket() + ": unknown event class");
+        closeKey(key);
+      } catch (RuntimeException ex) {
+        addError(channel.socket() + ": " + ex);
+        closeKey(key);
+      }
+    }
+
+    private void closeKey(SelectionKey key) {
+      key.cancel();
+      CloseUtil.closeQuietly(key.channel());
+    }
+
+    private void close() {
+      try {
+        for (SelectionKey key : selector.keys()) {
+          if (key.channel() != serverChannel) {
+            CloseUtil.closeQuietly(key.channel());
+          }
+        }
+      } catch (ClosedSelectorException ex) {
+        assert true;
+      }
+      SocketChannel channel;
+      while ((channel = pending.poll()) != null) {
+        CloseUtil.closeQuietly(channel);
+      }
+      CloseUtil.closeQuietly(selector);
+    }
+  }
+}
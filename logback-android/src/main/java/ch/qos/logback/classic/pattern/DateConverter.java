@@ -83,4 +83,13 @@ public class DateConverter extends ClassicConverter {
     long timestamp = le.getTimeStamp();
     return cachingDateFormatter.format(timestamp);
   }
+
+  /**
+   * Formats the timestamp directly into the buffer. Not called for derived
+   * classes overriding {@link #convert(ILoggingEvent)}.
+   */
+  @Override
+  protected void writeUnformatted(StringBuilder buf, ILoggingEvent le) {
+    cachingDateFormatter.format(le.getTimeStamp(), buf);
+  }
 }
@@ -28,4 +28,9 @@ public class LevelConverter extends ClassicConverter {
     return le.getLevel().toString();
   }
 
+  @Override
+  protected void writeUnformatted(StringBuilder buf, ILoggingEvent le) {
+    buf.append(le.getLevel().levelStr);
+  }
+
 }
@@ -35,4 +35,9 @@ public class LocalSequenceNumberConverter extends ClassicConverter {
   public String convert(ILoggingEvent event) {
     return Long.toString(sequenceNumber.getAndIncrement());
   }
+
+  @Override
+  protected void writeUnformatted(StringBuilder buf, ILoggingEvent event) {
+    buf.append(sequenceNumber.getAndIncrement());
+  }
 }
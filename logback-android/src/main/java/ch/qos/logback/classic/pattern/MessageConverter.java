@@ -16,6 +16,7 @@
 package ch.qos.logback.classic.pattern;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ReusableLoggingEvent;
 
 /**
  * Return the event's formatted message.
@@ -28,4 +29,17 @@ public class MessageConverter extends ClassicConverter {
     return event.getFormattedMessage();
   }
 
+  /**
+   * Reusable events format their message directly into the buffer. Not
+   * called for derived classes overriding {@link #convert(ILoggingEvent)}.
+   */
+  @Override
+  protected void writeUnformatted(StringBuilder buf, ILoggingEvent event) {
+    if (event instanceof ReusableLoggingEvent) {
+      ((ReusableLoggingEvent) event).appendFormattedMessage(buf);
+    } else {
+      buf.append(event.getFormattedMessage());
+    }
+  }
+
 }
@@ -15,12 +15,27 @@
  */
 package ch.qos.logback.classic.pattern;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
 public abstract class NamedConverter extends ClassicConverter {
 
+  /**
+   * Maximum number of abbreviated names kept by each converter. Names are
+   * a small, stable set in practice; once the cache is full, names not
+   * already cached are abbreviated on every call.
+   */
+  static final int MAX_CACHE_SIZE = 1024;
+
   Abbreviator abbreviator = null;
 
+  private final ConcurrentMap<String, String> abbreviationCache = new ConcurrentHashMap<String, String>();
+  private final LongAdder cacheHits = new LongAdder();
+  private final LongAdder cacheMisses = new LongAdder();
+
   /**
    * Gets fully qualified name from event.
    * 
@@ -52,7 +67,35 @@ public abstract class NamedConverter extends ClassicConverter {
     if (abbreviator == null) {
       return fqn;
     } else {
-      return abbreviator.abbreviate(fqn);
+      return abbreviate(fqn);
+    }
+  }
+
+  private String abbreviate(String fqn) {
+    String abbreviated = abbreviationCache.get(fqn);
+    if (abbreviated != null) {
+      cacheHits.increment();
+      return abbreviated;
+    }
+    cacheMisses.increment();
+    abbreviated = abbreviator.abbreviate(fqn);
+    if (abbreviationCache.size() < MAX_CACHE_SIZE) {
+      abbreviationCache.put(fqn, abbreviated);
     }
+    return abbreviated;
+  }
+
+  /**
+   * @return number of names found in the abbreviation cache
+   */
+  public long getCacheHits() {
+    return cacheHits.sum();
+  }
+
+  /**
+   * @return number of names abbreviated because they were not cached
+   */
+  public long getCacheMisses() {
+    return cacheMisses.sum();
   }
 }
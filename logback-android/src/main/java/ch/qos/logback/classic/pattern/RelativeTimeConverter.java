@@ -17,21 +17,38 @@ package ch.qos.logback.classic.pattern;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
+/**
+ * Outputs the milliseconds elapsed between the creation of the logger
+ * context and the event. Thread-safe: the last value is cached in an
+ * immutable holder, which concurrent callers replace without locking.
+ */
 public class RelativeTimeConverter extends ClassicConverter {
 
-  long lastTimestamp = -1;
-  String timesmapCache = null;
+  private volatile CachedTime cache;
 
   public String convert(ILoggingEvent event) {
     long now = event.getTimeStamp();
+    CachedTime cached = cache;
+    // update the cache only if now != the cached timestamp
+    if (cached == null || cached.timestamp != now) {
+      cached = new CachedTime(now, Long.toString(now - event.getLoggerContextVO().getBirthTime()));
+      cache = cached;
+    }
+    return cached.text;
+  }
+
+  @Override
+  protected void writeUnformatted(StringBuilder buf, ILoggingEvent event) {
+    buf.append(event.getTimeStamp() - event.getLoggerContextVO().getBirthTime());
+  }
+
+  private static final class CachedTime {
+    final long timestamp;
+    final String text;
 
-    synchronized (this) {
-      // update timesmapStrCache only if now !=  lastTimestamp
-      if (now != lastTimestamp) {
-        lastTimestamp = now;
-        timesmapCache = Long.toString(now - event.getLoggerContextVO().getBirthTime());      
-      }
-      return timesmapCache;
+    CachedTime(long timestamp, String text) {
+      this.timestamp = timestamp;
+      this.text = text;
     }
   }
 }
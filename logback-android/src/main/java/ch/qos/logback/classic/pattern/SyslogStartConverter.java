@@ -15,23 +15,23 @@
  */
 package ch.qos.logback.classic.pattern;
 
-import java.text.DateFormatSymbols;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.util.LevelToSyslogSeverity;
 import ch.qos.logback.core.net.SyslogAppenderBase;
+import ch.qos.logback.core.util.CachingDateFormatter;
 
 public class SyslogStartConverter extends ClassicConverter {
 
-  long lastTimestamp = -1;
-  String timesmapStr = null;
-  SimpleDateFormat simpleMonthFormat;
-  SimpleDateFormat simpleTimeFormat;
-  private final Calendar calendar  = Calendar.getInstance(Locale.US);
+  /**
+   * The RFC 3164 timestamp, e.g. "Mar  5 09:07:03". Hours are in 0-23, see
+   * also http://jira.qos.ch/browse/LBCLASSIC-48
+   */
+  static final String TIMESTAMP_PATTERN = "MMM ppd HH:mm:ss";
+
+  CachingDateFormatter cachingDateFormatter;
 
   final String localHostName = "localhost";
   int facility;
@@ -48,13 +48,9 @@ public class SyslogStartConverter extends ClassicConverter {
     facility = SyslogAppenderBase.facilityStringToint(facilityStr);
 
     try {
-      // hours should be in 0-23, see also http://jira.qos.ch/browse/LBCLASSIC-48
-      simpleMonthFormat = new SimpleDateFormat("MMM", Locale.US);
-      simpleTimeFormat = new SimpleDateFormat("HH:mm:ss", Locale.US);
-      simpleTimeFormat.setDateFormatSymbols(new DateFormatSymbols(Locale.US));
-      simpleMonthFormat.setDateFormatSymbols(new DateFormatSymbols(Locale.US));
+      cachingDateFormatter = new CachingDateFormatter(DateTimeFormatter.ofPattern(TIMESTAMP_PATTERN, Locale.US));
     } catch (IllegalArgumentException e) {
-      addError("Could not instantiate SimpleDateFormat", e);
+      addError("Could not instantiate the timestamp formatter", e);
       errorCount++;
     }
 
@@ -65,32 +61,21 @@ public class SyslogStartConverter extends ClassicConverter {
 
   public String convert(ILoggingEvent event) {
     StringBuilder sb = new StringBuilder();
+    writeUnformatted(sb, event);
+    return sb.toString();
+  }
 
+  @Override
+  protected void writeUnformatted(StringBuilder sb, ILoggingEvent event) {
     int pri = facility + LevelToSyslogSeverity.convert(event);
-  
+
     sb.append("<");
     sb.append(pri);
     sb.append(">");
-    sb.append(computeTimeStampString(event.getTimeStamp()));
+    // the formatted output is only precise to the second, so it is cached per second
+    cachingDateFormatter.format(event.getTimeStamp(), sb);
     sb.append(' ');
     sb.append(localHostName);
     sb.append(' ');
-
-    return sb.toString();
   }
-
-  private String computeTimeStampString(long now) {
-    synchronized (this) {
-      // Since the formatted output is only precise to the second, we can use the same cached string if the current
-      // second is the same (stripping off the milliseconds).
-      if ((now / 1000) != lastTimestamp) {
-        lastTimestamp = now / 1000;
-        Date nowDate = new Date(now);
-        calendar.setTime(nowDate);
-        timesmapStr = String.format(Locale.US, "%s %2d %s", simpleMonthFormat.format(nowDate),
-            calendar.get(Calendar.DAY_OF_MONTH), simpleTimeFormat.format(nowDate));
-      }
-      return timesmapStr;
-    }
-  }  
 }
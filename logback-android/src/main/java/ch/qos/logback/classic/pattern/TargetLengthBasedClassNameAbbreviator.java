@@ -55,10 +55,10 @@ public class TargetLengthBasedClassNameAbbreviator implements Abbreviator {
     // printArray("lengthArray: ", lengthArray);
     for (int i = 0; i <= dotCount; i++) {
       if (i == 0) {
-        buf.append(fqClassName.substring(0, lengthArray[i] - 1));
+        buf.append(fqClassName, 0, lengthArray[i] - 1);
       } else {
-        buf.append(fqClassName.substring(dotIndexesArray[i - 1],
-            dotIndexesArray[i - 1] + lengthArray[i]));
+        buf.append(fqClassName, dotIndexesArray[i - 1],
+            dotIndexesArray[i - 1] + lengthArray[i]);
       }
       // System.out.println("i=" + i + ", buf=" + buf);
     }
@@ -28,4 +28,9 @@ public class ThreadConverter extends ClassicConverter {
     return event.getThreadName();
   }
 
+  @Override
+  protected void writeUnformatted(StringBuilder buf, ILoggingEvent event) {
+    buf.append(event.getThreadName());
+  }
+
 }
@@ -103,6 +103,41 @@ public class LoggingEvent implements ILoggingEvent {
 
   public LoggingEvent(String fqcn, Logger logger, Level level, String message,
                       Throwable throwable, Object[] argArray) {
+    init(fqcn, logger, level, message, throwable, argArray);
+  }
+
+  /**
+   * Creates a copy of another event which remains valid independently of it.
+   * The argument array is copied, the remaining (immutable) fields are shared.
+   *
+   * @param other the event to copy
+   */
+  LoggingEvent(LoggingEvent other) {
+    this.fqnOfLoggerClass = other.fqnOfLoggerClass;
+    this.threadName = other.threadName;
+    this.loggerName = other.loggerName;
+    this.loggerContext = other.loggerContext;
+    this.loggerContextVO = other.loggerContextVO;
+    this.level = other.level;
+    this.message = other.message;
+    this.formattedMessage = other.formattedMessage;
+    if (other.argumentArray != null) {
+      this.argumentArray = other.argumentArray.clone();
+    }
+    this.throwableProxy = other.throwableProxy;
+    this.callerDataArray = other.callerDataArray;
+    this.marker = other.marker;
+    this.mdcPropertyMap = other.mdcPropertyMap;
+    this.timeStamp = other.timeStamp;
+  }
+
+  /**
+   * Sets the fields of a new, or cleared, event.
+   *
+   * @see #clear()
+   */
+  void init(String fqcn, Logger logger, Level level, String message,
+            Throwable throwable, Object[] argArray) {
     this.fqnOfLoggerClass = fqcn;
     this.loggerName = logger.getName();
     this.loggerContext = logger.getLoggerContext();
@@ -127,6 +162,27 @@ public class LoggingEvent implements ILoggingEvent {
     timeStamp = System.currentTimeMillis();
   }
 
+  /**
+   * Resets all fields so that the event can be initialized again, and does not
+   * hold on to the objects of the previous logging call.
+   */
+  void clear() {
+    fqnOfLoggerClass = null;
+    threadName = null;
+    loggerName = null;
+    loggerContext = null;
+    loggerContextVO = null;
+    level = null;
+    message = null;
+    formattedMessage = null;
+    argumentArray = null;
+    throwableProxy = null;
+    callerDataArray = null;
+    marker = null;
+    mdcPropertyMap = null;
+    timeStamp = 0;
+  }
+
   private Throwable extractThrowableAnRearrangeArguments(Object[] argArray) {
     Throwable extractedThrowable = EventArgUtil.extractThrowable(argArray);
     if(EventArgUtil.successfulExtraction(extractedThrowable)) {
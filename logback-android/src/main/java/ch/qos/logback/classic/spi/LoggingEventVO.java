@@ -69,6 +69,10 @@ public class LoggingEventVO implements ILoggingEvent, Serializable {
     ledo.level = (le.getLevel());
     ledo.message = (le.getMessage());
     ledo.argumentArray = (le.getArgumentArray());
+    if (le instanceof ReusableLoggingEvent && ledo.argumentArray != null) {
+      // the argument array of a reusable event is recycled by the next logging call
+      ledo.argumentArray = ledo.argumentArray.clone();
+    }
     ledo.marker = le.getMarker();
     ledo.mdcPropertyMap = le.getMDCPropertyMap();
     ledo.timeStamp = le.getTimeStamp();
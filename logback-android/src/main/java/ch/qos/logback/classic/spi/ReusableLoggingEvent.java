@@ -0,0 +1,179 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.spi;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.util.InPlaceMessageFormatter;
+import ch.qos.logback.core.spi.ReusableEvent;
+
+/**
+ * A {@link LoggingEvent} which is recycled from one logging call to the next.
+ * Each thread owns a single instance, obtained through {@link #acquire()},
+ * which is used when the garbage-free mode of the
+ * {@link ch.qos.logback.classic.LoggerContext LoggerContext} is enabled.
+ * <p>
+ * A reusable event is only valid for the duration of the logging call that
+ * produced it. Appenders which hold on to events after
+ * {@link ch.qos.logback.core.Appender#doAppend(Object) doAppend} returns,
+ * e.g. in a buffer or to process them on another thread, must keep the copy
+ * returned by {@link #toRetainable(ILoggingEvent)} instead. Appenders built on
+ * {@link ch.qos.logback.core.AppenderBase AppenderBase} or
+ * {@link ch.qos.logback.core.UnsynchronizedAppenderBase UnsynchronizedAppenderBase}
+ * can call their <code>retain</code> method.
+ * </p>
+ */
+public class ReusableLoggingEvent extends LoggingEvent implements ReusableEvent<ILoggingEvent> {
+
+  private static final ThreadLocal<ReusableLoggingEvent> threadLocalEvent = new ThreadLocal<ReusableLoggingEvent>();
+
+  // argument arrays for the one and two argument printing methods, so
+  // that they do not need to be allocated on each call
+  private final Object[] oneArgArray = new Object[1];
+  private final Object[] twoArgArray = new Object[2];
+
+  private boolean inUse = false;
+
+  ReusableLoggingEvent() {
+  }
+
+  /**
+   * Returns the reusable event of the calling thread, or null if that event
+   * is already in use further up the stack, i.e. if an appender is logging
+   * while appending.
+   *
+   * @return the reusable event, or null
+   */
+  public static ReusableLoggingEvent acquire() {
+    ReusableLoggingEvent event = threadLocalEvent.get();
+    if (event == null) {
+      event = new ReusableLoggingEvent();
+      threadLocalEvent.set(event);
+    }
+    if (event.inUse) {
+      return null;
+    }
+    event.inUse = true;
+    return event;
+  }
+
+  /**
+   * Returns an event which remains valid after the current logging call
+   * returns: the event itself, unless it is a reusable event, in which case
+   * a copy is returned.
+   *
+   * @param event the log event
+   * @return an event safe to retain
+   */
+  public static ILoggingEvent toRetainable(ILoggingEvent event) {
+    if (event instanceof ReusableLoggingEvent) {
+      return ((ReusableLoggingEvent) event).toRetainable();
+    }
+    return event;
+  }
+
+  /**
+   * Returns a copy of this event, which remains valid after the current
+   * logging call returns.
+   */
+  @Override
+  public ILoggingEvent toRetainable() {
+    return new LoggingEvent(this);
+  }
+
+  /**
+   * Populates this event for a new logging call.
+   *
+   * @param fqcn fully qualified name of the calling logger class
+   * @param logger the logger
+   * @param level the level of the event
+   * @param message the message pattern
+   * @param throwable the throwable, may be null
+   * @param argArray the arguments, may be null
+   * @param marker the marker, may be null
+   */
+  public void populate(String fqcn, Logger logger, Level level, String message,
+                       Throwable throwable, Object[] argArray, Marker marker) {
+    init(fqcn, logger, level, message, throwable, argArray);
+    if (marker != null) {
+      setMarker(marker);
+    }
+  }
+
+  /**
+   * Returns this event's preallocated array holding a single argument.
+   *
+   * @param arg the argument
+   * @return the argument array
+   */
+  public Object[] argumentArrayOf(Object arg) {
+    oneArgArray[0] = arg;
+    return oneArgArray;
+  }
+
+  /**
+   * Returns this event's preallocated array holding two arguments.
+   *
+   * @param arg1 the first argument
+   * @param arg2 the second argument
+   * @return the argument array
+   */
+  public Object[] argumentArrayOf(Object arg1, Object arg2) {
+    twoArgArray[0] = arg1;
+    twoArgArray[1] = arg2;
+    return twoArgArray;
+  }
+
+  /**
+   * Clears this event and makes it available to the next logging call of
+   * the owning thread.
+   */
+  public void release() {
+    clear();
+    oneArgArray[0] = null;
+    twoArgArray[0] = null;
+    twoArgArray[1] = null;
+    inUse = false;
+  }
+
+  /**
+   * Appends the formatted message to <code>buf</code> without creating the
+   * formatted message string, unless it has been created already.
+   *
+   * @param buf the builder to append to
+   */
+  public void appendFormattedMessage(StringBuilder buf) {
+    if (formattedMessage != null) {
+      buf.append(formattedMessage);
+      return;
+    }
+    InPlaceMessageFormatter.format(buf, getMessage(), getArgumentArray());
+  }
+
+  /**
+   * A reusable event is never processed after the logging call returns, so
+   * unlike {@link LoggingEvent#prepareForDeferredProcessing()} the message is
+   * not formatted here. Appenders which defer processing work on the copy
+   * returned by {@link #toRetainable(ILoggingEvent)}.
+   */
+  @Override
+  public void prepareForDeferredProcessing() {
+    this.getThreadName();
+    this.getMDCPropertyMap();
+  }
+}
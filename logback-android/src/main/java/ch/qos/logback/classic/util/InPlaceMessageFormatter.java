@@ -0,0 +1,119 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.util;
+
+import org.slf4j.helpers.MessageFormatter;
+import org.slf4j.helpers.Util;
+
+/**
+ * Substitutes the "{}" anchors of a message pattern with the string form of
+ * the arguments, appending the result directly to a caller supplied
+ * {@link StringBuilder}.
+ *
+ * <p>The output is identical to that of
+ * {@link MessageFormatter#arrayFormat(String, Object[])}, including the
+ * handling of escaped anchors, but no intermediate string is created for
+ * {@link String}, {@link Integer}, {@link Long} and {@link Boolean} arguments.
+ * Array arguments, which are rare, are delegated to {@link MessageFormatter}.</p>
+ */
+public class InPlaceMessageFormatter {
+
+  static final char DELIM_START = '{';
+  static final String DELIM_STR = "{}";
+  private static final char ESCAPE_CHAR = '\\';
+
+  /**
+   * Appends the formatted message to <code>buf</code>.
+   *
+   * @param buf the builder to append to
+   * @param messagePattern the message pattern, may be null
+   * @param argArray the arguments, may be null
+   */
+  public static void format(StringBuilder buf, String messagePattern, Object[] argArray) {
+    if (messagePattern == null || argArray == null) {
+      buf.append(messagePattern);
+      return;
+    }
+
+    int i = 0;
+    int j;
+    for (int l = 0; l < argArray.length; l++) {
+      j = messagePattern.indexOf(DELIM_STR, i);
+
+      if (j == -1) {
+        // no more variables
+        break;
+      }
+
+      if (isEscapedDelimeter(messagePattern, j)) {
+        if (!isDoubleEscaped(messagePattern, j)) {
+          l--; // DELIM_START was escaped, thus should not be incremented
+          buf.append(messagePattern, i, j - 1);
+          buf.append(DELIM_START);
+          i = j + 1;
+        } else {
+          // The escape character preceding the delimiter start is
+          // itself escaped: "abc x:\\{}"
+          // we have to consume one backward slash
+          buf.append(messagePattern, i, j - 1);
+          appendParameter(buf, argArray[l]);
+          i = j + 2;
+        }
+      } else {
+        // normal case
+        buf.append(messagePattern, i, j);
+        appendParameter(buf, argArray[l]);
+        i = j + 2;
+      }
+    }
+    // append the characters following the last {} pair.
+    buf.append(messagePattern, i, messagePattern.length());
+  }
+
+  private static boolean isEscapedDelimeter(String messagePattern, int delimeterStartIndex) {
+    if (delimeterStartIndex == 0) {
+      return false;
+    }
+    return messagePattern.charAt(delimeterStartIndex - 1) == ESCAPE_CHAR;
+  }
+
+  private static boolean isDoubleEscaped(String messagePattern, int delimeterStartIndex) {
+    return delimeterStartIndex >= 2 && messagePattern.charAt(delimeterStartIndex - 2) == ESCAPE_CHAR;
+  }
+
+  private static void appendParameter(StringBuilder buf, Object o) {
+    if (o == null) {
+      buf.append("null");
+    } else if (o instanceof String) {
+      buf.append((String) o);
+    } else if (o instanceof Integer) {
+      buf.append(((Integer) o).intValue());
+    } else if (o instanceof Long) {
+      buf.append(((Long) o).longValue());
+    } else if (o instanceof Boolean) {
+      buf.append(((Boolean) o).booleanValue());
+    } else if (o.getClass().isArray()) {
+      buf.append(MessageFormatter.format(DELIM_STR, o).getMessage());
+    } else {
+      try {
+        buf.append(o.toString());
+      } catch (Throwable t) {
+        Util.report("SLF4J: Failed toString() invocation on an object of type [" + o.getClass().getName() + "]", t);
+        buf.append("[FAILED toString()]");
+      }
+    }
+  }
+}
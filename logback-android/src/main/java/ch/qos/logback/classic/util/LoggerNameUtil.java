@@ -36,14 +36,32 @@ public class LoggerNameUtil {
    * @return position of separator
    */
   public static int getSeparatorIndexOf(String name, int fromIndex) {
-    int dotIndex = name.indexOf(CoreConstants.DOT, fromIndex);
-    int dollarIndex = name.indexOf(CoreConstants.DOLLAR, fromIndex);
-
-    if (dotIndex == -1 && dollarIndex == -1) return -1;
-    if (dotIndex == -1) return dollarIndex;
-    if (dollarIndex == -1) return dotIndex;
+    final int len = name.length();
+    for (int i = Math.max(fromIndex, 0); i < len; i++) {
+      char c = name.charAt(i);
+      if (c == CoreConstants.DOT || c == CoreConstants.DOLLAR) {
+        return i;
+      }
+    }
+    return -1;
+  }
 
-    return dotIndex < dollarIndex ? dotIndex : dollarIndex;
+  /**
+   * Get the position of the last separator character, if any, searching
+   * backward from position 'fromIndex'.
+   *
+   * @param name string to search
+   * @param fromIndex the index to start the search from
+   * @return position of separator, or -1 if there is none
+   */
+  public static int getLastSeparatorIndexOf(String name, int fromIndex) {
+    for (int i = Math.min(fromIndex, name.length() - 1); i >= 0; i--) {
+      char c = name.charAt(i);
+      if (c == CoreConstants.DOT || c == CoreConstants.DOLLAR) {
+        return i;
+      }
+    }
+    return -1;
   }
 
 }
@@ -18,9 +18,12 @@ package ch.qos.logback.core;
 import java.util.List;
 
 import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.metrics.AppenderMetrics;
+import ch.qos.logback.core.metrics.MetricsRegistry;
 import ch.qos.logback.core.spi.ContextAwareBase;
 import ch.qos.logback.core.spi.FilterAttachableImpl;
 import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.spi.ReusableEvent;
 import ch.qos.logback.core.status.WarnStatus;
 
 /**
@@ -49,6 +52,11 @@ abstract public class AppenderBase<E> extends ContextAwareBase implements
 
   private FilterAttachableImpl<E> fai = new FilterAttachableImpl<E>();
 
+  /**
+   * Resolved on first use once metrics are enabled, and again after a restart.
+   */
+  private AppenderMetrics appenderMetrics;
+
   public String getName() {
     return name;
   }
@@ -67,6 +75,7 @@ abstract public class AppenderBase<E> extends ContextAwareBase implements
       return;
     }
 
+    AppenderMetrics metrics = null;
     try {
       guard = true;
 
@@ -79,14 +88,27 @@ abstract public class AppenderBase<E> extends ContextAwareBase implements
         return;
       }
 
+      metrics = getAppenderMetrics();
       if (getFilterChainDecision(eventObject) == FilterReply.DENY) {
+        if (metrics != null) {
+          metrics.recordDenied();
+        }
         return;
       }
 
       // ok, we now invoke derived class' implementation of append
-      this.append(eventObject);
+      if (metrics == null) {
+        this.append(eventObject);
+      } else {
+        long start = System.nanoTime();
+        this.append(eventObject);
+        metrics.recordAppended(System.nanoTime() - start);
+      }
 
     } catch (Exception e) {
+      if (metrics != null) {
+        metrics.recordFailed();
+      }
       if (exceptionCount++ < ALLOWED_REPEATS) {
         addError("Appender [" + name + "] failed to append.", e);
       }
@@ -97,6 +119,49 @@ abstract public class AppenderBase<E> extends ContextAwareBase implements
 
   abstract protected void append(E eventObject);
 
+  /**
+   * Returns an event which remains valid after <code>doAppend</code> returns:
+   * the event itself, unless it is a {@link ReusableEvent}, in which case a
+   * copy is returned. Appenders which keep events beyond the call to
+   * <code>append</code> must keep the returned event rather than the one
+   * passed in.
+   *
+   * @param eventObject the event passed to <code>append</code>
+   * @return an event safe to retain
+   */
+  @SuppressWarnings("unchecked")
+  protected E retain(E eventObject) {
+    if (eventObject instanceof ReusableEvent) {
+      return ((ReusableEvent<E>) eventObject).toRetainable();
+    }
+    return eventObject;
+  }
+
+  /**
+   * Returns the metrics of this appender, or null if the context's
+   * {@link MetricsRegistry} is disabled or the context has none. Derived classes report the events
+   * they drop through the returned object.
+   *
+   * @return the metrics of this appender, or null
+   */
+  protected AppenderMetrics getAppenderMetrics() {
+    Context c = context;
+    if (!(c instanceof ContextBase)) {
+      // only contexts derived from ContextBase collect metrics
+      return null;
+    }
+    MetricsRegistry registry = ((ContextBase) c).getMetricsRegistry();
+    if (!registry.isEnabled()) {
+      return null;
+    }
+    AppenderMetrics metrics = appenderMetrics;
+    if (metrics == null) {
+      metrics = registry.getAppenderMetrics(name != null ? name : getClass().getName());
+      appenderMetrics = metrics;
+    }
+    return metrics;
+  }
+
   /**
    * Set the name of this appender.
    */
@@ -105,6 +170,7 @@ abstract public class AppenderBase<E> extends ContextAwareBase implements
   }
 
   public void start() {
+    appenderMetrics = null;
     started = true;
   }
 
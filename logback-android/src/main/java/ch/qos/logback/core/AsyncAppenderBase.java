@@ -15,11 +15,16 @@
  */
 package ch.qos.logback.core;
 
+import ch.qos.logback.core.metrics.AppenderMetrics;
 import ch.qos.logback.core.spi.AppenderAttachable;
 import ch.qos.logback.core.spi.AppenderAttachableImpl;
 import ch.qos.logback.core.util.InterruptUtil;
+import ch.qos.logback.core.util.RingBufferBlockingQueue;
+import ch.qos.logback.core.util.WaitStrategy;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
@@ -30,6 +35,14 @@ import java.util.concurrent.BlockingQueue;
  * <p>
  * This appender buffers events in a {@link BlockingQueue}. {@link ch.qos.logback.core.AsyncAppenderBase.Worker} thread created by this appender takes
  * events from the head of the queue, and dispatches them to the single appender attached to this appender.
+ * Whenever several events are waiting, the worker drains up to {@code maxBatchSize} of them at once and hands
+ * them over as a single batch; appenders implementing {@link BatchAppender} receive the whole batch, which for
+ * instance lets {@link OutputStreamAppender} flush once per batch instead of once per event.
+ * <p>
+ * By default the queue is an {@link ArrayBlockingQueue}. Setting the {@code ringBuffer} property to true replaces it
+ * with a lock-free {@link RingBufferBlockingQueue}, so that logging threads no longer contend on a single lock. How
+ * the worker waits for events (and producers for free capacity) is then governed by the {@code waitStrategy}
+ * property.
  * <p>
  * Please refer to the <a href="http://logback.qos.ch/manual/appenders.html#AsyncAppender">logback manual</a> for
  * further information about this appender.</p>
@@ -56,6 +69,11 @@ public class AsyncAppenderBase<E> extends UnsynchronizedAppenderBase<E> implemen
   int discardingThreshold = UNDEFINED;
   boolean neverBlock = false;
 
+  int maxBatchSize = UNDEFINED;
+
+  boolean ringBuffer = false;
+  WaitStrategy waitStrategy = WaitStrategy.PARK;
+
   Worker worker = new Worker();
 
   /**
@@ -104,11 +122,27 @@ public class AsyncAppenderBase<E> extends UnsynchronizedAppenderBase<E> implemen
       addError("Invalid queue size [" + queueSize + "]");
       return;
     }
-    blockingQueue = new ArrayBlockingQueue<E>(queueSize);
+    if (ringBuffer && waitStrategy == null) {
+      addError("No wait strategy set for ring buffer queue.");
+      return;
+    }
+    if (ringBuffer) {
+      addInfo("Using ring buffer queue with wait strategy " + waitStrategy);
+      blockingQueue = new RingBufferBlockingQueue<E>(queueSize, waitStrategy);
+    } else {
+      blockingQueue = new ArrayBlockingQueue<E>(queueSize);
+    }
 
     if (discardingThreshold == UNDEFINED)
       discardingThreshold = queueSize / 5;
     addInfo("Setting discardingThreshold to " + discardingThreshold);
+
+    if (maxBatchSize == UNDEFINED || maxBatchSize > queueSize)
+      maxBatchSize = queueSize;
+    if (maxBatchSize < 1) {
+      addError("Invalid maxBatchSize [" + maxBatchSize + "]");
+      return;
+    }
     worker.setDaemon(true);
     worker.setName("AsyncAppender-Worker-" + getName());
     // make sure this instance is marked as "started" before staring the worker Thread
@@ -155,19 +189,29 @@ public class AsyncAppenderBase<E> extends UnsynchronizedAppenderBase<E> implemen
   @Override
   protected void append(E eventObject) {
     if (isQueueBelowDiscardingThreshold() && isDiscardable(eventObject)) {
+      recordDroppedEvent();
       return;
     }
     preprocess(eventObject);
     put(eventObject);
   }
 
+  private void recordDroppedEvent() {
+    AppenderMetrics metrics = getAppenderMetrics();
+    if (metrics != null) {
+      metrics.recordDropped();
+    }
+  }
+
   private boolean isQueueBelowDiscardingThreshold() {
     return (blockingQueue.remainingCapacity() < discardingThreshold);
   }
 
   private void put(E eventObject) {
     if (neverBlock) {
-      blockingQueue.offer(eventObject);
+      if (!blockingQueue.offer(eventObject)) {
+        recordDroppedEvent();
+      }
     } else {
       putUninterruptibly(eventObject);
     }
@@ -207,6 +251,21 @@ public class AsyncAppenderBase<E> extends UnsynchronizedAppenderBase<E> implemen
     this.discardingThreshold = discardingThreshold;
   }
 
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * The maximum number of events the worker hands over to the attached
+   * appender at once. Defaults to the queue size. A value of 1 disables
+   * batching.
+   *
+   * @param maxBatchSize maximum number of events per batch
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
   public int getMaxFlushTime() {
     return maxFlushTime;
   }
@@ -232,6 +291,35 @@ public class AsyncAppenderBase<E> extends UnsynchronizedAppenderBase<E> implemen
     return neverBlock;
   }
 
+  public boolean isRingBuffer() {
+    return ringBuffer;
+  }
+
+  /**
+   * If true, events are buffered in a lock-free ring buffer instead of an
+   * {@link ArrayBlockingQueue}. Takes effect on {@link #start()}.
+   *
+   * @param ringBuffer true to use the ring buffer queue
+   */
+  public void setRingBuffer(boolean ringBuffer) {
+    this.ringBuffer = ringBuffer;
+  }
+
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * Sets how the worker waits for events, and how producers wait for free
+   * capacity, when the ring buffer queue is in use. Defaults to
+   * {@link WaitStrategy#PARK}. Ignored otherwise.
+   *
+   * @param waitStrategy the wait strategy
+   */
+  public void setWaitStrategy(WaitStrategy waitStrategy) {
+    this.waitStrategy = waitStrategy;
+  }
+
   /**
    * The remaining capacity available in the blocking queue.
    *
@@ -284,24 +372,40 @@ public class AsyncAppenderBase<E> extends UnsynchronizedAppenderBase<E> implemen
     public void run() {
       AsyncAppenderBase<E> parent = AsyncAppenderBase.this;
       AppenderAttachableImpl<E> aai = parent.aai;
+      final int maxBatchSize = parent.maxBatchSize;
+      final List<E> batch = new ArrayList<E>(maxBatchSize);
 
       // loop while the parent is started
       while (parent.isStarted()) {
         try {
-          E e = parent.blockingQueue.take();
-          aai.appendLoopOnAppenders(e);
+          batch.add(parent.blockingQueue.take());
+          if (maxBatchSize > 1) {
+            parent.blockingQueue.drainTo(batch, maxBatchSize - 1);
+          }
+          appendBatch(aai, batch);
         } catch (InterruptedException ie) {
           break;
         }
       }
 
       addInfo("Worker thread will flush remaining events before exiting.");
-      for (E e : parent.blockingQueue) {
-        aai.appendLoopOnAppenders(e);
-        parent.blockingQueue.remove(e);
+      while (parent.blockingQueue.drainTo(batch, maxBatchSize) > 0) {
+        appendBatch(aai, batch);
       }
 
       aai.detachAndStopAllAppenders();
     }
+
+    private void appendBatch(AppenderAttachableImpl<E> aai, List<E> batch) {
+      try {
+        if (batch.size() == 1) {
+          aai.appendLoopOnAppenders(batch.get(0));
+        } else {
+          aai.appendBatchLoopOnAppenders(batch);
+        }
+      } finally {
+        batch.clear();
+      }
+    }
   }
 }
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core;
+
+import java.util.List;
+
+/**
+ * An {@link Appender} able to append several events in one go, typically so
+ * that it can defer costly operations such as flushing until the end of the
+ * batch.
+ *
+ * <p>Components which dispatch events in bulk, e.g. {@link AsyncAppenderBase},
+ * hand whole batches to appenders implementing this interface and fall back
+ * to {@link Appender#doAppend(Object)} for the others.</p>
+ *
+ * @param <E> type of object to log
+ */
+public interface BatchAppender<E> extends Appender<E> {
+
+  /**
+   * Appends the given events in order. Each event is subject to the filter
+   * chain exactly as if it were passed to {@link #doAppend(Object)}.
+   *
+   * @param events the log events; the list must not be modified during the call
+   */
+  void doAppendBatch(List<E> events) throws LogbackException;
+}
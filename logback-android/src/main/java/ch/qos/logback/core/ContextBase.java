@@ -27,6 +27,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 
+import ch.qos.logback.core.metrics.MetricsRegistry;
 import ch.qos.logback.core.rolling.helper.FileNamePattern;
 import ch.qos.logback.core.spi.LifeCycle;
 import ch.qos.logback.core.spi.LogbackLock;
@@ -50,10 +51,12 @@ public class ContextBase implements Context, LifeCycle {
   private ScheduledExecutorService scheduledExecutorService;
   protected List<ScheduledFuture<?>> scheduledFutures = new ArrayList<ScheduledFuture<?>>(1);
   private LifeCycleManager lifeCycleManager;
+  private final MetricsRegistry metricsRegistry = new MetricsRegistry();
   private boolean started;
 
   public ContextBase() {
     initCollisionMaps();
+    metricsRegistry.setContext(this);
   }
 
   public StatusManager getStatusManager() {
@@ -145,6 +148,7 @@ public class ContextBase implements Context, LifeCycle {
   public void reset() {
     removeShutdownHook();
     getLifeCycleManager().reset();
+    metricsRegistry.reset();
     propertyMap.clear();
     objectMap.clear();
   }
@@ -245,6 +249,16 @@ public class ContextBase implements Context, LifeCycle {
     scheduledFutures.add(scheduledFuture);
   }
 
+  /**
+   * Returns the registry collecting the metrics of this context's appenders
+   * and loggers. The registry is disabled unless configured otherwise.
+   *
+   * @return the metrics registry of this context
+   */
+  public MetricsRegistry getMetricsRegistry() {
+    return metricsRegistry;
+  }
+
   public List<ScheduledFuture<?>> getScheduledFutures() {
     return new ArrayList<ScheduledFuture<?>>(scheduledFutures);
   }
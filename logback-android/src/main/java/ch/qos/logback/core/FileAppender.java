@@ -17,14 +17,20 @@ package ch.qos.logback.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import ch.qos.logback.core.recovery.ResilientFileOutputStream;
 import ch.qos.logback.core.util.ContextUtil;
+import ch.qos.logback.core.util.Duration;
 import ch.qos.logback.core.util.EnvUtil;
+import ch.qos.logback.core.util.FileBackend;
 import ch.qos.logback.core.util.FileSize;
+import ch.qos.logback.core.util.ForcePolicy;
 import ch.qos.logback.core.util.FileUtil;
 
 /**
@@ -39,6 +45,10 @@ public class FileAppender<E> extends OutputStreamAppender<E> {
 
   public static final long DEFAULT_BUFFER_SIZE = 8192;
 
+  public static final long DEFAULT_MAPPED_REGION_SIZE = 1024 * 1024;
+
+  public static final long DEFAULT_FORCE_INTERVAL = 1000;
+
   static protected String COLLISION_WITH_EARLIER_APPENDER_URL = CoreConstants.CODES_URL + "#earlier_fa_collision";
 
   /**
@@ -59,6 +69,12 @@ public class FileAppender<E> extends OutputStreamAppender<E> {
 
   private FileSize bufferSize = new FileSize(DEFAULT_BUFFER_SIZE);
 
+  private FileBackend backend = FileBackend.STREAM;
+  private FileSize mappedRegionSize = new FileSize(DEFAULT_MAPPED_REGION_SIZE);
+  private ForcePolicy forcePolicy = ForcePolicy.NEVER;
+  private Duration forceInterval = new Duration(DEFAULT_FORCE_INTERVAL);
+  private ScheduledFuture<?> forceFuture;
+
   /**
    * The <b>File</b> property takes a string value which should be the name of
    * the file to append to.
@@ -123,9 +139,26 @@ public class FileAppender<E> extends OutputStreamAppender<E> {
           setAppend(true);
           addWarn("Setting \"Append\" property to true on account of \"Prudent\" mode");
         }
+        if (backend != FileBackend.STREAM) {
+          setBackend(FileBackend.STREAM);
+          addWarn("Setting \"Backend\" property to STREAM on account of \"Prudent\" mode");
+        }
       }
 
-      if (!lazyInit) {
+      if (backend == FileBackend.MAPPED
+          && (mappedRegionSize.getSize() <= 0 || mappedRegionSize.getSize() > Integer.MAX_VALUE)) {
+        errors++;
+        addError("\"MappedRegionSize\" property must be between 1 byte and 2 GB for appender named [" + name + "]");
+      }
+
+      if (forcePolicy == ForcePolicy.INTERVAL && forceInterval.getMilliseconds() <= 0) {
+        errors++;
+        addError("\"ForceInterval\" property must be positive for appender named [" + name + "]");
+      }
+
+      if (errors > 0) {
+        // the file is not opened for an appender which is not going to start
+      } else if (!lazyInit) {
         if (checkForFileCollisionInPreviousFileAppenders()) {
           addError("Collisions detected with FileAppender/RollingAppender instances defined earlier. Aborting.");
           addError(COLLISION_WITH_EARLIER_APPENDER_URL);
@@ -150,11 +183,45 @@ public class FileAppender<E> extends OutputStreamAppender<E> {
     }
     if (errors == 0) {
       super.start();
+      if (isStarted() && forcePolicy == ForcePolicy.INTERVAL) {
+        scheduleForceTask();
+      }
+    }
+  }
+
+  private void scheduleForceTask() {
+    long period = forceInterval.getMilliseconds();
+    forceFuture = context.getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+      public void run() {
+        force();
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+    context.addScheduledFuture(forceFuture);
+  }
+
+  /**
+   * Flushes the file and forces its content to the storage device, if
+   * anything was written since the last time. Invoked periodically under
+   * {@link ForcePolicy#INTERVAL}.
+   */
+  public void force() {
+    lock.lock();
+    try {
+      OutputStream os = getOutputStream();
+      if (os instanceof ResilientFileOutputStream) {
+        ((ResilientFileOutputStream) os).force();
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void stop() {
+    if (forceFuture != null) {
+      forceFuture.cancel(false);
+      forceFuture = null;
+    }
     super.stop();
 
     Map<String, String> map = ContextUtil.getFilenameCollisionMap(context);
@@ -221,7 +288,9 @@ public class FileAppender<E> extends OutputStreamAppender<E> {
                 + file.getAbsolutePath() + "]");
       }
 
-      ResilientFileOutputStream resilientFos = new ResilientFileOutputStream(file, append, bufferSize.getSize());
+      long size = backend == FileBackend.MAPPED ? mappedRegionSize.getSize() : bufferSize.getSize();
+      ResilientFileOutputStream resilientFos = new ResilientFileOutputStream(file, append, size, backend);
+      resilientFos.setForcePolicy(forcePolicy);
       resilientFos.setContext(context);
       setOutputStream(resilientFos);
       successful = true;
@@ -279,6 +348,63 @@ public class FileAppender<E> extends OutputStreamAppender<E> {
     this.bufferSize = bufferSize;
   }
 
+  public FileBackend getBackend() {
+    return backend;
+  }
+
+  /**
+   * Sets how the file is written to. The default is {@link FileBackend#STREAM}.
+   * Only {@link FileBackend#STREAM} is supported in prudent mode.
+   *
+   * @param backend the file backend
+   */
+  public void setBackend(FileBackend backend) {
+    this.backend = backend;
+  }
+
+  public FileSize getMappedRegionSize() {
+    return mappedRegionSize;
+  }
+
+  /**
+   * Sets by how much the file is grown each time a new region is mapped by
+   * the {@link FileBackend#MAPPED} backend. Defaults to 1 MB, and must not
+   * exceed 2 GB.
+   *
+   * @param mappedRegionSize the size of the mapped regions
+   */
+  public void setMappedRegionSize(FileSize mappedRegionSize) {
+    this.mappedRegionSize = mappedRegionSize;
+  }
+
+  public ForcePolicy getForcePolicy() {
+    return forcePolicy;
+  }
+
+  /**
+   * Sets when the file's content is forced to the storage device. The
+   * default is {@link ForcePolicy#NEVER}.
+   *
+   * @param forcePolicy the force policy
+   */
+  public void setForcePolicy(ForcePolicy forcePolicy) {
+    this.forcePolicy = forcePolicy;
+  }
+
+  public Duration getForceInterval() {
+    return forceInterval;
+  }
+
+  /**
+   * Sets the period at which the file is forced under
+   * {@link ForcePolicy#INTERVAL}. Defaults to one second.
+   *
+   * @param forceInterval the force period
+   */
+  public void setForceInterval(Duration forceInterval) {
+    this.forceInterval = forceInterval;
+  }
+
   private void safeWrite(E event) throws IOException {
     ResilientFileOutputStream resilientFOS = (ResilientFileOutputStream) getOutputStream();
     FileChannel fileChannel = resilientFOS.getChannel();
@@ -19,12 +19,24 @@ import static ch.qos.logback.core.CoreConstants.CODES_URL;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
+import ch.qos.logback.core.encoder.ByteBufferDestination;
+import ch.qos.logback.core.encoder.ByteBufferEncoder;
 import ch.qos.logback.core.encoder.Encoder;
 import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import ch.qos.logback.core.metrics.AppenderMetrics;
 import ch.qos.logback.core.spi.DeferredProcessingAware;
 import ch.qos.logback.core.status.ErrorStatus;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+import ch.qos.logback.core.util.RingBufferBlockingQueue;
+import ch.qos.logback.core.util.WaitStrategy;
 
 /**
  * OutputStreamAppender appends events to a {@link OutputStream}. This class
@@ -33,10 +45,43 @@ import ch.qos.logback.core.status.ErrorStatus;
  * For more information about this appender, please refer to the online manual
  * at http://logback.qos.ch/manual/appenders.html#OutputStreamAppender
  *
+ * <p>When handed a batch of events through {@link #doAppendBatch(List)}, the
+ * stream is flushed once at the end of the batch rather than after each
+ * event, even if <code>immediateFlush</code> is set.</p>
+ *
+ * <p>Setting any of <code>flushEvents</code>, <code>flushBytes</code> or
+ * <code>maxFlushDelay</code> enables group flushing, which takes precedence
+ * over <code>immediateFlush</code>: the stream is flushed as soon as the given
+ * number of events or bytes is pending, or when the given delay has elapsed,
+ * whichever comes first. The delay is enforced by a task running on the
+ * context's scheduled executor.</p>
+ *
+ * <p>With <code>backgroundWriter</code> set, producing threads encode events
+ * into buffers of their own and hand them over to a dedicated writer thread
+ * through a lock-free queue of <code>writerQueueSize</code> buffers. Producers
+ * then never wait for I/O, unless the queue is full. The encoder, and the
+ * converters of its layout, must support concurrent calls, which all those
+ * shipped with logback do. Once the writer thread has stopped, producers write
+ * their events themselves.</p>
+ *
  * @author Ceki G&uuml;lc&uuml;
  */
-public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
+public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> implements BatchAppender<E> {
 
+  /**
+   * The size of the buffer that {@link ByteBufferEncoder encoders} write into.
+   */
+  public static final int DEFAULT_BYTE_BUFFER_SIZE = 8 * 1024;
+
+  /**
+   * The default number of encoded events the writer thread may lag behind.
+   */
+  public static final int DEFAULT_WRITER_QUEUE_SIZE = 256;
+
+  static final int INITIAL_CHUNK_SIZE = 512;
+  static final int MAX_RETAINED_CHUNK_SIZE = 16 * 1024;
+  static final long WRITER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  static final long WRITER_JOIN_MILLIS = 1000;
 
   /**
    * It is the encoder which is ultimately responsible for writing the event to
@@ -56,6 +101,59 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 
   private boolean immediateFlush = true;
 
+  /**
+   * Set while a batch is being appended, so that {@link #writeBytes(byte[])}
+   * leaves flushing to the end of the batch. Guarded by {@link #lock}.
+   */
+  private boolean flushDeferred = false;
+
+  private int flushEvents = 0;
+  private FileSize flushBytes;
+  private Duration maxFlushDelay;
+  private ScheduledFuture<?> flushFuture;
+
+  /**
+   * Events and bytes written to the stream since it was last flushed.
+   * Guarded by {@link #lock}.
+   */
+  private int pendingFlushEvents = 0;
+  private long pendingFlushBytes = 0;
+
+  /**
+   * Receives the output of {@link ByteBufferEncoder encoders}. Guarded by
+   * {@link #lock}.
+   */
+  private final ByteBuffer byteBuffer = ByteBuffer.allocate(DEFAULT_BYTE_BUFFER_SIZE);
+
+  private boolean backgroundWriter = false;
+  private int writerQueueSize = DEFAULT_WRITER_QUEUE_SIZE;
+
+  /**
+   * Encoded events waiting for the writer thread. Only polled while holding
+   * {@link #lock}, so that no event is in transit while the stream is being
+   * closed or replaced.
+   */
+  private RingBufferBlockingQueue<Chunk> writerQueue;
+  private volatile Writer writer;
+  private final ThreadLocal<Chunk> threadLocalChunk = new ThreadLocal<Chunk>();
+
+  /**
+   * Events dropped because the stream was closed by the time they were to be
+   * written out. Guarded by {@link #lock}.
+   */
+  private int droppedAfterClose = 0;
+
+  private final ByteBufferDestination byteBufferDestination = new ByteBufferDestination() {
+    public ByteBuffer getByteBuffer() {
+      return byteBuffer;
+    }
+
+    public ByteBuffer drain(ByteBuffer buf) throws IOException {
+      writePendingBytes();
+      return byteBuffer;
+    }
+  };
+
   /**
    * The underlying output stream used by this appender.
    *
@@ -82,9 +180,78 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
           "No output stream set for the appender named \"" + name + "\".", this));
       errors++;
     }
+    if (maxFlushDelay != null && maxFlushDelay.getMilliseconds() <= 0) {
+      addStatus(new ErrorStatus(
+          "\"MaxFlushDelay\" must be positive for the appender named \"" + name + "\".", this));
+      errors++;
+    }
+    if (backgroundWriter && writerQueueSize < 1) {
+      addStatus(new ErrorStatus(
+          "\"WriterQueueSize\" must be positive for the appender named \"" + name + "\".", this));
+      errors++;
+    }
     // only error free appenders should be activated
     if (errors == 0) {
+      if (backgroundWriter) {
+        startWriter();
+      }
       super.start();
+      if (maxFlushDelay != null) {
+        scheduleFlushTask();
+      }
+    }
+  }
+
+  private void startWriter() {
+    writerQueue = new RingBufferBlockingQueue<Chunk>(writerQueueSize, WaitStrategy.PARK);
+    writer = new Writer();
+    writer.setDaemon(true);
+    writer.setName("OutputStreamAppender-Writer-" + getName());
+    writer.start();
+  }
+
+  private void stopWriter() {
+    Writer w = writer;
+    if (w == null) {
+      return;
+    }
+    w.running = false;
+    LockSupport.unpark(w);
+    try {
+      w.join(WRITER_JOIN_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (w.isAlive()) {
+      addWarn("Writer thread of appender named [" + name + "] did not terminate in time.");
+    }
+    writer = null;
+  }
+
+  private void scheduleFlushTask() {
+    long period = maxFlushDelay.getMilliseconds();
+    flushFuture = context.getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+      public void run() {
+        flushPending();
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+    context.addScheduledFuture(flushFuture);
+  }
+
+  /**
+   * Flushes the stream if anything was written since it was last flushed.
+   */
+  private void flushPending() {
+    lock.lock();
+    try {
+      if (this.outputStream != null && (pendingFlushEvents > 0 || pendingFlushBytes > 0)) {
+        flushOutputStream();
+      }
+    } catch (IOException ioe) {
+      this.started = false;
+      addStatus(new ErrorStatus("IO failure in appender", this, ioe));
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -107,6 +274,38 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
     subAppend(eventObject);
   }
 
+  /**
+   * Appends the events while holding the lock, then flushes the stream once
+   * if <code>immediateFlush</code> is set or a group flush threshold is
+   * reached.
+   */
+  @Override
+  public void doAppendBatch(List<E> events) {
+    if (writerQueue != null) {
+      // the writer thread groups events by itself
+      super.doAppendBatch(events);
+      return;
+    }
+    lock.lock();
+    try {
+      flushDeferred = true;
+      try {
+        super.doAppendBatch(events);
+      } finally {
+        flushDeferred = false;
+      }
+      if (this.outputStream != null) {
+        writePendingBytes();
+        flushIfNeeded();
+      }
+    } catch (IOException ioe) {
+      this.started = false;
+      addStatus(new ErrorStatus("IO failure in appender", this, ioe));
+    } finally {
+      lock.unlock();
+    }
+  }
+
   /**
    * Stop this appender instance. The underlying stream or writer is also
    * closed.
@@ -115,6 +314,15 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
    * Stopped appenders cannot be reused.
    */
   public void stop() {
+    // refuse new events first, so that no producer queues events behind the
+    // writer thread's back; the ones already queued are written out by
+    // closeOutputStream()
+    this.started = false;
+    if (flushFuture != null) {
+      flushFuture.cancel(false);
+      flushFuture = null;
+    }
+    stopWriter();
     lock.lock();
     try {
       closeOutputStream();
@@ -130,10 +338,14 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
   protected void closeOutputStream() {
     if (this.outputStream != null) {
       try {
+        drainWriterQueue();
+        writePendingBytes();
         // before closing we have to output out layout's footer
         encoderClose();
         this.outputStream.close();
         this.outputStream = null;
+        pendingFlushEvents = 0;
+        pendingFlushBytes = 0;
       } catch (IOException e) {
         addStatus(new ErrorStatus(
             "Could not close output stream for OutputStreamAppender.", this, e));
@@ -198,25 +410,64 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 
   protected void writeOut(E event) throws IOException {
     byte[] byteArray = this.encoder.encode(event);
-    writeBytes(byteArray);
+    writeBytes(byteArray, true);
   }
 
   private void writeBytes(byte[] byteArray) throws IOException {
+    writeBytes(byteArray, false);
+  }
+
+  private void writeBytes(byte[] byteArray, boolean event) throws IOException {
     if (byteArray == null || byteArray.length == 0) {
       return;
     }
 
     lock.lock();
     try {
+      writePendingBytes();
       this.outputStream.write(byteArray);
-      if (immediateFlush) {
-        this.outputStream.flush();
+      pendingFlushBytes += byteArray.length;
+      if (event) {
+        pendingFlushEvents++;
+      }
+      if (!flushDeferred) {
+        flushIfNeeded();
       }
     } finally {
       lock.unlock();
     }
   }
 
+  private boolean isGroupFlush() {
+    return flushEvents > 0 || flushBytes != null || maxFlushDelay != null;
+  }
+
+  /**
+   * Flushes the stream if <code>immediateFlush</code> is set or, under
+   * group flushing, if a threshold is reached. Must be called while holding
+   * {@link #lock}.
+   */
+  private void flushIfNeeded() throws IOException {
+    if (isGroupFlush()) {
+      if ((flushEvents > 0 && pendingFlushEvents >= flushEvents)
+          || (flushBytes != null && pendingFlushBytes >= flushBytes.getSize())) {
+        flushOutputStream();
+      }
+    } else if (immediateFlush) {
+      flushOutputStream();
+    }
+  }
+
+  /**
+   * Must be called while holding {@link #lock}.
+   */
+  private void flushOutputStream() throws IOException {
+    writePendingBytes();
+    this.outputStream.flush();
+    pendingFlushEvents = 0;
+    pendingFlushBytes = 0;
+  }
+
   /**
    * Actual writing occurs here.
    * <p>
@@ -239,8 +490,14 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
       // are writing. It also prevents multiple threads from entering the same
       // converter. Converters assume that they are in a synchronized block.
       //lock.lock();
-      byte[] byteArray = this.encoder.encode(event);
-      writeBytes(byteArray);
+      if (writerQueue != null) {
+        handOver(event);
+      } else if (this.encoder instanceof ByteBufferEncoder) {
+        encodeToByteBuffer((ByteBufferEncoder<E>) this.encoder, event);
+      } else {
+        byte[] byteArray = this.encoder.encode(event);
+        writeBytes(byteArray, true);
+      }
 
     } catch (IOException ioe) {
       // as soon as an exception occurs, move to non-started state
@@ -250,6 +507,181 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
     }
   }
 
+  /**
+   * Encodes the event into {@link #byteBuffer}, saving the intermediate
+   * String and byte array. The buffer is written out right away unless a
+   * batch is being appended, in which case it is written out when full or at
+   * the end of the batch.
+   */
+  private void encodeToByteBuffer(ByteBufferEncoder<E> byteBufferEncoder, E event) throws IOException {
+    lock.lock();
+    try {
+      byteBufferEncoder.encode(event, byteBufferDestination);
+      pendingFlushEvents++;
+      if (!flushDeferred) {
+        writePendingBytes();
+        flushIfNeeded();
+      }
+    } catch (IOException ioe) {
+      byteBuffer.clear();
+      throw ioe;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Encodes the event into the calling thread's buffer and queues it for the
+   * writer thread. The buffer is reused for the next event once written out.
+   */
+  private void handOver(E event) {
+    Chunk chunk = threadLocalChunk.get();
+    if (chunk == null || chunk.inFlight || chunk.buffer.capacity() > MAX_RETAINED_CHUNK_SIZE) {
+      chunk = new Chunk(INITIAL_CHUNK_SIZE);
+      threadLocalChunk.set(chunk);
+    }
+    chunk.buffer.clear();
+    try {
+      if (this.encoder instanceof ByteBufferEncoder) {
+        ((ByteBufferEncoder<E>) this.encoder).encode(event, chunk);
+      } else {
+        chunk.put(this.encoder.encode(event));
+      }
+    } catch (IOException e) {
+      // chunks grow instead of draining, so this does not happen
+      addStatus(new ErrorStatus("Failed to encode event", this, e));
+      return;
+    }
+    chunk.inFlight = true;
+    boolean queued = enqueue(chunk);
+    Writer w = writer;
+    if (queued && w != null && w.running) {
+      if (w.parked) {
+        LockSupport.unpark(w);
+      }
+      return;
+    }
+    // the writer thread is gone: write out whatever it left in the queue,
+    // and the event if it could not be queued, from this thread
+    lock.lock();
+    try {
+      drainWriterQueue();
+      if (!queued) {
+        writeChunk(chunk);
+        if (this.outputStream != null) {
+          flushIfNeeded();
+        }
+      }
+    } catch (IOException ioe) {
+      this.started = false;
+      addStatus(new ErrorStatus("IO failure in appender", this, ioe));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Queues the chunk for the writer thread, waiting while the queue is full
+   * for as long as the writer thread runs.
+   *
+   * @return false if the chunk was not queued because the writer thread stopped
+   */
+  private boolean enqueue(Chunk chunk) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        Writer w = writer;
+        if (w == null || !w.running) {
+          return false;
+        }
+        try {
+          if (writerQueue.offer(chunk, WRITER_PARK_NANOS, TimeUnit.NANOSECONDS)) {
+            return true;
+          }
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Writes out the queued events, bounded by the queue size so that the
+   * writer thread releases the lock now and then. Must be called while
+   * holding {@link #lock}.
+   *
+   * @return the number of events written
+   */
+  private int writeQueuedChunks() throws IOException {
+    int count = 0;
+    Chunk chunk;
+    while (count < writerQueueSize && (chunk = writerQueue.poll()) != null) {
+      writeChunk(chunk);
+      count++;
+    }
+    if (count > 0 && this.outputStream != null) {
+      flushIfNeeded();
+    }
+    return count;
+  }
+
+  /**
+   * Writes out one encoded event, or reports it as dropped if the stream is
+   * already closed. Must be called while holding {@link #lock}.
+   */
+  private void writeChunk(Chunk chunk) throws IOException {
+    try {
+      if (this.outputStream != null) {
+        ByteBuffer buf = chunk.buffer;
+        this.outputStream.write(buf.array(), buf.arrayOffset(), buf.position());
+        pendingFlushBytes += buf.position();
+        pendingFlushEvents++;
+      } else {
+        AppenderMetrics metrics = getAppenderMetrics();
+        if (metrics != null) {
+          metrics.recordDropped();
+        }
+        if (droppedAfterClose++ == 0) {
+          addWarn("Dropped event(s) of appender named [" + name + "] encoded after its stream was closed.");
+        }
+      }
+    } finally {
+      chunk.inFlight = false;
+    }
+  }
+
+  /**
+   * Writes out all queued events. Must be called while holding {@link #lock}.
+   */
+  private void drainWriterQueue() throws IOException {
+    if (writerQueue == null) {
+      return;
+    }
+    while (writeQueuedChunks() > 0) {
+      // keep going
+    }
+  }
+
+  /**
+   * Writes the contents of {@link #byteBuffer} to the output stream. Must be
+   * called while holding {@link #lock}.
+   */
+  private void writePendingBytes() throws IOException {
+    if (byteBuffer.position() == 0) {
+      return;
+    }
+    try {
+      this.outputStream.write(byteBuffer.array(), byteBuffer.arrayOffset(), byteBuffer.position());
+      pendingFlushBytes += byteBuffer.position();
+    } finally {
+      byteBuffer.clear();
+    }
+  }
+
   public Encoder<E> getEncoder() {
     return encoder;
   }
@@ -265,4 +697,146 @@ public class OutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
   public void setImmediateFlush(boolean immediateFlush) {
     this.immediateFlush = immediateFlush;
   }
+
+  public boolean isBackgroundWriter() {
+    return backgroundWriter;
+  }
+
+  /**
+   * Enables the writer thread. Producing threads then only encode events,
+   * leaving the writing to a dedicated thread. Disabled by default.
+   *
+   * @param backgroundWriter whether to write from a dedicated thread
+   */
+  public void setBackgroundWriter(boolean backgroundWriter) {
+    this.backgroundWriter = backgroundWriter;
+  }
+
+  public int getWriterQueueSize() {
+    return writerQueueSize;
+  }
+
+  /**
+   * Sets how many encoded events may wait for the writer thread before
+   * producing threads are blocked. Defaults to 256.
+   *
+   * @param writerQueueSize the capacity of the writer queue
+   */
+  public void setWriterQueueSize(int writerQueueSize) {
+    this.writerQueueSize = writerQueueSize;
+  }
+
+  public int getFlushEvents() {
+    return flushEvents;
+  }
+
+  /**
+   * Enables group flushing, flushing the stream once this many events are
+   * pending. Zero, the default, disables this threshold.
+   *
+   * @param flushEvents the number of pending events triggering a flush
+   */
+  public void setFlushEvents(int flushEvents) {
+    this.flushEvents = flushEvents;
+  }
+
+  public FileSize getFlushBytes() {
+    return flushBytes;
+  }
+
+  /**
+   * Enables group flushing, flushing the stream once this many bytes are
+   * pending. Not set by default.
+   *
+   * @param flushBytes the number of pending bytes triggering a flush
+   */
+  public void setFlushBytes(FileSize flushBytes) {
+    this.flushBytes = flushBytes;
+  }
+
+  public Duration getMaxFlushDelay() {
+    return maxFlushDelay;
+  }
+
+  /**
+   * Enables group flushing, flushing pending events no later than this
+   * delay after they were written. Not set by default.
+   *
+   * @param maxFlushDelay the maximum time events stay unflushed
+   */
+  public void setMaxFlushDelay(Duration maxFlushDelay) {
+    this.maxFlushDelay = maxFlushDelay;
+  }
+
+  /**
+   * A buffer holding an encoded event, owned by the thread that encoded it
+   * and lent to the writer thread while <code>inFlight</code>. It grows as
+   * needed instead of draining.
+   */
+  private static final class Chunk implements ByteBufferDestination {
+    ByteBuffer buffer;
+    volatile boolean inFlight = false;
+
+    Chunk(int size) {
+      buffer = ByteBuffer.allocate(size);
+    }
+
+    public ByteBuffer getByteBuffer() {
+      return buffer;
+    }
+
+    public ByteBuffer drain(ByteBuffer buf) {
+      grow(1);
+      return buffer;
+    }
+
+    void put(byte[] bytes) {
+      if (bytes == null) {
+        return;
+      }
+      if (buffer.remaining() < bytes.length) {
+        grow(bytes.length);
+      }
+      buffer.put(bytes);
+    }
+
+    private void grow(int minFree) {
+      int capacity = Math.max(buffer.capacity() * 2, buffer.position() + minFree);
+      ByteBuffer bigger = ByteBuffer.allocate(capacity);
+      buffer.flip();
+      bigger.put(buffer);
+      buffer = bigger;
+    }
+  }
+
+  class Writer extends Thread {
+    volatile boolean running = true;
+    volatile boolean parked = false;
+
+    public void run() {
+      while (running) {
+        if (writeQueued() == 0) {
+          parked = true;
+          // re-check after announcing, producers unpark only parked writers
+          if (running && writerQueue.isEmpty()) {
+            LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+          }
+          parked = false;
+        }
+      }
+    }
+
+    private int writeQueued() {
+      lock.lock();
+      try {
+        return writeQueuedChunks();
+      } catch (IOException ioe) {
+        started = false;
+        addStatus(new ErrorStatus("IO failure in appender", OutputStreamAppender.this, ioe));
+        return 0;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
 }
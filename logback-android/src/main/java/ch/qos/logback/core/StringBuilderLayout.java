@@ -0,0 +1,35 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core;
+
+/**
+ * A {@link Layout} that can append the formatted event to a caller-supplied
+ * {@link StringBuilder}, allowing the caller to reuse the builder across
+ * events instead of allocating a new String for each of them.
+ *
+ * @param <E> the event type
+ */
+public interface StringBuilderLayout<E> extends Layout<E> {
+
+  /**
+   * Appends the formatted event to the given builder. The appended text is
+   * the same as the String returned by {@link #doLayout(Object)}.
+   *
+   * @param event The event to format
+   * @param buf the builder to append to
+   */
+  void doLayout(E event, StringBuilder buf);
+}
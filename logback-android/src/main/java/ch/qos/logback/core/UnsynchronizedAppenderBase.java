@@ -18,9 +18,12 @@ package ch.qos.logback.core;
 import java.util.List;
 
 import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.metrics.AppenderMetrics;
+import ch.qos.logback.core.metrics.MetricsRegistry;
 import ch.qos.logback.core.spi.ContextAwareBase;
 import ch.qos.logback.core.spi.FilterAttachableImpl;
 import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.spi.ReusableEvent;
 import ch.qos.logback.core.status.WarnStatus;
 
 /**
@@ -52,6 +55,11 @@ abstract public class UnsynchronizedAppenderBase<E> extends ContextAwareBase imp
 
   private FilterAttachableImpl<E> fai = new FilterAttachableImpl<E>();
 
+  /**
+   * Resolved on first use once metrics are enabled, and again after a restart.
+   */
+  private AppenderMetrics appenderMetrics;
+
   public String getName() {
     return name;
   }
@@ -70,6 +78,7 @@ abstract public class UnsynchronizedAppenderBase<E> extends ContextAwareBase imp
       return;
     }
 
+    AppenderMetrics metrics = null;
     try {
       guard.set(Boolean.TRUE);
 
@@ -82,14 +91,27 @@ abstract public class UnsynchronizedAppenderBase<E> extends ContextAwareBase imp
         return;
       }
 
+      metrics = getAppenderMetrics();
       if (getFilterChainDecision(eventObject) == FilterReply.DENY) {
+        if (metrics != null) {
+          metrics.recordDenied();
+        }
         return;
       }
 
       // ok, we now invoke derived class' implementation of append
-      this.append(eventObject);
+      if (metrics == null) {
+        this.append(eventObject);
+      } else {
+        long start = System.nanoTime();
+        this.append(eventObject);
+        metrics.recordAppended(System.nanoTime() - start);
+      }
 
     } catch (Exception e) {
+      if (metrics != null) {
+        metrics.recordFailed();
+      }
       if (exceptionCount++ < ALLOWED_REPEATS) {
         addError("Appender [" + name + "] failed to append.", e);
       }
@@ -98,8 +120,115 @@ abstract public class UnsynchronizedAppenderBase<E> extends ContextAwareBase imp
     }
   }
 
+  /**
+   * Appends each event of the list as {@link #doAppend(Object)} would, but
+   * sets the re-entry guard only once for the whole batch. An exception thrown
+   * while appending one event does not prevent the remaining events from being
+   * appended.
+   *
+   * <p>Derived classes implementing {@link BatchAppender} can override this
+   * method to wrap the batch, e.g. in order to flush once at its end.</p>
+   *
+   * @param events the log events
+   */
+  public void doAppendBatch(List<E> events) {
+    // WARNING: The guard check MUST be the first statement in the
+    // doAppendBatch() method.
+
+    // prevent re-entry.
+    if (Boolean.TRUE.equals(guard.get())) {
+      return;
+    }
+
+    try {
+      guard.set(Boolean.TRUE);
+
+      final AppenderMetrics metrics = getAppenderMetrics();
+      final int len = events.size();
+      for (int i = 0; i < len; i++) {
+        if (!this.started) {
+          if (statusRepeatCount++ < ALLOWED_REPEATS) {
+            addStatus(new WarnStatus(
+                "Attempted to append to non started appender [" + name + "].",
+                this));
+          }
+          return;
+        }
+
+        E eventObject = events.get(i);
+        try {
+          if (getFilterChainDecision(eventObject) == FilterReply.DENY) {
+            if (metrics != null) {
+              metrics.recordDenied();
+            }
+            continue;
+          }
+          if (metrics == null) {
+            this.append(eventObject);
+          } else {
+            long start = System.nanoTime();
+            this.append(eventObject);
+            metrics.recordAppended(System.nanoTime() - start);
+          }
+        } catch (Exception e) {
+          if (metrics != null) {
+            metrics.recordFailed();
+          }
+          if (exceptionCount++ < ALLOWED_REPEATS) {
+            addError("Appender [" + name + "] failed to append.", e);
+          }
+        }
+      }
+    } finally {
+      guard.set(Boolean.FALSE);
+    }
+  }
+
   abstract protected void append(E eventObject);
 
+  /**
+   * Returns an event which remains valid after <code>doAppend</code> returns:
+   * the event itself, unless it is a {@link ReusableEvent}, in which case a
+   * copy is returned. Appenders which keep events beyond the call to
+   * <code>append</code> must keep the returned event rather than the one
+   * passed in.
+   *
+   * @param eventObject the event passed to <code>append</code>
+   * @return an event safe to retain
+   */
+  @SuppressWarnings("unchecked")
+  protected E retain(E eventObject) {
+    if (eventObject instanceof ReusableEvent) {
+      return ((ReusableEvent<E>) eventObject).toRetainable();
+    }
+    return eventObject;
+  }
+
+  /**
+   * Returns the metrics of this appender, or null if the context's
+   * {@link MetricsRegistry} is disabled or the context has none. Derived classes report the events
+   * they drop through the returned object.
+   *
+   * @return the metrics of this appender, or null
+   */
+  protected AppenderMetrics getAppenderMetrics() {
+    Context c = context;
+    if (!(c instanceof ContextBase)) {
+      // only contexts derived from ContextBase collect metrics
+      return null;
+    }
+    MetricsRegistry registry = ((ContextBase) c).getMetricsRegistry();
+    if (!registry.isEnabled()) {
+      return null;
+    }
+    AppenderMetrics metrics = appenderMetrics;
+    if (metrics == null) {
+      metrics = registry.getAppenderMetrics(name != null ? name : getClass().getName());
+      appenderMetrics = metrics;
+    }
+    return metrics;
+  }
+
   /**
    * Set the name of this appender.
    */
@@ -108,6 +237,7 @@ abstract public class UnsynchronizedAppenderBase<E> extends ContextAwareBase imp
   }
 
   public void start() {
+    appenderMetrics = null;
     started = true;
   }
 
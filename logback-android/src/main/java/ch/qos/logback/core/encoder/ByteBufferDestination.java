@@ -0,0 +1,44 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.encoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The target of a {@link ByteBufferEncoder}. Encoders write into the buffer
+ * returned by {@link #getByteBuffer()} and hand it to {@link #drain(ByteBuffer)}
+ * when it is full.
+ */
+public interface ByteBufferDestination {
+
+  /**
+   * Returns the buffer to write to. The buffer is in write mode, i.e. its
+   * position marks the end of the bytes already written.
+   *
+   * @return the buffer to write to
+   */
+  ByteBuffer getByteBuffer();
+
+  /**
+   * Consumes the bytes written so far to the given buffer.
+   *
+   * @param buf the buffer previously obtained from this destination, in write mode
+   * @return the buffer to continue writing to, with room for at least one byte
+   * @throws IOException if the bytes could not be written
+   */
+  ByteBuffer drain(ByteBuffer buf) throws IOException;
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.encoder;
+
+import java.io.IOException;
+
+/**
+ * An {@link Encoder} which can write the encoded event directly into a
+ * {@link ByteBufferDestination}, avoiding the intermediate String and byte
+ * array created by {@link #encode(Object)}.
+ * <p>
+ * Implementations must support concurrent calls to
+ * {@link #encode(Object, ByteBufferDestination)}, e.g. by keeping the
+ * buffers they reuse per thread.
+ *
+ * @param <E> the event type
+ */
+public interface ByteBufferEncoder<E> extends Encoder<E> {
+
+  /**
+   * Encode an event into the given destination. The bytes written are the
+   * same as those returned by {@link #encode(Object)}.
+   *
+   * @param event the log event
+   * @param destination where the encoded bytes are written
+   * @throws IOException if the destination failed to drain its buffer
+   */
+  void encode(E event, ByteBufferDestination destination) throws IOException;
+}
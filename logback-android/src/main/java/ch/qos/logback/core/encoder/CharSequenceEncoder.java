@@ -0,0 +1,117 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.encoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes the contents of a {@link StringBuilder} into a
+ * {@link ByteBufferDestination} using a reusable {@link CharsetEncoder} and
+ * character buffer. Malformed and unmappable input is replaced, as done by
+ * {@link String#getBytes(Charset)}.
+ * <p>
+ * Instances also provide a reusable text buffer. They are not thread-safe.
+ */
+final class CharSequenceEncoder {
+
+  static final int CHAR_BUFFER_SIZE = 2048;
+  static final int INITIAL_TEXT_BUFFER_SIZE = 256;
+  static final int MAX_RETAINED_TEXT_BUFFER_SIZE = 8 * 1024;
+
+  private final Charset charset;
+  private final CharsetEncoder charsetEncoder;
+  private final CharBuffer charBuffer = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+  private StringBuilder textBuffer = new StringBuilder(INITIAL_TEXT_BUFFER_SIZE);
+
+  CharSequenceEncoder(Charset charset) {
+    this.charset = charset;
+    this.charsetEncoder = charset.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * @return the empty text buffer, to be filled before calling
+   * {@link #encodeText(ByteBufferDestination)}
+   */
+  StringBuilder getTextBuffer() {
+    return textBuffer;
+  }
+
+  /**
+   * Encodes the contents of the text buffer, then empties it.
+   */
+  void encodeText(ByteBufferDestination destination) throws IOException {
+    try {
+      encode(textBuffer, destination);
+    } finally {
+      clearTextBuffer();
+    }
+  }
+
+  void clearTextBuffer() {
+    if (textBuffer.length() > MAX_RETAINED_TEXT_BUFFER_SIZE) {
+      // don't hold on to the memory used by an unusually large event
+      textBuffer = new StringBuilder(INITIAL_TEXT_BUFFER_SIZE);
+    } else {
+      textBuffer.setLength(0);
+    }
+  }
+
+  void encode(StringBuilder text, ByteBufferDestination destination) throws IOException {
+    ByteBuffer out = destination.getByteBuffer();
+    CharBuffer in = charBuffer;
+    in.clear();
+    charsetEncoder.reset();
+
+    int pos = 0;
+    int length = text.length();
+    boolean endOfInput;
+    do {
+      // copy the next chunk after any chars left over by the previous round,
+      // e.g. the high half of a surrogate pair
+      int n = Math.min(in.remaining(), length - pos);
+      text.getChars(pos, pos + n, in.array(), in.arrayOffset() + in.position());
+      in.position(in.position() + n);
+      pos += n;
+      endOfInput = pos == length;
+
+      in.flip();
+      CoderResult result;
+      while ((result = charsetEncoder.encode(in, out, endOfInput)).isOverflow()) {
+        out = destination.drain(out);
+      }
+      if (result.isError()) {
+        result.throwException();
+      }
+      in.compact();
+    } while (!endOfInput);
+
+    while (charsetEncoder.flush(out).isOverflow()) {
+      out = destination.drain(out);
+    }
+  }
+}
@@ -15,17 +15,37 @@
  */
 package ch.qos.logback.core.encoder;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+
 import ch.qos.logback.core.CoreConstants;
 
-public class EchoEncoder<E> extends EncoderBase<E> {
+public class EchoEncoder<E> extends EncoderBase<E> implements ByteBufferEncoder<E> {
   String fileHeader;
   String fileFooter;
 
+  private final ThreadLocal<CharSequenceEncoder> textEncoders = new ThreadLocal<CharSequenceEncoder>();
+
   public byte[] encode(E event) {
     String val = event + CoreConstants.LINE_SEPARATOR;
     return val.getBytes();
   }
 
+  public void encode(E event, ByteBufferDestination destination) throws IOException {
+    CharSequenceEncoder textEncoder = textEncoders.get();
+    if (textEncoder == null) {
+      textEncoder = new CharSequenceEncoder(Charset.defaultCharset());
+      textEncoders.set(textEncoder);
+    }
+    try {
+      textEncoder.getTextBuffer().append(event).append(CoreConstants.LINE_SEPARATOR);
+    } catch (RuntimeException e) {
+      textEncoder.clearTextBuffer();
+      throw e;
+    }
+    textEncoder.encodeText(destination);
+  }
+
   public byte[] footerBytes() {
     if (fileFooter == null) {
       return null;
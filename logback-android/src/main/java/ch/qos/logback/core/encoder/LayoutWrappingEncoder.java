@@ -15,14 +15,18 @@
  */
 package ch.qos.logback.core.encoder;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.Layout;
 import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.StringBuilderLayout;
 
-public class LayoutWrappingEncoder<E> extends EncoderBase<E> {
+public class LayoutWrappingEncoder<E> extends EncoderBase<E> implements ByteBufferEncoder<E> {
 
   protected Layout<E> layout;
 
@@ -38,12 +42,28 @@ public class LayoutWrappingEncoder<E> extends EncoderBase<E> {
   Appender<?> parent;
   Boolean immediateFlush = null;
 
+  /**
+   * Per-thread buffers reused by {@link #encode(Object, ByteBufferDestination)}.
+   */
+  private final ThreadLocal<CharSequenceEncoder> textEncoders = new ThreadLocal<CharSequenceEncoder>();
+
+  /**
+   * Whether {@link #encode(Object, ByteBufferDestination)} may format into a
+   * reused buffer, computed on first use. It may not when a subclass
+   * overrides {@link #encode(Object)}, or when the layout overrides
+   * <code>doLayout(E)</code> but not <code>doLayout(E, StringBuilder)</code>;
+   * the bytes returned by {@link #encode(Object)} are then copied instead, so
+   * that the output does not change.
+   */
+  private volatile Boolean bufferPathSupported;
+
   public Layout<E> getLayout() {
     return layout;
   }
 
   public void setLayout(Layout<E> layout) {
     this.layout = layout;
+    this.bufferPathSupported = null;
   }
 
   public Charset getCharset() {
@@ -118,6 +138,97 @@ public class LayoutWrappingEncoder<E> extends EncoderBase<E> {
     return convertToBytes(txt);
   }
 
+  /**
+   * Formats the event into a {@link StringBuilder} reused by the calling
+   * thread and encodes it straight into the destination's buffer.
+   */
+  public void encode(E event, ByteBufferDestination destination) throws IOException {
+    if (!isBufferPathSupported()) {
+      copyTo(encode(event), destination);
+      return;
+    }
+    CharSequenceEncoder textEncoder = getTextEncoder();
+    StringBuilder text = textEncoder.getTextBuffer();
+    try {
+      if (layout instanceof StringBuilderLayout) {
+        @SuppressWarnings("unchecked")
+        StringBuilderLayout<E> sbLayout = (StringBuilderLayout<E>) layout;
+        sbLayout.doLayout(event, text);
+      } else {
+        text.append(layout.doLayout(event));
+      }
+    } catch (RuntimeException e) {
+      textEncoder.clearTextBuffer();
+      throw e;
+    }
+    textEncoder.encodeText(destination);
+  }
+
+  private boolean isBufferPathSupported() {
+    Boolean supported = bufferPathSupported;
+    if (supported == null) {
+      supported = !overridesMethod(getClass(), LayoutWrappingEncoder.class, "encode")
+          && !(layout instanceof StringBuilderLayout
+              && overridesMethod(layout.getClass(), null, "doLayout"));
+      bufferPathSupported = supported;
+    }
+    return supported;
+  }
+
+  /**
+   * Tells whether the one-argument method with the given name is overridden
+   * below <code>base</code> (excluded) without the two-argument variant being
+   * overridden along with it.
+   */
+  static boolean overridesMethod(Class<?> type, Class<?> base, String name) {
+    try {
+      for (Class<?> c = type; c != null && c != base; c = c.getSuperclass()) {
+        if (declaresMethod(c, name, 2)) {
+          return false;
+        }
+        if (declaresMethod(c, name, 1)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (SecurityException e) {
+      return true;
+    }
+  }
+
+  private static boolean declaresMethod(Class<?> c, String name, int parameterCount) {
+    for (Method method : c.getDeclaredMethods()) {
+      if (!method.isBridge() && method.getName().equals(name)
+          && method.getParameterTypes().length == parameterCount) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void copyTo(byte[] bytes, ByteBufferDestination destination) throws IOException {
+    ByteBuffer out = destination.getByteBuffer();
+    int offset = 0;
+    while (offset < bytes.length) {
+      if (!out.hasRemaining()) {
+        out = destination.drain(out);
+      }
+      int n = Math.min(out.remaining(), bytes.length - offset);
+      out.put(bytes, offset, n);
+      offset += n;
+    }
+  }
+
+  private CharSequenceEncoder getTextEncoder() {
+    Charset cs = charset != null ? charset : Charset.defaultCharset();
+    CharSequenceEncoder textEncoder = textEncoders.get();
+    if (textEncoder == null || !textEncoder.getCharset().equals(cs)) {
+      textEncoder = new CharSequenceEncoder(cs);
+      textEncoders.set(textEncoder);
+    }
+    return textEncoder;
+  }
+
   public boolean isStarted() {
     return false;
   }
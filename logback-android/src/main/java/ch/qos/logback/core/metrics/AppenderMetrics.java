@@ -0,0 +1,114 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of one appender: events appended, denied by a filter, dropped
+ * by the appender itself (e.g. because a queue is full) and failed, along
+ * with the time taken by {@link ch.qos.logback.core.Appender#doAppend
+ * doAppend} for appended events.
+ */
+public class AppenderMetrics {
+
+  private final String appenderName;
+  private final LongAdder appended = new LongAdder();
+  private final LongAdder denied = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LatencyHistogram appendLatency = new LatencyHistogram();
+
+  public AppenderMetrics(String appenderName) {
+    this.appenderName = appenderName;
+  }
+
+  public String getAppenderName() {
+    return appenderName;
+  }
+
+  /**
+   * Records an event handed to the appender's <code>append</code> method.
+   *
+   * @param nanos the time the call took, in nanoseconds
+   */
+  public void recordAppended(long nanos) {
+    appended.increment();
+    appendLatency.record(nanos);
+  }
+
+  public void recordDenied() {
+    denied.increment();
+  }
+
+  public void recordDropped() {
+    dropped.increment();
+  }
+
+  public void recordFailed() {
+    failed.increment();
+  }
+
+  public long getAppendedCount() {
+    return appended.sum();
+  }
+
+  public long getDeniedCount() {
+    return denied.sum();
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  public LatencyHistogram getAppendLatency() {
+    return appendLatency;
+  }
+
+  void reset() {
+    appended.reset();
+    denied.reset();
+    dropped.reset();
+    failed.reset();
+    appendLatency.reset();
+  }
+
+  @Override
+  public String toString() {
+    return "appender [" + appenderName + "]: appended=" + getAppendedCount()
+        + ", denied=" + getDeniedCount() + ", dropped=" + getDroppedCount()
+        + ", failed=" + getFailedCount()
+        + ", p50<=" + formatNanos(appendLatency.getPercentileNanos(50))
+        + ", p99<=" + formatNanos(appendLatency.getPercentileNanos(99));
+  }
+
+  static String formatNanos(long nanos) {
+    if (nanos == Long.MAX_VALUE) {
+      return "inf";
+    }
+    if (nanos < 10000) {
+      return nanos + "ns";
+    }
+    if (nanos < 10000000) {
+      return (nanos / 1000) + "us";
+    }
+    return (nanos / 1000000) + "ms";
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations, in nanoseconds, with one bucket per power of two.
+ * Bucket <code>i</code> counts the durations <code>d</code> such that
+ * <code>2<sup>i-1</sup> &lt;= d &lt; 2<sup>i</sup></code>; the last bucket
+ * also counts all longer durations.
+ *
+ * <p>Recording is lock-free and contention-free, each bucket being a striped
+ * counter. Percentiles are therefore known within a factor of two, which is
+ * enough to tell microseconds from milliseconds.</p>
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of buckets. The last one starts at about 17 seconds.
+   */
+  public static final int BUCKET_COUNT = 36;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+  private final LongAdder totalNanos = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records one duration.
+   *
+   * @param nanos the duration, in nanoseconds
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    int index = 64 - Long.numberOfLeadingZeros(nanos);
+    buckets[Math.min(index, BUCKET_COUNT - 1)].increment();
+    totalNanos.add(nanos);
+  }
+
+  /**
+   * Returns the number of durations recorded.
+   */
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the sum of the durations recorded, in nanoseconds.
+   */
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  /**
+   * Returns a copy of the bucket counts.
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  /**
+   * Returns an upper bound of the given percentile of the recorded
+   * durations, that is, the upper bound of the bucket it falls in.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the upper bound in nanoseconds, or 0 if nothing was recorded
+   */
+  public long getPercentileNanos(double percentile) {
+    long[] counts = getBucketCounts();
+    long count = 0;
+    for (long c : counts) {
+      count += c;
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank && seen > 0) {
+        return upperBound(i);
+      }
+    }
+    return upperBound(BUCKET_COUNT - 1);
+  }
+
+  private static long upperBound(int index) {
+    return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << index;
+  }
+
+  /**
+   * Forgets all recorded durations.
+   */
+  public void reset() {
+    for (LongAdder bucket : buckets) {
+      bucket.reset();
+    }
+    totalNanos.reset();
+  }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.spi.ContextAwareBase;
+import ch.qos.logback.core.util.Duration;
+
+/**
+ * Collects the metrics of a context's appenders, along with the number of
+ * events logged per level and per logger. Each context owns one registry,
+ * available from {@link ch.qos.logback.core.ContextBase#getMetricsRegistry()}.
+ *
+ * <p>The registry is disabled by default. Components then only pay for
+ * reading the volatile {@link #isEnabled() enabled} flag. Once enabled,
+ * counters are striped, so that threads logging concurrently do not contend
+ * on them.</p>
+ *
+ * <p>The metrics can be read at any time, or dumped periodically to the
+ * context's status manager with {@link #startStatusDump(Duration)}.</p>
+ */
+public class MetricsRegistry extends ContextAwareBase {
+
+  /**
+   * The number of loggers listed, busiest first, in a status dump.
+   */
+  public static final int DUMPED_LOGGER_COUNT = 20;
+
+  private volatile boolean enabled;
+  private final ConcurrentMap<String, AppenderMetrics> appenders =
+      new ConcurrentHashMap<String, AppenderMetrics>();
+  private final ConcurrentMap<String, LongAdder> levels = new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentMap<String, LongAdder> loggers = new ConcurrentHashMap<String, LongAdder>();
+  private ScheduledFuture<?> dumpFuture;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns the metrics of the named appender, creating them if needed.
+   *
+   * @param appenderName the name of the appender
+   * @return the metrics of the appender
+   */
+  public AppenderMetrics getAppenderMetrics(String appenderName) {
+    AppenderMetrics metrics = appenders.get(appenderName);
+    if (metrics == null) {
+      metrics = new AppenderMetrics(appenderName);
+      AppenderMetrics existing = appenders.putIfAbsent(appenderName, metrics);
+      if (existing != null) {
+        metrics = existing;
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Returns the metrics of all appenders, by appender name.
+   */
+  public Map<String, AppenderMetrics> getAllAppenderMetrics() {
+    return new TreeMap<String, AppenderMetrics>(appenders);
+  }
+
+  /**
+   * Records an event logged by the named logger, if the registry is enabled.
+   *
+   * @param loggerName the name of the logger
+   * @param levelName the name of the event's level
+   */
+  public void recordEvent(String loggerName, String levelName) {
+    if (!enabled) {
+      return;
+    }
+    counter(levels, levelName).increment();
+    counter(loggers, loggerName).increment();
+  }
+
+  private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String key) {
+    LongAdder counter = counters.get(key);
+    if (counter == null) {
+      counter = new LongAdder();
+      LongAdder existing = counters.putIfAbsent(key, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * Returns the number of events logged, by level name.
+   */
+  public Map<String, Long> getEventCountsByLevel() {
+    return snapshot(levels);
+  }
+
+  /**
+   * Returns the number of events logged, by logger name.
+   */
+  public Map<String, Long> getEventCountsByLogger() {
+    return snapshot(loggers);
+  }
+
+  private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+    Map<String, Long> copy = new TreeMap<String, Long>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      copy.put(entry.getKey(), entry.getValue().sum());
+    }
+    return copy;
+  }
+
+  /**
+   * Adds the current metrics to the status manager every <code>period</code>,
+   * as an info status, replacing any dump started before.
+   *
+   * @param period the time between two dumps
+   */
+  public synchronized void startStatusDump(Duration period) {
+    stopStatusDump();
+    long millis = period.getMilliseconds();
+    dumpFuture = getContext().getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+      public void run() {
+        addInfo(dump());
+      }
+    }, millis, millis, TimeUnit.MILLISECONDS);
+    getContext().addScheduledFuture(dumpFuture);
+  }
+
+  public synchronized void stopStatusDump() {
+    if (dumpFuture != null) {
+      dumpFuture.cancel(false);
+      dumpFuture = null;
+    }
+  }
+
+  /**
+   * Returns a description of the current metrics, one line per appender,
+   * level and logger. Only the busiest {@link #DUMPED_LOGGER_COUNT} loggers
+   * are listed.
+   */
+  public String dump() {
+    StringBuilder sb = new StringBuilder("Logging metrics");
+    for (AppenderMetrics metrics : getAllAppenderMetrics().values()) {
+      sb.append(CoreConstants.LINE_SEPARATOR).append("  ").append(metrics);
+    }
+    for (Map.Entry<String, Long> entry : getEventCountsByLevel().entrySet()) {
+      sb.append(CoreConstants.LINE_SEPARATOR).append("  level [").append(entry.getKey())
+          .append("]: ").append(entry.getValue());
+    }
+    List<Map.Entry<String, Long>> byLogger =
+        new ArrayList<Map.Entry<String, Long>>(getEventCountsByLogger().entrySet());
+    Collections.sort(byLogger, new Comparator<Map.Entry<String, Long>>() {
+      public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+        return b.getValue().compareTo(a.getValue());
+      }
+    });
+    for (Map.Entry<String, Long> entry : byLogger.subList(0, Math.min(byLogger.size(), DUMPED_LOGGER_COUNT))) {
+      sb.append(CoreConstants.LINE_SEPARATOR).append("  logger [").append(entry.getKey())
+          .append("]: ").append(entry.getValue());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Disables the registry, stops the status dump and forgets all metrics.
+   */
+  public void reset() {
+    enabled = false;
+    stopStatusDump();
+    appenders.clear();
+    levels.clear();
+    loggers.clear();
+  }
+}
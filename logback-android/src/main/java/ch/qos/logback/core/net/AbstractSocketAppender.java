@@ -16,22 +16,34 @@
 // Contributors: Dan MacDonald <dan@redknee.com>
 package ch.qos.logback.core.net;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.net.SocketFactory;
 
 import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.metrics.AppenderMetrics;
 import ch.qos.logback.core.spi.PreSerializationTransformer;
 import ch.qos.logback.core.util.CloseUtil;
 import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
 
 /**
  * An abstract base for module specific {@code SocketAppender}
@@ -74,6 +86,16 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
    */
   private static final int DEFAULT_EVENT_DELAY_TIMEOUT = 100;
 
+  /**
+   * Default size at which a spill segment file rolls over (1 MB).
+   */
+  public static final long DEFAULT_SPILL_SEGMENT_SIZE = FileSize.MB_COEFFICIENT;
+
+  /**
+   * Default maximum total size of the spill segment files (10 MB).
+   */
+  public static final long DEFAULT_SPILL_TOTAL_SIZE_CAP = 10 * FileSize.MB_COEFFICIENT;
+
   private final ObjectWriterFactory objectWriterFactory;
   private final QueueFactory queueFactory;
 
@@ -84,6 +106,18 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
   private int queueSize = DEFAULT_QUEUE_SIZE;
   private int acceptConnectionTimeout = DEFAULT_ACCEPT_CONNECTION_DELAY;
   private Duration eventDelayLimit = new Duration(DEFAULT_EVENT_DELAY_TIMEOUT);
+  private WireFormat wireFormat = WireFormat.SERIALIZED;
+  private int maxBatchSize = 1;
+  private Duration maxFlushDelay = new Duration(0);
+  private boolean compression = false;
+  private String spillDirectory;
+  private FileSize spillSegmentSize = new FileSize(DEFAULT_SPILL_SEGMENT_SIZE);
+  private FileSize spillTotalSizeCap = new FileSize(DEFAULT_SPILL_TOTAL_SIZE_CAP);
+
+  private SpillQueue spillQueue;
+  private final LongAdder spilledEvents = new LongAdder();
+  private final LongAdder replayedEvents = new LongAdder();
+  private final LongAdder droppedEvents = new LongAdder();
   
   private BlockingDeque<E> deque;
   private String peerId;
@@ -136,6 +170,16 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
       addError("Queue size must be greater than zero");
     }
 
+    if (wireFormat == null) {
+      errorCount++;
+      addError("No wire format was configured for appender " + name);
+    }
+
+    if (maxBatchSize < 1) {
+      errorCount++;
+      addError("Max batch size must be greater than zero");
+    }
+
     if (errorCount == 0) {
       try {
         address = InetAddress.getByName(remoteHost);
@@ -145,6 +189,11 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
       }
     }
 
+    spillQueue = null;
+    if (errorCount == 0 && spillDirectory != null) {
+      errorCount += openSpillQueue();
+    }
+
     if (errorCount == 0) {
       deque = queueFactory.newLinkedBlockingDeque(queueSize);
       peerId = "remote peer " + remoteHost + ":" + port + ": ";
@@ -167,6 +216,40 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
     CloseUtil.closeQuietly(socket);
     task.cancel(true);
     super.stop();
+    if (spillQueue != null) {
+      // the spill queue only appends, so these events end up after any
+      // newer events already spilled; see setSpillDirectory
+      List<E> pending = new ArrayList<E>();
+      deque.drainTo(pending);
+      for (E event : pending) {
+        spill(event);
+      }
+      spillQueue.close();
+    }
+  }
+
+  private int openSpillQueue() {
+    int errorCount = 0;
+    if (spillSegmentSize == null || spillSegmentSize.getSize() <= 0) {
+      errorCount++;
+      addError("Spill segment size must be greater than zero");
+    }
+    if (spillTotalSizeCap == null || spillTotalSizeCap.getSize() <= 0) {
+      errorCount++;
+      addError("Spill total size cap must be greater than zero");
+    }
+    if (errorCount == 0) {
+      SpillQueue queue = new SpillQueue(new File(spillDirectory),
+          spillSegmentSize.getSize(), spillTotalSizeCap.getSize());
+      try {
+        queue.open();
+        spillQueue = queue;
+      } catch (IOException e) {
+        errorCount++;
+        addError("Failed to open spill directory [" + spillDirectory + "]", e);
+      }
+    }
+    return errorCount;
   }
 
   /**
@@ -176,26 +259,62 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
   protected void append(E event) {
     if (event == null || !isStarted()) return;
 
-    try {
-      final boolean inserted = deque.offer(event, eventDelayLimit.getMilliseconds(), TimeUnit.MILLISECONDS);
-      if (!inserted) {
-        addInfo("Dropping event due to timeout limit of [" + eventDelayLimit + "] being exceeded");
+    final SpillQueue spillQueue = this.spillQueue;
+    if (spillQueue != null) {
+      // once events are spilled, newer ones follow them to keep the order;
+      // the check, the offer and the spill are done under the queue's lock
+      // so that the dispatcher cannot empty the queue in between, and it
+      // pairs with the dispatcher finding it empty before it blocks on the
+      // deque
+      synchronized (spillQueue) {
+        if (!spillQueue.isEmpty() || !offer(event)) {
+          spill(event);
+        }
       }
+      return;
+    }
+
+    if (!offer(event)) {
+      recordDroppedEvent();
+      addInfo("Dropping event due to timeout limit of [" + eventDelayLimit + "] being exceeded");
+    }
+  }
+
+  /**
+   * Queues an event for the dispatcher, waiting up to
+   * {@link #getEventDelayLimit() eventDelayLimit} for room.
+   *
+   * @return {@code true} if the event was queued
+   */
+  private boolean offer(E event) {
+    try {
+      return deque.offer(event, eventDelayLimit.getMilliseconds(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
       addError("Interrupted while appending event to SocketAppender", e);
+      return false;
     }
   }
 
   private void connectSocketAndDispatchEvents() {
     try {
       while (socketConnectionCouldBeEstablished()) {
+        FramedOutputStream framedOutputStream = null;
         try {
-          ObjectWriter objectWriter = createObjectWriterForSocket();
+          OutputStream outputStream = socket.getOutputStream();
+          if (isFramed()) {
+            outputStream = framedOutputStream = new FramedOutputStream(outputStream, compression);
+          }
+          ObjectWriter objectWriter = createObjectWriterForSocket(outputStream);
           addInfo(peerId + "connection established");
-          dispatchEvents(objectWriter);
+          if (framedOutputStream != null) {
+            dispatchBatches(objectWriter, framedOutputStream);
+          } else {
+            dispatchEvents(objectWriter);
+          }
         } catch (IOException ex) {
           addInfo(peerId + "connection failed: " + ex);
         } finally {
+          CloseUtil.closeQuietly(framedOutputStream);
           CloseUtil.closeQuietly(socket);
           socket = null;
           addInfo(peerId + "connection closed");
@@ -211,13 +330,44 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
     return (socket = connector.call()) != null;
   }
 
-  private ObjectWriter createObjectWriterForSocket() throws IOException {
+  private boolean isFramed() {
+    return maxBatchSize > 1 || compression;
+  }
+
+  private ObjectWriter createObjectWriterForSocket(OutputStream outputStream) throws IOException {
     socket.setSoTimeout(acceptConnectionTimeout);
-    ObjectWriter objectWriter = objectWriterFactory.newAutoFlushingObjectWriter(socket.getOutputStream());
+    ObjectWriter objectWriter = null;
+    if (wireFormat == WireFormat.BINARY) {
+      objectWriter = newBinaryObjectWriter(outputStream);
+      if (objectWriter == null) {
+        addWarn("Binary wire format is not supported by appender " + name + ", using serialization");
+        wireFormat = WireFormat.SERIALIZED;
+      }
+    }
+    if (objectWriter == null) {
+      objectWriter = objectWriterFactory.newAutoFlushingObjectWriter(outputStream);
+    }
     socket.setSoTimeout(0);
     return objectWriter;
   }
 
+  /**
+   * Creates the writer sending events in the {@link WireFormat#BINARY}
+   * format. Events are handed to the writer after the pre-serialization
+   * transformer has been applied.
+   * <p>
+   * The default implementation returns {@code null}, which makes the
+   * appender fall back to serialization. Subclasses supporting the binary
+   * format override it.
+   *
+   * @param outputStream the stream of the socket
+   * @return the writer, or {@code null} if the format is not supported
+   * @throws IOException if an I/O error occurs while writing a header
+   */
+  protected ObjectWriter newBinaryObjectWriter(OutputStream outputStream) throws IOException {
+    return null;
+  }
+
   private SocketConnector createConnector(InetAddress address, int port, int initialDelay, long retryDelay) {
     SocketConnector connector = newConnector(address, port, initialDelay, retryDelay);
     connector.setExceptionHandler(this);
@@ -227,6 +377,9 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
 
   private void dispatchEvents(ObjectWriter objectWriter) throws InterruptedException, IOException {
     while (true) {
+      if (spillQueue != null && deque.isEmpty() && replaySpilledEvents(objectWriter, null)) {
+        continue;
+      }
       E event = deque.takeFirst();
       postProcessEvent(event);
       Serializable serializableEvent = getPST().transform(event);
@@ -239,11 +392,145 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
     }
   }
 
+  /**
+   * Sends events in batches of up to {@link #getMaxBatchSize() maxBatchSize}
+   * events, each written to the socket as one frame with a single flush.
+   */
+  private void dispatchBatches(ObjectWriter objectWriter, FramedOutputStream framedOutputStream)
+      throws InterruptedException, IOException {
+    List<E> batch = new ArrayList<E>(maxBatchSize);
+    while (true) {
+      if (spillQueue != null && deque.isEmpty() && replaySpilledEvents(objectWriter, framedOutputStream)) {
+        continue;
+      }
+      takeBatch(batch);
+      try {
+        for (E event : batch) {
+          postProcessEvent(event);
+          objectWriter.write(getPST().transform(event));
+        }
+        framedOutputStream.writeFrame();
+      } catch (IOException e) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+          tryReAddingEventToFrontOfQueue(batch.get(i));
+        }
+        throw e;
+      }
+      batch.clear();
+    }
+  }
+
+  /**
+   * Waits for an event, then takes the events already queued and, if
+   * {@link #getMaxFlushDelay() maxFlushDelay} is set, those arriving within
+   * that delay, up to {@link #getMaxBatchSize() maxBatchSize} events.
+   */
+  private void takeBatch(List<E> batch) throws InterruptedException {
+    batch.add(deque.takeFirst());
+    deque.drainTo(batch, maxBatchSize - batch.size());
+    long delay = maxFlushDelay.getMilliseconds();
+    if (delay <= 0) {
+      return;
+    }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+    while (batch.size() < maxBatchSize) {
+      long remaining = deadline - System.nanoTime();
+      E event = remaining > 0 ? deque.pollFirst(remaining, TimeUnit.NANOSECONDS) : null;
+      if (event == null) {
+        return;
+      }
+      batch.add(event);
+      deque.drainTo(batch, maxBatchSize - batch.size());
+    }
+  }
+
   private void tryReAddingEventToFrontOfQueue(E event) {
     final boolean wasInserted = deque.offerFirst(event);
     if (!wasInserted) {
-      addInfo("Dropping event due to socket connection error and maxed out deque capacity");
+      if (spillQueue != null) {
+        spill(event);
+      } else {
+        recordDroppedEvent();
+        addInfo("Dropping event due to socket connection error and maxed out deque capacity");
+      }
+    }
+  }
+
+  /**
+   * Writes an event to the spill queue, or drops it if the queue is full.
+   */
+  private void spill(E event) {
+    try {
+      postProcessEvent(event);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bytes);
+      oos.writeObject(getPST().transform(event));
+      oos.close();
+      if (spillQueue.offer(bytes.toByteArray())) {
+        spilledEvents.increment();
+        return;
+      }
+      addInfo("Dropping event due to spill queue size cap of [" + spillTotalSizeCap + "] being reached");
+    } catch (IOException e) {
+      addError("Failed to spill event", e);
     }
+    recordDroppedEvent();
+  }
+
+  /**
+   * Sends spilled events, at most one batch of them when framing, and
+   * removes them from the spill queue once written.
+   *
+   * @return {@code true} if events were sent
+   */
+  private boolean replaySpilledEvents(ObjectWriter objectWriter, FramedOutputStream framedOutputStream)
+      throws IOException {
+    int max = framedOutputStream != null ? maxBatchSize : 1;
+    int count = 0;
+    try {
+      Serializable event;
+      while (count < max && (event = readSpilledEvent()) != null) {
+        objectWriter.write(event);
+        count++;
+      }
+      if (count > 0 && framedOutputStream != null) {
+        framedOutputStream.writeFrame();
+      }
+    } catch (IOException e) {
+      spillQueue.rewind();
+      throw e;
+    }
+    spillQueue.commit();
+    replayedEvents.add(count);
+    return count > 0;
+  }
+
+  private Serializable readSpilledEvent() throws IOException {
+    byte[] record;
+    while ((record = spillQueue.read()) != null) {
+      try {
+        ObjectInputStream ois = newSpillInputStream(new ByteArrayInputStream(record));
+        return (Serializable) ois.readObject();
+      } catch (Exception e) {
+        recordDroppedEvent();
+        addWarn("Dropping spilled event that cannot be read: " + e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates the stream deserializing an event read back from the spill
+   * queue. The default implementation only accepts classes of the
+   * {@code java.lang} and {@code java.util} packages; subclasses whose
+   * pre-serialization transformer produces other classes override it.
+   *
+   * @param inputStream the serialized event
+   * @return the stream to read the event from
+   * @throws IOException if the stream header cannot be read
+   */
+  protected ObjectInputStream newSpillInputStream(InputStream inputStream) throws IOException {
+    return new HardenedObjectInputStream(inputStream, new String[0]);
   }
 
   /**
@@ -398,6 +685,187 @@ public abstract class AbstractSocketAppender<E> extends AppenderBase<E>
     return eventDelayLimit;
   }
 
+  /**
+   * The <b>wireFormat</b> property selects how events are encoded on the
+   * wire: {@link WireFormat#SERIALIZED} (the default) or the more compact
+   * {@link WireFormat#BINARY}, which current receivers detect by themselves.
+   *
+   * @param wireFormat the wire format
+   */
+  public void setWireFormat(WireFormat wireFormat) {
+    this.wireFormat = wireFormat;
+  }
+
+  /**
+   * Returns the value of the <b>wireFormat</b> property.
+   * @return the wire format
+   */
+  public WireFormat getWireFormat() {
+    return wireFormat;
+  }
+
+  /**
+   * The <b>maxBatchSize</b> property sets how many queued events may be
+   * sent together. With a value greater than one (the default is one), the
+   * appender takes all the events waiting in the queue, up to this number,
+   * encodes them into one frame and flushes the socket once per frame,
+   * which cuts the packets sent under load. Framed streams are understood
+   * by the receivers of this version only.
+   *
+   * @param maxBatchSize the maximum number of events per batch
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Returns the value of the <b>maxBatchSize</b> property.
+   * @return the maximum number of events per batch
+   */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * The <b>maxFlushDelay</b> property sets how long a batch may wait for
+   * more events before it is sent. The default of zero sends the events
+   * queued at the time, without waiting.
+   *
+   * @param maxFlushDelay the maximum delay before sending a batch
+   */
+  public void setMaxFlushDelay(Duration maxFlushDelay) {
+    this.maxFlushDelay = maxFlushDelay;
+  }
+
+  /**
+   * Returns the value of the <b>maxFlushDelay</b> property.
+   * @return the maximum delay before sending a batch
+   */
+  public Duration getMaxFlushDelay() {
+    return maxFlushDelay;
+  }
+
+  /**
+   * The <b>compression</b> property enables deflating the frames sent to
+   * the receiver. The frames of a connection share one deflate stream, so
+   * names and messages repeated across batches compress well. This implies
+   * framing, see {@link #setMaxBatchSize(int)}.
+   *
+   * @param compression {@code true} to deflate the frames
+   */
+  public void setCompression(boolean compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * Returns the value of the <b>compression</b> property.
+   * @return {@code true} if frames are deflated
+   */
+  public boolean isCompression() {
+    return compression;
+  }
+
+  /**
+   * The <b>spillDirectory</b> property enables the spill queue, which
+   * stores the events that do not fit in the queue, for instance while the
+   * remote peer is unreachable, in segment files under this directory. The
+   * spilled events are sent after the events queued before them once the
+   * connection is established, including after a restart. Events still
+   * queued when the appender stops are spilled too, after the events
+   * already spilled: the original order is only guaranteed while the
+   * appender runs, and across a stop if no event had been spilled yet.
+   * <p>
+   * Events are spilled by the logging thread while it holds the appender's
+   * lock: each one is serialized and written to a segment file, so logging
+   * is slower while the remote peer is unreachable. Once an event is
+   * spilled, the following ones are spilled as well until the dispatcher has
+   * sent them all.
+   *
+   * @param spillDirectory the directory of the spill segment files
+   */
+  public void setSpillDirectory(String spillDirectory) {
+    this.spillDirectory = spillDirectory;
+  }
+
+  /**
+   * Returns the value of the <b>spillDirectory</b> property.
+   * @return the spill directory, or {@code null} if spilling is disabled
+   */
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  /**
+   * The <b>spillSegmentSize</b> property sets the size at which a spill
+   * segment file rolls over. Segment files are deleted once all their
+   * events have been sent. The default is 1 MB.
+   *
+   * @param spillSegmentSize the segment size
+   */
+  public void setSpillSegmentSize(FileSize spillSegmentSize) {
+    this.spillSegmentSize = spillSegmentSize;
+  }
+
+  /**
+   * Returns the value of the <b>spillSegmentSize</b> property.
+   * @return the segment size
+   */
+  public FileSize getSpillSegmentSize() {
+    return spillSegmentSize;
+  }
+
+  /**
+   * The <b>spillTotalSizeCap</b> property bounds the total size of the
+   * spill segment files. Events that would exceed it are dropped. The
+   * default is 10 MB.
+   *
+   * @param spillTotalSizeCap the maximum total size of the segment files
+   */
+  public void setSpillTotalSizeCap(FileSize spillTotalSizeCap) {
+    this.spillTotalSizeCap = spillTotalSizeCap;
+  }
+
+  /**
+   * Returns the value of the <b>spillTotalSizeCap</b> property.
+   * @return the maximum total size of the segment files
+   */
+  public FileSize getSpillTotalSizeCap() {
+    return spillTotalSizeCap;
+  }
+
+  /**
+   * Returns the number of events written to the spill queue.
+   * @return the number of spilled events
+   */
+  public long getSpilledEventCount() {
+    return spilledEvents.sum();
+  }
+
+  /**
+   * Returns the number of spilled events sent to the remote peer.
+   * @return the number of replayed events
+   */
+  public long getReplayedEventCount() {
+    return replayedEvents.sum();
+  }
+
+  /**
+   * Returns the number of events dropped because neither the queue nor
+   * the spill queue could take them.
+   * @return the number of dropped events
+   */
+  public long getDroppedEventCount() {
+    return droppedEvents.sum();
+  }
+
+  private void recordDroppedEvent() {
+    droppedEvents.increment();
+    AppenderMetrics metrics = getAppenderMetrics();
+    if (metrics != null) {
+      metrics.recordDropped();
+    }
+  }
+
   /**
    * Sets the timeout that controls how long we'll wait for the remote
    * peer to accept our connection attempt.
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the frames written by a {@link FramedOutputStream} and presents
+ * their payloads as one continuous stream.
+ * <p>
+ * Payloads are passed through, and inflated, as they are read, so that the
+ * memory used does not depend on the frame lengths announced by the sender.
+ */
+public class FramedInputStream extends InputStream {
+
+  /**
+   * The largest frame accepted, before or after inflation.
+   */
+  public static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+  private static final int COMPRESSED_BUFFER_SIZE = 8192;
+
+  private final DataInputStream in;
+  private Inflater inflater;
+  private byte[] compressed;
+  private final byte[] scratch = new byte[1];
+  private boolean deflated;
+  // bytes of the current frame not read from the underlying stream yet
+  private int frameRemaining;
+  // bytes of the current deflated frame not inflated yet
+  private int inflatedRemaining;
+
+  /**
+   * Creates a stream and validates the header of the underlying stream.
+   *
+   * @param in the stream to read frames from, which should be buffered
+   * @throws IOException if the header is missing or not supported
+   */
+  public FramedInputStream(InputStream in) throws IOException {
+    this.in = new DataInputStream(in);
+    byte[] header = new byte[FramedOutputStream.HEADER.length];
+    this.in.readFully(header);
+    if (!isFramed(header, header.length)) {
+      throw new StreamCorruptedException("Unsupported frame stream header");
+    }
+  }
+
+  /**
+   * Tells whether bytes read from the start of a stream are the header of
+   * a {@link FramedOutputStream}.
+   *
+   * @param prefix the first bytes of the stream
+   * @param length how many bytes of {@code prefix} were read
+   * @return {@code true} if the stream is framed
+   */
+  public static boolean isFramed(byte[] prefix, int length) {
+    if (length < FramedOutputStream.HEADER.length) {
+      return false;
+    }
+    for (int i = 0; i < FramedOutputStream.HEADER.length; i++) {
+      if (prefix[i] != FramedOutputStream.HEADER[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(scratch, 0, 1) < 0 ? -1 : scratch[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (payloadRemaining() == 0 && !nextFrame()) {
+      return -1;
+    }
+    if (!deflated) {
+      int n = in.read(b, off, Math.min(len, frameRemaining));
+      if (n < 0) {
+        throw new EOFException("Truncated frame");
+      }
+      frameRemaining -= n;
+      return n;
+    }
+    int n = inflate(b, off, Math.min(len, inflatedRemaining));
+    inflatedRemaining -= n;
+    if (inflatedRemaining == 0) {
+      finishDeflatedFrame();
+    }
+    return n;
+  }
+
+  /**
+   * Returns the bytes left in the current frame plus those available from
+   * the underlying stream, which hold further frames.
+   */
+  @Override
+  public int available() throws IOException {
+    int available = in.available();
+    if (deflated) {
+      // the compressed bytes not read yet are counted in the underlying stream
+      available = available - frameRemaining + inflatedRemaining;
+    }
+    return Math.max(available, 0);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (inflater != null) {
+      inflater.end();
+    }
+    in.close();
+  }
+
+  private int payloadRemaining() {
+    return deflated ? inflatedRemaining : frameRemaining;
+  }
+
+  private boolean nextFrame() throws IOException {
+    do {
+      int flags = in.read();
+      if (flags < 0) {
+        return false;
+      }
+      int length = readLength();
+      if (flags == 0) {
+        deflated = false;
+        frameRemaining = length;
+      } else if (flags == FramedOutputStream.FLAG_DEFLATED) {
+        deflated = true;
+        inflatedRemaining = readLength();
+        frameRemaining = length;
+        if (inflater == null) {
+          inflater = new Inflater(true);
+          compressed = new byte[COMPRESSED_BUFFER_SIZE];
+        }
+        if (inflatedRemaining == 0) {
+          finishDeflatedFrame();
+        }
+      } else {
+        throw new StreamCorruptedException("Unknown frame flags " + flags);
+      }
+    } while (payloadRemaining() == 0);
+    return true;
+  }
+
+  /**
+   * Inflates at least one byte of the current frame, feeding the inflater
+   * with compressed bytes as it needs them.
+   */
+  private int inflate(byte[] b, int off, int len) throws IOException {
+    try {
+      while (true) {
+        int n = inflater.inflate(b, off, len);
+        if (n > 0) {
+          return n;
+        }
+        if (!inflater.needsInput() || !fillInflater()) {
+          throw new StreamCorruptedException("Truncated deflated frame");
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new StreamCorruptedException("Malformed deflated frame: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Consumes the rest of the current deflated frame, the sync flush marker,
+   * which yields no output.
+   */
+  private void finishDeflatedFrame() throws IOException {
+    try {
+      while (inflater.getRemaining() > 0 || fillInflater()) {
+        int remaining = inflater.getRemaining();
+        if (inflater.inflate(scratch) != 0 || inflater.getRemaining() == remaining) {
+          throw new StreamCorruptedException("Deflated frame longer than announced");
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new StreamCorruptedException("Malformed deflated frame: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Passes the next compressed bytes of the current frame to the inflater.
+   *
+   * @return {@code false} if the frame has no compressed bytes left
+   */
+  private boolean fillInflater() throws IOException {
+    if (frameRemaining == 0) {
+      return false;
+    }
+    int n = Math.min(compressed.length, frameRemaining);
+    in.readFully(compressed, 0, n);
+    frameRemaining -= n;
+    inflater.setInput(compressed, 0, n);
+    return true;
+  }
+
+  private int readLength() throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_FRAME_SIZE) {
+      throw new StreamCorruptedException("Frame length " + length + " out of bounds");
+    }
+    return length;
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * An {@link OutputStream} that collects written bytes in memory and sends
+ * them as one length-prefixed frame, optionally deflated, when
+ * {@link #writeFrame()} is called. It lets a socket appender encode a batch
+ * of events with a regular {@link ObjectWriter} and put the whole batch on
+ * the wire with a single flush. {@link FramedInputStream} reads the frames
+ * back as a continuous stream.
+ * <p>
+ * The stream starts with {@link #HEADER}. Each frame is a flags byte, the
+ * payload length as an int and, for deflated frames, the inflated length
+ * as an int, followed by the payload. Deflated frames share one deflate
+ * stream, each ending with a sync flush, so later frames benefit from the
+ * history of earlier ones.
+ */
+public class FramedOutputStream extends OutputStream {
+
+  /**
+   * Stream header: "LBF" and the framing version.
+   */
+  public static final byte[] HEADER = { 'L', 'B', 'F', 1 };
+
+  static final int FLAG_DEFLATED = 1;
+
+  private final DataOutputStream out;
+  private final Deflater deflater;
+  private byte[] buf = new byte[8192];
+  private int count;
+  private byte[] deflated;
+
+  /**
+   * Creates a stream and writes the header to the underlying stream.
+   *
+   * @param out the stream to send frames to
+   * @param compress whether frames are deflated
+   * @throws IOException if the header cannot be written
+   */
+  public FramedOutputStream(OutputStream out, boolean compress) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+    this.deflater = compress ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+    this.out.write(HEADER);
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(1);
+    buf[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureCapacity(len);
+    System.arraycopy(b, off, buf, count, len);
+    count += len;
+  }
+
+  /**
+   * Does nothing: bytes are sent by {@link #writeFrame()}.
+   */
+  @Override
+  public void flush() {
+  }
+
+  /**
+   * Sends the bytes written since the last frame as a new frame and flushes
+   * the underlying stream. Does nothing if no bytes were written.
+   *
+   * @throws IOException if the frame cannot be sent
+   */
+  public void writeFrame() throws IOException {
+    if (count == 0) {
+      return;
+    }
+    if (deflater != null) {
+      int length = deflate();
+      out.writeByte(FLAG_DEFLATED);
+      out.writeInt(length);
+      out.writeInt(count);
+      out.write(deflated, 0, length);
+    } else {
+      out.writeByte(0);
+      out.writeInt(count);
+      out.write(buf, 0, count);
+    }
+    count = 0;
+    out.flush();
+  }
+
+  private int deflate() {
+    if (deflated == null) {
+      deflated = new byte[Math.max(64, buf.length / 2)];
+    }
+    deflater.setInput(buf, 0, count);
+    int length = 0;
+    while (true) {
+      length += deflater.deflate(deflated, length, deflated.length - length, Deflater.SYNC_FLUSH);
+      if (length < deflated.length) {
+        return length;
+      }
+      deflated = Arrays.copyOf(deflated, deflated.length * 2);
+    }
+  }
+
+  /**
+   * Releases the deflater and closes the underlying stream. Bytes written
+   * since the last frame are discarded, since after a failed send they may
+   * belong to a batch that is retried on the next connection.
+   */
+  @Override
+  public void close() throws IOException {
+    count = 0;
+    if (deflater != null) {
+      deflater.end();
+    }
+    out.close();
+  }
+
+  private void ensureCapacity(int extra) {
+    if (count + extra > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+    }
+  }
+}
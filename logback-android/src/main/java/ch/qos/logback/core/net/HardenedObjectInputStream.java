@@ -20,8 +20,12 @@ import java.io.InputStream;
 import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * HardenedObjectInputStream restricts the set of classes that can be deserialized to a set of
@@ -30,39 +34,47 @@ import java.util.List;
  * <p>It is assumed that classes in the "java.lang" and  "java.util" packages are
  * always authorized.</p>
  *
+ * <p>The whitelist is a hash set, and the classes resolved by a stream are
+ * cached by name, so that descriptors sent again after the sender resets its
+ * stream are neither checked nor loaded again.</p>
+ *
  * @author Ceki G&uuml;lc&uuml;
  * @since 1.2.0
  */
 public class HardenedObjectInputStream extends ObjectInputStream {
 
-    final List<String> whitelistedClassNames;
+    final Set<String> whitelistedClassNames;
+    private final Map<String, Class<?>> resolvedClasses = new HashMap<String, Class<?>>();
     final static String[] JAVA_PACKAGES = new String[] { "java.lang", "java.util" };
 
     public HardenedObjectInputStream(InputStream in, String[] whilelist) throws IOException {
         super(in);
 
-        this.whitelistedClassNames = new ArrayList<String>();
+        this.whitelistedClassNames = new HashSet<String>();
         if (whilelist != null) {
-            for (int i = 0; i < whilelist.length; i++) {
-                this.whitelistedClassNames.add(whilelist[i]);
-            }
+            this.whitelistedClassNames.addAll(Arrays.asList(whilelist));
         }
     }
 
     public HardenedObjectInputStream(InputStream in, List<String> whitelist) throws IOException {
         super(in);
-        this.whitelistedClassNames = new ArrayList<String>();
-        this.whitelistedClassNames.addAll(whitelist);
+        this.whitelistedClassNames = new HashSet<String>(whitelist);
     }
 
     @Override
     protected Class<?> resolveClass(ObjectStreamClass anObjectStreamClass) throws IOException, ClassNotFoundException {
         String incomingClassName = anObjectStreamClass.getName();
+        Class<?> resolved = resolvedClasses.get(incomingClassName);
+        if (resolved != null) {
+            return resolved;
+        }
         if(!isWhitelisted(incomingClassName)) {
             throw new InvalidClassException("Unauthorized deserialization attempt", anObjectStreamClass.getName());
         }
 
-        return super.resolveClass(anObjectStreamClass);
+        resolved = super.resolveClass(anObjectStreamClass);
+        resolvedClasses.put(incomingClassName, resolved);
+        return resolved;
     }
 
     private boolean isWhitelisted(String incomingClassName) {
@@ -71,12 +83,7 @@ public class HardenedObjectInputStream extends ObjectInputStream {
                 return true;
             }
         }
-        for (String whiteListed : whitelistedClassNames) {
-            if (incomingClassName.equals(whiteListed)) {
-                return true;
-            }
-        }
-        return false;
+        return whitelistedClassNames.contains(incomingClassName);
     }
 
     protected void addToWhitelist(List<String> additionalAuthorizedClasses) {
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads objects from an input, the counterpart of {@link ObjectWriter}.
+ */
+public interface ObjectReader extends Closeable {
+
+  /**
+   * Reads the next object from the input.
+   *
+   * @return the object read
+   * @throws java.io.EOFException when the input ends between objects
+   * @throws IOException in case input/output fails or the input is malformed
+   * @throws ClassNotFoundException if the class of the object is unknown
+   */
+  Object read() throws IOException, ClassNotFoundException;
+
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import ch.qos.logback.core.util.CloseUtil;
+
+/**
+ * A persistent FIFO queue of byte records, stored in a directory as
+ * append-only segment files of bounded total size.
+ * <p>
+ * Records are appended to the newest segment, which rolls over once it
+ * reaches the segment size. Reads are transactional: {@link #read()}
+ * advances a cursor, {@link #commit()} discards the records read so far
+ * and {@link #rewind()} moves the cursor back to the last commit, so that
+ * records whose delivery failed are read again. Segments left by a
+ * previous run are read first; since the read position is not persisted,
+ * the records of a partly committed segment may be read again after a
+ * restart. Each record carries a CRC so that a record torn by a crash ends
+ * its segment instead of being returned.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class SpillQueue {
+
+  private static final Pattern SEGMENT_NAME = Pattern.compile("spill-(\\d+)\\.seg");
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private final File directory;
+  private final long segmentSize;
+  private final long totalSizeCap;
+
+  private final List<Segment> segments = new ArrayList<Segment>();
+  private long nextSequence;
+  private long totalSize;
+
+  private Segment writeSegment;
+  private DataOutputStream writer;
+
+  private int readIndex;
+  private long readOffset;
+  private long commitOffset;
+  private DataInputStream reader;
+
+  /**
+   * Creates a queue.
+   *
+   * @param directory the directory holding the segment files
+   * @param segmentSize the size at which a segment rolls over
+   * @param totalSizeCap the maximum total size of the segments
+   */
+  public SpillQueue(File directory, long segmentSize, long totalSizeCap) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.totalSizeCap = totalSizeCap;
+  }
+
+  /**
+   * Creates the directory if needed and loads the segments left there by
+   * a previous run.
+   *
+   * @throws IOException if the directory cannot be created
+   */
+  public synchronized void open() throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create spill directory " + directory);
+    }
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+        if (matcher.matches()) {
+          Segment segment = new Segment(file, Long.parseLong(matcher.group(1)));
+          segment.size = file.length();
+          segments.add(segment);
+          totalSize += segment.size;
+          nextSequence = Math.max(nextSequence, segment.sequence + 1);
+        }
+      }
+    }
+    Collections.sort(segments, new Comparator<Segment>() {
+      public int compare(Segment a, Segment b) {
+        return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+      }
+    });
+  }
+
+  /**
+   * Appends a record.
+   *
+   * @param record the record
+   * @return {@code false} if the record was rejected because the queue
+   * reached its total size cap
+   * @throws IOException if the record cannot be written
+   */
+  public synchronized boolean offer(byte[] record) throws IOException {
+    long size = RECORD_HEADER_SIZE + record.length;
+    if (totalSize + size > totalSizeCap) {
+      return false;
+    }
+    if (writeSegment == null || writeSegment.size >= segmentSize) {
+      rollOver();
+    }
+    CRC32 crc = new CRC32();
+    crc.update(record, 0, record.length);
+    try {
+      writer.writeInt(record.length);
+      writer.writeInt((int) crc.getValue());
+      writer.write(record);
+      writer.flush();
+    } catch (IOException e) {
+      sealWriteSegment();
+      throw e;
+    }
+    writeSegment.size += size;
+    totalSize += size;
+    return true;
+  }
+
+  /**
+   * Reads the record after the cursor and advances the cursor.
+   *
+   * @return the record, or {@code null} if all records have been read
+   * @throws IOException if a segment cannot be read
+   */
+  public synchronized byte[] read() throws IOException {
+    while (readIndex < segments.size()) {
+      Segment segment = segments.get(readIndex);
+      if (segment == writeSegment && readOffset >= segment.size) {
+        break;
+      }
+      if (reader == null) {
+        reader = openReader(segment, readOffset);
+      }
+      byte[] record = readRecord(reader);
+      if (record != null) {
+        readOffset += RECORD_HEADER_SIZE + record.length;
+        return record;
+      }
+      if (segment == writeSegment) {
+        throw new IOException("Corrupt record in spill segment " + segment.file);
+      }
+      closeReader();
+      if (hasUncommittedReads()) {
+        readIndex++;
+      } else {
+        deleteSegment(segments.remove(0));
+        commitOffset = 0;
+      }
+      readOffset = 0;
+    }
+    if (!hasUncommittedReads()) {
+      releaseConsumedSegments();
+    }
+    return null;
+  }
+
+  /**
+   * Discards the records read since the last commit.
+   */
+  public synchronized void commit() {
+    commitOffset = readOffset;
+    releaseConsumedSegments();
+  }
+
+  /**
+   * Moves the cursor back to the last commit.
+   */
+  public synchronized void rewind() {
+    closeReader();
+    readIndex = 0;
+    readOffset = commitOffset;
+  }
+
+  /**
+   * Tells whether the queue holds no uncommitted record.
+   *
+   * @return {@code true} if the queue is empty
+   */
+  public synchronized boolean isEmpty() {
+    return segments.isEmpty();
+  }
+
+  /**
+   * Returns the total size of the segment files.
+   *
+   * @return the size in bytes
+   */
+  public synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  /**
+   * Closes the open segment files. Uncommitted records are kept.
+   */
+  public synchronized void close() {
+    closeReader();
+    CloseUtil.closeQuietly(writer);
+    writer = null;
+    writeSegment = null;
+    readIndex = 0;
+    readOffset = commitOffset;
+  }
+
+  private boolean hasUncommittedReads() {
+    return readIndex != 0 || readOffset != commitOffset;
+  }
+
+  /**
+   * Deletes the segments before the cursor, and the current segment if it
+   * was written completely and read to its end.
+   */
+  private void releaseConsumedSegments() {
+    while (readIndex > 0) {
+      deleteSegment(segments.remove(0));
+      readIndex--;
+    }
+    if (segments.size() == 1 && segments.get(0) == writeSegment && commitOffset >= writeSegment.size
+        && readOffset == commitOffset) {
+      closeReader();
+      CloseUtil.closeQuietly(writer);
+      writer = null;
+      deleteSegment(segments.remove(0));
+      writeSegment = null;
+      readOffset = commitOffset = 0;
+    }
+  }
+
+  /**
+   * Stops writing to the current segment after a failed write. Its readers
+   * stop at the torn record, if any, and writing resumes in a new segment.
+   */
+  private void sealWriteSegment() {
+    CloseUtil.closeQuietly(writer);
+    writer = null;
+    long size = writeSegment.file.length();
+    totalSize += size - writeSegment.size;
+    writeSegment.size = size;
+    writeSegment = null;
+  }
+
+  private void deleteSegment(Segment segment) {
+    if (segment.file.delete() || !segment.file.exists()) {
+      totalSize -= segment.size;
+    }
+  }
+
+  private void rollOver() throws IOException {
+    CloseUtil.closeQuietly(writer);
+    long sequence = nextSequence++;
+    Segment segment = new Segment(new File(directory, "spill-" + sequence + ".seg"), sequence);
+    writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segment.file, true)));
+    segments.add(segment);
+    writeSegment = segment;
+  }
+
+  private DataInputStream openReader(Segment segment, long offset) throws IOException {
+    FileInputStream in = new FileInputStream(segment.file);
+    if (offset > 0 && in.skip(offset) != offset) {
+      CloseUtil.closeQuietly(in);
+      throw new IOException("Cannot seek in spill segment " + segment.file);
+    }
+    return new DataInputStream(new BufferedInputStream(in));
+  }
+
+  /**
+   * Reads one record, returning {@code null} at the end of the segment or
+   * at a torn or corrupt record.
+   */
+  private byte[] readRecord(DataInputStream in) throws IOException {
+    try {
+      int length = in.readInt();
+      int checksum = in.readInt();
+      if (length < 0 || length > totalSizeCap) {
+        return null;
+      }
+      byte[] record = new byte[length];
+      in.readFully(record);
+      CRC32 crc = new CRC32();
+      crc.update(record, 0, length);
+      return (int) crc.getValue() == checksum ? record : null;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  private void closeReader() {
+    CloseUtil.closeQuietly(reader);
+    reader = null;
+  }
+
+  private static class Segment {
+    final File file;
+    final long sequence;
+    long size;
+
+    Segment(File file, long sequence) {
+      this.file = file;
+      this.sequence = sequence;
+    }
+  }
+}
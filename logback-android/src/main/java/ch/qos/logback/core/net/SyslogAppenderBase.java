@@ -20,14 +20,27 @@ import java.io.OutputStream;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import ch.qos.logback.core.AppenderBase;
 import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
 
 /**
  * Base class for SyslogAppender.
  *
+ * <p>Messages are sent over UDP unless <code>transport</code> is set to
+ * {@link SyslogTransport#TCP}, in which case they are gathered into batches
+ * of up to <code>batchSize</code> bytes. A batch is written once it is full
+ * or at the latest <code>maxFlushDelay</code> after it was started, the delay
+ * being enforced by a task running on the context's scheduled executor.
+ * Batches are written by a thread of their own, so logging never waits for
+ * the syslog server; messages are dropped, and reported as errors, when it
+ * cannot keep up.</p>
+ *
  * @author Ceki G&uuml;lc&uuml;
  *
  * @param <E> type of log event object
@@ -38,6 +51,16 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
       + "#syslog_layout";
   final static int MAX_MESSAGE_SIZE_LIMIT = 65000;
 
+  /**
+   * The default size of the batches written in TCP mode.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 8 * 1024;
+
+  /**
+   * The default delay after which a pending batch is written in TCP mode.
+   */
+  public static final int DEFAULT_MAX_FLUSH_DELAY = 100;
+
   Layout<E> layout;
   String facilityStr;
   String syslogHost;
@@ -48,6 +71,10 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
   private boolean lazyInit = false;
   int maxMessageSize;
   Charset charset;
+  private SyslogTransport transport = SyslogTransport.UDP;
+  private FileSize batchSize = new FileSize(DEFAULT_BATCH_SIZE);
+  private Duration maxFlushDelay = new Duration(DEFAULT_MAX_FLUSH_DELAY);
+  private ScheduledFuture<?> flushFuture;
 
   public void start() {
     int errorCount = 0;
@@ -56,13 +83,19 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
       errorCount++;
     }
 
+    boolean transportValid = isTransportValid();
+    if (!transportValid) {
+      errorCount++;
+    }
+
     if (charset == null) {
       // Using defaultCharset() preserves the previous behavior when String.getBytes() was
       // called without arguments
       charset = Charset.defaultCharset();
     }
 
-    if (!lazyInit) {
+    if (!lazyInit && transportValid) {
+      // an invalid transport configuration cannot be connected;
       // this connect() does not retry (unlike the one in SocketAppenderBase)
       // so account for the error if no connection established
       if (!connect()) {
@@ -79,6 +112,26 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
     }
   }
 
+  private boolean isTransportValid() {
+    if (transport == null) {
+      addError("The Transport option is mandatory");
+      return false;
+    }
+    if (transport != SyslogTransport.TCP) {
+      return true;
+    }
+    boolean valid = true;
+    if (batchSize.getSize() <= 0 || batchSize.getSize() > Integer.MAX_VALUE) {
+      addError("Batch size must be greater than zero and less than 2 GB");
+      valid = false;
+    }
+    if (maxFlushDelay.getMilliseconds() <= 0) {
+      addError("Max flush delay must be greater than zero");
+      valid = false;
+    }
+    return valid;
+  }
+
   abstract public SyslogOutputStream createOutputStream() throws UnknownHostException, SocketException;
 
   abstract public Layout<E> buildLayout();
@@ -88,6 +141,9 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
   private boolean connect() {
     try {
       sos = createOutputStream();
+      if (sos instanceof TcpSyslogOutputStream) {
+        scheduleFlushTask((TcpSyslogOutputStream) sos);
+      }
 
       final int systemDatagramSize = sos.getSendBufferSize();
       if (maxMessageSize == 0) {
@@ -109,6 +165,20 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
     return sos != null;
   }
 
+  private void scheduleFlushTask(final TcpSyslogOutputStream tcpStream) {
+    long period = maxFlushDelay.getMilliseconds();
+    flushFuture = getContext().getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+      public void run() {
+        try {
+          tcpStream.flushBatch();
+        } catch (IOException ioe) {
+          addError("Failed to send messages to " + syslogHost, ioe);
+        }
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+    getContext().addScheduledFuture(flushFuture);
+  }
+
   @Override
   protected void append(E eventObject) {
     if (!isStarted()) {
@@ -321,6 +391,10 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
 
   @Override
   public void stop() {
+    if (flushFuture != null) {
+      flushFuture.cancel(false);
+      flushFuture = null;
+    }
     if (sos != null) {
       sos.close();
     }
@@ -362,4 +436,46 @@ public abstract class SyslogAppenderBase<E> extends AppenderBase<E> {
   public void setCharset(Charset charset) {
     this.charset = charset;
   }
+
+  public SyslogTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * The transport over which messages are sent, either UDP (the default) or
+   * TCP.
+   *
+   * @param transport the desired transport
+   */
+  public void setTransport(SyslogTransport transport) {
+    this.transport = transport;
+  }
+
+  public FileSize getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * The number of bytes gathered before they are written in TCP mode. The
+   * default is 8 KB.
+   *
+   * @param batchSize the desired batch size
+   */
+  public void setBatchSize(FileSize batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public Duration getMaxFlushDelay() {
+    return maxFlushDelay;
+  }
+
+  /**
+   * The longest time a message may wait in a pending batch in TCP mode. The
+   * default is 100 milliseconds.
+   *
+   * @param maxFlushDelay the desired delay
+   */
+  public void setMaxFlushDelay(Duration maxFlushDelay) {
+    this.maxFlushDelay = maxFlushDelay;
+  }
 }
@@ -15,84 +15,134 @@
  */
 package ch.qos.logback.core.net;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
 /**
- * SyslogOutputStream is a wrapper around the {@link DatagramSocket} class so that it
- * behaves like an {@link OutputStream}.
+ * SyslogOutputStream is a wrapper around a {@link DatagramChannel} so that it
+ * behaves like an {@link OutputStream}. Each {@link #flush()} sends the bytes
+ * written since the previous one as a single syslog message.
+ *
+ * <p>Messages are assembled in a direct buffer that is reused from one
+ * message to the next, so sending does not allocate.</p>
  */
 public class SyslogOutputStream extends OutputStream {
 
   /**
-   * The maximum length after which we discard the existing string buffer and
-   * start anew.
+   * The initial capacity of the message buffer. The buffer grows to fit the
+   * largest message sent so far and is kept at that size.
    */
-  private static final int MAX_LEN = 1024;
+  private static final int INITIAL_CAPACITY = 1024;
 
-  private InetAddress address;
-  private DatagramSocket ds;
-  private ByteArrayOutputStream baos = new ByteArrayOutputStream();
-  final private int port;
+  private final InetSocketAddress address;
+  private DatagramChannel channel;
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
 
   public SyslogOutputStream(String syslogHost, int port) throws UnknownHostException,
       SocketException {
-    this.address = InetAddress.getByName(syslogHost);
-    this.port = port;
-    this.ds = new DatagramSocket();
+    this(new InetSocketAddress(InetAddress.getByName(syslogHost), port));
+    try {
+      this.channel = DatagramChannel.open();
+    } catch (IOException e) {
+      SocketException se = new SocketException(e.getMessage());
+      se.initCause(e);
+      throw se;
+    }
+  }
+
+  /**
+   * Creates a stream that sends its messages to the given address by means of
+   * {@link #send(ByteBuffer)}, which subclasses must then override.
+   *
+   * @param address the resolved address of the syslog server
+   */
+  protected SyslogOutputStream(InetSocketAddress address) {
+    this.address = address;
   }
 
   public void write(byte[] byteArray, int offset, int len) throws IOException {
-    baos.write(byteArray, offset, len);
+    ensureRemaining(len);
+    buffer.put(byteArray, offset, len);
   }
 
-  public void flush() throws IOException {
-    byte[] bytes = baos.toByteArray();
-    DatagramPacket packet = new DatagramPacket(bytes, bytes.length, address,
-        port);
+  @Override
+  public void write(int b) throws IOException {
+    ensureRemaining(1);
+    buffer.put((byte) b);
+  }
 
-    // clean up for next round
-    if (baos.size() > MAX_LEN) {
-      baos = new ByteArrayOutputStream();
-    } else {
-      baos.reset();
+  private void ensureRemaining(int len) {
+    if (buffer.remaining() >= len) {
+      return;
+    }
+    int capacity = buffer.capacity();
+    while (capacity - buffer.position() < len) {
+      capacity *= 2;
     }
-    
-    // after a failure, it can happen that bytes.length is zero
-    // in that case, there is no point in sending out an empty message/
-    if(bytes.length == 0) {
+    ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+    buffer.flip();
+    grown.put(buffer);
+    buffer = grown;
+  }
+
+  public void flush() throws IOException {
+    // after a failure, it can happen that nothing was written
+    // in that case, there is no point in sending out an empty message
+    if (buffer.position() == 0) {
       return;
     }
-    if (this.ds != null) {
-      ds.send(packet);
+    buffer.flip();
+    try {
+      send(buffer);
+    } finally {
+      // clean up for next round
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Sends one complete syslog message.
+   *
+   * @param message the message, between its position and limit
+   * @throws IOException if the message could not be sent
+   */
+  protected void send(ByteBuffer message) throws IOException {
+    if (channel != null) {
+      channel.send(message, address);
     }
-  
   }
 
   public void close() {
-    if (ds != null) {
-      ds.close();
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // nothing more can be done about it
+      }
     }
-    address = null;
-    ds = null;
+    channel = null;
   }
 
   public int getPort() {
-    return port;
+    return address.getPort();
   }
 
-  @Override
-  public void write(int b) throws IOException {
-    baos.write(b);
+  protected InetSocketAddress getAddress() {
+    return address;
   }
 
+  /**
+   * Returns the size of the largest message this stream can send.
+   */
   int getSendBufferSize() throws SocketException {
+    DatagramSocket ds = channel.socket();
     return ds.getSendBufferSize();
   }
 }
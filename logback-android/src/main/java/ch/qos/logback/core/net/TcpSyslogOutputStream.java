@@ -0,0 +1,342 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link SyslogOutputStream} that sends its messages over a TCP connection,
+ * framed by octet counting as described in RFC 6587: each message is preceded
+ * by its length in bytes and a space.
+ *
+ * <p>{@link #send(ByteBuffer)} only copies the framed message into a batch of
+ * <code>batchSize</code> bytes. Batches are written by a writer thread of the
+ * stream once they are full, or when {@link #flushBatch()} is called, so that
+ * logging threads never wait for the connection. Messages larger than a batch
+ * are written on their own. While the writer falls behind, messages are
+ * buffered up to a bound and dropped beyond it.</p>
+ *
+ * <p>The writer thread opens the connection when it first has messages to
+ * write. If the connection cannot be opened, or fails later on, the messages
+ * being written are discarded; messages are then dropped for
+ * {@link #RECONNECTION_DELAY_MILLIS} before connecting is tried again.
+ * Failures and dropped messages are reported by the next call to
+ * {@link #flushBatch()}.</p>
+ */
+public class TcpSyslogOutputStream extends SyslogOutputStream {
+
+  /**
+   * The time to wait for the connection to the syslog server to be established.
+   */
+  public static final int CONNECTION_TIMEOUT_MILLIS = 5000;
+
+  /**
+   * The time during which messages are dropped after a connection failure.
+   */
+  public static final long RECONNECTION_DELAY_MILLIS = 1000;
+
+  /**
+   * The number of batches that may wait for the writer thread.
+   */
+  private static final int MAX_PENDING_BATCHES = 4;
+
+  /**
+   * The least number of bytes that may wait for the writer thread, so that
+   * messages much larger than a batch can be sent.
+   */
+  private static final int MIN_PENDING_BYTES = 256 * 1024;
+
+  private static final long WRITER_JOIN_MILLIS = 1000;
+
+  private final int batchSize;
+  private final long maxPendingBytes;
+  private final ByteBuffer header = ByteBuffer.allocate(12);
+
+  // guarded by this
+  private ByteBuffer batch;
+  private final ArrayDeque<ByteBuffer> ready = new ArrayDeque<ByteBuffer>();
+  private final ArrayDeque<ByteBuffer> spareBatches = new ArrayDeque<ByteBuffer>();
+  private long pendingBytes;
+  private boolean flushRequested;
+  private boolean closed;
+  private int droppedMessages;
+  private IOException failure;
+  private Writer writer;
+
+  // only used by the writer thread, and by close() once it has exited
+  private SocketChannel channel;
+  private long nextConnectionAttempt;
+
+  public TcpSyslogOutputStream(String syslogHost, int port, int batchSize)
+      throws UnknownHostException {
+    super(new InetSocketAddress(InetAddress.getByName(syslogHost), port));
+    this.batchSize = batchSize;
+    this.maxPendingBytes = Math.max((long) MAX_PENDING_BATCHES * batchSize, MIN_PENDING_BYTES);
+    this.batch = ByteBuffer.allocateDirect(batchSize);
+  }
+
+  @Override
+  protected synchronized void send(ByteBuffer message) {
+    header.clear();
+    putLength(message.remaining());
+    header.flip();
+    int frameLength = header.remaining() + message.remaining();
+    if (closed || pendingBytes + frameLength > maxPendingBytes) {
+      droppedMessages++;
+      return;
+    }
+    pendingBytes += frameLength;
+    if (frameLength > batchSize) {
+      // too large to be batched
+      sealBatch();
+      ByteBuffer frame = ByteBuffer.allocate(frameLength);
+      frame.put(header).put(message).flip();
+      ready.add(frame);
+      wakeWriter();
+      return;
+    }
+    if (frameLength > batch.remaining()) {
+      sealBatch();
+    }
+    batch.put(header).put(message);
+    if (!batch.hasRemaining()) {
+      sealBatch();
+    }
+    if (!ready.isEmpty()) {
+      wakeWriter();
+    }
+  }
+
+  private void putLength(int length) {
+    int divisor = 1;
+    while (length / divisor >= 10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      header.put((byte) ('0' + length / divisor % 10));
+    }
+    header.put((byte) ' ');
+  }
+
+  /**
+   * Moves the current batch, if not empty, to the batches ready to be
+   * written. Must be called while holding the lock of this stream.
+   */
+  private void sealBatch() {
+    if (batch.position() == 0) {
+      return;
+    }
+    batch.flip();
+    ready.add(batch);
+    ByteBuffer spare = spareBatches.poll();
+    batch = spare != null ? spare : ByteBuffer.allocateDirect(batchSize);
+  }
+
+  /**
+   * Starts the writer thread if needed and lets it know there is work to
+   * do. Must be called while holding the lock of this stream.
+   */
+  private void wakeWriter() {
+    if (writer == null) {
+      writer = new Writer();
+      writer.setDaemon(true);
+      writer.setName("TcpSyslogOutputStream-Writer-" + getAddress());
+      writer.start();
+    }
+    notifyAll();
+  }
+
+  /**
+   * Has the messages gathered so far written to the syslog server. Does not
+   * wait for them to be written.
+   *
+   * @throws IOException if messages were dropped, or could not be written,
+   * since the previous call
+   */
+  public synchronized void flushBatch() throws IOException {
+    if (batch.position() > 0) {
+      flushRequested = true;
+      wakeWriter();
+    }
+    IOException e = failure;
+    int dropped = droppedMessages;
+    failure = null;
+    droppedMessages = 0;
+    if (e != null) {
+      throw e;
+    }
+    if (dropped > 0) {
+      throw new IOException("Dropped " + dropped + " message(s), the syslog server cannot keep up");
+    }
+  }
+
+  /**
+   * Waits for batches to write and takes them over.
+   *
+   * @param batches receives the batches to write
+   * @return false once the stream is closed and all batches are written
+   */
+  private synchronized boolean takeBatches(List<ByteBuffer> batches) throws InterruptedException {
+    while (ready.isEmpty() && !flushRequested && !closed) {
+      wait();
+    }
+    if (flushRequested || closed) {
+      flushRequested = false;
+      sealBatch();
+    }
+    batches.addAll(ready);
+    ready.clear();
+    return !batches.isEmpty() || !closed;
+  }
+
+  /**
+   * Gives back written or discarded batches.
+   */
+  private synchronized void releaseBatches(List<ByteBuffer> batches) {
+    for (ByteBuffer b : batches) {
+      pendingBytes -= b.limit();
+      if (b.isDirect() && b.capacity() == batchSize && spareBatches.size() < MAX_PENDING_BATCHES) {
+        b.clear();
+        spareBatches.add(b);
+      }
+    }
+    batches.clear();
+  }
+
+  private synchronized void recordFailure(IOException e) {
+    if (failure == null) {
+      failure = e;
+    }
+  }
+
+  /**
+   * Writes batches, connecting first if needed. Runs on the writer thread.
+   */
+  private void write(List<ByteBuffer> batches) {
+    SocketChannel sc = channel;
+    try {
+      if (sc == null) {
+        if (System.currentTimeMillis() < nextConnectionAttempt) {
+          return;
+        }
+        sc = connect();
+      }
+      for (ByteBuffer b : batches) {
+        while (b.hasRemaining()) {
+          sc.write(b);
+        }
+      }
+    } catch (IOException e) {
+      disconnect();
+      recordFailure(e);
+    }
+  }
+
+  private SocketChannel connect() throws IOException {
+    SocketChannel sc = SocketChannel.open();
+    try {
+      sc.socket().setTcpNoDelay(true);
+      sc.socket().connect(getAddress(), CONNECTION_TIMEOUT_MILLIS);
+    } catch (IOException e) {
+      closeQuietly(sc);
+      throw e;
+    }
+    channel = sc;
+    return sc;
+  }
+
+  private void disconnect() {
+    closeQuietly(channel);
+    channel = null;
+    nextConnectionAttempt = System.currentTimeMillis() + RECONNECTION_DELAY_MILLIS;
+  }
+
+  private static void closeQuietly(SocketChannel sc) {
+    if (sc == null) {
+      return;
+    }
+    try {
+      sc.close();
+    } catch (IOException e) {
+      // nothing more can be done about it
+    }
+  }
+
+  /**
+   * Has the pending messages written, if possible, and closes the
+   * connection. Waits a bounded time for the writer thread.
+   */
+  @Override
+  public void close() {
+    Writer w;
+    synchronized (this) {
+      closed = true;
+      if (batch.position() > 0 || !ready.isEmpty()) {
+        wakeWriter();
+      }
+      w = writer;
+      notifyAll();
+    }
+    if (w != null) {
+      try {
+        w.join(WRITER_JOIN_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (w.isAlive()) {
+        // unblocks the writer thread if it is stuck in a write
+        closeQuietly(channel);
+        return;
+      }
+    }
+    closeQuietly(channel);
+    channel = null;
+  }
+
+  /**
+   * Stream transports do not limit the size of a message.
+   */
+  @Override
+  int getSendBufferSize() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Writes the batches handed over by the logging threads until the stream
+   * is closed.
+   */
+  class Writer extends Thread {
+    public void run() {
+      List<ByteBuffer> batches = new ArrayList<ByteBuffer>();
+      try {
+        while (takeBatches(batches)) {
+          write(batches);
+          releaseBatches(batches);
+        }
+      } catch (InterruptedException e) {
+        // the stream is being shut down
+      }
+    }
+  }
+}
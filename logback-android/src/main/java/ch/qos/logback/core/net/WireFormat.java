@@ -0,0 +1,31 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+/**
+ * Formats in which socket appenders send events to their receivers.
+ */
+public enum WireFormat {
+  /**
+   * Java serialization of the events' value objects.
+   */
+  SERIALIZED,
+  /**
+   * A compact length-prefixed binary format, when the module provides one.
+   * Receivers tell it apart from serialization by the stream header.
+   */
+  BINARY
+}
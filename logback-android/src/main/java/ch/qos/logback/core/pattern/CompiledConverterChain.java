@@ -0,0 +1,181 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A converter chain flattened into an array of append operations. Adjacent
+ * literals are merged, and converters which can append their value directly
+ * (see {@link FormattingConverter#writeUnformatted(StringBuilder, Object)})
+ * are padded and truncated in place, without intermediate strings.
+ *
+ * @param <E> the event type
+ */
+final class CompiledConverterChain<E> {
+
+  private final Op<E>[] ops;
+
+  private CompiledConverterChain(Op<E>[] ops) {
+    this.ops = ops;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E> CompiledConverterChain<E> compile(Converter<E> head) {
+    List<Op<E>> opList = new ArrayList<Op<E>>();
+    StringBuilder literal = new StringBuilder();
+    for (Converter<E> c = head; c != null; c = c.getNext()) {
+      if (c instanceof LiteralConverter) {
+        literal.append(((LiteralConverter<E>) c).literal);
+        continue;
+      }
+      if (literal.length() > 0) {
+        opList.add(new LiteralOp<E>(literal.toString()));
+        literal.setLength(0);
+      }
+      opList.add(compileOp(c));
+    }
+    if (literal.length() > 0) {
+      opList.add(new LiteralOp<E>(literal.toString()));
+    }
+    return new CompiledConverterChain<E>(opList.toArray(CompiledConverterChain.<E>newOpArray(opList.size())));
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <E> Op<E>[] newOpArray(int size) {
+    return new Op[size];
+  }
+
+  private static <E> Op<E> compileOp(Converter<E> c) {
+    if (c instanceof FormattingConverter && !(c instanceof CompositeConverter)) {
+      FormattingConverter<E> fc = (FormattingConverter<E>) c;
+      FormatInfo fi = fc.getFormattingInfo();
+      if (!fc.isUnformattedWriteSupported()) {
+        // convert() is overridden and must not be bypassed
+        return new ConverterOp<E>(c);
+      }
+      if (fi == null) {
+        return new UnformattedOp<E>(fc);
+      }
+      if (overridesWriteUnformatted(fc.getClass())) {
+        return new InPlaceFormattedOp<E>(fc, fi);
+      }
+    }
+    return new ConverterOp<E>(c);
+  }
+
+  static boolean overridesWriteUnformatted(Class<?> clazz) {
+    for (Class<?> c = clazz; c != FormattingConverter.class && c != null; c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod("writeUnformatted", StringBuilder.class, Object.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // keep looking
+      }
+    }
+    return false;
+  }
+
+  void write(StringBuilder buf, E event) {
+    for (Op<E> op : ops) {
+      op.write(buf, event);
+    }
+  }
+
+  int size() {
+    return ops.length;
+  }
+
+  private interface Op<E> {
+    void write(StringBuilder buf, E event);
+  }
+
+  private static final class LiteralOp<E> implements Op<E> {
+    private final String literal;
+
+    LiteralOp(String literal) {
+      this.literal = literal;
+    }
+
+    public void write(StringBuilder buf, E event) {
+      buf.append(literal);
+    }
+  }
+
+  private static final class ConverterOp<E> implements Op<E> {
+    private final Converter<E> converter;
+
+    ConverterOp(Converter<E> converter) {
+      this.converter = converter;
+    }
+
+    public void write(StringBuilder buf, E event) {
+      converter.write(buf, event);
+    }
+  }
+
+  private static final class UnformattedOp<E> implements Op<E> {
+    private final FormattingConverter<E> converter;
+
+    UnformattedOp(FormattingConverter<E> converter) {
+      this.converter = converter;
+    }
+
+    public void write(StringBuilder buf, E event) {
+      converter.writeUnformatted(buf, event);
+    }
+  }
+
+  /**
+   * Lets the converter append its value, then pads or truncates what was
+   * appended.
+   */
+  private static final class InPlaceFormattedOp<E> implements Op<E> {
+    private final FormattingConverter<E> converter;
+    private final int min;
+    private final int max;
+    private final boolean leftPad;
+    private final boolean leftTruncate;
+
+    InPlaceFormattedOp(FormattingConverter<E> converter, FormatInfo fi) {
+      this.converter = converter;
+      this.min = fi.getMin();
+      this.max = fi.getMax();
+      this.leftPad = fi.isLeftPad();
+      this.leftTruncate = fi.isLeftTruncate();
+    }
+
+    public void write(StringBuilder buf, E event) {
+      int start = buf.length();
+      converter.writeUnformatted(buf, event);
+      int len = buf.length() - start;
+      if (len > max) {
+        if (leftTruncate) {
+          buf.delete(start, start + len - max);
+        } else {
+          buf.setLength(start + max);
+        }
+      } else if (len < min) {
+        if (leftPad) {
+          SpacePadder.insertSpaces(buf, start, min - len);
+        } else {
+          SpacePadder.spacePad(buf, min - len);
+        }
+      }
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package ch.qos.logback.core.pattern;
 
+import java.lang.reflect.Method;
+
 abstract public class FormattingConverter<E> extends Converter<E> {
 
   static final int INITIAL_BUF_SIZE = 256;
@@ -22,6 +24,7 @@ abstract public class FormattingConverter<E> extends Converter<E> {
 
   
   FormatInfo formattingInfo;
+  private volatile Boolean unformattedWriteSupported;
 
   final public FormatInfo getFormattingInfo() {
     return formattingInfo;
@@ -36,13 +39,17 @@ abstract public class FormattingConverter<E> extends Converter<E> {
 
   @Override
   final public void write(StringBuilder buf, E event) {
-    String s = convert(event);
-    
     if(formattingInfo == null) {
-      buf.append(s);
+      if (isUnformattedWriteSupported()) {
+        writeUnformatted(buf, event);
+      } else {
+        buf.append(convert(event));
+      }
       return;
     }
-    
+
+    String s = convert(event);
+
     int min = formattingInfo.getMin();
     int max = formattingInfo.getMax();
 
@@ -57,9 +64,9 @@ abstract public class FormattingConverter<E> extends Converter<E> {
 
     if (len > max) {
       if(formattingInfo.isLeftTruncate()) {
-        buf.append(s.substring(len - max));
+        buf.append(s, len - max, len);
       } else {
-        buf.append(s.substring(0, max));
+        buf.append(s, 0, max);
       }
     } else if (len < min) {
       if (formattingInfo.isLeftPad()) {
@@ -71,4 +78,63 @@ abstract public class FormattingConverter<E> extends Converter<E> {
       buf.append(s);
     }
   }
+
+  /**
+   * Appends the conversion of the event, when no padding or truncation
+   * applies. Derived classes able to append their value without building an
+   * intermediate string can override this method. Compiled patterns also
+   * call overridden versions when padding or truncation applies, and then
+   * adjust the appended text in place.
+   * <p>
+   * This method is not called for derived classes overriding
+   * {@link #convert(Object)} below the class overriding this method, so
+   * that their conversion is not bypassed.
+   *
+   * @param buf the buffer to append to
+   * @param event the event to convert
+   */
+  protected void writeUnformatted(StringBuilder buf, E event) {
+    buf.append(convert(event));
+  }
+
+  /**
+   * Tells whether {@link #writeUnformatted(StringBuilder, Object)} appends
+   * what {@link #convert(Object)} returns, that is, whether
+   * <code>convert</code> is not overridden below the class overriding
+   * <code>writeUnformatted</code>.
+   */
+  final boolean isUnformattedWriteSupported() {
+    Boolean supported = unformattedWriteSupported;
+    if (supported == null) {
+      supported = !overridesConvert(getClass());
+      unformattedWriteSupported = supported;
+    }
+    return supported;
+  }
+
+  private static boolean overridesConvert(Class<?> type) {
+    try {
+      for (Class<?> c = type; c != null && c != FormattingConverter.class; c = c.getSuperclass()) {
+        if (declaresMethod(c, "writeUnformatted", 2)) {
+          return false;
+        }
+        if (declaresMethod(c, "convert", 1)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (SecurityException e) {
+      return true;
+    }
+  }
+
+  private static boolean declaresMethod(Class<?> c, String name, int parameterCount) {
+    for (Method method : c.getDeclaredMethods()) {
+      if (!method.isBridge() && method.getName().equals(name)
+          && method.getParameterTypes().length == parameterCount) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
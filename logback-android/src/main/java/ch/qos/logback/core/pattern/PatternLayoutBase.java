@@ -33,7 +33,9 @@ abstract public class PatternLayoutBase<E> extends LayoutBase<E> {
   static final int INTIAL_STRING_BUILDER_SIZE = 256;
 
   Converter<E> head;
+  CompiledConverterChain<E> compiledChain;
   String pattern;
+  boolean precompiled = false;
   protected PostCompileProcessor<E> postCompileProcessor;
 
   Map<String, String> instanceConverterMap = new HashMap<String, String>();
@@ -93,6 +95,7 @@ abstract public class PatternLayoutBase<E> extends LayoutBase<E> {
       }
       ConverterUtil.setContextForConverters(getContext(), head);
       ConverterUtil.startConverters(this.head);
+      this.compiledChain = precompiled ? CompiledConverterChain.compile(this.head) : null;
       super.start();
     } catch (ScanException sce) {
       StatusManager sm = getContext().getStatusManager();
@@ -118,12 +121,42 @@ abstract public class PatternLayoutBase<E> extends LayoutBase<E> {
 
   protected String writeLoopOnConverters(E event) {
     StringBuilder strBuilder = new StringBuilder(INTIAL_STRING_BUILDER_SIZE);
+    writeLoopOnConverters(event, strBuilder);
+    return strBuilder.toString();
+  }
+
+  /**
+   * Appends the output of the converter chain to the given builder.
+   *
+   * @param event the event to format
+   * @param strBuilder the builder to append to
+   */
+  protected void writeLoopOnConverters(E event, StringBuilder strBuilder) {
+    if (compiledChain != null) {
+      compiledChain.write(strBuilder, event);
+      return;
+    }
     Converter<E> c = head;
     while (c != null) {
       c.write(strBuilder, event);
       c = c.getNext();
     }
-    return strBuilder.toString();
+  }
+
+  public boolean isPrecompiled() {
+    return precompiled;
+  }
+
+  /**
+   * When set, the converter chain is flattened at start into an array of
+   * append operations. Adjacent literals are merged, and converters able to
+   * append their value directly are padded and truncated in place, saving
+   * the intermediate strings.
+   *
+   * @param precompiled whether to compile the converter chain
+   */
+  public void setPrecompiled(boolean precompiled) {
+    this.precompiled = precompiled;
   }
 
   public String getPattern() {
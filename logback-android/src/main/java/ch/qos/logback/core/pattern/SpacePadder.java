@@ -48,6 +48,25 @@ public class SpacePadder {
     }
   }
 
+  /**
+   * Inserts spaces at the given index, shifting the characters after it.
+   * @param sbuf buffer to modify
+   * @param index where to insert the spaces
+   * @param length number of spaces to insert
+   */
+  final static public void insertSpaces(StringBuilder sbuf, int index, int length) {
+    while (length >= 32) {
+      sbuf.insert(index, SPACES[5]);
+      length -= 32;
+    }
+
+    for (int i = 4; i >= 0; i--) {
+      if ((length & (1 << i)) != 0) {
+        sbuf.insert(index, SPACES[i]);
+      }
+    }
+  }
+
   /**
    * Fast space padding method.
    * @param sbuf buffer to modify
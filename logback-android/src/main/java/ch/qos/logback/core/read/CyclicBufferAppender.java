@@ -21,6 +21,7 @@ import ch.qos.logback.core.helpers.CyclicBuffer;
 /**
  * CyclicBufferAppender stores events in a cyclic buffer of user-specified size. As the
  * name suggests, if the size of the buffer is N, only the latest N events are available.
+ * Reusable events are stored as copies, see {@link #retain(Object)}.
  *
  *
  * @author Ceki Gulcu
@@ -45,7 +46,7 @@ public class CyclicBufferAppender<E> extends AppenderBase<E> {
     if (!isStarted()) {
       return;
     }
-    cb.add(eventObject);
+    cb.add(retain(eventObject));
   }
 
   public int getLength() {
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.recovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An output stream copying bytes into a memory-mapped region of a file. When
+ * the region is full, the next one is mapped right after the last byte
+ * written, growing the file by at least <code>regionSize</code> bytes. The
+ * file is truncated to the bytes actually written when the stream is closed.
+ * <p>
+ * While the stream is open, the length of the file includes the unused part
+ * of the current region; {@link #position()} gives the length of the content.
+ * If the stream is not closed, e.g. because the process crashed, the unused
+ * part stays in the file as NUL bytes. It is cut off the next time the file is
+ * opened in append mode, along with any NUL bytes the content itself ended
+ * with.
+ * <p>
+ * Flushing is a no-op since the written bytes are already in the page cache.
+ */
+class MappedFileOutputStream extends OutputStream {
+
+  private static final int SCAN_BUFFER_SIZE = 8192;
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+  private static final Method FREE_DIRECT_BUFFER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      // Java 9 and later
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+    } catch (Exception e) {
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+
+    Method freeDirectBuffer = null;
+    try {
+      // Android
+      freeDirectBuffer = Class.forName("java.nio.NioUtils").getMethod("freeDirectBuffer", ByteBuffer.class);
+    } catch (Exception e) {
+      freeDirectBuffer = null;
+    }
+    FREE_DIRECT_BUFFER = freeDirectBuffer;
+  }
+
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private final int regionSize;
+  private MappedByteBuffer region;
+  private long regionStart;
+  private long closedSize;
+
+  MappedFileOutputStream(File file, boolean append, int regionSize) throws IOException {
+    if (regionSize <= 0) {
+      throw new IllegalArgumentException("Mapped region size must be positive, was " + regionSize);
+    }
+    this.raf = new RandomAccessFile(file, "rw");
+    this.channel = raf.getChannel();
+    this.regionSize = regionSize;
+    try {
+      long start = 0;
+      if (append) {
+        start = findEndOfContent(channel, regionSize);
+      }
+      channel.truncate(start);
+      mapRegion(start, 0);
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the offset right after the last non-NUL byte among the last
+   * <code>maxScan</code> bytes of the file, or the offset at which the scan
+   * stopped if they are all NUL bytes.
+   */
+  static long findEndOfContent(FileChannel channel, int maxScan) throws IOException {
+    long end = channel.size();
+    long limit = Math.max(0, end - maxScan);
+    ByteBuffer buf = ByteBuffer.allocate(Math.min(SCAN_BUFFER_SIZE, maxScan));
+    while (end > limit) {
+      long start = Math.max(limit, end - buf.capacity());
+      buf.clear();
+      buf.limit((int) (end - start));
+      while (buf.hasRemaining() && channel.read(buf, start + buf.position()) >= 0) {
+        // keep reading until the chunk is complete
+      }
+      for (int i = buf.position() - 1; i >= 0; i--) {
+        if (buf.get(i) != 0) {
+          return start + i + 1;
+        }
+      }
+      end = start;
+    }
+    return end;
+  }
+
+  FileChannel getChannel() {
+    return channel;
+  }
+
+  /**
+   * @return the offset in the file of the next byte to be written, i.e. the
+   * length of the content written so far
+   */
+  long position() {
+    MappedByteBuffer current = region;
+    if (current == null) {
+      return closedSize;
+    }
+    return regionStart + current.position();
+  }
+
+  private void mapRegion(long start, int minSize) throws IOException {
+    MappedByteBuffer previous = region;
+    region = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.max(regionSize, minSize));
+    regionStart = start;
+    if (previous != null) {
+      unmap(previous);
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (region == null) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (!region.hasRemaining()) {
+      mapRegion(position(), 1);
+    }
+    region.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    if (len > region.remaining()) {
+      mapRegion(position(), len);
+    }
+    region.put(b, off, len);
+  }
+
+  /**
+   * Writes the mapped region's dirty pages to the storage device.
+   */
+  void force() {
+    if (region != null) {
+      region.force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (region == null) {
+      return;
+    }
+    try {
+      closedSize = position();
+      MappedByteBuffer current = region;
+      region = null;
+      // unmap before truncating, which fails on some platforms while the
+      // file is mapped
+      unmap(current);
+      channel.truncate(closedSize);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Releases the mapping of the given buffer right away, rather than when the
+   * buffer is garbage collected, on the platforms which allow it. The buffer
+   * must not be accessed afterwards.
+   */
+  static void unmap(MappedByteBuffer buffer) {
+    try {
+      if (INVOKE_CLEANER != null) {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      } else if (FREE_DIRECT_BUFFER != null) {
+        FREE_DIRECT_BUFFER.invoke(null, buffer);
+      } else {
+        // Java 8
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      }
+    } catch (Exception e) {
+      // not supported here: the mapping is released once the buffer is
+      // garbage collected
+    }
+  }
+}
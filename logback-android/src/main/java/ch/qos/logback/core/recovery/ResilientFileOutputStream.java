@@ -18,30 +18,155 @@ package ch.qos.logback.core.recovery;
 import java.io.*;
 import java.nio.channels.FileChannel;
 
+import ch.qos.logback.core.util.FileBackend;
+import ch.qos.logback.core.util.ForcePolicy;
+
 public class ResilientFileOutputStream extends ResilientOutputStreamBase {
 
   private File file;
-  private FileOutputStream fos;
+  private FileChannel channel;
+  private final FileBackend backend;
+  private final int bufferSize;
+  private ForcePolicy forcePolicy = ForcePolicy.NEVER;
 
+  /**
+   * Set when bytes were written since the file was last forced.
+   */
+  private boolean dirty = false;
 
   public ResilientFileOutputStream(File file, boolean append, long bufferSize) throws FileNotFoundException {
     this.file = file;
-    fos = new FileOutputStream(file, append);
+    this.backend = FileBackend.STREAM;
+    this.bufferSize = (int) bufferSize;
+    FileOutputStream fos = new FileOutputStream(file, append);
+    this.channel = fos.getChannel();
     this.os = new BufferedOutputStream(fos, (int) bufferSize);
     this.presumedClean = true;
   }
 
+  /**
+   * @param file the file to write to
+   * @param append whether to append to the file or truncate it
+   * @param bufferSize the size of the buffer, or of the mapped regions for
+   *                   {@link FileBackend#MAPPED}
+   * @param backend how to write to the file
+   * @throws IOException if the file could not be opened
+   */
+  public ResilientFileOutputStream(File file, boolean append, long bufferSize, FileBackend backend) throws IOException {
+    this.file = file;
+    this.backend = backend;
+    this.bufferSize = (int) bufferSize;
+    this.os = openStream(append);
+    this.presumedClean = true;
+  }
+
+  private OutputStream openStream(boolean append) throws IOException {
+    switch (backend) {
+      case CHANNEL: {
+        FileChannelOutputStream fcos = new FileChannelOutputStream(new FileOutputStream(file, append).getChannel(), bufferSize);
+        channel = fcos.getChannel();
+        return fcos;
+      }
+      case MAPPED: {
+        MappedFileOutputStream mfos = new MappedFileOutputStream(file, append, bufferSize);
+        channel = mfos.getChannel();
+        return mfos;
+      }
+      default: {
+        FileOutputStream fos = new FileOutputStream(file, append);
+        channel = fos.getChannel();
+        return new BufferedOutputStream(fos, bufferSize);
+      }
+    }
+  }
+
   public FileChannel getChannel() {
     if (os == null) {
       return null;
     }
-    return fos.getChannel();
+    return channel;
   }
 
   public File getFile() {
     return file;
   }
 
+  /**
+   * Returns the length of the content written to the file. Unlike
+   * {@link File#length()}, this excludes the unused part of the region mapped
+   * by the {@link FileBackend#MAPPED} backend.
+   *
+   * @return the length of the file's content
+   */
+  public long getContentLength() {
+    OutputStream stream = os;
+    if (stream instanceof MappedFileOutputStream) {
+      return ((MappedFileOutputStream) stream).position();
+    }
+    return file.length();
+  }
+
+  public FileBackend getBackend() {
+    return backend;
+  }
+
+  public ForcePolicy getForcePolicy() {
+    return forcePolicy;
+  }
+
+  public void setForcePolicy(ForcePolicy forcePolicy) {
+    this.forcePolicy = forcePolicy;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    super.write(b, off, len);
+    dirty = true;
+  }
+
+  @Override
+  public void write(int b) {
+    super.write(b);
+    dirty = true;
+  }
+
+  @Override
+  public void flush() {
+    super.flush();
+    if (forcePolicy == ForcePolicy.FLUSH) {
+      force();
+    }
+  }
+
+  /**
+   * Flushes the stream and forces the file's content to the storage device,
+   * if anything was written since the last time.
+   */
+  public void force() {
+    if (!dirty || os == null || !presumedClean) {
+      return;
+    }
+    try {
+      os.flush();
+      if (os instanceof MappedFileOutputStream) {
+        ((MappedFileOutputStream) os).force();
+      } else {
+        channel.force(false);
+      }
+      dirty = false;
+    } catch (IOException e) {
+      postIOFailure(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (forcePolicy != ForcePolicy.NEVER) {
+      force();
+    }
+    super.close();
+  }
+
   @Override
   String getDescription() {
     return "file ["+file+"]";
@@ -50,8 +175,12 @@ public class ResilientFileOutputStream extends ResilientOutputStreamBase {
   @Override
   OutputStream openNewOutputStream() throws IOException {
     // see LOGBACK-765
-    fos = new FileOutputStream(file, true);
-    return new BufferedOutputStream(fos);
+    if (backend == FileBackend.STREAM) {
+      FileOutputStream fos = new FileOutputStream(file, true);
+      channel = fos.getChannel();
+      return new BufferedOutputStream(fos);
+    }
+    return openStream(true);
   }
   
   @Override
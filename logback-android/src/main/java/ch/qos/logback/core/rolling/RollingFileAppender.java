@@ -17,12 +17,15 @@ package ch.qos.logback.core.rolling;
 
 import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.recovery.ResilientFileOutputStream;
 import ch.qos.logback.core.rolling.helper.CompressionMode;
 import ch.qos.logback.core.rolling.helper.FileNamePattern;
 import ch.qos.logback.core.util.ContextUtil;
+import ch.qos.logback.core.util.FileBackend;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 import static ch.qos.logback.core.CoreConstants.CODES_URL;
@@ -98,7 +101,7 @@ public class RollingFileAppender<E> extends FileAppender<E> {
       }
     }
 
-    currentlyActiveFile = new File(getFile());
+    currentlyActiveFile = new ActiveFile(getFile());
     addInfo("Active log file name: " + getFile());
     super.start();
   }
@@ -198,7 +201,7 @@ public class RollingFileAppender<E> extends FileAppender<E> {
     String filename = rollingPolicy.getActiveFileName();
     try {
       // update the currentlyActiveFile LOGBACK-64
-      currentlyActiveFile = new File(filename);
+      currentlyActiveFile = new ActiveFile(filename);
 
       // This will also close the file. This is OK since multiple close operations are safe.
       this.openFile(filename);
@@ -266,4 +269,28 @@ public class RollingFileAppender<E> extends FileAppender<E> {
       rollingPolicy = (RollingPolicy) policy;
     }
   }
+
+  /**
+   * The active log file. With the {@link FileBackend#MAPPED} backend, the file
+   * on disk also holds the unused part of the current mapped region, so the
+   * length reported to the triggering policy is taken from the output stream.
+   */
+  private class ActiveFile extends File {
+
+    private static final long serialVersionUID = 1L;
+
+    ActiveFile(String pathname) {
+      super(pathname);
+    }
+
+    @Override
+    public long length() {
+      OutputStream os = getOutputStream();
+      if (os instanceof ResilientFileOutputStream
+          && ((ResilientFileOutputStream) os).getBackend() == FileBackend.MAPPED) {
+        return ((ResilientFileOutputStream) os).getContentLength();
+      }
+      return super.length();
+    }
+  }
 }
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.spi;
+
+/**
+ * An event which its producer recycles once the call to
+ * {@link ch.qos.logback.core.Appender#doAppend(Object) doAppend} returns.
+ *
+ * <p>
+ * Appenders must not keep a reusable event beyond that call, whether in a
+ * buffer, a queue or for processing on another thread. They keep the copy
+ * returned by {@link #toRetainable()} instead, typically through
+ * {@link ch.qos.logback.core.AppenderBase#retain(Object) AppenderBase.retain}
+ * or
+ * {@link ch.qos.logback.core.UnsynchronizedAppenderBase#retain(Object) UnsynchronizedAppenderBase.retain}.
+ * </p>
+ *
+ * @param <E> the type of the copy
+ */
+public interface ReusableEvent<E> {
+
+  /**
+   * Returns a copy of this event which remains valid after the current call
+   * returns.
+   *
+   * @return an event safe to retain
+   */
+  E toRetainable();
+}
@@ -16,50 +16,324 @@
 package ch.qos.logback.core.util;
 
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
 /**
- * A synchronized implementation of  SimpleDateFormat which uses caching internally.
+ * A thread-safe, lock-free date formatter accepting {@link SimpleDateFormat}
+ * patterns.
+ *
+ * <p>The pattern is split around its millisecond fields ('S'). The remaining
+ * parts are rendered once per second and published as an immutable snapshot
+ * through a volatile field, so that formatting a timestamp within the same
+ * second only appends the cached parts and the milliseconds.</p>
+ *
+ * <p>Parts are rendered by a {@link DateTimeFormatter}, unless the pattern
+ * uses letters whose meaning differs between the two pattern syntaxes, in
+ * which case a copy of a {@link SimpleDateFormat} is used.</p>
  *
  * @author Ceki G&uuml;c&uuml;
  * @since 0.9.29
  */
 public class CachingDateFormatter {
 
+  private static final String DTF_RESERVED_CHARS = "[]{}#";
+
+  /**
+   * The letters rendered identically by both pattern syntaxes, with the
+   * maximum number of repetitions for which this holds.
+   */
+  private static final String DTF_COMPATIBLE_LETTERS = "GyYMdHhkKmsEaDwWzZX";
+  private static final int[] DTF_COMPATIBLE_MAX_COUNTS = {3, 19, 19, 4, 2, 2, 2, 2, 2, 2, 2, 4, 1, 3, 2, 1, 4, 3, 3};
+
+  /**
+   * The parts of the pattern between millisecond fields, as
+   * {@link SimpleDateFormat} patterns.
+   */
+  private final String[] partPatterns;
 
-  long lastTimestamp = -1;
-  String cachedStr = null;
-  final SimpleDateFormat sdf;
+  /**
+   * The width of each millisecond field. There is one less field than parts.
+   */
+  private final int[] millisWidths;
+
+  private final Locale locale;
+  private final boolean useDateTimeFormatter;
+
+  /**
+   * Set when the whole output is given by a {@link DateTimeFormatter}.
+   */
+  private final DateTimeFormatter secondFormatter;
+
+  private volatile PartFormatter[] partFormatters;
+  private volatile Snapshot snapshot;
 
   public CachingDateFormatter(String pattern) {
     this(pattern, Locale.US);
   }
 
+  /**
+   * @param pattern a {@link SimpleDateFormat} pattern
+   * @param locale the locale whose symbols are used
+   * @throws IllegalArgumentException if the pattern is invalid
+   */
   public CachingDateFormatter(String pattern, Locale locale) {
-    sdf = new SimpleDateFormat(pattern, locale);
+    // validates the pattern as before
+    new SimpleDateFormat(pattern, locale);
+
+    List<String> parts = new ArrayList<String>();
+    List<Integer> widths = new ArrayList<Integer>();
+    split(pattern, parts, widths);
+    this.partPatterns = parts.toArray(new String[parts.size()]);
+    this.millisWidths = new int[widths.size()];
+    for (int i = 0; i < millisWidths.length; i++) {
+      millisWidths[i] = widths.get(i);
+    }
+
+    this.locale = locale;
+    boolean compatible = true;
+    for (String part : partPatterns) {
+      compatible &= toDateTimeFormatterPattern(part) != null;
+    }
+    this.useDateTimeFormatter = compatible;
+    this.secondFormatter = null;
+    this.partFormatters = createPartFormatters(TimeZone.getDefault());
+  }
+
+  /**
+   * Creates a formatter rendering each second with the given
+   * {@link DateTimeFormatter}, which must not print fields finer than
+   * seconds. The formatter's zone, or the default one if it has none, is
+   * used.
+   *
+   * @param formatter the formatter to cache
+   */
+  public CachingDateFormatter(DateTimeFormatter formatter) {
+    this.partPatterns = new String[] { "" };
+    this.millisWidths = new int[0];
+    this.locale = formatter.getLocale();
+    this.useDateTimeFormatter = true;
+    this.secondFormatter = formatter;
+    ZoneId zone = formatter.getZone() != null ? formatter.getZone() : ZoneId.systemDefault();
+    this.partFormatters = createPartFormatters(TimeZone.getTimeZone(zone));
   }
 
   public final String format(long now) {
+    Snapshot s = snapshotFor(now);
+    if (s.millis == now) {
+      return s.formatted;
+    }
+    StringBuilder buf = new StringBuilder(s.length());
+    s.appendTo(buf, now);
+    String formatted = buf.toString();
+    snapshot = new Snapshot(s.second, s.parts, now, formatted);
+    return formatted;
+  }
 
-    // SimpleDateFormat is not thread safe.
+  /**
+   * Appends the formatted timestamp to the given builder, without creating
+   * a String unless the second differs from the last one formatted.
+   *
+   * @param now the timestamp to format
+   * @param buf the builder to append to
+   */
+  public final void format(long now, StringBuilder buf) {
+    Snapshot s = snapshotFor(now);
+    if (s.millis == now) {
+      buf.append(s.formatted);
+    } else {
+      s.appendTo(buf, now);
+    }
+  }
+
+  private Snapshot snapshotFor(long now) {
+    Snapshot s = snapshot;
+    long second = Math.floorDiv(now, 1000L);
+    if (s != null && s.second == second) {
+      return s;
+    }
+    PartFormatter[] formatters = partFormatters;
+    String[] parts = new String[formatters.length];
+    for (int i = 0; i < formatters.length; i++) {
+      parts[i] = formatters[i] == null ? "" : formatters[i].format(second * 1000L);
+    }
+    s = new Snapshot(second, parts, Long.MIN_VALUE, null);
+    snapshot = s;
+    return s;
+  }
 
-    // See also the discussion in http://jira.qos.ch/browse/LBCLASSIC-36
-    // DateFormattingThreadedThroughputCalculator and SelectiveDateFormattingRunnable
-    // are also note worthy
+  public void setTimeZone(TimeZone tz) {
+    partFormatters = createPartFormatters(tz);
+    snapshot = null;
+  }
 
-    // The now == lastTimestamp guard minimizes synchronization
-    synchronized (this) {
-      if (now != lastTimestamp) {
-        lastTimestamp = now;
-        cachedStr = sdf.format(new Date(now));
+  private PartFormatter[] createPartFormatters(TimeZone tz) {
+    PartFormatter[] formatters = new PartFormatter[partPatterns.length];
+    if (secondFormatter != null) {
+      formatters[0] = new DateTimeFormatterPart(secondFormatter.withZone(tz.toZoneId()));
+      return formatters;
+    }
+    for (int i = 0; i < partPatterns.length; i++) {
+      String part = partPatterns[i];
+      if (part.length() == 0) {
+        continue;
+      }
+      if (useDateTimeFormatter) {
+        DateTimeFormatter dtf = DateTimeFormatter.ofPattern(toDateTimeFormatterPattern(part), locale);
+        formatters[i] = new DateTimeFormatterPart(dtf.withZone(tz.toZoneId()));
+      } else {
+        SimpleDateFormat sdf = new SimpleDateFormat(part, locale);
+        sdf.setTimeZone(tz);
+        formatters[i] = new SimpleDateFormatPart(sdf);
       }
-      return cachedStr;
     }
+    return formatters;
   }
 
-  public void setTimeZone(TimeZone tz) {
-    sdf.setTimeZone(tz);
+  /**
+   * Splits the pattern around its unquoted runs of 'S'.
+   */
+  static void split(String pattern, List<String> parts, List<Integer> millisWidths) {
+    StringBuilder part = new StringBuilder();
+    boolean inQuote = false;
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        inQuote = !inQuote;
+      } else if (c == 'S' && !inQuote) {
+        int start = i;
+        while (i < pattern.length() && pattern.charAt(i) == 'S') {
+          i++;
+        }
+        parts.add(part.toString());
+        millisWidths.add(i - start);
+        part.setLength(0);
+        continue;
+      }
+      part.append(c);
+      i++;
+    }
+    parts.add(part.toString());
+  }
+
+  /**
+   * Translates a {@link SimpleDateFormat} pattern without millisecond fields
+   * into an equivalent {@link DateTimeFormatter} pattern.
+   *
+   * @return the translated pattern, or null if there is no safe translation
+   */
+  static String toDateTimeFormatterPattern(String pattern) {
+    StringBuilder out = new StringBuilder(pattern.length() + 4);
+    boolean inQuote = false;
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        inQuote = !inQuote;
+        out.append(c);
+        i++;
+      } else if (inQuote) {
+        out.append(c);
+        i++;
+      } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+        int start = i;
+        while (i < pattern.length() && pattern.charAt(i) == c) {
+          i++;
+        }
+        int index = DTF_COMPATIBLE_LETTERS.indexOf(c);
+        if (index < 0 || i - start > DTF_COMPATIBLE_MAX_COUNTS[index]) {
+          return null;
+        }
+        out.append(pattern, start, i);
+      } else if (DTF_RESERVED_CHARS.indexOf(c) >= 0) {
+        out.append('\'').append(c).append('\'');
+        i++;
+      } else {
+        out.append(c);
+        i++;
+      }
+    }
+    return out.toString();
+  }
+
+  private static void appendPadded(StringBuilder buf, int value, int width) {
+    int digits = value < 10 ? 1 : value < 100 ? 2 : 3;
+    for (int i = digits; i < width; i++) {
+      buf.append('0');
+    }
+    buf.append(value);
+  }
+
+  /**
+   * An immutable view of a second's rendering.
+   */
+  private final class Snapshot {
+    final long second;
+    final String[] parts;
+    final long millis;
+    final String formatted;
+
+    Snapshot(long second, String[] parts, long millis, String formatted) {
+      this.second = second;
+      this.parts = parts;
+      this.millis = millis;
+      this.formatted = formatted;
+    }
+
+    int length() {
+      int length = 0;
+      for (String part : parts) {
+        length += part.length();
+      }
+      for (int width : millisWidths) {
+        length += Math.max(width, 3);
+      }
+      return length;
+    }
+
+    void appendTo(StringBuilder buf, long now) {
+      int millis = (int) Math.floorMod(now, 1000L);
+      buf.append(parts[0]);
+      for (int i = 0; i < millisWidths.length; i++) {
+        appendPadded(buf, millis, millisWidths[i]);
+        buf.append(parts[i + 1]);
+      }
+    }
+  }
+
+  private interface PartFormatter {
+    String format(long timestamp);
+  }
+
+  private static final class DateTimeFormatterPart implements PartFormatter {
+    private final DateTimeFormatter formatter;
+
+    DateTimeFormatterPart(DateTimeFormatter formatter) {
+      this.formatter = formatter;
+    }
+
+    public String format(long timestamp) {
+      return formatter.format(Instant.ofEpochMilli(timestamp));
+    }
+  }
+
+  private static final class SimpleDateFormatPart implements PartFormatter {
+    private final SimpleDateFormat template;
+
+    SimpleDateFormatPart(SimpleDateFormat template) {
+      this.template = template;
+    }
+
+    public String format(long timestamp) {
+      // the template is never used for formatting, so copies can be made concurrently
+      return ((SimpleDateFormat) template.clone()).format(new Date(timestamp));
+    }
   }
 }
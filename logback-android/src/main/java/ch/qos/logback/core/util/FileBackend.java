@@ -0,0 +1,36 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.util;
+
+/**
+ * The ways in which a {@link ch.qos.logback.core.FileAppender} may write to
+ * its file.
+ *
+ * <ul>
+ * <li>{@link #STREAM} writes through a {@link java.io.BufferedOutputStream}.</li>
+ * <li>{@link #CHANNEL} writes through a {@link java.nio.channels.FileChannel}
+ * from a single direct buffer.</li>
+ * <li>{@link #MAPPED} copies the bytes into a memory-mapped region of the
+ * file, which is grown in chunks. Writing costs no system call until the
+ * region is full. While the file is open its size includes the unused part
+ * of the current region, which is truncated when the file is closed.</li>
+ * </ul>
+ */
+public enum FileBackend {
+  STREAM,
+  CHANNEL,
+  MAPPED;
+}
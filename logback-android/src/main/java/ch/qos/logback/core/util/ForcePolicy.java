@@ -0,0 +1,38 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.util;
+
+/**
+ * When a {@link ch.qos.logback.core.FileAppender} forces its file's content
+ * to the storage device, as done by {@link java.nio.channels.FileChannel#force(boolean)}.
+ *
+ * <ul>
+ * <li>{@link #NEVER} leaves it to the operating system.</li>
+ * <li>{@link #FLUSH} forces on every flush of the appender, i.e. after each
+ * event when <code>immediateFlush</code> is set, or once per batch when
+ * events are appended in batches.</li>
+ * <li>{@link #INTERVAL} forces periodically, if anything was written since
+ * the last time.</li>
+ * </ul>
+ *
+ * Unless the policy is {@link #NEVER}, the file is also forced before it is
+ * closed.
+ */
+public enum ForcePolicy {
+  NEVER,
+  FLUSH,
+  INTERVAL;
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, multi-producer/single-consumer {@link BlockingQueue}
+ * backed by a preallocated ring buffer.
+ *
+ * <p>Producers claim a slot with a single CAS on the tail counter and publish
+ * the element by advancing the slot's sequence number. No lock is shared
+ * between producers, and no node is allocated per element.</p>
+ *
+ * <p>Only one thread at a time may remove elements, i.e. invoke
+ * {@link #poll()}, {@link #take()}, {@link #drainTo(Collection)} and friends.
+ * Any number of threads may add elements concurrently.</p>
+ *
+ * <p>How blocked threads wait is governed by the {@link WaitStrategy} given at
+ * construction time. With {@link WaitStrategy#PARK}, a consumer waiting in
+ * {@link #take()} is unparked by the next producer; producers waiting for
+ * free capacity re-check periodically.</p>
+ *
+ * <p>{@link #iterator()} returns a read-only, weakly consistent snapshot
+ * intended for monitoring. Removal of arbitrary elements is not supported.</p>
+ *
+ * @param <E> type of the queued elements
+ */
+public class RingBufferBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+  /**
+   * How long a producer parks before re-checking for free capacity when
+   * the queue is full and the wait strategy is {@link WaitStrategy#PARK}.
+   */
+  static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  /**
+   * With {@link WaitStrategy#SPIN}, the number of consecutive failed attempts
+   * after which the waiting thread yields once, so that spinning cannot starve
+   * the thread it is waiting on when cores are scarce.
+   */
+  static final int SPINS_BEFORE_YIELD = 1024;
+
+  private final int capacity;
+  private final WaitStrategy waitStrategy;
+  private final AtomicReferenceArray<E> buffer;
+
+  // sequences[i] == published(pos) once the element at position pos has been published in slot i,
+  // and sequences[i] == free(pos) once the slot is free for the producer claiming position pos;
+  // the two never coincide, not even for the next lap when the capacity is 1
+  private final AtomicLongArray sequences;
+
+  // next position to be claimed by a producer
+  private final AtomicLong tail = new AtomicLong();
+  // next position to be consumed; only ever written by the consumer
+  private final AtomicLong head = new AtomicLong();
+
+  private final AtomicReference<Thread> parkedConsumer = new AtomicReference<Thread>();
+
+  public RingBufferBlockingQueue(int capacity, WaitStrategy waitStrategy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    if (waitStrategy == null) {
+      throw new IllegalArgumentException("waitStrategy cannot be null");
+    }
+    this.capacity = capacity;
+    this.waitStrategy = waitStrategy;
+    this.buffer = new AtomicReferenceArray<E>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, free(i));
+    }
+  }
+
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  private int index(long pos) {
+    return (int) (pos % capacity);
+  }
+
+  private static long free(long pos) {
+    return pos << 1;
+  }
+
+  private static long published(long pos) {
+    return (pos << 1) + 1;
+  }
+
+  public boolean offer(E e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+    long pos;
+    int index;
+    while (true) {
+      pos = tail.get();
+      index = index(pos);
+      long diff = sequences.get(index) - free(pos);
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          break;
+        }
+      } else if (diff < 0) {
+        // the slot still holds the element from the previous lap
+        return false;
+      }
+      // otherwise another producer claimed this position first, retry
+    }
+    buffer.lazySet(index, e);
+    // volatile write, ordered before the read of parkedConsumer below
+    sequences.set(index, published(pos));
+    signalConsumer();
+    return true;
+  }
+
+  public E poll() {
+    long pos = head.get();
+    int index = index(pos);
+    if (sequences.get(index) != published(pos)) {
+      return null;
+    }
+    E e = buffer.get(index);
+    buffer.lazySet(index, null);
+    sequences.lazySet(index, free(pos + capacity));
+    head.lazySet(pos + 1);
+    return e;
+  }
+
+  public E peek() {
+    long pos = head.get();
+    int index = index(pos);
+    if (sequences.get(index) != published(pos)) {
+      return null;
+    }
+    return buffer.get(index);
+  }
+
+  public void put(E e) throws InterruptedException {
+    int attempts = 0;
+    while (!offer(e)) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      awaitCapacity(++attempts);
+    }
+  }
+
+  public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    int attempts = 0;
+    while (!offer(e)) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (deadline - System.nanoTime() <= 0) {
+        return false;
+      }
+      awaitCapacity(++attempts);
+    }
+    return true;
+  }
+
+  public E take() throws InterruptedException {
+    E e;
+    int attempts = 0;
+    while ((e = poll()) == null) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      awaitElement(++attempts, 0);
+    }
+    return e;
+  }
+
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    E e;
+    int attempts = 0;
+    while ((e = poll()) == null) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      awaitElement(++attempts, remaining);
+    }
+    return e;
+  }
+
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    if (c == null) {
+      throw new NullPointerException();
+    }
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    int n = 0;
+    E e;
+    while (n < maxElements && (e = poll()) != null) {
+      c.add(e);
+      n++;
+    }
+    return n;
+  }
+
+  public int size() {
+    // read head first so that the difference can never be negative
+    long h = head.get();
+    long t = tail.get();
+    return (int) Math.min(t - h, capacity);
+  }
+
+  public int remainingCapacity() {
+    return capacity - size();
+  }
+
+  public Iterator<E> iterator() {
+    List<E> snapshot = new ArrayList<E>();
+    long t = tail.get();
+    for (long pos = head.get(); pos < t; pos++) {
+      int index = index(pos);
+      if (sequences.get(index) != published(pos)) {
+        break;
+      }
+      E e = buffer.get(index);
+      if (e != null) {
+        snapshot.add(e);
+      }
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  private boolean hasPublishedElement() {
+    long pos = head.get();
+    return sequences.get(index(pos)) == published(pos);
+  }
+
+  private void signalConsumer() {
+    if (parkedConsumer.get() != null) {
+      Thread t = parkedConsumer.getAndSet(null);
+      if (t != null) {
+        LockSupport.unpark(t);
+      }
+    }
+  }
+
+  /**
+   * Wait for a producer to publish an element, according to the wait strategy.
+   * May return spuriously; callers are expected to re-check.
+   *
+   * @param attempts number of failed attempts so far
+   * @param nanos maximum time to wait, or 0 to wait without time limit
+   */
+  private void awaitElement(int attempts, long nanos) {
+    switch (waitStrategy) {
+      case SPIN:
+        spin(attempts);
+        break;
+      case YIELD:
+        Thread.yield();
+        break;
+      case PARK:
+        parkedConsumer.set(Thread.currentThread());
+        // re-check after announcing ourselves, otherwise a producer publishing
+        // in between would not see us and we would miss its signal
+        if (!hasPublishedElement()) {
+          if (nanos > 0) {
+            LockSupport.parkNanos(this, nanos);
+          } else {
+            LockSupport.park(this);
+          }
+        }
+        parkedConsumer.lazySet(null);
+        break;
+    }
+  }
+
+  private void awaitCapacity(int attempts) {
+    switch (waitStrategy) {
+      case SPIN:
+        spin(attempts);
+        break;
+      case YIELD:
+        Thread.yield();
+        break;
+      case PARK:
+        LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+        break;
+    }
+  }
+
+  private static void spin(int attempts) {
+    if (attempts % SPINS_BEFORE_YIELD == 0) {
+      Thread.yield();
+    }
+  }
+}
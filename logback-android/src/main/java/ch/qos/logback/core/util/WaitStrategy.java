@@ -0,0 +1,34 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.util;
+
+/**
+ * The ways in which a thread may wait on a {@link RingBufferBlockingQueue}
+ * for an element (consumer side) or for free capacity (producer side).
+ *
+ * <ul>
+ * <li>{@link #SPIN} busy-waits, yielding only once in a while. Lowest latency,
+ * but burns a core while the queue is idle.</li>
+ * <li>{@link #YIELD} calls {@link Thread#yield()} between attempts.</li>
+ * <li>{@link #PARK} parks the waiting thread. The consumer is unparked by
+ * the next producer, so an idle queue costs no CPU.</li>
+ * </ul>
+ */
+public enum WaitStrategy {
+  SPIN,
+  YIELD,
+  PARK;
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+import android.util.Log;
+
+import ch.qos.logback.classic.android.LogcatAppender;
+import ch.qos.logback.classic.android.SQLiteAppender;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.ByteBufferDestination;
+import ch.qos.logback.core.testUtil.AllocationMeter;
+
+/**
+ * Checks the bytes allocated per logging call against the budgets in
+ * <code>allocation-budgets.properties</code>. A budget may be overridden by a
+ * system property of the same name, e.g. to tighten it after an improvement.
+ *
+ * <p>Android classes run under Robolectric, whose own bookkeeping is part of
+ * the figures; <code>android.util.Log</code> is replaced by a stub that
+ * discards its input.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = AllocationBudgetTest.DiscardingLog.class)
+public class AllocationBudgetTest {
+
+  static final String BUDGETS = "allocation-budgets.properties";
+  static final String PATTERN = "%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  static Properties budgets;
+
+  LoggerContext lc = new LoggerContext();
+  Logger logger = lc.getLogger(AllocationBudgetTest.class);
+  String arg1 = "GET /index.html";
+  Integer arg2 = 42;
+
+  @BeforeClass
+  public static void loadBudgets() throws Exception {
+    budgets = AllocationMeter.loadBudgets(BUDGETS);
+  }
+
+  @Before
+  public void setUp() {
+    Assume.assumeTrue(AllocationMeter.isSupported());
+    lc.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+  }
+
+  @After
+  public void tearDown() {
+    lc.stop();
+  }
+
+  @Test
+  public void disabledLoggerCall() throws Exception {
+    attach(new FormattingAppender());
+    checkBudget("logger.debug.disabled", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() {
+        logger.debug("Processed request {} in {} ms", arg1, arg2);
+      }
+    }));
+  }
+
+  @Test
+  public void enabledLoggerCall() throws Exception {
+    attach(new FormattingAppender());
+    checkBudget("logger.info", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() {
+        logger.info("Processed request {} in {} ms", arg1, arg2);
+      }
+    }));
+  }
+
+  @Test
+  public void garbageFreeLoggerCall() throws Exception {
+    lc.setGarbageFreeEnabled(true);
+    attach(new FormattingAppender());
+    checkBudget("logger.info.garbageFree", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() {
+        logger.info("Processed request {} in {} ms", arg1, arg2);
+      }
+    }));
+  }
+
+  @Test
+  public void loggingEvent() throws Exception {
+    checkBudget("loggingEvent", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() {
+        LoggingEvent event = newEvent();
+        event.getFormattedMessage();
+      }
+    }));
+  }
+
+  @Test
+  public void patternLayoutEncoder() throws Exception {
+    final PatternLayoutEncoder encoder = newEncoder(PATTERN);
+    final ILoggingEvent event = newEvent();
+    checkBudget("patternLayoutEncoder.encode", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() {
+        encoder.encode(event);
+      }
+    }));
+  }
+
+  @Test
+  public void patternLayoutEncoderToByteBuffer() throws Exception {
+    final PatternLayoutEncoder encoder = newEncoder(PATTERN);
+    final ILoggingEvent event = newEvent();
+    final ReusedBufferDestination destination = new ReusedBufferDestination();
+    checkBudget("patternLayoutEncoder.encodeToBuffer", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() throws Exception {
+        encoder.encode(event, destination);
+        destination.buffer.clear();
+      }
+    }));
+  }
+
+  @Test
+  public void logcatAppender() throws Exception {
+    LogcatAppender appender = new LogcatAppender();
+    appender.setEncoder(newEncoder("%msg"));
+    attach(appender);
+    checkBudget("logcatAppender", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() {
+        logger.info("Processed request {} in {} ms", arg1, arg2);
+      }
+    }));
+  }
+
+  @Test
+  public void sqliteAppender() throws Exception {
+    lc.putProperty(CoreConstants.PACKAGE_NAME_KEY, "com.example");
+    SQLiteAppender appender = new SQLiteAppender();
+    appender.setFilename(new File(tmp.getRoot(), "logback.db").getAbsolutePath());
+    attach(appender);
+    // each insert goes through Robolectric's SQLite, so fewer calls are made
+    checkBudget("sqliteAppender", AllocationMeter.bytesPerCall(new AllocationMeter.Action() {
+      public void run() {
+        logger.info("Processed request {} in {} ms", arg1, arg2);
+      }
+    }, 2000, 200));
+  }
+
+  private void attach(ch.qos.logback.core.Appender<ILoggingEvent> appender) {
+    appender.setContext(lc);
+    appender.start();
+    assertTrue(appender.isStarted());
+    logger.addAppender(appender);
+  }
+
+  private PatternLayoutEncoder newEncoder(String pattern) {
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(lc);
+    encoder.setPattern(pattern);
+    encoder.start();
+    return encoder;
+  }
+
+  private LoggingEvent newEvent() {
+    return new LoggingEvent(Logger.FQCN, logger, Level.INFO,
+        "Processed request {} in {} ms", null, new Object[] { arg1, arg2 });
+  }
+
+  private static void checkBudget(String name, long bytesPerCall) {
+    String budget = budgets.getProperty(name);
+    assertTrue("No allocation budget for [" + name + "]", budget != null);
+    long limit = Long.parseLong(budget.trim());
+    assertTrue("[" + name + "] allocates " + bytesPerCall + " bytes per call, over its budget of "
+        + limit, bytesPerCall <= limit);
+  }
+
+  /**
+   * Formats the message of each event, as most appenders do, and drops it.
+   */
+  static class FormattingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+    @Override
+    protected void append(ILoggingEvent event) {
+      event.getFormattedMessage();
+    }
+  }
+
+  static class ReusedBufferDestination implements ByteBufferDestination {
+    final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    public ByteBuffer getByteBuffer() {
+      return buffer;
+    }
+
+    public ByteBuffer drain(ByteBuffer buf) {
+      buf.clear();
+      return buf;
+    }
+  }
+
+  /**
+   * A stub of {@link Log} that accepts every message and discards it.
+   */
+  @Implements(Log.class)
+  public static class DiscardingLog {
+    @Implementation
+    public static boolean isLoggable(String tag, int level) {
+      return true;
+    }
+
+    @Implementation
+    public static int println_native(int bufID, int priority, String tag, String msg) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ReusableLoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.CyclicBufferAppender;
+import ch.qos.logback.core.read.ListAppender;
+
+@RunWith(RobolectricTestRunner.class)
+public class GarbageFreeLoggingTest {
+
+  LoggerContext lc = new LoggerContext();
+  Logger logger = lc.getLogger(GarbageFreeLoggingTest.class);
+  PatternLayout layout = new PatternLayout();
+  LayoutCapturingAppender appender = new LayoutCapturingAppender();
+
+  @Before
+  public void setUp() {
+    lc.setGarbageFreeEnabled(true);
+    layout.setContext(lc);
+    layout.setPattern("%level %msg");
+    layout.start();
+    appender.setContext(lc);
+    appender.start();
+    logger.addAppender(appender);
+  }
+
+  @Test
+  public void messagesAreFormattedWithReusableEvents() {
+    logger.info("no args");
+    logger.info("one {}", 1);
+    logger.warn("two {} {}", "a", 2L);
+    logger.error("three {} {} {}", "x", "y", "z");
+    logger.debug("escaped \\{} {}", "p");
+
+    assertEquals(5, appender.messages.size());
+    assertEquals("INFO no args", appender.messages.get(0));
+    assertEquals("INFO one 1", appender.messages.get(1));
+    assertEquals("WARN two a 2", appender.messages.get(2));
+    assertEquals("ERROR three x y z", appender.messages.get(3));
+    assertEquals("DEBUG escaped {} p", appender.messages.get(4));
+  }
+
+  @Test
+  public void eventIsReusedAcrossCalls() {
+    logger.info("first {}", 1);
+    logger.info("second {}", 2);
+    assertTrue(appender.events.get(0) instanceof ReusableLoggingEvent);
+    assertSame(appender.events.get(0), appender.events.get(1));
+  }
+
+  @Test
+  public void retainingAppendersReceiveCopies() {
+    ListAppender<ILoggingEvent> listAppender = new ListAppender<ILoggingEvent>();
+    AsyncAppender asyncAppender = new AsyncAppender();
+    asyncAppender.setContext(lc);
+    asyncAppender.addAppender(listAppender);
+    listAppender.start();
+    asyncAppender.start();
+    logger.addAppender(asyncAppender);
+
+    logger.info("first {}", "a");
+    logger.info("second {} {}", "b", "c");
+    asyncAppender.stop();
+
+    assertEquals(2, listAppender.list.size());
+    ILoggingEvent first = listAppender.list.get(0);
+    ILoggingEvent second = listAppender.list.get(1);
+    assertNotSame(first, second);
+    assertEquals("first a", first.getFormattedMessage());
+    assertEquals("second b c", second.getFormattedMessage());
+  }
+
+  @Test
+  public void cyclicBufferAppenderKeepsCopies() {
+    CyclicBufferAppender<ILoggingEvent> cyclicBufferAppender = new CyclicBufferAppender<ILoggingEvent>();
+    cyclicBufferAppender.setContext(lc);
+    cyclicBufferAppender.start();
+    logger.addAppender(cyclicBufferAppender);
+
+    logger.info("first {}", "a");
+    logger.info("second {}", "b");
+
+    assertEquals(2, cyclicBufferAppender.getLength());
+    assertTrue(!(cyclicBufferAppender.get(0) instanceof ReusableLoggingEvent));
+    assertEquals("first a", cyclicBufferAppender.get(0).getFormattedMessage());
+    assertEquals("second b", cyclicBufferAppender.get(1).getFormattedMessage());
+  }
+
+  @Test
+  public void recursiveLoggingFallsBackToRegularEvents() {
+    final Logger other = lc.getLogger("other");
+    other.setAdditive(false);
+    other.addAppender(appender);
+    logger.addAppender(new AppenderBase<ILoggingEvent>() {
+      {
+        setContext(lc);
+        start();
+      }
+
+      @Override
+      protected void append(ILoggingEvent event) {
+        other.info("nested {}", event.getFormattedMessage());
+      }
+    });
+
+    logger.info("outer {}", 1);
+
+    assertEquals(2, appender.messages.size());
+    assertEquals("INFO outer 1", appender.messages.get(0));
+    assertEquals("INFO nested outer 1", appender.messages.get(1));
+    assertTrue(appender.events.get(0) instanceof ReusableLoggingEvent);
+    assertTrue(!(appender.events.get(1) instanceof ReusableLoggingEvent));
+  }
+
+  @Test
+  public void disabledByDefault() {
+    LoggerContext context = new LoggerContext();
+    ListAppender<ILoggingEvent> listAppender = new ListAppender<ILoggingEvent>();
+    listAppender.start();
+    context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(listAppender);
+    context.getLogger("x").info("hello {}", 1);
+    assertTrue(!(listAppender.list.get(0) instanceof ReusableLoggingEvent));
+  }
+
+  class LayoutCapturingAppender extends AppenderBase<ILoggingEvent> {
+    List<String> messages = new ArrayList<String>();
+    List<ILoggingEvent> events = new ArrayList<ILoggingEvent>();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+      events.add(event);
+      messages.add(layout.doLayout(event));
+    }
+  }
+}
@@ -19,6 +19,7 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 
@@ -153,6 +154,37 @@ public class LoggerContextTest {
     LoggerTestHelper.assertLevels(null, wxyz, Level.INFO);
   }
 
+  @Test
+  public void deepLoggerReusesExistingAncestors() {
+    Logger wx = lc.getLogger("w.x");
+    wx.setLevel(Level.WARN);
+    assertEquals(3, instanceCount());
+
+    Logger wxyz = lc.getLogger("w.x.y$z");
+    assertEquals(5, instanceCount());
+    Logger wxy = lc.exists("w.x.y");
+    assertNotNull(wxy);
+    assertSame(wxy, lc.getLogger("w.x.y"));
+    LoggerTestHelper.assertLevels(null, wxy, Level.WARN);
+    LoggerTestHelper.assertLevels(null, wxyz, Level.WARN);
+
+    wx.setLevel(Level.ERROR);
+    LoggerTestHelper.assertLevels(null, wxyz, Level.ERROR);
+  }
+
+  @Test
+  public void manyFlatLoggers() {
+    for (int i = 0; i < 10000; i++) {
+      Logger logger = lc.getLogger("tag" + i);
+      LoggerTestHelper.assertNameEquals(logger, "tag" + i);
+    }
+    assertEquals(10001, instanceCount());
+    assertSame(lc.getLogger("tag42"), lc.getLogger("tag42"));
+
+    lc.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+    LoggerTestHelper.assertLevels(null, lc.getLogger("tag9999"), Level.INFO);
+  }
+
   @Test
   public void testStatusWithUnconfiguredContext() {
     Logger logger = lc.getLogger(LoggerContextTest.class);
@@ -77,6 +77,38 @@ public class LoggerTest {
     assertEquals(1, listAppender.list.size());
   }
 
+  @Test
+  public void appenderChangesInAncestryAreSeenByDescendants() {
+    Logger x = lc.getLogger("x");
+    Logger xyz = lc.getLogger("x.y.z");
+    ListAppender<ILoggingEvent> xAppender = new ListAppender<ILoggingEvent>();
+    xAppender.start();
+    listAppender.start();
+
+    xyz.info("no appender yet");
+    assertEquals(0, listAppender.list.size());
+
+    root.addAppender(listAppender);
+    xyz.info("root appender added");
+    assertEquals(1, listAppender.list.size());
+
+    x.addAppender(xAppender);
+    x.setAdditive(false);
+    xyz.info("x is not additive");
+    assertEquals(1, listAppender.list.size());
+    assertEquals(1, xAppender.list.size());
+
+    x.setAdditive(true);
+    x.detachAppender(xAppender);
+    xyz.info("x is additive again");
+    assertEquals(2, listAppender.list.size());
+    assertEquals(1, xAppender.list.size());
+
+    root.detachAndStopAllAppenders();
+    xyz.info("all appenders detached");
+    assertEquals(2, listAppender.list.size());
+  }
+
   @Test
   public void testRootLogger() {
     Logger logger = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
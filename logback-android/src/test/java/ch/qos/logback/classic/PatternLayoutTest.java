@@ -30,6 +30,9 @@ import org.slf4j.MDC;
 
 import ch.qos.logback.classic.joran.JoranConfigurator;
 import ch.qos.logback.classic.pattern.ConverterTest;
+import ch.qos.logback.classic.pattern.DateConverter;
+import ch.qos.logback.classic.pattern.LevelConverter;
+import ch.qos.logback.classic.pattern.MessageConverter;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.classic.testUtil.SampleConverter;
@@ -252,4 +255,76 @@ public class PatternLayoutTest extends AbstractPatternLayoutBaseTest<ILoggingEve
     assertEquals(1, sla.strList.size());
     assertEquals("A\n\tC", sla.strList.get(0));
   }
+
+  @Test
+  public void precompiledMatchesInterpretedOutput() {
+    String pattern = "%-5level [%10.-4thread] %.-10logger %-8r%5r %.5msg|%-10(%level %msg) %-6level|%5level%n";
+    pl.setPattern(pattern);
+    pl.start();
+
+    PatternLayout compiled = new PatternLayout();
+    compiled.setContext(lc);
+    compiled.setPattern(pattern);
+    compiled.setPrecompiled(true);
+    compiled.start();
+
+    for (String threadName : new String[] { "t", "main", "a-long-thread-name" }) {
+      LoggingEvent event = (LoggingEvent) makeLoggingEvent("Hello world", null);
+      event.setThreadName(threadName);
+      assertEquals(pl.doLayout(event), compiled.doLayout(event));
+    }
+  }
+
+  @Test
+  public void levelConverterOverridingOnlyConvertIsNotBypassed() {
+    assertLayoutWithConverter("lvl", InitialLevelConverter.class, "[%lvl] [%-3lvl]", "[I] [I  ]");
+  }
+
+  @Test
+  public void messageConverterOverridingOnlyConvertIsNotBypassed() {
+    assertLayoutWithConverter("m", MaskingMessageConverter.class, "%m|%-5m", "***|***  ");
+    assertLayoutWithConverter("msg", MaskingMessageConverter.class, "%msg", "***");
+  }
+
+  @Test
+  public void dateConverterOverridingOnlyConvertIsNotBypassed() {
+    assertLayoutWithConverter("d", EpochDateConverter.class, "%d|%8d", "epoch|   epoch");
+  }
+
+  /**
+   * Checks the output of a layout using a custom converter, with and
+   * without precompilation.
+   */
+  private void assertLayoutWithConverter(String word, Class<?> converterClass, String pattern, String expected) {
+    for (boolean precompiled : new boolean[] { false, true }) {
+      PatternLayout layout = new PatternLayout();
+      layout.setContext(lc);
+      layout.getInstanceConverterMap().put(word, converterClass.getName());
+      layout.setPattern(pattern);
+      layout.setPrecompiled(precompiled);
+      layout.start();
+      assertEquals(expected, layout.doLayout(makeLoggingEvent(aMessage, null)));
+    }
+  }
+
+  public static class InitialLevelConverter extends LevelConverter {
+    @Override
+    public String convert(ILoggingEvent le) {
+      return le.getLevel().toString().substring(0, 1);
+    }
+  }
+
+  public static class MaskingMessageConverter extends MessageConverter {
+    @Override
+    public String convert(ILoggingEvent event) {
+      return "***";
+    }
+  }
+
+  public static class EpochDateConverter extends DateConverter {
+    @Override
+    public String convert(ILoggingEvent le) {
+      return "epoch";
+    }
+  }
 }
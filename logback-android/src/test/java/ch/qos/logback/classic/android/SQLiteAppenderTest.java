@@ -15,6 +15,7 @@
  */
 package ch.qos.logback.classic.android;
 
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 
 import org.junit.After;
@@ -25,6 +26,7 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.slf4j.Logger;
+import org.slf4j.MDC;
 
 import java.io.File;
 import java.io.IOException;
@@ -33,6 +35,7 @@ import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.util.CoreTestConstants;
 import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
@@ -40,6 +43,7 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -49,6 +53,7 @@ public class SQLiteAppenderTest {
   private static final String TEST_SQLITE_FILENAME = CoreTestConstants.OUTPUT_DIR_PREFIX + "SQLiteAppenderTest/logback.db";
   private static final long EXPIRY_MS = 500;
   private static final long NO_EXPIRY = 0;
+  private static final long CLEANUP_TIMEOUT_MS = 2000;
 
   @Rule
   public TemporaryFolder tmp = new TemporaryFolder();
@@ -82,32 +87,105 @@ public class SQLiteAppenderTest {
   @Test
   public void cleanuOccursAtAppenderStartup() {
     addAppenderToContext("1 hour");
-    verify(logCleaner, times(1)).performLogCleanup(any(SQLiteDatabase.class), any(Duration.class));
+    verify(logCleaner, timeout(CLEANUP_TIMEOUT_MS).times(1)).performLogCleanup(any(SQLiteDatabase.class), any(Duration.class));
   }
 
   @Test
   public void cleanupDoesNotOccurBeforeExpiration() {
     addAppenderToContext("1 hour");
+    verify(logCleaner, timeout(CLEANUP_TIMEOUT_MS).times(1)).performLogCleanup(any(SQLiteDatabase.class), any(Duration.class));
 
     addLogEvents(3, NO_EXPIRY);
+    appender.clearExpiredLogs();
 
-    // log-cleanup normally called between logging events if expiry time
-    // exceeded, but no expiration here, so call-count should still be 1
+    // no expiration here, so call-count should still be 1
     verify(logCleaner, times(1)).performLogCleanup(any(SQLiteDatabase.class), any(Duration.class));
   }
 
   @Test
   public void cleanupOccursAfterEveryExpiration() {
     addAppenderToContext(EXPIRY_MS + " milli");
+    verify(logCleaner, timeout(CLEANUP_TIMEOUT_MS).times(1)).performLogCleanup(any(SQLiteDatabase.class), any(Duration.class));
 
     final int count = 7;
     final long delayMs = EXPIRY_MS / 2;
     final int expectedCallCount = (int)Math.ceil((double)(delayMs * count)/EXPIRY_MS);
-    addLogEvents(count, delayMs);
+    for (int i = 1; i < count; i++) {
+      mockTimeMs += delayMs;
+      appender.clearExpiredLogs();
+    }
 
     verify(logCleaner, times(expectedCallCount)).performLogCleanup(any(SQLiteDatabase.class), any(Duration.class));
   }
 
+  @Test
+  public void cleanupRemovesExpiredEventsInChunks() {
+    appender.setMaxHistory("1 hour");
+    appender.setCleanupChunkSize(3);
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+    logEventsWithDetails(10);
+
+    mockTimeMs += 2 * 60 * 60 * 1000;
+    appender.clearExpiredLogs();
+    appender.stop();
+
+    assertRowCounts(0);
+  }
+
+  @Test
+  public void expiredEventsAreRemovedOnEveryCleanupRun() {
+    // the events are logged after the cleanup run at startup
+    mockTimeMs -= 1000;
+    appender.setMaxHistory("1 hour");
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+    logEventsWithDetails(4);
+
+    mockTimeMs += 60 * 60 * 1000;
+    appender.clearExpiredLogs();
+    // expired now, although maxHistory has not elapsed since the last run
+    mockTimeMs += 60 * 1000;
+    appender.clearExpiredLogs();
+    appender.stop();
+
+    assertRowCounts(0);
+  }
+
+  @Test
+  public void cleanupEnforcesMaxRowCount() {
+    appender.setMaxRowCount(5);
+    appender.setCleanupChunkSize(2);
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+    logEventsWithDetails(12);
+
+    appender.clearExpiredLogs();
+    appender.stop();
+
+    SQLiteDatabase db = SQLiteDatabase.openDatabase(TEST_SQLITE_FILENAME, null, SQLiteDatabase.OPEN_READONLY);
+    try {
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event"), is(5L));
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event_property"), is(10L));
+      assertThat(DatabaseUtils.longForQuery(db, "SELECT MIN(event_id) FROM logging_event", null), is(8L));
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void cleanupEnforcesTotalSizeCap() {
+    appender.setTotalSizeCap(new FileSize(1));
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+    logEventsWithDetails(10);
+
+    appender.clearExpiredLogs();
+    appender.stop();
+
+    assertRowCounts(0);
+  }
+
   @Test
   public void dirAsFilenameResultsInDefault() throws IOException {
     final File file = appender.getDatabaseFile(tmp.newFolder().getAbsolutePath());
@@ -184,6 +262,148 @@ public class SQLiteAppenderTest {
     assertThat(appender.getMaxHistoryMs(), is(0L));
   }
 
+  @Test
+  public void backgroundWriterWritesAllEventsInBatches() {
+    appender.setBackgroundWriter(true);
+    appender.setMaxBatchSize(4);
+    appender.setMaxFlushDelay(Duration.buildByMilliseconds(20));
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+
+    logEventsWithDetails(10);
+    appender.stop();
+
+    assertRowCounts(10);
+  }
+
+  @Test
+  public void failedEventOfBatchLeavesNoPartialRows() {
+    appender.setBackgroundWriter(true);
+    appender.setMaxBatchSize(10);
+    appender.setMaxFlushDelay(Duration.buildByMilliseconds(1000));
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+    SQLiteDatabase db = SQLiteDatabase.openDatabase(TEST_SQLITE_FILENAME, null, SQLiteDatabase.OPEN_READWRITE);
+    try {
+      db.execSQL("CREATE TRIGGER reject_v3 BEFORE INSERT ON logging_event_property"
+          + " WHEN NEW.mapped_value = 'v3' BEGIN SELECT RAISE(ABORT, 'rejected'); END");
+    } finally {
+      db.close();
+    }
+
+    logEventsWithDetails(10);
+    appender.stop();
+
+    db = SQLiteDatabase.openDatabase(TEST_SQLITE_FILENAME, null, SQLiteDatabase.OPEN_READONLY);
+    try {
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event"), is(9L));
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event_property"), is(18L));
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event", "formatted_message = 'i=3'"), is(0L));
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void stopReleasesThreadsWaitingForTheWriterQueue() throws InterruptedException {
+    appender.setBackgroundWriter(true);
+    appender.setWriterQueueSize(1);
+    appender.setMaxBatchSize(1);
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        public void run() {
+          logEventsWithDetails(200);
+        }
+      };
+      threads[i].start();
+    }
+    Thread.sleep(50);
+    appender.stop();
+
+    for (Thread t : threads) {
+      t.join(5000);
+      assertThat(t.isAlive(), is(false));
+    }
+  }
+
+  @Test
+  public void synchronousAppendReusesStatements() {
+    appender.start();
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+
+    logEventsWithDetails(10);
+    appender.stop();
+
+    assertRowCounts(10);
+  }
+
+  @Test
+  public void appliesDatabaseTuningOptions() {
+    appender.setWriteAheadLogging(true);
+    appender.setSynchronous(SynchronousMode.NORMAL);
+    appender.setPageSize(8192);
+    appender.setCreateIndexes(true);
+    appender.setIncrementalVacuum(true);
+    appender.setMaxHistory("1 hour");
+    appender.start();
+    assertThat(appender.isStarted(), is(true));
+    context.getLogger(SQLiteAppenderTest.class).addAppender(appender);
+
+    logEventsWithDetails(4);
+    appender.stop();
+
+    assertRowCounts(4);
+    SQLiteDatabase db = SQLiteDatabase.openDatabase(TEST_SQLITE_FILENAME, null, SQLiteDatabase.OPEN_READONLY);
+    try {
+      assertThat(DatabaseUtils.longForQuery(db, "PRAGMA page_size", null), is(8192L));
+      assertThat(DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null), is(2L));
+      assertThat(DatabaseUtils.longForQuery(db,
+          "SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name LIKE 'logging_event\\_%\\_idx' ESCAPE '\\'", null),
+          is(3L));
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void rejectsInvalidPageSize() {
+    appender.setPageSize(1000);
+    appender.start();
+    assertThat(appender.isStarted(), is(false));
+  }
+
+  private void logEventsWithDetails(int count) {
+    Logger log = context.getLogger(SQLiteAppenderTest.class);
+    for (int i = 0; i < count; i++) {
+      MDC.put("k", "v" + i);
+      try {
+        if (i % 2 == 0) {
+          log.info("i={}", i, new Exception("test"));
+        } else {
+          log.info("i={}", i);
+        }
+      } finally {
+        MDC.remove("k");
+      }
+    }
+  }
+
+  private void assertRowCounts(int eventCount) {
+    SQLiteDatabase db = SQLiteDatabase.openDatabase(TEST_SQLITE_FILENAME, null, SQLiteDatabase.OPEN_READONLY);
+    try {
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event"), is((long) eventCount));
+      // one MDC entry plus the package name context property per event
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event_property"), is(2L * eventCount));
+      assertThat(DatabaseUtils.queryNumEntries(db, "logging_event_exception", "i = 0"), is((long) (eventCount + 1) / 2));
+    } finally {
+      db.close();
+    }
+  }
+
   private long addLogEvents(int count, long delayMs) {
     Logger log = context.getLogger(SQLiteAppenderTest.class);
     final long startTimeMs = mockTimeMs;
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.android;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.slf4j.MDC;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.util.CoreTestConstants;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class SQLiteLogReaderTest {
+
+  private static final String TEST_SQLITE_FILENAME = CoreTestConstants.OUTPUT_DIR_PREFIX + "SQLiteLogReaderTest/logback.db";
+
+  private LoggerContext context;
+  private SQLiteAppender appender;
+  private SQLiteDatabase db;
+  private SQLiteLogReader reader;
+  private Exception loggedException;
+
+  @Before
+  public void setup() {
+    new File(TEST_SQLITE_FILENAME).delete();
+    context = new LoggerContext();
+    appender = new SQLiteAppender();
+    appender.setFilename(TEST_SQLITE_FILENAME);
+    appender.setContext(context);
+    appender.start();
+    Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+    root.addAppender(appender);
+
+    Logger foo = context.getLogger("com.example.foo.Foo");
+    Logger bar = context.getLogger("com.example.bar.Bar");
+    loggedException = new IllegalStateException("outer", newCause());
+    for (int i = 0; i < 10; i++) {
+      MDC.put("index", Integer.toString(i));
+      try {
+        foo.info("foo {}", i);
+        bar.warn("bar {}", i);
+      } finally {
+        MDC.remove("index");
+      }
+    }
+    bar.error("failure", loggedException);
+    appender.stop();
+
+    db = SQLiteDatabase.openDatabase(TEST_SQLITE_FILENAME, null, SQLiteDatabase.OPEN_READONLY);
+    reader = new SQLiteLogReader(db);
+    reader.setPageSize(3);
+  }
+
+  private static RuntimeException newCause() {
+    // thrown from a frame of its own, so that it has frames not in common
+    // with the enclosing exception
+    return new RuntimeException("inner");
+  }
+
+  @After
+  public void teardown() {
+    db.close();
+    new File(TEST_SQLITE_FILENAME).delete();
+  }
+
+  @Test
+  public void readsAllEventsAcrossPages() {
+    List<ILoggingEvent> events = read(new SQLiteLogReader.Query());
+    assertThat(events.size(), is(21));
+    assertThat(events.get(0).getFormattedMessage(), is("foo 0"));
+    assertThat(events.get(0).getLoggerName(), is("com.example.foo.Foo"));
+    assertThat(events.get(0).getLevel(), is(Level.INFO));
+    assertThat(events.get(0).getThreadName(), is(Thread.currentThread().getName()));
+    assertThat(events.get(3).getMDCPropertyMap().get("index"), is("1"));
+    assertThat(events.get(20).getFormattedMessage(), is("failure"));
+  }
+
+  @Test
+  public void readsNewestFirst() {
+    List<ILoggingEvent> events = read(new SQLiteLogReader.Query().newestFirst());
+    assertThat(events.size(), is(21));
+    assertThat(events.get(0).getFormattedMessage(), is("failure"));
+    assertThat(events.get(20).getFormattedMessage(), is("foo 0"));
+  }
+
+  @Test
+  public void filtersByLevelLoggerAndMessage() {
+    assertThat(read(new SQLiteLogReader.Query().minLevel(Level.WARN)).size(), is(11));
+    assertThat(read(new SQLiteLogReader.Query().minLevel(Level.ERROR)).size(), is(1));
+    assertThat(read(new SQLiteLogReader.Query().loggerPrefix("com.example.foo")).size(), is(10));
+    assertThat(read(new SQLiteLogReader.Query().loggerPrefix("com.example")).size(), is(21));
+    assertThat(read(new SQLiteLogReader.Query().loggerPrefix("org")).size(), is(0));
+    assertThat(read(new SQLiteLogReader.Query().messageContains("bar 1")).size(), is(1));
+    assertThat(read(new SQLiteLogReader.Query().messageContains("ar ").loggerPrefix("com.example.foo")).size(), is(0));
+    assertThat(read(new SQLiteLogReader.Query().messageContains("BAR")).size(), is(0));
+    assertThat(read(new SQLiteLogReader.Query().messageContains("*")).size(), is(0));
+  }
+
+  @Test
+  public void filtersByTimeRange() {
+    List<ILoggingEvent> all = read(new SQLiteLogReader.Query());
+    long first = all.get(0).getTimeStamp();
+    long last = all.get(all.size() - 1).getTimeStamp();
+    assertThat(read(new SQLiteLogReader.Query().from(first).to(last + 1)).size(), is(21));
+    assertThat(read(new SQLiteLogReader.Query().from(last + 1)).size(), is(0));
+    assertThat(read(new SQLiteLogReader.Query().to(first)).size(), is(0));
+  }
+
+  @Test
+  public void rebuildsThrowable() {
+    ILoggingEvent event = read(new SQLiteLogReader.Query().minLevel(Level.ERROR)).get(0);
+    IThrowableProxy tp = event.getThrowableProxy();
+    assertThat(tp.getClassName(), is(IllegalStateException.class.getName()));
+    assertThat(tp.getMessage(), is("outer"));
+    assertThat(tp.getStackTraceElementProxyArray().length, is(loggedException.getStackTrace().length));
+    assertThat(tp.getStackTraceElementProxyArray()[0].getStackTraceElement(), is(loggedException.getStackTrace()[0]));
+
+    IThrowableProxy cause = tp.getCause();
+    assertThat(cause.getClassName(), is(RuntimeException.class.getName()));
+    assertThat(cause.getMessage(), is("inner"));
+    assertThat(cause.getCommonFrames() > 0, is(true));
+    assertThat(cause.getCause(), is(nullValue()));
+
+    assertThat(read(new SQLiteLogReader.Query()).get(0).getThrowableProxy(), is(nullValue()));
+  }
+
+  @Test
+  public void rebuiltThrowableFormatsLikeTheLoggedOne() {
+    PatternLayout layout = new PatternLayout();
+    layout.setContext(context);
+    layout.setPattern("%ex");
+    layout.start();
+    ILoggingEvent event = read(new SQLiteLogReader.Query().minLevel(Level.ERROR)).get(0);
+    LoggingEvent logged = new LoggingEvent(Logger.FQCN, context.getLogger("com.example.bar.Bar"),
+        Level.ERROR, "failure", loggedException, null);
+
+    String formatted = layout.doLayout(event);
+    assertThat(formatted, is(layout.doLayout(logged)));
+    assertThat(formatted, containsString("common frames omitted"));
+  }
+
+  @Test
+  public void loadsDetailsOfMatchesFarApart() {
+    db.close();
+    appender = new SQLiteAppender();
+    appender.setFilename(TEST_SQLITE_FILENAME);
+    appender.setContext(context);
+    appender.start();
+    Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+    root.detachAndStopAllAppenders();
+    root.addAppender(appender);
+    Logger foo = context.getLogger("com.example.foo.Foo");
+    for (int i = 0; i < 2000; i++) {
+      MDC.put("index", Integer.toString(i));
+      try {
+        foo.info("filler {}", i);
+      } finally {
+        MDC.remove("index");
+      }
+    }
+    MDC.put("index", "last");
+    try {
+      foo.error("last failure", loggedException);
+    } finally {
+      MDC.remove("index");
+    }
+    appender.stop();
+    db = SQLiteDatabase.openDatabase(TEST_SQLITE_FILENAME, null, SQLiteDatabase.OPEN_READONLY);
+    reader = new SQLiteLogReader(db);
+    reader.setPageSize(2);
+
+    List<ILoggingEvent> errors = read(new SQLiteLogReader.Query().minLevel(Level.ERROR));
+    assertThat(errors.size(), is(2));
+    assertThat(errors.get(0).getFormattedMessage(), is("failure"));
+    assertThat(errors.get(0).getMDCPropertyMap().get("index"), is(nullValue()));
+    assertThat(errors.get(0).getThrowableProxy().getMessage(), is("outer"));
+    assertThat(errors.get(1).getFormattedMessage(), is("last failure"));
+    assertThat(errors.get(1).getMDCPropertyMap().get("index"), is("last"));
+    assertThat(errors.get(1).getThrowableProxy().getMessage(), is("outer"));
+  }
+
+  @Test
+  public void parsesFrames() {
+    StackTraceElement ste = new StackTraceElement("a.b.C", "run", "C.java", 12);
+    assertThat(SQLiteLogReader.parseFrame("at " + ste), is(ste));
+    ste = new StackTraceElement("a.b.C", "run", null, -2);
+    assertThat(SQLiteLogReader.parseFrame("at " + ste), is(ste));
+    ste = new StackTraceElement("a.b.C$1", "<init>", null, -1);
+    assertThat(SQLiteLogReader.parseFrame("at " + ste), is(ste));
+  }
+
+  private List<ILoggingEvent> read(SQLiteLogReader.Query query) {
+    List<ILoggingEvent> events = new ArrayList<ILoggingEvent>();
+    for (ILoggingEvent event : reader.read(query)) {
+      events.add(event);
+    }
+    return events;
+  }
+}
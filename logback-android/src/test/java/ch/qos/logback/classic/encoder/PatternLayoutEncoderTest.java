@@ -19,6 +19,8 @@ import static junit.framework.Assert.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.nio.charset.Charset;
 
 import ch.qos.logback.classic.PatternLayout;
@@ -30,6 +32,8 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.encoder.ByteBufferDestination;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
 
 public class PatternLayoutEncoderTest {
 
@@ -79,4 +83,96 @@ public class PatternLayoutEncoderTest {
     assertEquals(msg, new String(baos.toByteArray(), utf8Charset));
   }
 
+  @Test
+  public void byteBufferEncodingMatchesByteArrayEncoding() throws IOException {
+    ple.setCharset(utf8Charset);
+    ple.start();
+    StringBuilder longMsg = new StringBuilder();
+    for (int i = 0; i < 2047; i++) {
+      longMsg.append('x');
+    }
+    // a surrogate pair straddling the encoder's internal char buffer
+    longMsg.append("\ud83d\ude00 tail");
+
+    String[] messages = { "hello", "\u03b1\u03b2", "", longMsg.toString() };
+    for (String msg : messages) {
+      ILoggingEvent event = makeLoggingEvent(msg);
+      CollectingDestination destination = new CollectingDestination(7);
+      ple.encode(event, destination);
+      assertEquals(msg, new String(destination.toByteArray(), utf8Charset));
+      assertTrue(Arrays.equals(ple.encode(event), destination.toByteArray()));
+    }
+  }
+
+  @Test
+  public void byteBufferEncodingReplacesUnmappableCharacters() throws IOException {
+    Charset latin1 = Charset.forName("ISO-8859-1");
+    ple.setCharset(latin1);
+    ple.start();
+    ILoggingEvent event = makeLoggingEvent("a\u03b1b");
+    CollectingDestination destination = new CollectingDestination(64);
+    ple.encode(event, destination);
+    assertTrue(Arrays.equals(ple.encode(event), destination.toByteArray()));
+  }
+
+  @Test
+  public void byteBufferEncodingHonorsOverriddenEncode() throws IOException {
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder() {
+      @Override
+      public byte[] encode(ILoggingEvent event) {
+        return ("[" + event.getMessage() + "]").getBytes();
+      }
+    };
+    encoder.setPattern("%m");
+    encoder.setContext(context);
+    encoder.start();
+    CollectingDestination destination = new CollectingDestination(3);
+    encoder.encode(makeLoggingEvent("hello"), destination);
+    assertEquals("[hello]", new String(destination.toByteArray()));
+  }
+
+  @Test
+  public void byteBufferEncodingHonorsOverriddenDoLayout() throws IOException {
+    PatternLayout layout = new PatternLayout() {
+      @Override
+      public String doLayout(ILoggingEvent event) {
+        return super.doLayout(event).toUpperCase();
+      }
+    };
+    layout.setPattern("%m");
+    layout.setContext(context);
+    layout.start();
+    LayoutWrappingEncoder<ILoggingEvent> encoder = new LayoutWrappingEncoder<ILoggingEvent>();
+    encoder.setLayout(layout);
+    encoder.setContext(context);
+    encoder.start();
+    CollectingDestination destination = new CollectingDestination(64);
+    encoder.encode(makeLoggingEvent("hello"), destination);
+    assertEquals("HELLO", new String(destination.toByteArray()));
+  }
+
+  static class CollectingDestination implements ByteBufferDestination {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteBuffer buffer;
+
+    CollectingDestination(int capacity) {
+      buffer = ByteBuffer.allocate(capacity);
+    }
+
+    public ByteBuffer getByteBuffer() {
+      return buffer;
+    }
+
+    public ByteBuffer drain(ByteBuffer buf) {
+      out.write(buf.array(), 0, buf.position());
+      buf.clear();
+      return buf;
+    }
+
+    byte[] toByteArray() {
+      drain(buffer);
+      return out.toByteArray();
+    }
+  }
+
 }
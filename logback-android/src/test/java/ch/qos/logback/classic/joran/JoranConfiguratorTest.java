@@ -43,6 +43,7 @@ import ch.qos.logback.core.ConsoleAppender;
 import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
 import ch.qos.logback.core.joran.spi.JoranException;
+import ch.qos.logback.core.metrics.AppenderMetrics;
 import ch.qos.logback.core.read.ListAppender;
 import ch.qos.logback.core.status.StatusChecker;
 import ch.qos.logback.core.testUtil.StringListAppender;
@@ -440,6 +441,43 @@ public class JoranConfiguratorTest {
     assertTrue(loggerContext.isPackagingDataEnabled());
   }
 
+  @Test
+  public void metricsEnabledByConfigAttribute() throws Exception {
+    String configFileAsStr = ClassicTestConstants.JORAN_INPUT_PREFIX + "metrics.xml";
+    configure(configFileAsStr);
+    assertTrue(loggerContext.getMetricsRegistry().isEnabled());
+
+    loggerContext.getLogger("metrics").info("hello");
+    loggerContext.getLogger("metrics").debug("world");
+    AppenderMetrics metrics = loggerContext.getMetricsRegistry().getAppenderMetrics("LIST");
+    assertEquals(2, metrics.getAppendedCount());
+    assertEquals(Long.valueOf(1), loggerContext.getMetricsRegistry().getEventCountsByLevel().get("INFO"));
+    assertEquals(Long.valueOf(2), loggerContext.getMetricsRegistry().getEventCountsByLogger().get("metrics"));
+
+    // the dump runs on the context's executor
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!hasMetricsDump() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(hasMetricsDump());
+  }
+
+  private boolean hasMetricsDump() {
+    for (Status status : loggerContext.getStatusManager().getCopyOfStatusList()) {
+      if (status.getMessage().startsWith("Logging metrics")
+          && status.getMessage().contains("appender [LIST]: appended=2")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void metricsDisabledByDefault() throws JoranException {
+    configure(ClassicTestConstants.JORAN_INPUT_PREFIX + "packagingDataEnabled.xml");
+    assertFalse(loggerContext.getMetricsRegistry().isEnabled());
+  }
+
   @Test
   public void valueOfConvention() throws JoranException {
     String configFileAsStr = ClassicTestConstants.JORAN_INPUT_PREFIX + "valueOfConvention.xml";
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEventVO;
+import ch.qos.logback.core.net.FramedOutputStream;
+import ch.qos.logback.core.net.ObjectReader;
+
+public class BinaryLoggingEventWriterTest {
+
+  private LoggerContext loggerContext;
+  private Logger logger;
+  private ByteArrayOutputStream bos;
+  private BinaryLoggingEventWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    loggerContext = new LoggerContext();
+    loggerContext.setName("testContext");
+    loggerContext.putProperty("testKey", "testValue");
+    logger = loggerContext.getLogger(getClass());
+    bos = new ByteArrayOutputStream();
+    writer = new BinaryLoggingEventWriter(bos);
+  }
+
+  @Test
+  public void roundTripsEventDetails() throws Exception {
+    Marker marker = MarkerFactory.getDetachedMarker("parent");
+    marker.add(MarkerFactory.getDetachedMarker("child"));
+    MDC.put("user", "alice");
+    Exception cause = new IllegalStateException("cause");
+    LoggingEvent event;
+    try {
+      event = new LoggingEvent(getClass().getName(), logger, Level.WARN,
+          "hello {} {}", new RuntimeException("failure", cause), new Object[] { "world", null });
+      event.setMarker(marker);
+      event.getMDCPropertyMap();
+      event.getCallerData();
+    } finally {
+      MDC.remove("user");
+    }
+
+    writer.write(LoggingEventVO.build(event));
+    ILoggingEvent read = (ILoggingEvent) newReader().read();
+
+    assertEquals(event.getTimeStamp(), read.getTimeStamp());
+    assertEquals(Level.WARN, read.getLevel());
+    assertEquals(event.getLoggerName(), read.getLoggerName());
+    assertEquals(event.getThreadName(), read.getThreadName());
+    assertEquals("hello {} {}", read.getMessage());
+    assertEquals("hello world null", read.getFormattedMessage());
+    assertEquals(event.getLoggerContextVO(), read.getLoggerContextVO());
+    assertEquals("alice", read.getMDCPropertyMap().get("user"));
+    assertEquals("parent", read.getMarker().getName());
+    assertTrue(read.getMarker().contains("child"));
+    assertArrayEquals(event.getCallerData(), read.getCallerData());
+
+    IThrowableProxy tp = read.getThrowableProxy();
+    assertEquals(RuntimeException.class.getName(), tp.getClassName());
+    assertEquals("failure", tp.getMessage());
+    assertEquals(event.getThrowableProxy().getStackTraceElementProxyArray().length,
+        tp.getStackTraceElementProxyArray().length);
+    assertEquals(IllegalStateException.class.getName(), tp.getCause().getClassName());
+    assertEquals(event.getThrowableProxy().getCause().getCommonFrames(), tp.getCause().getCommonFrames());
+    assertNull(tp.getCause().getCause());
+  }
+
+  @Test
+  public void readsSuccessiveEventsSharingDictionaryAndContext() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      LoggingEvent event = new LoggingEvent(getClass().getName(), logger, Level.INFO, "message " + i, null, null);
+      writer.write(LoggingEventVO.build(event));
+    }
+    ObjectReader reader = newReader();
+    for (int i = 0; i < 3; i++) {
+      ILoggingEvent read = (ILoggingEvent) reader.read();
+      assertEquals("message " + i, read.getFormattedMessage());
+      assertEquals(logger.getName(), read.getLoggerName());
+      assertEquals("testValue", read.getLoggerContextVO().getPropertyMap().get("testKey"));
+    }
+    try {
+      reader.read();
+      fail("expected EOFException");
+    } catch (EOFException expected) {
+    }
+  }
+
+  @Test
+  public void keepsEventsWithoutContextApartFromThePreviousContext() throws Exception {
+    writer.write(LoggingEventVO.build(new LoggingEvent(getClass().getName(), logger, Level.INFO, "with", null, null)));
+    LoggingEvent withoutContext = new LoggingEvent(getClass().getName(), logger, Level.INFO, "without", null, null);
+    withoutContext.setLoggerContextRemoteView(null);
+    writer.write(withoutContext);
+    writer.write(LoggingEventVO.build(new LoggingEvent(getClass().getName(), logger, Level.INFO, "with again", null, null)));
+
+    ObjectReader reader = newReader();
+    assertEquals("testContext", ((ILoggingEvent) reader.read()).getLoggerContextVO().getName());
+    assertNull(((ILoggingEvent) reader.read()).getLoggerContextVO());
+    assertEquals("testContext", ((ILoggingEvent) reader.read()).getLoggerContextVO().getName());
+  }
+
+  @Test
+  public void isSmallerThanSerialization() throws Exception {
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(serialized);
+    for (int i = 0; i < 100; i++) {
+      LoggingEventVO event = LoggingEventVO.build(new LoggingEvent(getClass().getName(), logger,
+          Level.INFO, "message {}", null, new Object[] { i }));
+      writer.write(event);
+      oos.writeObject(event);
+      oos.reset();
+    }
+    oos.close();
+    assertTrue(bos.size() * 4 < serialized.size());
+  }
+
+  @Test
+  public void rejectsTruncatedRecord() throws Exception {
+    writer.write(LoggingEventVO.build(new LoggingEvent(getClass().getName(), logger,
+        Level.INFO, "message", null, null)));
+    byte[] bytes = bos.toByteArray();
+    bytes[BinaryWire.HEADER.length] = (byte) (bytes[BinaryWire.HEADER.length] - 2);
+    byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+    try {
+      new LoggingEventReaderFactory().newReader(new ByteArrayInputStream(truncated)).read();
+      fail("expected StreamCorruptedException");
+    } catch (StreamCorruptedException expected) {
+    }
+  }
+
+  @Test
+  public void factoryDetectsSerializedStreams() throws Exception {
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(serialized);
+    oos.writeObject(LoggingEventVO.build(new LoggingEvent(getClass().getName(), logger,
+        Level.ERROR, "serialized", null, null)));
+    oos.close();
+    ObjectReader reader = new LoggingEventReaderFactory().newReader(
+        new ByteArrayInputStream(serialized.toByteArray()));
+    assertEquals("serialized", ((ILoggingEvent) reader.read()).getMessage());
+  }
+
+  @Test
+  public void factoryUnwrapsFramedStreams() throws Exception {
+    ByteArrayOutputStream framed = new ByteArrayOutputStream();
+    FramedOutputStream fos = new FramedOutputStream(framed, true);
+    BinaryLoggingEventWriter framedWriter = new BinaryLoggingEventWriter(fos);
+    for (int i = 0; i < 2; i++) {
+      framedWriter.write(LoggingEventVO.build(new LoggingEvent(getClass().getName(), logger,
+          Level.INFO, "batched " + i, null, null)));
+    }
+    fos.writeFrame();
+
+    ObjectReader reader = new LoggingEventReaderFactory().newReader(
+        new ByteArrayInputStream(framed.toByteArray()));
+    assertEquals("batched 0", ((ILoggingEvent) reader.read()).getMessage());
+    assertEquals("batched 1", ((ILoggingEvent) reader.read()).getMessage());
+  }
+
+  private ObjectReader newReader() throws Exception {
+    return new LoggingEventReaderFactory().newReader(new ByteArrayInputStream(bos.toByteArray()));
+  }
+}
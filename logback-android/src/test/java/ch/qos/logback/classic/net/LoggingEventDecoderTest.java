@@ -0,0 +1,144 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEventVO;
+import ch.qos.logback.core.net.FramedOutputStream;
+
+public class LoggingEventDecoderTest {
+
+  private final LoggerContext loggerContext = new LoggerContext();
+  private final Logger logger = loggerContext.getLogger(getClass());
+  private final LoggingEventDecoder decoder = new LoggingEventDecoder();
+
+  @Test
+  public void decodesFramedEventsFedOneByteAtATime() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    FramedOutputStream fos = new FramedOutputStream(bos, true);
+    ObjectOutputStream oos = new ObjectOutputStream(fos);
+    for (int i = 0; i < 3; i++) {
+      oos.writeObject(newEvent("framed " + i));
+      oos.flush();
+      fos.writeFrame();
+    }
+
+    List<String> messages = new ArrayList<String>();
+    for (byte b : bos.toByteArray()) {
+      decoder.feed(ByteBuffer.wrap(new byte[] { b }));
+      ILoggingEvent event;
+      while ((event = decoder.next()) != null) {
+        messages.add(event.getMessage());
+      }
+    }
+    assertEquals(3, messages.size());
+    assertEquals("framed 2", messages.get(2));
+  }
+
+  @Test
+  public void decodesUnframedBinaryEvents() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    BinaryLoggingEventWriter writer = new BinaryLoggingEventWriter(bos);
+    writer.write(newEvent("first"));
+    writer.write(newEvent("second"));
+    byte[] bytes = bos.toByteArray();
+
+    decoder.feed(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+    assertEquals("first", decoder.next().getMessage());
+    assertNull(decoder.next());
+    decoder.feed(ByteBuffer.wrap(bytes, bytes.length - 1, 1));
+    assertEquals("second", decoder.next().getMessage());
+    assertNull(decoder.next());
+  }
+
+  @Test
+  public void rejectsUnframedSerializedStreams() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(bos);
+    oos.writeObject(newEvent("serialized"));
+    oos.flush();
+    try {
+      decoder.feed(ByteBuffer.wrap(bos.toByteArray()));
+      fail("expected StreamCorruptedException");
+    } catch (StreamCorruptedException expected) {
+    }
+  }
+
+  @Test
+  public void rejectsFramesLargerThanTheLimit() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    FramedOutputStream fos = new FramedOutputStream(bos, false);
+    BinaryLoggingEventWriter writer = new BinaryLoggingEventWriter(fos);
+    writer.write(newEvent(new String(new char[2000]).replace('\0', 'x')));
+    fos.writeFrame();
+
+    LoggingEventDecoder smallDecoder = new LoggingEventDecoder(1024);
+    try {
+      smallDecoder.feed(ByteBuffer.wrap(bos.toByteArray()));
+      fail("expected StreamCorruptedException");
+    } catch (StreamCorruptedException expected) {
+    }
+  }
+
+  @Test
+  public void decodesSmallFramesAfterALargeOne() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    FramedOutputStream fos = new FramedOutputStream(bos, true);
+    BinaryLoggingEventWriter writer = new BinaryLoggingEventWriter(fos);
+    String large = new String(new char[100000]).replace('\0', 'x');
+    writer.write(newEvent(large));
+    fos.writeFrame();
+    for (int i = 0; i < 3; i++) {
+      writer.write(newEvent("small " + i));
+      fos.writeFrame();
+    }
+
+    List<String> messages = new ArrayList<String>();
+    byte[] bytes = bos.toByteArray();
+    for (int offset = 0; offset < bytes.length; offset += 1000) {
+      decoder.feed(ByteBuffer.wrap(bytes, offset, Math.min(1000, bytes.length - offset)));
+      ILoggingEvent event;
+      while ((event = decoder.next()) != null) {
+        messages.add(event.getMessage());
+      }
+    }
+    assertEquals(4, messages.size());
+    assertEquals(large, messages.get(0));
+    assertEquals("small 2", messages.get(3));
+  }
+
+  private LoggingEventVO newEvent(String message) {
+    return LoggingEventVO.build(new LoggingEvent(logger.getName(), logger,
+        Level.INFO, message, null, null));
+  }
+}
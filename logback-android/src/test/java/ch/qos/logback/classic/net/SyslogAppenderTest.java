@@ -28,6 +28,11 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.nio.charset.Charset;
 
 import ch.qos.logback.classic.ClassicTestConstants;
@@ -38,8 +43,10 @@ import ch.qos.logback.classic.net.mock.MockSyslogServer;
 import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.joran.spi.JoranException;
 import ch.qos.logback.core.net.SyslogConstants;
+import ch.qos.logback.core.net.SyslogTransport;
 import ch.qos.logback.core.recovery.RecoveryCoordinator;
 import ch.qos.logback.core.testUtil.RandomUtil;
+import ch.qos.logback.core.util.Duration;
 import ch.qos.logback.core.util.StatusPrinter;
 
 @RunWith(RobolectricTestRunner.class)
@@ -309,6 +316,59 @@ public class SyslogAppenderTest {
 
   }
 
+  @Test
+  public void tcpTransportSendsOctetCountedMessages() throws Exception {
+    ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    try {
+      serverSocket.setSoTimeout(8000);
+      sa.setSyslogHost("localhost");
+      sa.setFacility("MAIL");
+      sa.setPort(serverSocket.getLocalPort());
+      sa.setTransport(SyslogTransport.TCP);
+      sa.setMaxFlushDelay(Duration.buildByMilliseconds(50));
+      sa.setSuffixPattern("[%thread] %logger %msg");
+      sa.start();
+      assertTrue(sa.isStarted());
+      logger.addAppender(sa);
+
+      logger.debug("hello");
+      logger.debug("world", new Exception("just testing"));
+
+      // the messages are small enough to travel in a single batch, which
+      // the flush task writes out
+      Socket socket = serverSocket.accept();
+      socket.setSoTimeout(8000);
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      String expected = "<"
+          + (SyslogConstants.LOG_MAIL + SyslogConstants.DEBUG_SEVERITY) + ">";
+      String threadName = Thread.currentThread().getName();
+
+      String msg = readOctetCountedMessage(in);
+      assertTrue(msg.startsWith(expected));
+      checkRegexMatch(msg, SYSLOG_PREFIX_REGEX + "\\[" + threadName + "\\] " + loggerName + " hello");
+      msg = readOctetCountedMessage(in);
+      checkRegexMatch(msg, SYSLOG_PREFIX_REGEX + "\\[" + threadName + "\\] " + loggerName + " world");
+      msg = readOctetCountedMessage(in);
+      assertTrue(msg.contains("just testing"));
+      socket.close();
+    } finally {
+      sa.stop();
+      serverSocket.close();
+    }
+  }
+
+  private String readOctetCountedMessage(DataInputStream in) throws IOException {
+    int length = 0;
+    int b;
+    while ((b = in.read()) != ' ') {
+      assertTrue("unexpected frame header byte " + b, b >= '0' && b <= '9');
+      length = length * 10 + (b - '0');
+    }
+    byte[] message = new byte[length];
+    in.readFully(message);
+    return new String(message);
+  }
+
   class SyslogAppenderFriend extends SyslogAppender {
     public boolean isInitialized() {
       return this.sos != null;
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.net.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.net.BinaryLoggingEventWriter;
+import ch.qos.logback.classic.net.mock.MockAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEventVO;
+import ch.qos.logback.core.net.FramedOutputStream;
+import ch.qos.logback.core.net.server.ServerSocketUtil;
+
+/**
+ * A functional test for {@link NioServerSocketReceiver}.
+ */
+public class NioServerSocketReceiverFunctionalTest {
+
+  private static final int EVENT_COUNT = 10;
+  private static final int SHUTDOWN_DELAY = 10000;
+  private MockAppender appender;
+  private Logger logger;
+  private NioServerSocketReceiver receiver;
+  private LoggerContext lc;
+  private int port;
+
+  @Before
+  public void setUp() throws Exception {
+    lc = new LoggerContext();
+
+    appender = new MockAppender();
+    appender.start();
+
+    logger = lc.getLogger(getClass());
+    logger.addAppender(appender);
+
+    ServerSocket serverSocket = ServerSocketUtil.createServerSocket();
+    port = serverSocket.getLocalPort();
+    serverSocket.close();
+
+    receiver = new NioServerSocketReceiver();
+    receiver.setPort(port);
+    receiver.setContext(lc);
+    receiver.start();
+    assertTrue(receiver.isStarted());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    receiver.stop();
+    ExecutorService executor = lc.getScheduledExecutorService();
+    executor.shutdownNow();
+    executor.awaitTermination(SHUTDOWN_DELAY, TimeUnit.MILLISECONDS);
+    assertTrue(executor.isTerminated());
+  }
+
+  @Test
+  public void receivesCompressedBatchesOfSerializedEvents() throws Exception {
+    Socket socket = new Socket(InetAddress.getLocalHost(), port);
+    try {
+      FramedOutputStream fos = new FramedOutputStream(socket.getOutputStream(), true);
+      ObjectOutputStream oos = new ObjectOutputStream(fos);
+      for (int i = 0; i < EVENT_COUNT; i++) {
+        oos.writeObject(newEvent("serialized " + i));
+        oos.flush();
+        if (i % 3 == 2) {
+          fos.writeFrame();
+        }
+      }
+      fos.writeFrame();
+      assertReceived("serialized ");
+    }
+    finally {
+      socket.close();
+    }
+  }
+
+  @Test
+  public void receivesBinaryEventsSentInPieces() throws Exception {
+    Socket socket = new Socket(InetAddress.getLocalHost(), port);
+    socket.setTcpNoDelay(true);
+    try {
+      final OutputStream os = socket.getOutputStream();
+      BinaryLoggingEventWriter writer = new BinaryLoggingEventWriter(new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          os.write(b);
+          os.flush();
+        }
+      });
+      for (int i = 0; i < EVENT_COUNT; i++) {
+        writer.write(newEvent("binary " + i));
+      }
+      assertReceived("binary ");
+    }
+    finally {
+      socket.close();
+    }
+  }
+
+  @Test
+  public void servesSeveralClients() throws Exception {
+    Socket[] sockets = new Socket[5];
+    try {
+      for (int i = 0; i < sockets.length; i++) {
+        sockets[i] = new Socket(InetAddress.getLocalHost(), port);
+        new BinaryLoggingEventWriter(sockets[i].getOutputStream()).write(newEvent("client " + i));
+      }
+      for (int i = 0; i < sockets.length; i++) {
+        assertNotNull(appender.awaitAppend(SHUTDOWN_DELAY));
+      }
+    }
+    finally {
+      for (Socket socket : sockets) {
+        if (socket != null) {
+          socket.close();
+        }
+      }
+    }
+  }
+
+  private LoggingEventVO newEvent(String message) {
+    return LoggingEventVO.build(new LoggingEvent(logger.getName(), logger,
+        Level.DEBUG, message, null, new Object[0]));
+  }
+
+  private void assertReceived(String prefix) throws Exception {
+    for (int i = 0; i < EVENT_COUNT; i++) {
+      ILoggingEvent rcvdEvent = appender.awaitAppend(SHUTDOWN_DELAY);
+      assertNotNull(rcvdEvent);
+      assertEquals(logger.getName(), rcvdEvent.getLoggerName());
+      assertEquals(prefix + i, rcvdEvent.getMessage());
+    }
+  }
+
+}
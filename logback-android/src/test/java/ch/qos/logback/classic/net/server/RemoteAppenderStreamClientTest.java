@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.net.BinaryLoggingEventWriter;
 import ch.qos.logback.classic.net.mock.MockAppender;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
@@ -86,6 +87,24 @@ public class RemoteAppenderStreamClientTest {
     assertEquals(event.getMessage(), rcvdEvent.getMessage());
   }
 
+  @Test
+  public void testWithBinaryWireFormat() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    new BinaryLoggingEventWriter(bos).write(LoggingEventVO.build(event));
+    client = new RemoteAppenderStreamClient("some client ID",
+        new ByteArrayInputStream(bos.toByteArray()));
+    client.setLoggerContext((LoggerContext) LoggerFactory.getILoggerFactory());
+
+    logger.setLevel(Level.DEBUG);
+    client.run();
+    client.close();
+
+    ILoggingEvent rcvdEvent = appender.getLastEvent();
+    assertEquals(event.getLoggerName(), rcvdEvent.getLoggerName());
+    assertEquals(event.getLevel(), rcvdEvent.getLevel());
+    assertEquals(event.getMessage(), rcvdEvent.getMessage());
+  }
+
   @Test
   public void testWithDisabledLevel() throws Exception {
     logger.setLevel(Level.INFO);
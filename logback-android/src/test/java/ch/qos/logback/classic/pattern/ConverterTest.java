@@ -172,6 +172,39 @@ public class ConverterTest {
     }
   }
 
+  @Test
+  public void abbreviatedLoggerNamesAreCached() {
+    NamedConverter converter = new LoggerConverter();
+    this.optionList.add("20");
+    converter.setOptionList(this.optionList);
+    converter.start();
+
+    for (int i = 0; i < 3; i++) {
+      StringBuilder buf = new StringBuilder();
+      converter.write(buf, le);
+      assertEquals("c.q.l.c.p.ConverterTest", buf.toString());
+    }
+    assertEquals(1, converter.getCacheMisses());
+    assertEquals(2, converter.getCacheHits());
+  }
+
+  @Test
+  public void abbreviationCacheIsBounded() {
+    NamedConverter converter = new LoggerConverter();
+    this.optionList.add("0");
+    converter.setOptionList(this.optionList);
+    converter.start();
+
+    for (int i = 0; i <= NamedConverter.MAX_CACHE_SIZE; i++) {
+      le.setLoggerName("a.b.C" + i);
+      assertEquals("C" + i, converter.convert(le));
+    }
+    le.setLoggerName("a.b.C" + NamedConverter.MAX_CACHE_SIZE);
+    assertEquals("C" + NamedConverter.MAX_CACHE_SIZE, converter.convert(le));
+    assertEquals(NamedConverter.MAX_CACHE_SIZE + 2, converter.getCacheMisses());
+    assertEquals(0, converter.getCacheHits());
+  }
+
   @Test
   public void testVeryLongLoggerName() {
     ClassicConverter converter = new LoggerConverter();
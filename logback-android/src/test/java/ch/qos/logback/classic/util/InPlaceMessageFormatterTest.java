@@ -0,0 +1,78 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.classic.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.slf4j.helpers.MessageFormatter;
+
+public class InPlaceMessageFormatterTest {
+
+  private void verify(String pattern, Object... args) {
+    StringBuilder buf = new StringBuilder("prefix:");
+    InPlaceMessageFormatter.format(buf, pattern, args);
+    String expected = MessageFormatter.arrayFormat(pattern, args).getMessage();
+    assertEquals("prefix:" + expected, buf.toString());
+  }
+
+  @Test
+  public void plainMessages() {
+    verify("hello");
+    verify("hello {}", (Object[]) null);
+    verify("");
+  }
+
+  @Test
+  public void parameters() {
+    verify("a={}", 1);
+    verify("a={} b={}", "x", 2L);
+    verify("{}{}{}", true, 'c', 3.5d);
+    verify("a={} b={}", "only one");
+    verify("a={}", "x", "extra");
+    verify("a={}", (Object) null);
+    verify("date {}", new Date(0));
+  }
+
+  @Test
+  public void escapes() {
+    verify("escaped \\{} {}", "p");
+    verify("double escaped \\\\{}", "p");
+    verify("trailing \\");
+    verify("unbalanced { and {}", 1);
+  }
+
+  @Test
+  public void arrays() {
+    verify("{}", (Object) new int[] { 1, 2 });
+    verify("{} {}", new String[] { "a", "b" }, new Object[] { new long[] { 3L } });
+  }
+
+  @Test
+  public void failingToString() {
+    Object bad = new Object() {
+      @Override
+      public String toString() {
+        throw new IllegalStateException("boom");
+      }
+    };
+    StringBuilder buf = new StringBuilder();
+    InPlaceMessageFormatter.format(buf, "value={}", new Object[] { bad });
+    assertEquals(MessageFormatter.format("value={}", bad).getMessage(), buf.toString());
+  }
+}
@@ -101,6 +101,16 @@ public class LoggerNameUtilTest {
     assertEquals(witnessList, partList);
   }
 
+  @Test
+  public void lastSeparatorIndexOf() {
+    String name = "com.foo.Bar$Nested";
+    assertEquals(11, LoggerNameUtil.getLastSeparatorIndexOf(name, name.length() - 1));
+    assertEquals(7, LoggerNameUtil.getLastSeparatorIndexOf(name, 10));
+    assertEquals(3, LoggerNameUtil.getLastSeparatorIndexOf(name, 6));
+    assertEquals(-1, LoggerNameUtil.getLastSeparatorIndexOf(name, 2));
+    assertEquals(-1, LoggerNameUtil.getLastSeparatorIndexOf("", -1));
+  }
+
   private List<String> computeNameParts(String loggerName) {
     List<String> partList = new ArrayList<String>();
 
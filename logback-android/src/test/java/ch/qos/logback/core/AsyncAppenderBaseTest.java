@@ -20,6 +20,10 @@ import ch.qos.logback.core.read.ListAppender;
 import ch.qos.logback.core.testUtil.DelayingListAppender;
 import ch.qos.logback.core.status.StatusChecker;
 import ch.qos.logback.core.testUtil.NPEAppender;
+import ch.qos.logback.core.util.RingBufferBlockingQueue;
+import ch.qos.logback.core.util.WaitStrategy;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -167,6 +171,130 @@ public class AsyncAppenderBaseTest {
     verify(delayingListAppender, loopLen);
   }
 
+  @Test(timeout = 2000)
+  public void ringBufferSmoke() {
+    asyncAppenderBase.setRingBuffer(true);
+    asyncAppenderBase.addAppender(listAppender);
+    asyncAppenderBase.start();
+    assertTrue(asyncAppenderBase.blockingQueue instanceof RingBufferBlockingQueue);
+    asyncAppenderBase.doAppend(0);
+    asyncAppenderBase.stop();
+    verify(listAppender, 1);
+  }
+
+  @Test(timeout = 2000)
+  public void ringBufferNoEventLoss() {
+    for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+      AsyncAppenderBase<Integer> aab = new AsyncAppenderBase<Integer>();
+      aab.setContext(context);
+      ListAppender<Integer> la = new DelayingListAppender<Integer>();
+      la.setContext(context);
+      la.start();
+      int bufferSize = 10;
+      int loopLen = bufferSize * 2;
+      aab.addAppender(la);
+      aab.setQueueSize(bufferSize);
+      aab.setRingBuffer(true);
+      aab.setWaitStrategy(waitStrategy);
+      aab.start();
+      for (int i = 0; i < loopLen; i++) {
+        aab.doAppend(i);
+      }
+      aab.stop();
+      verify(la, loopLen);
+    }
+  }
+
+  @Test(timeout = 5000)
+  public void ringBufferNoEventLossWithConcurrentProducers() throws InterruptedException {
+    final int producerCount = 4;
+    final int loopLen = 1000;
+    asyncAppenderBase.addAppender(listAppender);
+    asyncAppenderBase.setQueueSize(16);
+    asyncAppenderBase.setRingBuffer(true);
+    asyncAppenderBase.start();
+    Thread[] producers = new Thread[producerCount];
+    for (int p = 0; p < producerCount; p++) {
+      producers[p] = new Thread(new Runnable() {
+        public void run() {
+          for (int i = 0; i < loopLen; i++) {
+            asyncAppenderBase.doAppend(i);
+          }
+        }
+      });
+      producers[p].start();
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    asyncAppenderBase.stop();
+    assertEquals(producerCount * loopLen, listAppender.list.size());
+  }
+
+  @Test(timeout = 2000)
+  public void ringBufferLossyAppenderShouldOnlyLoseCertainEvents() {
+    int bufferSize = 5;
+    int loopLen = bufferSize * 2;
+    lossyAsyncAppender.addAppender(delayingListAppender);
+    lossyAsyncAppender.setQueueSize(bufferSize);
+    lossyAsyncAppender.setDiscardingThreshold(1);
+    lossyAsyncAppender.setRingBuffer(true);
+    lossyAsyncAppender.start();
+    for (int i = 0; i < loopLen; i++) {
+      lossyAsyncAppender.doAppend(i);
+    }
+    lossyAsyncAppender.stop();
+    verify(delayingListAppender, loopLen - 2);
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void pendingEventsAreHandedOverAsOneBatch() {
+    int loopLen = 5;
+    BatchListAppender<Integer> bla = new BatchListAppender<Integer>();
+    bla.setContext(context);
+    bla.start();
+    asyncAppenderBase.addAppender(bla);
+    asyncAppenderBase.start();
+    asyncAppenderBase.worker.suspend();
+
+    for (int i = 0; i < loopLen; i++) {
+      asyncAppenderBase.doAppend(i);
+    }
+
+    asyncAppenderBase.worker.resume();
+    asyncAppenderBase.stop();
+
+    verify(bla, loopLen);
+    assertEquals(1, bla.batchCount);
+    assertEquals(Integer.valueOf(0), bla.list.get(0));
+    assertEquals(Integer.valueOf(loopLen - 1), bla.list.get(loopLen - 1));
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void maxBatchSizeBoundsBatches() {
+    int loopLen = 5;
+    BatchListAppender<Integer> bla = new BatchListAppender<Integer>();
+    bla.setContext(context);
+    bla.start();
+    asyncAppenderBase.addAppender(bla);
+    asyncAppenderBase.setMaxBatchSize(2);
+    asyncAppenderBase.start();
+    asyncAppenderBase.worker.suspend();
+
+    for (int i = 0; i < loopLen; i++) {
+      asyncAppenderBase.doAppend(i);
+    }
+
+    asyncAppenderBase.worker.resume();
+    asyncAppenderBase.stop();
+
+    verify(bla, loopLen);
+    // two full batches, the last event is handed over on its own via doAppend
+    assertEquals(2, bla.batchCount);
+  }
+
   @Test
   public void invalidQueueCapacityShouldResultInNonStartedAppender() {
     asyncAppenderBase.addAppender(new NOPAppender<Integer>());
@@ -274,6 +402,17 @@ public class AsyncAppenderBaseTest {
     statusChecker.assertContainsMatch("Worker thread will flush remaining events before exiting.");
   }
 
+  static class BatchListAppender<E> extends ListAppender<E> implements BatchAppender<E> {
+    int batchCount = 0;
+
+    public void doAppendBatch(List<E> events) {
+      batchCount++;
+      for (E e : events) {
+        doAppend(e);
+      }
+    }
+  }
+
   static class LossyAsyncAppender extends AsyncAppenderBase<Integer> {
     @Override
     protected boolean isDiscardable(Integer i) {
@@ -16,15 +16,26 @@
 package ch.qos.logback.core;
 
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import ch.qos.logback.core.encoder.DummyEncoder;
+import ch.qos.logback.core.encoder.EchoEncoder;
 import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+import ch.qos.logback.core.spi.FilterReply;
 import ch.qos.logback.core.pattern.parser.SamplePatternLayout;
 
 public class OutputStreamAppenderTest {
@@ -84,6 +95,253 @@ public class OutputStreamAppenderTest {
     headerFooterCheck(FILE_HEADER, PRESENTATION_HEADER, PRESENTATION_FOOTER, FILE_FOOTER);
   }
   
+  @Test
+  public void batchIsFlushedOnce() {
+    OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    FlushCountingOutputStream os = new FlushCountingOutputStream();
+    DummyEncoder<Object> encoder = new DummyEncoder<Object>();
+    encoder.setContext(context);
+    wa.setEncoder(encoder);
+    wa.setOutputStream(os);
+    wa.start();
+    int flushesBefore = os.flushCount;
+
+    wa.doAppendBatch(Arrays.<Object>asList(1, 2, 3, 4, 5));
+
+    assertEquals(flushesBefore + 1, os.flushCount);
+    assertEquals(5 * DummyEncoder.DUMMY.length(), os.size());
+    wa.stop();
+  }
+
+  @Test
+  public void batchRespectsFilters() {
+    OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    wa.setEncoder(new DummyEncoder<Object>());
+    wa.setOutputStream(baos);
+    wa.addFilter(new Filter<Object>() {
+      @Override
+      public FilterReply decide(Object event) {
+        return ((Integer) event) % 2 == 0 ? FilterReply.DENY : FilterReply.NEUTRAL;
+      }
+    });
+    wa.start();
+
+    wa.doAppendBatch(Arrays.<Object>asList(1, 2, 3, 4, 5));
+
+    assertEquals(3 * DummyEncoder.DUMMY.length(), baos.size());
+    wa.stop();
+  }
+
+  @Test
+  public void byteBufferEncoderOutput() {
+    OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    FlushCountingOutputStream os = new FlushCountingOutputStream();
+    wa.setEncoder(new EchoEncoder<Object>());
+    wa.setOutputStream(os);
+    wa.start();
+
+    wa.doAppend("a");
+    wa.doAppend("b");
+    assertEquals(2, os.writeCount);
+    assertEquals("a" + CoreConstants.LINE_SEPARATOR + "b" + CoreConstants.LINE_SEPARATOR, os.toString());
+
+    // a batch is buffered and written out in one go
+    wa.doAppendBatch(Arrays.<Object>asList(1, 2, 3));
+    assertEquals(3, os.writeCount);
+    assertTrue(os.toString().endsWith("1" + CoreConstants.LINE_SEPARATOR + "2" + CoreConstants.LINE_SEPARATOR
+        + "3" + CoreConstants.LINE_SEPARATOR));
+    wa.stop();
+  }
+
+  @Test
+  public void groupFlushByEventCount() {
+    OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    FlushCountingOutputStream os = new FlushCountingOutputStream();
+    wa.setEncoder(new EchoEncoder<Object>());
+    wa.setOutputStream(os);
+    wa.setFlushEvents(3);
+    wa.start();
+
+    for (int i = 0; i < 7; i++) {
+      wa.doAppend(i);
+    }
+    assertEquals(2, os.flushCount);
+
+    // batches are checked against the thresholds once, at their end
+    wa.doAppendBatch(Arrays.<Object>asList(7, 8));
+    assertEquals(3, os.flushCount);
+    wa.stop();
+  }
+
+  @Test
+  public void groupFlushByByteCount() {
+    OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    FlushCountingOutputStream os = new FlushCountingOutputStream();
+    DummyEncoder<Object> encoder = new DummyEncoder<Object>();
+    encoder.setContext(context);
+    wa.setEncoder(encoder);
+    wa.setOutputStream(os);
+    wa.setFlushBytes(new FileSize(2 * DummyEncoder.DUMMY.length()));
+    wa.start();
+
+    wa.doAppend(1);
+    assertEquals(0, os.flushCount);
+    wa.doAppend(2);
+    assertEquals(1, os.flushCount);
+    wa.doAppend(3);
+    assertEquals(1, os.flushCount);
+    wa.stop();
+  }
+
+  @Test
+  public void groupFlushByDelay() throws InterruptedException {
+    OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    FlushCountingOutputStream os = new FlushCountingOutputStream();
+    wa.setEncoder(new EchoEncoder<Object>());
+    wa.setOutputStream(os);
+    wa.setFlushEvents(1000);
+    wa.setMaxFlushDelay(Duration.buildByMilliseconds(20));
+    wa.start();
+
+    wa.doAppend("a");
+    assertEquals(0, os.flushCount);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (os.flushCount == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, os.flushCount);
+
+    // nothing pending, nothing to flush
+    Thread.sleep(100);
+    assertEquals(1, os.flushCount);
+    wa.stop();
+  }
+
+  @Test
+  public void backgroundWriter() throws InterruptedException {
+    final OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    wa.setEncoder(new EchoEncoder<Object>());
+    wa.setOutputStream(baos);
+    wa.setBackgroundWriter(true);
+    wa.setWriterQueueSize(4);
+    wa.start();
+
+    final int threadCount = 4;
+    final int eventCount = 500;
+    Thread[] threads = new Thread[threadCount];
+    for (int t = 0; t < threadCount; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < eventCount; i++) {
+            wa.doAppend(i);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    wa.stop();
+
+    String[] lines = baos.toString().split(CoreConstants.LINE_SEPARATOR);
+    assertEquals(threadCount * eventCount, lines.length);
+    int[] counts = new int[eventCount];
+    for (String line : lines) {
+      counts[Integer.parseInt(line)]++;
+    }
+    for (int count : counts) {
+      assertEquals(threadCount, count);
+    }
+  }
+
+  @Test
+  public void producerBlockedOnFullWriterQueueIsReleasedByStop() throws InterruptedException {
+    final CountDownLatch writeEntered = new CountDownLatch(1);
+    final CountDownLatch releaseWrite = new CountDownLatch(1);
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream() {
+      @Override
+      public synchronized void write(byte[] b, int off, int len) {
+        writeEntered.countDown();
+        try {
+          releaseWrite.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.write(b, off, len);
+      }
+    };
+    final OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
+    wa.setContext(context);
+    wa.setEncoder(new EchoEncoder<Object>());
+    wa.setOutputStream(baos);
+    wa.setBackgroundWriter(true);
+    wa.setWriterQueueSize(1);
+    wa.start();
+
+    // the first event blocks the writer thread, the next ones fill the queue
+    // and the producer ends up waiting for room
+    Thread producer = new Thread() {
+      public void run() {
+        for (int i = 0; i < 100; i++) {
+          wa.doAppend(i);
+        }
+      }
+    };
+    producer.start();
+    assertTrue(writeEntered.await(5, TimeUnit.SECONDS));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (producer.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(Thread.State.TIMED_WAITING, producer.getState());
+    Thread stopper = new Thread() {
+      public void run() {
+        wa.stop();
+      }
+    };
+    stopper.start();
+    Thread.sleep(100);
+    releaseWrite.countDown();
+
+    producer.join(5000);
+    stopper.join(5000);
+    assertFalse(producer.isAlive());
+    assertFalse(stopper.isAlive());
+    // events are written in order, without gaps; the ones appended after
+    // stop() are ignored
+    String[] lines = baos.toString().split(CoreConstants.LINE_SEPARATOR);
+    assertTrue(lines.length > 1);
+    for (int i = 0; i < lines.length; i++) {
+      assertEquals(String.valueOf(i), lines[i]);
+    }
+  }
+
+  static class FlushCountingOutputStream extends ByteArrayOutputStream {
+    volatile int flushCount = 0;
+    int writeCount = 0;
+
+    @Override
+    public void flush() {
+      flushCount++;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+      writeCount++;
+      super.write(b, off, len);
+    }
+  }
+
   public void headerFooterCheck(String fileHeader, String presentationHeader, String presentationFooter, String fileFooter) {
     OutputStreamAppender<Object> wa = new OutputStreamAppender<Object>();
     wa.setContext(context);
@@ -21,6 +21,9 @@ import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertNull;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.List;
 
 import ch.qos.logback.core.recovery.ResilientFileOutputStream;
@@ -31,12 +34,18 @@ import org.junit.Test;
 import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.FileAppender;
 import ch.qos.logback.core.NOPOutputStream;
+import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.encoder.DummyEncoder;
+import ch.qos.logback.core.encoder.EchoEncoder;
 import ch.qos.logback.core.encoder.NopEncoder;
 import ch.qos.logback.core.status.Status;
 import ch.qos.logback.core.status.StatusManager;
 import ch.qos.logback.core.testUtil.RandomUtil;
 import ch.qos.logback.core.util.CoreTestConstants;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileBackend;
+import ch.qos.logback.core.util.FileSize;
+import ch.qos.logback.core.util.ForcePolicy;
 import ch.qos.logback.core.util.StatusPrinter;
 
 public class FileAppenderTest extends AbstractAppenderTest<Object> {
@@ -76,6 +85,123 @@ public class FileAppenderTest extends AbstractAppenderTest<Object> {
     assertTrue("failed to delete " + file.getAbsolutePath(), file.delete());
   }
 
+  @Test
+  public void channelBackend() throws IOException {
+    verifyBackend(FileBackend.CHANNEL, ForcePolicy.FLUSH);
+  }
+
+  @Test
+  public void mappedBackend() throws IOException {
+    verifyBackend(FileBackend.MAPPED, ForcePolicy.INTERVAL);
+  }
+
+  private void verifyBackend(FileBackend backend, ForcePolicy forcePolicy) throws IOException {
+    String filename = CoreTestConstants.OUTPUT_DIR_PREFIX + diff + "-" + backend + ".log";
+    StringBuilder expected = new StringBuilder();
+    // the second run appends to the file left by the first one
+    for (int run = 0; run < 2; run++) {
+      FileAppender<Object> appender = new FileAppender<Object>();
+      appender.setEncoder(new EchoEncoder<Object>());
+      appender.setFile(filename);
+      appender.setBackend(backend);
+      // small enough for events to span buffers and mapped regions
+      appender.setBufferSize(new FileSize(16));
+      appender.setMappedRegionSize(new FileSize(16));
+      appender.setForcePolicy(forcePolicy);
+      appender.setForceInterval(Duration.buildByMilliseconds(10));
+      appender.setName("backend" + run);
+      appender.setContext(context);
+      appender.start();
+      assertTrue(appender.isStarted());
+      for (int i = 0; i < 20; i++) {
+        String event = run + "-" + i + (i % 5 == 0 ? "-a-longer-event-than-the-buffer" : "");
+        appender.doAppend(event);
+        expected.append(event).append(CoreConstants.LINE_SEPARATOR);
+      }
+      appender.force();
+      appender.stop();
+    }
+
+    File file = new File(filename);
+    String actual = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+    assertEquals(expected.toString(), actual);
+    assertTrue("failed to delete " + file.getAbsolutePath(), file.delete());
+  }
+
+  @Test
+  public void mappedBackendReportsContentLength() throws IOException {
+    String filename = CoreTestConstants.OUTPUT_DIR_PREFIX + diff + "-mapped-length.log";
+    FileAppender<Object> appender = newMappedAppender(filename, 4096);
+    appender.doAppend("hello");
+    ResilientFileOutputStream os = (ResilientFileOutputStream) appender.getOutputStream();
+    File file = new File(filename);
+    long expectedLength = ("hello" + CoreConstants.LINE_SEPARATOR).length();
+    assertEquals(expectedLength, os.getContentLength());
+    assertTrue(file.length() > expectedLength);
+    appender.stop();
+    assertEquals(expectedLength, file.length());
+    assertTrue("failed to delete " + file.getAbsolutePath(), file.delete());
+  }
+
+  @Test
+  public void mappedBackendCutsOffUnusedRegionLeftByCrash() throws IOException {
+    String filename = CoreTestConstants.OUTPUT_DIR_PREFIX + diff + "-mapped-crash.log";
+    File file = new File(filename);
+    file.getParentFile().mkdirs();
+    // what an unclosed stream leaves behind: the content, then the zero
+    // filled rest of the last mapped region
+    byte[] content = ("before" + CoreConstants.LINE_SEPARATOR).getBytes();
+    byte[] leftOver = new byte[content.length + 100];
+    System.arraycopy(content, 0, leftOver, 0, content.length);
+    Files.write(file.toPath(), leftOver);
+
+    FileAppender<Object> appender = newMappedAppender(filename, 256);
+    appender.doAppend("after");
+    appender.stop();
+
+    String actual = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+    assertEquals("before" + CoreConstants.LINE_SEPARATOR + "after" + CoreConstants.LINE_SEPARATOR, actual);
+    assertTrue("failed to delete " + file.getAbsolutePath(), file.delete());
+  }
+
+  @Test
+  public void mappedRegionSizeMustFitInAnInt() {
+    FileAppender<Object> appender = new FileAppender<Object>();
+    appender.setEncoder(new NopEncoder<Object>());
+    appender.setFile(CoreTestConstants.OUTPUT_DIR_PREFIX + diff + "-mapped-huge.log");
+    appender.setBackend(FileBackend.MAPPED);
+    appender.setMappedRegionSize(new FileSize(3L * 1024 * 1024 * 1024));
+    appender.setContext(context);
+    appender.start();
+    assertFalse(appender.isStarted());
+  }
+
+  private FileAppender<Object> newMappedAppender(String filename, long regionSize) {
+    FileAppender<Object> appender = new FileAppender<Object>();
+    appender.setEncoder(new EchoEncoder<Object>());
+    appender.setFile(filename);
+    appender.setBackend(FileBackend.MAPPED);
+    appender.setMappedRegionSize(new FileSize(regionSize));
+    appender.setContext(context);
+    appender.start();
+    assertTrue(appender.isStarted());
+    return appender;
+  }
+
+  @Test
+  public void prudentModeRequiresStreamBackend() {
+    FileAppender<Object> appender = new FileAppender<Object>();
+    appender.setEncoder(new NopEncoder<Object>());
+    appender.setFile(CoreTestConstants.OUTPUT_DIR_PREFIX + diff + "-prudent-backend.log");
+    appender.setBackend(FileBackend.MAPPED);
+    appender.setPrudent(true);
+    appender.setContext(context);
+    appender.start();
+    assertEquals(FileBackend.STREAM, appender.getBackend());
+    assertTrue(((ResilientFileOutputStream) appender.getOutputStream()).getBackend() == FileBackend.STREAM);
+    appender.stop();
+  }
+
   @Test
   public void testCreateParentFolders() {
     String filename = CoreTestConstants.OUTPUT_DIR_PREFIX + "/fat-testCreateParentFolders-" + diff
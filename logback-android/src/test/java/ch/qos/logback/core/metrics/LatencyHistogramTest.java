@@ -0,0 +1,72 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+  LatencyHistogram histogram = new LatencyHistogram();
+
+  @Test
+  public void bucketsByPowerOfTwo() {
+    histogram.record(0);
+    histogram.record(1);
+    histogram.record(2);
+    histogram.record(3);
+    histogram.record(1000);
+    long[] counts = histogram.getBucketCounts();
+    assertEquals(1, counts[0]);
+    assertEquals(1, counts[1]);
+    assertEquals(2, counts[2]);
+    // 512 <= 1000 < 1024
+    assertEquals(1, counts[10]);
+    assertEquals(5, histogram.getCount());
+    assertEquals(1006, histogram.getTotalNanos());
+  }
+
+  @Test
+  public void longDurationsGoToTheLastBucket() {
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(1, histogram.getBucketCounts()[LatencyHistogram.BUCKET_COUNT - 1]);
+    assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(50));
+  }
+
+  @Test
+  public void percentilesAreBucketUpperBounds() {
+    assertEquals(0, histogram.getPercentileNanos(50));
+    for (int i = 0; i < 99; i++) {
+      histogram.record(100);
+    }
+    histogram.record(100000);
+    assertEquals(128, histogram.getPercentileNanos(50));
+    assertEquals(128, histogram.getPercentileNanos(99));
+    assertEquals(131072, histogram.getPercentileNanos(100));
+  }
+
+  @Test
+  public void resetForgetsDurations() {
+    histogram.record(100);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getTotalNanos());
+  }
+}
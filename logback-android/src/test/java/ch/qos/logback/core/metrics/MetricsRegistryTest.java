@@ -0,0 +1,164 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.AsyncAppenderBase;
+import ch.qos.logback.core.ContextBase;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.testUtil.DelayingListAppender;
+
+/**
+ * Unit tests for {@link MetricsRegistry} and the metrics it collects from
+ * appenders.
+ */
+public class MetricsRegistryTest {
+
+  ContextBase context = new ContextBase();
+  MetricsRegistry registry = context.getMetricsRegistry();
+
+  @Before
+  public void setUp() {
+    registry.setEnabled(true);
+  }
+
+  @After
+  public void tearDown() {
+    context.stop();
+  }
+
+  @Test
+  public void countsAppendedDeniedAndFailedEvents() {
+    ListAppender<String> appender = new ListAppender<String>();
+    appender.setName("list");
+    appender.addFilter(new Filter<String>() {
+      public FilterReply decide(String event) {
+        return "secret".equals(event) ? FilterReply.DENY : FilterReply.NEUTRAL;
+      }
+    });
+    start(appender);
+    FailingAppender failing = new FailingAppender();
+    failing.setName("failing");
+    start(failing);
+
+    appender.doAppend("a");
+    appender.doAppend("secret");
+    appender.doAppend("b");
+    failing.doAppend("c");
+
+    AppenderMetrics metrics = registry.getAppenderMetrics("list");
+    assertEquals(2, metrics.getAppendedCount());
+    assertEquals(1, metrics.getDeniedCount());
+    assertEquals(0, metrics.getFailedCount());
+    assertEquals(2, metrics.getAppendLatency().getCount());
+    assertEquals(1, registry.getAppenderMetrics("failing").getFailedCount());
+    assertEquals(2, registry.getAllAppenderMetrics().size());
+  }
+
+  @Test
+  public void countsDroppedEvents() throws Exception {
+    DelayingListAppender<String> slow = new DelayingListAppender<String>();
+    slow.setDelay(100);
+    start(slow);
+    AsyncAppenderBase<String> async = new AsyncAppenderBase<String>();
+    async.setName("async");
+    async.setQueueSize(1);
+    async.setNeverBlock(true);
+    async.addAppender(slow);
+    start(async);
+
+    for (int i = 0; i < 10; i++) {
+      async.doAppend("event" + i);
+    }
+    async.stop();
+
+    AppenderMetrics metrics = registry.getAppenderMetrics("async");
+    assertEquals(10, metrics.getAppendedCount());
+    assertTrue(metrics.getDroppedCount() >= 7);
+  }
+
+  @Test
+  public void disabledRegistryCollectsNothing() {
+    registry.setEnabled(false);
+    ListAppender<String> appender = new ListAppender<String>();
+    appender.setName("list");
+    start(appender);
+    appender.doAppend("a");
+    registry.recordEvent("logger", "INFO");
+
+    assertTrue(registry.getAllAppenderMetrics().isEmpty());
+    assertTrue(registry.getEventCountsByLogger().isEmpty());
+  }
+
+  @Test
+  public void countsEventsByLevelAndLogger() {
+    registry.recordEvent("a", "INFO");
+    registry.recordEvent("a", "WARN");
+    registry.recordEvent("b", "INFO");
+
+    assertEquals(Long.valueOf(2), registry.getEventCountsByLevel().get("INFO"));
+    assertEquals(Long.valueOf(1), registry.getEventCountsByLevel().get("WARN"));
+    assertEquals(Long.valueOf(2), registry.getEventCountsByLogger().get("a"));
+    assertNull(registry.getEventCountsByLogger().get("c"));
+  }
+
+  @Test
+  public void dumpListsAppendersLevelsAndBusiestLoggers() {
+    registry.getAppenderMetrics("file").recordAppended(1500);
+    for (int i = 0; i < MetricsRegistry.DUMPED_LOGGER_COUNT + 5; i++) {
+      for (int j = 0; j <= i; j++) {
+        registry.recordEvent("logger" + i, "DEBUG");
+      }
+    }
+
+    String dump = registry.dump();
+    assertTrue(dump, dump.contains("appender [file]: appended=1, denied=0, dropped=0, failed=0, p50<=2048ns"));
+    assertTrue(dump, dump.contains("level [DEBUG]: "));
+    assertTrue(dump, dump.contains("logger [logger24]: 25"));
+    assertFalse(dump, dump.contains("logger [logger0]:"));
+  }
+
+  @Test
+  public void resetDisablesAndForgets() {
+    registry.recordEvent("a", "INFO");
+    context.reset();
+    assertFalse(registry.isEnabled());
+    assertTrue(registry.getEventCountsByLevel().isEmpty());
+  }
+
+  private void start(ch.qos.logback.core.Appender<String> appender) {
+    appender.setContext(context);
+    appender.start();
+  }
+
+  static class FailingAppender extends AppenderBase<String> {
+    @Override
+    protected void append(String event) {
+      throw new IllegalStateException("failing on purpose");
+    }
+  }
+}
@@ -25,10 +25,12 @@ import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.Executors;
@@ -39,11 +41,14 @@ import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import ch.qos.logback.core.net.mock.MockContext;
 import ch.qos.logback.core.net.server.ServerSocketUtil;
 import ch.qos.logback.core.spi.PreSerializationTransformer;
+import ch.qos.logback.core.util.Duration;
 import ch.qos.logback.core.util.ExecutorServiceUtil;
 
 /**
@@ -56,6 +61,9 @@ public class AbstractSocketAppenderIntegrationTest {
 
     private static final int TIMEOUT = 2000;
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     private ScheduledExecutorService executorService = ExecutorServiceUtil.newScheduledExecutorService();
     private MockContext mockContext = new MockContext(executorService);
     private AutoFlushingObjectWriter objectWriter;
@@ -103,6 +111,69 @@ public class AbstractSocketAppenderIntegrationTest {
         appenderSocket.close();
     }
 
+    @Test
+    public void dispatchesCompressedBatches() throws Exception {
+
+        // given
+        ServerSocket serverSocket = ServerSocketUtil.createServerSocket();
+        instrumentedAppender.setRemoteHost(serverSocket.getInetAddress().getHostAddress());
+        instrumentedAppender.setPort(serverSocket.getLocalPort());
+        instrumentedAppender.setMaxBatchSize(16);
+        instrumentedAppender.setCompression(true);
+        instrumentedAppender.start();
+
+        Socket appenderSocket = serverSocket.accept();
+        serverSocket.close();
+
+        // when
+        instrumentedAppender.append("first event");
+        instrumentedAppender.append("second event");
+
+        // then
+        FramedInputStream fis = new FramedInputStream(new BufferedInputStream(appenderSocket.getInputStream()));
+        ObjectInputStream ois = new ObjectInputStream(fis);
+        assertEquals("first event", ois.readObject());
+        assertEquals("second event", ois.readObject());
+        appenderSocket.close();
+    }
+
+    @Test
+    public void spillsEventsWhileDisconnectedAndReplaysThemInOrder() throws Exception {
+
+        // given
+        ServerSocket serverSocket = ServerSocketUtil.createServerSocket();
+        int port = serverSocket.getLocalPort();
+        InetAddress address = serverSocket.getInetAddress();
+        serverSocket.close();
+        instrumentedAppender.setRemoteHost(address.getHostAddress());
+        instrumentedAppender.setPort(port);
+        instrumentedAppender.setReconnectionDelay(new Duration(50));
+        instrumentedAppender.setSpillDirectory(tmp.getRoot().getPath());
+        instrumentedAppender.start();
+
+        // when
+        instrumentedAppender.append("first event");
+        instrumentedAppender.append("second event");
+        instrumentedAppender.append("third event");
+
+        // then
+        assertEquals(2, instrumentedAppender.getSpilledEventCount());
+        serverSocket = new ServerSocket(port, 1, address);
+        Socket appenderSocket = serverSocket.accept();
+        serverSocket.close();
+        ObjectInputStream ois = new ObjectInputStream(appenderSocket.getInputStream());
+        assertEquals("first event", ois.readObject());
+        assertEquals("second event", ois.readObject());
+        assertEquals("third event", ois.readObject());
+        appenderSocket.close();
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (instrumentedAppender.getReplayedEventCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, instrumentedAppender.getReplayedEventCount());
+        assertEquals(0, instrumentedAppender.getDroppedEventCount());
+    }
+
     private static class InstrumentedSocketAppender extends AbstractSocketAppender<String> {
 
         public InstrumentedSocketAppender(QueueFactory queueFactory, ObjectWriterFactory objectWriterFactory) {
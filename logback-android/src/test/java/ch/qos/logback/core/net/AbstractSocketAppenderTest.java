@@ -151,6 +151,20 @@ public class AbstractSocketAppenderTest {
     verify(appender).addError(contains("Queue size must be greater than zero"));
   }
 
+  @Test
+  public void failsToStartWithNonPositiveMaxBatchSize() throws Exception {
+
+    // given
+    appender.setMaxBatchSize(0);
+
+    // when
+    appender.start();
+
+    // then
+    assertFalse(appender.isStarted());
+    verify(appender).addError(contains("Max batch size must be greater than zero"));
+  }
+
   @Test
   public void failsToStartWithUnresolvableRemoteHost() throws Exception {
 
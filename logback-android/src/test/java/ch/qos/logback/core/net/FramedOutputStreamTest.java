@@ -0,0 +1,135 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link FramedOutputStream} and {@link FramedInputStream}.
+ */
+public class FramedOutputStreamTest {
+
+  private final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+  @Test
+  public void sendsNothingUntilFrameIsWritten() throws Exception {
+    FramedOutputStream out = new FramedOutputStream(bos, false);
+    out.write(new byte[] { 1, 2, 3 });
+    out.flush();
+    assertEquals(0, bos.size());
+
+    out.writeFrame();
+    assertEquals(FramedOutputStream.HEADER.length + 5 + 3, bos.size());
+
+    out.writeFrame();
+    assertEquals(FramedOutputStream.HEADER.length + 5 + 3, bos.size());
+  }
+
+  @Test
+  public void roundTripsRawFrames() throws Exception {
+    assertRoundTrip(false);
+  }
+
+  @Test
+  public void roundTripsDeflatedFrames() throws Exception {
+    assertRoundTrip(true);
+  }
+
+  @Test
+  public void deflatedFramesShareHistory() throws Exception {
+    byte[] payload = "a message that is repeated in every batch".getBytes("UTF-8");
+    FramedOutputStream out = new FramedOutputStream(bos, true);
+    out.write(payload);
+    out.writeFrame();
+    int first = bos.size() - FramedOutputStream.HEADER.length;
+    out.write(payload);
+    out.writeFrame();
+    int second = bos.size() - first - FramedOutputStream.HEADER.length;
+    assertTrue(second < first / 2);
+  }
+
+  @Test
+  public void rejectsUnknownFrameFlags() throws Exception {
+    FramedOutputStream out = new FramedOutputStream(bos, false);
+    out.write(42);
+    out.writeFrame();
+    byte[] bytes = bos.toByteArray();
+    bytes[FramedOutputStream.HEADER.length] = 7;
+    FramedInputStream in = new FramedInputStream(new ByteArrayInputStream(bytes));
+    try {
+      in.read();
+      fail("expected StreamCorruptedException");
+    } catch (StreamCorruptedException expected) {
+    }
+  }
+
+  @Test
+  public void rejectsDeflatedFrameShorterThanAnnounced() throws Exception {
+    FramedOutputStream out = new FramedOutputStream(bos, true);
+    out.write(new byte[] { 1, 2, 3 });
+    out.writeFrame();
+    byte[] bytes = bos.toByteArray();
+    // announce the largest inflated length allowed, which must not be
+    // allocated up front
+    int inflatedLengthOffset = FramedOutputStream.HEADER.length + 5;
+    for (int i = 0; i < 4; i++) {
+      bytes[inflatedLengthOffset + i] = (byte) (FramedInputStream.MAX_FRAME_SIZE >>> (24 - 8 * i));
+    }
+    FramedInputStream in = new FramedInputStream(new ByteArrayInputStream(bytes));
+    assertEquals(1, in.read());
+    assertEquals(2, in.read());
+    assertEquals(3, in.read());
+    try {
+      in.read();
+      fail("expected StreamCorruptedException");
+    } catch (StreamCorruptedException expected) {
+    }
+  }
+
+  private void assertRoundTrip(boolean compress) throws Exception {
+    FramedOutputStream out = new FramedOutputStream(bos, compress);
+    byte[] expected = new byte[100000];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = (byte) (i % 251);
+    }
+    int offset = 0;
+    for (int size : new int[] { 1, 10, 1000, 98989 }) {
+      out.write(expected, offset, size);
+      out.writeFrame();
+      offset += size;
+    }
+    out.close();
+
+    DataInputStream in = new DataInputStream(new FramedInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    byte[] actual = new byte[expected.length];
+    in.readFully(actual);
+    assertArrayEquals(expected, actual);
+    assertEquals(-1, in.read());
+    assertTrue(!compress || bos.size() < expected.length / 10);
+    assertEquals(Arrays.hashCode(expected), Arrays.hashCode(actual));
+  }
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.*;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InvalidClassException;
 import java.io.ObjectOutputStream;
 
 import org.junit.After;
@@ -53,6 +54,29 @@ public class HardenedObjectInputStreamTest {
         assertEquals(innocent, back);
     }
 
+    @Test
+    public void resolvesClassesAgainAfterSenderReset() throws ClassNotFoundException, IOException {
+        for (int i = 0; i < 3; i++) {
+            Innocent innocent = new Innocent();
+            innocent.setAnInt(i);
+            oos.writeObject(innocent);
+            oos.reset();
+        }
+        oos.close();
+        inputStream = new HardenedObjectInputStream(new ByteArrayInputStream(bos.toByteArray()), whitelist);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, ((Innocent) inputStream.readObject()).getAnInt());
+        }
+        inputStream.close();
+    }
+
+    @Test(expected = InvalidClassException.class)
+    public void rejectsClassesOutsideWhitelist() throws ClassNotFoundException, IOException {
+        writeObject(oos, new Innocent());
+        inputStream = new HardenedObjectInputStream(new ByteArrayInputStream(bos.toByteArray()), new String[0]);
+        inputStream.readObject();
+    }
+
     private Innocent writeAndRead(Innocent innocent) throws IOException, ClassNotFoundException {
         writeObject(oos, innocent);
         ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
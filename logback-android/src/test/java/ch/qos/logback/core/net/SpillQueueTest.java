@@ -0,0 +1,134 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link SpillQueue}.
+ */
+public class SpillQueueTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new File(tmp.getRoot(), "spill");
+  }
+
+  @Test
+  public void readsRecordsInOrderAcrossSegments() throws Exception {
+    SpillQueue queue = open(64, 10000);
+    for (int i = 0; i < 20; i++) {
+      assertTrue(queue.offer(record(i)));
+    }
+    assertTrue(directory.list().length > 1);
+
+    for (int i = 0; i < 20; i++) {
+      assertArrayEquals(record(i), queue.read());
+    }
+    assertNull(queue.read());
+    queue.commit();
+    assertTrue(queue.isEmpty());
+    assertEquals(0, directory.list().length);
+    assertEquals(0, queue.getTotalSize());
+  }
+
+  @Test
+  public void rewindRereadsUncommittedRecords() throws Exception {
+    SpillQueue queue = open(64, 10000);
+    for (int i = 0; i < 10; i++) {
+      queue.offer(record(i));
+    }
+    queue.read();
+    queue.read();
+    queue.commit();
+    queue.read();
+    queue.rewind();
+    assertArrayEquals(record(2), queue.read());
+    assertFalse(queue.isEmpty());
+  }
+
+  @Test
+  public void rejectsRecordsBeyondTotalSizeCap() throws Exception {
+    SpillQueue queue = open(1000, 50);
+    assertTrue(queue.offer(new byte[30]));
+    assertFalse(queue.offer(new byte[30]));
+    assertEquals(38, queue.getTotalSize());
+  }
+
+  @Test
+  public void keepsUncommittedRecordsAcrossRestarts() throws Exception {
+    SpillQueue queue = open(64, 10000);
+    for (int i = 0; i < 10; i++) {
+      queue.offer(record(i));
+    }
+    queue.read();
+    queue.close();
+
+    queue = open(64, 10000);
+    assertFalse(queue.isEmpty());
+    assertArrayEquals(record(0), queue.read());
+    queue.offer(record(10));
+    for (int i = 1; i <= 10; i++) {
+      assertArrayEquals(record(i), queue.read());
+    }
+    assertNull(queue.read());
+  }
+
+  @Test
+  public void tornRecordEndsItsSegment() throws Exception {
+    SpillQueue queue = open(1000, 10000);
+    queue.offer(record(0));
+    queue.offer(record(1));
+    queue.close();
+    File segment = directory.listFiles()[0];
+    RandomAccessFile file = new RandomAccessFile(segment, "rw");
+    file.setLength(segment.length() - 1);
+    file.close();
+
+    queue = open(1000, 10000);
+    assertArrayEquals(record(0), queue.read());
+    assertNull(queue.read());
+    queue.commit();
+    assertTrue(queue.isEmpty());
+  }
+
+  private SpillQueue open(long segmentSize, long totalSizeCap) throws Exception {
+    SpillQueue queue = new SpillQueue(directory, segmentSize, totalSizeCap);
+    queue.open();
+    return queue;
+  }
+
+  private static byte[] record(int i) {
+    return ("record " + i).getBytes();
+  }
+}
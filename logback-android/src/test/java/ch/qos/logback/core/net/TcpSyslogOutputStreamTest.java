@@ -0,0 +1,214 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TcpSyslogOutputStream}.
+ */
+public class TcpSyslogOutputStreamTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private ServerSocket serverSocket;
+  private Socket socket;
+  private TcpSyslogOutputStream stream;
+
+  @Before
+  public void setUp() throws Exception {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    serverSocket.setSoTimeout(5000);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (stream != null) {
+      stream.close();
+    }
+    if (socket != null) {
+      socket.close();
+    }
+    serverSocket.close();
+  }
+
+  @Test
+  public void framesMessagesByOctetCounting() throws Exception {
+    stream = newStream(1024);
+    send("<14>first");
+    send("<14>second message");
+    send("<14>café");
+    stream.flushBatch();
+
+    List<String> messages = readMessages(3);
+    assertEquals("<14>first", messages.get(0));
+    assertEquals("<14>second message", messages.get(1));
+    assertEquals("<14>café", messages.get(2));
+  }
+
+  @Test
+  public void holdsMessagesUntilTheBatchIsFull() throws Exception {
+    // "9 <14>hello" takes 11 bytes, so two of them fill 22 bytes
+    stream = newStream(22);
+    send("<14>hello");
+    // the connection is opened by the first write
+    serverSocket.setSoTimeout(100);
+    try {
+      serverSocket.accept();
+      fail("expected no connection before the batch is full");
+    } catch (SocketTimeoutException expected) {
+      serverSocket.setSoTimeout(5000);
+    }
+
+    send("<14>world");
+    List<String> messages = readMessages(2);
+    assertEquals("<14>hello", messages.get(0));
+    assertEquals("<14>world", messages.get(1));
+  }
+
+  @Test
+  public void writesMessagesLargerThanTheBatchOnTheirOwn() throws Exception {
+    stream = newStream(16);
+    send("<14>small");
+    StringBuilder large = new StringBuilder("<14>");
+    for (int i = 0; i < 1000; i++) {
+      large.append((char) ('a' + i % 26));
+    }
+    send(large.toString());
+    send("<14>after");
+    stream.flushBatch();
+
+    List<String> messages = readMessages(3);
+    assertEquals("<14>small", messages.get(0));
+    assertEquals(large.toString(), messages.get(1));
+    assertEquals("<14>after", messages.get(2));
+  }
+
+  @Test
+  public void closeWritesPendingMessages() throws Exception {
+    stream = newStream(1024);
+    send("<14>last words");
+    stream.close();
+    stream = null;
+
+    assertEquals("<14>last words", readMessages(1).get(0));
+  }
+
+  @Test
+  public void reportsConnectionFailureThenDropsMessagesForAWhile() throws Exception {
+    int port = serverSocket.getLocalPort();
+    serverSocket.close();
+    stream = new TcpSyslogOutputStream("localhost", port, 16);
+    stream.write("<14>lost".getBytes(UTF_8));
+    stream.flush();
+    assertTrue(awaitFlushBatchFailure() instanceof ConnectException);
+    // within the reconnection delay, nothing is attempted
+    send("<14>dropped");
+    stream.flushBatch();
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+  }
+
+  @Test(timeout = 20000)
+  public void dropsMessagesInsteadOfWaitingForASlowServer() throws Exception {
+    stream = newStream(1024);
+    send("<14>hello");
+    stream.flushBatch();
+    // the server accepts the connection but never reads from it
+    accept();
+    byte[] message = new byte[1000];
+    Arrays.fill(message, (byte) 'x');
+    for (int i = 0; i < 20000; i++) {
+      stream.write(message);
+      stream.flush();
+    }
+    IOException e = awaitFlushBatchFailure();
+    assertTrue(e.getMessage(), e.getMessage().startsWith("Dropped"));
+  }
+
+  /**
+   * Calls {@link TcpSyslogOutputStream#flushBatch()} until it reports the
+   * failure of the writer thread.
+   */
+  private IOException awaitFlushBatchFailure() throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline) {
+      try {
+        stream.flushBatch();
+      } catch (IOException e) {
+        return e;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("expected flushBatch() to report a failure");
+  }
+
+  private TcpSyslogOutputStream newStream(int batchSize) throws Exception {
+    return new TcpSyslogOutputStream("localhost", serverSocket.getLocalPort(), batchSize);
+  }
+
+  private void send(String message) throws IOException {
+    stream.write(message.getBytes(UTF_8));
+    stream.flush();
+  }
+
+  private void accept() throws IOException {
+    if (socket == null) {
+      socket = serverSocket.accept();
+      socket.setSoTimeout(5000);
+    }
+  }
+
+  private List<String> readMessages(int count) throws IOException {
+    accept();
+    InputStream in = socket.getInputStream();
+    List<String> messages = new ArrayList<String>();
+    while (messages.size() < count) {
+      int length = 0;
+      int b;
+      while ((b = in.read()) != ' ') {
+        if (b < '0' || b > '9') {
+          fail("unexpected frame header byte " + b);
+        }
+        length = length * 10 + (b - '0');
+      }
+      ByteArrayOutputStream message = new ByteArrayOutputStream();
+      for (int i = 0; i < length; i++) {
+        message.write(in.read());
+      }
+      messages.add(new String(message.toByteArray(), UTF_8));
+    }
+    return messages;
+  }
+}
@@ -25,6 +25,6 @@ public class ListAppender<E> extends AppenderBase<E> {
   public List<E> list = new ArrayList<E>();
   
   protected void append(E e) {
-    list.add(e);
+    list.add(retain(e));
   }
 }
@@ -29,10 +29,13 @@ import ch.qos.logback.core.Context;
 import ch.qos.logback.core.ContextBase;
 import ch.qos.logback.core.appender.AbstractAppenderTest;
 import ch.qos.logback.core.encoder.DummyEncoder;
+import ch.qos.logback.core.recovery.ResilientFileOutputStream;
 import ch.qos.logback.core.status.Status;
 import ch.qos.logback.core.status.StatusChecker;
 import ch.qos.logback.core.testUtil.RandomUtil;
 import ch.qos.logback.core.util.CoreTestConstants;
+import ch.qos.logback.core.util.FileBackend;
+import ch.qos.logback.core.util.FileSize;
 import ch.qos.logback.core.util.StatusPrinter;
 
 public class RollingFileAppenderTest extends AbstractAppenderTest<Object> {
@@ -76,6 +79,24 @@ public class RollingFileAppenderTest extends AbstractAppenderTest<Object> {
     return rfa;
   }
 
+  @Test
+  public void activeFileLengthExcludesUnusedMappedRegion() {
+    rfa.setContext(context);
+    rfa.setFile(randomOutputDir + "mapped.log");
+    rfa.setBackend(FileBackend.MAPPED);
+    rfa.setMappedRegionSize(new FileSize(64 * 1024));
+    tbrp.setFileNamePattern(randomOutputDir + "mapped-%d.log");
+    tbrp.start();
+    rfa.setRollingPolicy(tbrp);
+    rfa.start();
+
+    rfa.doAppend("hello");
+    long contentLength = ((ResilientFileOutputStream) rfa.getOutputStream()).getContentLength();
+    assertTrue(contentLength > 0);
+    assertEquals(contentLength, rfa.currentlyActiveFile.length());
+    rfa.stop();
+  }
+
   @Test
   public void testPrudentModeLogicalImplications() {
     rfa.setContext(context);
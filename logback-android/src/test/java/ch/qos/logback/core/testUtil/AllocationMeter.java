@@ -0,0 +1,123 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.testUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/**
+ * Measures the number of bytes the current thread allocates per call of an
+ * action, using the per-thread allocation counter of HotSpot JVMs.
+ *
+ * <p>The action is first run often enough to be compiled. It is then timed in
+ * several rounds, and the smallest per-call figure is kept, which filters out
+ * one-off allocations such as table resizing.</p>
+ */
+public class AllocationMeter {
+
+  public interface Action {
+    void run() throws Exception;
+  }
+
+  static final int WARMUP_CALLS = 20000;
+  static final int ROUNDS = 5;
+  static final int CALLS_PER_ROUND = 2000;
+
+  private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+
+  private static com.sun.management.ThreadMXBean threadMXBean() {
+    Object bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+      if (threadBean.isThreadAllocatedMemorySupported()) {
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether allocations can be measured on this JVM.
+   */
+  public static boolean isSupported() {
+    return THREAD_MX_BEAN != null;
+  }
+
+  /**
+   * Returns the bytes allocated per call of the given action.
+   *
+   * @param action the action to measure
+   * @return the bytes allocated per call, rounded down
+   * @throws Exception if the action fails
+   */
+  public static long bytesPerCall(Action action) throws Exception {
+    return bytesPerCall(action, WARMUP_CALLS, CALLS_PER_ROUND);
+  }
+
+  /**
+   * Returns the bytes allocated per call of the given action, for actions too
+   * slow to be run the default number of times.
+   */
+  public static long bytesPerCall(Action action, int warmupCalls, int callsPerRound)
+      throws Exception {
+    long threadId = Thread.currentThread().getId();
+    for (int i = 0; i < warmupCalls; i++) {
+      action.run();
+    }
+    long min = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < callsPerRound; i++) {
+        action.run();
+      }
+      long after = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+      min = Math.min(min, after - before);
+    }
+    // the counter itself may allocate a few bytes per reading
+    return min / callsPerRound;
+  }
+
+  /**
+   * Loads allocation budgets, in bytes per call, from a properties resource.
+   * A system property of the same name as a budget overrides it.
+   *
+   * @param resource the resource name, relative to the class path root
+   * @return the budgets
+   * @throws IOException if the resource cannot be read
+   */
+  public static Properties loadBudgets(String resource) throws IOException {
+    Properties budgets = new Properties();
+    InputStream in = AllocationMeter.class.getClassLoader().getResourceAsStream(resource);
+    if (in == null) {
+      throw new IOException("Missing allocation budgets [" + resource + "]");
+    }
+    try {
+      budgets.load(in);
+    } finally {
+      in.close();
+    }
+    for (String name : budgets.stringPropertyNames()) {
+      String override = System.getProperty(name);
+      if (override != null) {
+        budgets.setProperty(name, override);
+      }
+    }
+    return budgets;
+  }
+}
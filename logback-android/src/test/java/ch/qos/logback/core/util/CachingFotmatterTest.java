@@ -16,11 +16,16 @@
 package ch.qos.logback.core.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ch.qos.logback.core.CoreConstants;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -52,4 +57,76 @@ public class CachingFotmatterTest {
     // AWST (Perth) is 8 hours ahead of UTC
     assertEquals("2015-03-26T17:49", result);
   }
+
+  static final String[] PATTERNS = {
+      CoreConstants.ISO8601_PATTERN,
+      "HH:mm:ss.SSS",
+      "yyyy-MM-dd'T'HH:mm:ss.SSSXXX",
+      "EEE, d MMM yyyy HH:mm:ss Z",
+      "yy.MM.dd S SS 'S' ''SSSS''",
+      "[yyyy] {HH} #mm",
+      "EEEE MMMM a hh K k D w W z zzzz G",
+      // no DateTimeFormatter equivalent
+      "u F ddd aa GGGG MMMMM",
+  };
+
+  @Test
+  public void matchesSimpleDateFormat() {
+    long[] timestamps = { 0L, 1L, 999L, 1000L, 1427363340123L, 1427363340123L, 1427363340999L,
+        1427363341007L, 1427363399050L, 1500000000000L, -1L, -1001L };
+    for (String pattern : PATTERNS) {
+      for (TimeZone tz : new TimeZone[] { utcTZ, perthTZ, TimeZone.getTimeZone("America/New_York") }) {
+        SimpleDateFormat expectedFormat = new SimpleDateFormat(pattern, Locale.US);
+        expectedFormat.setTimeZone(tz);
+        CachingDateFormatter cdf = new CachingDateFormatter(pattern, Locale.US);
+        cdf.setTimeZone(tz);
+        for (long ts : timestamps) {
+          String expected = expectedFormat.format(new Date(ts));
+          assertEquals(pattern + " @" + ts, expected, cdf.format(ts));
+          StringBuilder buf = new StringBuilder(">");
+          cdf.format(ts, buf);
+          assertEquals(pattern + " @" + ts, ">" + expected, buf.toString());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void translatesOnlyCompatiblePatterns() {
+    assertEquals("yyyy-MM-dd HH:mm:ss,", CachingDateFormatter.toDateTimeFormatterPattern("yyyy-MM-dd HH:mm:ss,"));
+    assertEquals("'['yyyy']'", CachingDateFormatter.toDateTimeFormatterPattern("[yyyy]"));
+    assertNull(CachingDateFormatter.toDateTimeFormatterPattern("u"));
+    assertNull(CachingDateFormatter.toDateTimeFormatterPattern("aa"));
+    assertNull(CachingDateFormatter.toDateTimeFormatterPattern("EEEEE"));
+  }
+
+  @Test
+  public void concurrentFormatting() throws InterruptedException {
+    final String pattern = "yyyy-MM-dd HH:mm:ss.SSS";
+    final CachingDateFormatter cdf = new CachingDateFormatter(pattern);
+    cdf.setTimeZone(utcTZ);
+    final AtomicReference<String> failure = new AtomicReference<String>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final long offset = t * 7919L;
+      threads[t] = new Thread() {
+        public void run() {
+          SimpleDateFormat expectedFormat = new SimpleDateFormat(pattern, Locale.US);
+          expectedFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+          for (long ts = 1427363340000L + offset; ts < 1427363340000L + offset + 20000; ts += 13) {
+            String expected = expectedFormat.format(new Date(ts));
+            String actual = cdf.format(ts);
+            if (!expected.equals(actual)) {
+              failure.set(expected + " != " + actual);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertNull(failure.get());
+  }
 }
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2019 Anthony Trinh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.qos.logback.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RingBufferBlockingQueueTest {
+
+  RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(3, WaitStrategy.PARK);
+
+  @Test
+  public void offerAndPollPreserveOrder() {
+    assertTrue(queue.offer(1));
+    assertTrue(queue.offer(2));
+    assertEquals(2, queue.size());
+    assertEquals(1, queue.remainingCapacity());
+    assertEquals(Integer.valueOf(1), queue.peek());
+    assertEquals(Integer.valueOf(1), queue.poll());
+    assertEquals(Integer.valueOf(2), queue.poll());
+    assertNull(queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void offerFailsWhenFull() {
+    for (int i = 0; i < 3; i++) {
+      assertTrue(queue.offer(i));
+    }
+    assertFalse(queue.offer(3));
+    assertEquals(0, queue.remainingCapacity());
+    queue.poll();
+    assertTrue(queue.offer(3));
+  }
+
+  @Test
+  public void holdsOneElementWithCapacityOne() {
+    RingBufferBlockingQueue<Integer> single = new RingBufferBlockingQueue<Integer>(1, WaitStrategy.PARK);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(single.offer(i));
+      assertFalse(single.offer(-1));
+      assertEquals(1, single.size());
+      assertEquals(Integer.valueOf(i), single.poll());
+      assertNull(single.poll());
+    }
+  }
+
+  @Test
+  public void wrapsAroundManyTimes() {
+    for (int i = 0; i < 100; i++) {
+      assertTrue(queue.offer(i));
+      assertEquals(Integer.valueOf(i), queue.poll());
+    }
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void drainToRespectsMaxElements() {
+    queue.offer(1);
+    queue.offer(2);
+    queue.offer(3);
+    List<Integer> list = new ArrayList<Integer>();
+    assertEquals(2, queue.drainTo(list, 2));
+    assertEquals(1, queue.drainTo(list));
+    assertEquals(3, list.size());
+    assertEquals(Integer.valueOf(3), list.get(2));
+  }
+
+  @Test
+  public void iteratorReturnsSnapshot() {
+    queue.offer(1);
+    queue.offer(2);
+    Iterator<Integer> it = queue.iterator();
+    queue.poll();
+    assertEquals(Integer.valueOf(1), it.next());
+    assertEquals(Integer.valueOf(2), it.next());
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void timedPollReturnsNullOnTimeout() throws InterruptedException {
+    assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void timedOfferReturnsFalseOnTimeout() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      queue.offer(i);
+    }
+    assertFalse(queue.offer(3, 10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test(timeout = 2000)
+  public void takeIsInterruptible() {
+    Thread.currentThread().interrupt();
+    try {
+      queue.take();
+    } catch (InterruptedException e) {
+      assertFalse(Thread.currentThread().isInterrupted());
+      return;
+    }
+    throw new AssertionError("take() should have thrown InterruptedException");
+  }
+
+  @Test(timeout = 5000)
+  public void concurrentProducersLoseNothing() throws InterruptedException {
+    for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+      final RingBufferBlockingQueue<Integer> q = new RingBufferBlockingQueue<Integer>(8, waitStrategy);
+      final int producerCount = 4;
+      final int loopLen = 5000;
+      Thread[] producers = new Thread[producerCount];
+      for (int p = 0; p < producerCount; p++) {
+        final int base = p * loopLen;
+        producers[p] = new Thread(new Runnable() {
+          public void run() {
+            try {
+              for (int i = 0; i < loopLen; i++) {
+                q.put(base + i);
+              }
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+          }
+        });
+        producers[p].start();
+      }
+      long sum = 0;
+      int[] lastSeen = new int[producerCount];
+      for (int i = 0; i < producerCount * loopLen; i++) {
+        int value = q.take();
+        int producer = value / loopLen;
+        // elements of any given producer must come out in the order they were put
+        assertTrue(value % loopLen >= lastSeen[producer]);
+        lastSeen[producer] = value % loopLen;
+        sum += value;
+      }
+      for (Thread producer : producers) {
+        producer.join();
+      }
+      long n = producerCount * loopLen;
+      assertEquals(n * (n - 1) / 2, sum);
+      assertNull(q.poll());
+    }
+  }
+}